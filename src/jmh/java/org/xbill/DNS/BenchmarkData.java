@@ -0,0 +1,150 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.xbill.DNS.dnssec.RecordedResponses;
+
+/**
+ * Corpora shared by the benchmarks, built from the signed root zone and the recorded responses in
+ * the test resources.
+ */
+final class BenchmarkData {
+  private static byte[] rootZoneBytes;
+  private static List<Record> rootZone;
+  private static List<Message> recordedResponses;
+
+  private BenchmarkData() {}
+
+  /** The text of the signed root zone. */
+  static synchronized byte[] rootZoneBytes() {
+    if (rootZoneBytes == null) {
+      try (InputStream in = BenchmarkData.class.getResourceAsStream("/root.zone")) {
+        if (in == null) {
+          throw new IllegalStateException("root.zone not found on the classpath");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+          out.write(buffer, 0, n);
+        }
+        rootZoneBytes = out.toByteArray();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return rootZoneBytes;
+  }
+
+  /** The records of the signed root zone, in zone file order. */
+  static synchronized List<Record> rootZone() {
+    if (rootZone == null) {
+      rootZone = Collections.unmodifiableList(parse(rootZoneBytes()));
+    }
+
+    return rootZone;
+  }
+
+  static List<Record> parse(byte[] zone) {
+    List<Record> records = new ArrayList<>();
+    try (Master m = new Master(new ByteArrayInputStream(zone), Name.root)) {
+      Record r;
+      while ((r = m.nextRecord()) != null) {
+        records.add(r);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return records;
+  }
+
+  /** The RRsets of the root zone, with the signatures covering them. */
+  static List<RRset> rootZoneRRsets() {
+    Map<Name, Map<Integer, RRset>> byName = new LinkedHashMap<>();
+    for (Record r : rootZone()) {
+      byName
+          .computeIfAbsent(r.getName(), k -> new LinkedHashMap<>())
+          .computeIfAbsent(r.getRRsetType(), k -> new RRset())
+          .addRR(r);
+    }
+
+    List<RRset> rrsets = new ArrayList<>();
+    for (Map<Integer, RRset> types : byName.values()) {
+      rrsets.addAll(types.values());
+    }
+    return rrsets;
+  }
+
+  /**
+   * Real responses recorded from public resolvers, with name compression, OPT records, RRSIGs and
+   * NSEC/NSEC3 proofs in mixed sections.
+   */
+  static synchronized List<Message> recordedResponses() {
+    if (recordedResponses == null) {
+      try {
+        recordedResponses = Collections.unmodifiableList(RecordedResponses.load());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return recordedResponses;
+  }
+
+  /** A referral for {@code com.} with all the glue records, like a root server would send it. */
+  static Message referral() {
+    Name com = Name.fromConstantString("com.");
+    Message m = new Message();
+    m.getHeader().setFlag(Flags.QR);
+    m.addRecord(
+        Record.newRecord(Name.fromConstantString("www.example.com."), Type.A, DClass.IN),
+        Section.QUESTION);
+    List<Name> servers = new ArrayList<>();
+    for (Record r : rootZone()) {
+      if (r.getName().equals(com) && (r.getRRsetType() == Type.NS || r.getRRsetType() == Type.DS)) {
+        m.addRecord(r, Section.AUTHORITY);
+        if (r instanceof NSRecord) {
+          servers.add(((NSRecord) r).getTarget());
+        }
+      }
+    }
+    for (Record r : rootZone()) {
+      if ((r.getType() == Type.A || r.getType() == Type.AAAA) && servers.contains(r.getName())) {
+        m.addRecord(r, Section.ADDITIONAL);
+      }
+    }
+    return m;
+  }
+
+  /** An AXFR message of the root zone records that is filled up to 64 KiB. */
+  static Message transfer() {
+    Message m = new Message();
+    m.getHeader().setFlag(Flags.QR);
+    m.getHeader().setFlag(Flags.AA);
+    m.addRecord(Record.newRecord(Name.root, Type.AXFR, DClass.IN), Section.QUESTION);
+    int length = Header.LENGTH + 5;
+    for (Record r : rootZone()) {
+      // uncompressed length, the compressed message is a bit smaller
+      int recordLength = r.getName().length() + 10 + r.rdataToWireCanonical().length;
+      if (length + recordLength > Message.MAXLENGTH) {
+        break;
+      }
+
+      m.addRecord(r, Section.ANSWER);
+      length += recordLength;
+    }
+    return m;
+  }
+}
@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent lookups and updates of a cache filled with the delegations of the root zone. Each
+ * benchmark runs with 1, 4, 16 and 64 threads ({@code CacheBenchmark.Threads1} to {@code
+ * CacheBenchmark.Threads64}) to show how the concurrency level scales; select one of them with e.g.
+ * {@code -Djmh.args="CacheBenchmark.Threads64"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public abstract class CacheBenchmark {
+  @Param({"1", "16"})
+  int concurrencyLevel;
+
+  private Cache cache;
+  private Name[] names;
+  private RRset[] rrsets;
+
+  @Setup
+  public void setup() {
+    cache = new Cache(DClass.IN, concurrencyLevel);
+    List<Name> delegations = new ArrayList<>();
+    List<RRset> nsSets = new ArrayList<>();
+    for (RRset rrset : BenchmarkData.rootZoneRRsets()) {
+      if (rrset.getType() == Type.NS && !rrset.getName().equals(Name.root)) {
+        delegations.add(rrset.getName());
+        nsSets.add(rrset);
+        cache.addRRset(rrset, Credibility.AUTH_AUTHORITY);
+      }
+    }
+
+    names = delegations.toArray(new Name[0]);
+    rrsets = nsSets.toArray(new RRset[0]);
+  }
+
+  @Benchmark
+  public SetResponse lookupRecords() {
+    int i = ThreadLocalRandom.current().nextInt(names.length);
+    return cache.lookupRecords(names[i], Type.NS, Credibility.NORMAL);
+  }
+
+  @Benchmark
+  public SetResponse lookupRecordsWithUpdates() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int i = random.nextInt(names.length);
+    if (random.nextInt(10) == 0) {
+      cache.addRRset(rrsets[i], Credibility.AUTH_AUTHORITY);
+      return null;
+    }
+
+    return cache.lookupRecords(names[i], Type.NS, Credibility.NORMAL);
+  }
+
+  @Threads(1)
+  public static class Threads1 extends CacheBenchmark {}
+
+  @Threads(4)
+  public static class Threads4 extends CacheBenchmark {}
+
+  @Threads(16)
+  public static class Threads16 extends CacheBenchmark {}
+
+  @Threads(64)
+  public static class Threads64 extends CacheBenchmark {}
+}
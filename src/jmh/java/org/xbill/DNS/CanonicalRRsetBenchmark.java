@@ -0,0 +1,106 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the canonical form of large RRsets for signing and verification: 100 TXT records of 200
+ * bytes and 20 DNSKEYs (RSA 2048). Run with {@code -prof gc} to see the allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CanonicalRRsetBenchmark {
+  private static final Name NAME = Name.fromConstantString("Large.Example.");
+
+  @Param({"TXT", "DNSKEY"})
+  private String type;
+
+  private RRset rrset;
+  private RRSIGRecord rrsig;
+  private DNSKEYRecord signingKey;
+  private KeyPair signingKeyPair;
+  private Instant inception;
+  private Instant expiration;
+
+  @Setup
+  public void setup() throws GeneralSecurityException, DNSSEC.DNSSECException {
+    Random random = new Random(0);
+    rrset = new RRset();
+    if (type.equals("TXT")) {
+      for (int i = 0; i < 100; i++) {
+        char[] text = new char[200];
+        for (int j = 0; j < text.length; j++) {
+          text[j] = (char) ('a' + random.nextInt(26));
+        }
+        rrset.addRR(new TXTRecord(NAME, DClass.IN, 3600, new String(text)));
+      }
+    } else {
+      KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+      rsa.initialize(2048);
+      for (int i = 0; i < 20; i++) {
+        rrset.addRR(
+            new DNSKEYRecord(
+                NAME,
+                DClass.IN,
+                3600,
+                DNSKEYRecord.Flags.ZONE_KEY,
+                DNSKEYRecord.Protocol.DNSSEC,
+                DNSSEC.Algorithm.RSASHA256,
+                rsa.generateKeyPair().getPublic()));
+      }
+    }
+
+    KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+    ec.initialize(new ECGenParameterSpec("secp256r1"));
+    signingKeyPair = ec.generateKeyPair();
+    signingKey =
+        new DNSKEYRecord(
+            NAME,
+            DClass.IN,
+            3600,
+            DNSKEYRecord.Flags.ZONE_KEY,
+            DNSKEYRecord.Protocol.DNSSEC,
+            DNSSEC.Algorithm.ECDSAP256SHA256,
+            signingKeyPair.getPublic());
+    inception = Instant.parse("2024-01-01T00:00:00Z");
+    expiration = inception.plusSeconds(86400 * 30);
+    rrsig = sign();
+  }
+
+  @Benchmark
+  public byte[] digestRRset() {
+    return DNSSEC.digestRRset(rrsig, rrset);
+  }
+
+  @Benchmark
+  public RRSIGRecord sign() throws DNSSEC.DNSSECException {
+    return DNSSEC.sign(rrset, signingKey, signingKeyPair.getPrivate(), inception, expiration);
+  }
+
+  @Benchmark
+  public RRSIGRecord verify() throws DNSSEC.DNSSECException {
+    DNSSEC.verify(rrset, rrsig, signingKey, inception.plusSeconds(1));
+    return rrsig;
+  }
+}
@@ -0,0 +1,89 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Verifies the signed RRsets of the root zone (RSA/SHA-256) with their zone signing key. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DnssecBenchmark {
+  private final List<RRset> rrsets = new ArrayList<>();
+  private final List<RRSIGRecord> sigs = new ArrayList<>();
+  private final List<DNSKEYRecord> keys = new ArrayList<>();
+  private final List<byte[]> keyWires = new ArrayList<>();
+  private Instant now;
+  private int index;
+
+  @Setup
+  public void setup() {
+    Map<Integer, DNSKEYRecord> keysByTag = new HashMap<>();
+    for (Record r : BenchmarkData.rootZone()) {
+      if (r instanceof DNSKEYRecord) {
+        keysByTag.put(((DNSKEYRecord) r).getFootprint(), (DNSKEYRecord) r);
+      }
+    }
+
+    for (RRset rrset : BenchmarkData.rootZoneRRsets()) {
+      for (RRSIGRecord sig : rrset.sigs()) {
+        DNSKEYRecord key = keysByTag.get(sig.getFootprint());
+        if (key != null) {
+          rrsets.add(rrset);
+          sigs.add(sig);
+          keys.add(key);
+          keyWires.add(key.toWire(Section.ANSWER));
+          // the signatures of the recorded zone are long expired
+          if (now == null) {
+            now = sig.getTimeSigned().plusSeconds(1);
+          }
+        }
+      }
+    }
+  }
+
+  private int next() {
+    index = (index + 1) % rrsets.size();
+    return index;
+  }
+
+  @Benchmark
+  public RRSIGRecord verify() throws DNSSEC.DNSSECException {
+    int i = next();
+    DNSSEC.verify(rrsets.get(i), sigs.get(i), keys.get(i), now);
+    return sigs.get(i);
+  }
+
+  /** Verifies with a copy of the key, like a validator does with each fetched DNSKEY response. */
+  @Benchmark
+  public RRSIGRecord verifyWithParsedKey() throws IOException, DNSSEC.DNSSECException {
+    int i = next();
+    DNSKEYRecord key = (DNSKEYRecord) Record.fromWire(keyWires.get(i), Section.ANSWER);
+    DNSSEC.verify(rrsets.get(i), sigs.get(i), key, now);
+    return sigs.get(i);
+  }
+
+  @Benchmark
+  public byte[] digestRRset() {
+    int i = next();
+    return DNSSEC.digestRRset(sigs.get(i), rrsets.get(i));
+  }
+}
@@ -0,0 +1,178 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.tools.jnamed;
+
+/**
+ * A load test of {@link jnamed} on the loopback interface. Each benchmark thread is a client with
+ * one outstanding query over UDP or a persistent TCP connection, or 16 pipelined queries over TCP.
+ * The throughput mode reports the queries per second of all clients, the sample mode the latency
+ * percentiles, including p0.99. The server is measured with and without its response cache.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class JnamedBenchmark {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+  private static final int NAMES = 1024;
+  private static final int PIPELINED = 16;
+
+  @Param({"1", "4"})
+  private int serverThreads;
+
+  @Param({"0", "10000"})
+  private int responseCache;
+
+  private jnamed server;
+  private InetSocketAddress udpAddress;
+  private InetSocketAddress tcpAddress;
+  private byte[][] queries;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Zone zone =
+        new Zone(
+            ORIGIN,
+            new SOARecord(
+                ORIGIN,
+                DClass.IN,
+                3600,
+                new Name("ns", ORIGIN),
+                new Name("hostmaster", ORIGIN),
+                1,
+                3600,
+                600,
+                86400,
+                300),
+            new NSRecord(ORIGIN, DClass.IN, 3600, new Name("ns", ORIGIN)));
+    queries = new byte[NAMES][];
+    for (int i = 0; i < NAMES; i++) {
+      Name name = new Name("host" + i, ORIGIN);
+      zone.addRecord(
+          new ARecord(name, DClass.IN, 3600, new byte[] {10, 0, (byte) (i >>> 8), (byte) i}));
+      Message query = Message.newQuery(Record.newRecord(name, Type.A, DClass.IN));
+      query.addRecord(new OPTRecord(1232, 0, 0), Section.ADDITIONAL);
+      queries[i] = query.toWire();
+    }
+
+    server = new jnamed();
+    server.setThreads(serverThreads);
+    server.setResponseCacheSize(responseCache);
+    server.addZone(zone);
+    InetAddress loopback = InetAddress.getLoopbackAddress();
+    udpAddress = server.listenUDP(loopback, 0);
+    tcpAddress = server.listenTCP(loopback, 0);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    server.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+    private DatagramChannel udp;
+    private SocketChannel tcp;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(65535 * PIPELINED);
+    private byte[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup(JnamedBenchmark benchmark) throws IOException {
+      queries = benchmark.queries;
+      udp = DatagramChannel.open();
+      udp.connect(benchmark.udpAddress);
+      tcp = SocketChannel.open(benchmark.tcpAddress);
+      tcp.socket().setTcpNoDelay(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      udp.close();
+      tcp.close();
+    }
+
+    private byte[] nextQuery() {
+      return queries[next++ & (NAMES - 1)];
+    }
+
+    private void readFully(int length) throws IOException {
+      buffer.clear();
+      buffer.limit(length);
+      while (buffer.hasRemaining()) {
+        if (tcp.read(buffer) < 0) {
+          throw new EOFException();
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public int udp(Client client) throws IOException {
+    client.udp.write(ByteBuffer.wrap(client.nextQuery()));
+    client.buffer.clear();
+    return client.udp.read(client.buffer);
+  }
+
+  @Benchmark
+  public int tcp(Client client) throws IOException {
+    return tcpQueries(client, 1);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PIPELINED)
+  public int tcpPipelined(Client client) throws IOException {
+    return tcpQueries(client, PIPELINED);
+  }
+
+  private static int tcpQueries(Client client, int count) throws IOException {
+    client.buffer.clear();
+    for (int i = 0; i < count; i++) {
+      byte[] query = client.nextQuery();
+      client.buffer.putShort((short) query.length);
+      client.buffer.put(query);
+    }
+
+    client.buffer.flip();
+    while (client.buffer.hasRemaining()) {
+      client.tcp.write(client.buffer);
+    }
+
+    int total = 0;
+    for (int i = 0; i < count; i++) {
+      client.readFully(2);
+      int length = client.buffer.getShort(0) & 0xFFFF;
+      client.readFully(length);
+      total += length;
+    }
+
+    return total;
+  }
+}
@@ -0,0 +1,77 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and serialization (including name compression) of a referral, a 64 KiB transfer and the
+ * recorded responses of real resolvers. Each operation handles one message; the recorded responses
+ * are used in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageBenchmark {
+  @Param({"referral", "transfer", "recorded"})
+  String message;
+
+  private Message[] parsed;
+  private byte[][] wire;
+  private int next;
+
+  @Setup
+  public void setup() {
+    switch (message) {
+      case "referral":
+        parsed = new Message[] {BenchmarkData.referral()};
+        break;
+      case "transfer":
+        parsed = new Message[] {BenchmarkData.transfer()};
+        break;
+      default:
+        parsed = BenchmarkData.recordedResponses().toArray(new Message[0]);
+        break;
+    }
+
+    wire = new byte[parsed.length][];
+    for (int i = 0; i < parsed.length; i++) {
+      wire[i] = parsed[i].toWire();
+    }
+  }
+
+  private int next() {
+    int i = next;
+    next = i + 1 == parsed.length ? 0 : i + 1;
+    return i;
+  }
+
+  @Benchmark
+  public Message parse() throws IOException {
+    return new Message(wire[next()]);
+  }
+
+  @Benchmark
+  public byte[] toWire() {
+    return parsed[next()].toWire();
+  }
+
+  @Benchmark
+  public byte[] toWireTruncated() {
+    return parsed[next()].toWire(1232);
+  }
+}
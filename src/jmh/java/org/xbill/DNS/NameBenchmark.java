@@ -0,0 +1,78 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing, hashing and comparing the owner names of the root zone. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NameBenchmark {
+  private String[] strings;
+  private Name[] names;
+  private Name[] copies;
+  private int index;
+
+  @Setup
+  public void setup() throws IOException {
+    List<Name> all = new ArrayList<>();
+    for (Record r : BenchmarkData.rootZone()) {
+      if (all.isEmpty() || !all.get(all.size() - 1).equals(r.getName())) {
+        all.add(r.getName());
+      }
+    }
+
+    names = all.toArray(new Name[0]);
+    strings = new String[names.length];
+    copies = new Name[names.length];
+    for (int i = 0; i < names.length; i++) {
+      strings[i] = names[i].toString();
+      copies[i] = new Name(names[i].toWire());
+    }
+  }
+
+  private int next() {
+    index = (index + 1) % names.length;
+    return index;
+  }
+
+  @Benchmark
+  public Name fromString() throws TextParseException {
+    return Name.fromString(strings[next()]);
+  }
+
+  @Benchmark
+  public int hashCodeUncached() {
+    // a new name has no cached hash code yet
+    return new Name(names[next()], 0).hashCode();
+  }
+
+  @Benchmark
+  public boolean equalsSame() {
+    int i = next();
+    return names[i].equals(copies[i]);
+  }
+
+  @Benchmark
+  public void compareToNeighbour(Blackhole bh) {
+    int i = next();
+    bh.consume(names[i].compareTo(names[(i + 1) % names.length]));
+  }
+}
@@ -0,0 +1,120 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends batches of outstanding UDP queries through {@link NioUdpClient} to a local echo responder
+ * and waits for all replies. Use {@code -p outstanding=100000 -p poolSize=16} for the large
+ * batches, without a socket pool every query needs its own file descriptor. Add {@code -prof gc}
+ * for the allocation rate of the receive path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NioUdpBenchmark {
+  @Param({"1000"})
+  int outstanding;
+
+  @Param({"1", "4"})
+  int selectorThreads;
+
+  @Param({"0", "16"})
+  int poolSize;
+
+  private DatagramChannel responder;
+  private Thread responderThread;
+  private NioUdpClient client;
+  private InetSocketAddress remote;
+  private Message[] queries;
+  private byte[][] wires;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    responder = DatagramChannel.open();
+    responder.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    remote = (InetSocketAddress) responder.getLocalAddress();
+    responderThread = new Thread(this::echo, "benchmark echo responder");
+    responderThread.setDaemon(true);
+    responderThread.start();
+
+    NioClient.close();
+    System.setProperty(NioClient.SELECTOR_THREADS_PROPERTY, Integer.toString(selectorThreads));
+    client = new NioUdpClient(poolSize, 1000);
+
+    queries = new Message[outstanding];
+    wires = new byte[outstanding][];
+    for (int i = 0; i < outstanding; i++) {
+      queries[i] =
+          Message.newQuery(
+              Record.newRecord(Name.fromConstantString("q" + i + ".example."), Type.A, DClass.IN));
+      wires[i] = queries[i].toWire();
+    }
+  }
+
+  private void echo() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(Message.MAXLENGTH);
+    while (responder.isOpen()) {
+      try {
+        buffer.clear();
+        SocketAddress sender = responder.receive(buffer);
+        buffer.flip();
+        responder.send(buffer, sender);
+      } catch (IOException e) {
+        // closed
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException, InterruptedException {
+    NioClient.close();
+    System.clearProperty(NioClient.SELECTOR_THREADS_PROPERTY);
+    responder.close();
+    responderThread.join();
+  }
+
+  @Benchmark
+  public int sendBatch() {
+    @SuppressWarnings("unchecked")
+    CompletableFuture<byte[]>[] futures = new CompletableFuture[outstanding];
+    for (int i = 0; i < outstanding; i++) {
+      futures[i] =
+          client.sendAndReceiveUdp(
+              null, remote, queries[i], wires[i], 1232, Duration.ofSeconds(10));
+    }
+
+    int received = 0;
+    for (CompletableFuture<byte[]> f : futures) {
+      // lost datagrams time out, they count as not received
+      if (f.handle((r, ex) -> r != null).join()) {
+        received++;
+      }
+    }
+    return received;
+  }
+}
@@ -0,0 +1,123 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a {@link Zone} with a {@link PackedZone} of 500000 names with an A and a TXT record
+ * each. The heap retained by the zone is printed during the setup, the benchmarks measure lookups
+ * of existing and missing names.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PackedZoneBenchmark {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+  private static final int NAMES = 500000;
+
+  @Param({"Zone", "PackedZone", "PackedZone-direct"})
+  private String store;
+
+  private BiFunction<Name, Integer, SetResponse> lookup;
+  private Name[] existing;
+  private Name[] missing;
+  private int next;
+
+  @Setup
+  public void setup() throws IOException {
+    long before = usedHeap();
+    Record[] records = new Record[NAMES * 2 + 2];
+    records[0] =
+        new SOARecord(
+            ORIGIN,
+            DClass.IN,
+            3600,
+            new Name("ns", ORIGIN),
+            new Name("hostmaster", ORIGIN),
+            1,
+            3600,
+            600,
+            86400,
+            300);
+    records[1] = new NSRecord(ORIGIN, DClass.IN, 3600, new Name("ns", ORIGIN));
+    existing = new Name[1024];
+    missing = new Name[1024];
+    for (int i = 0; i < NAMES; i++) {
+      Name name = new Name("host" + i + ".sub" + i % 1000, ORIGIN);
+      records[2 * i + 2] =
+          new ARecord(
+              name,
+              DClass.IN,
+              3600,
+              new byte[] {10, (byte) (i >>> 16), (byte) (i >>> 8), (byte) i});
+      records[2 * i + 3] = new TXTRecord(name, DClass.IN, 3600, "record " + i);
+      if (i % (NAMES / 1024) == 0 && i / (NAMES / 1024) < 1024) {
+        existing[i / (NAMES / 1024)] = new Name("host" + i + ".sub" + i % 1000, ORIGIN);
+        missing[i / (NAMES / 1024)] = new Name("missing" + i + ".sub" + i % 1000, ORIGIN);
+      }
+    }
+
+    Object zone;
+    switch (store) {
+      case "Zone":
+        Zone z = new Zone(ORIGIN, records);
+        lookup = z::findRecords;
+        zone = z;
+        break;
+      case "PackedZone":
+        PackedZone p = new PackedZone(ORIGIN, records);
+        lookup = p::findRecords;
+        zone = p;
+        break;
+      default:
+        PackedZone d = new PackedZone(new Zone(ORIGIN, records), true);
+        lookup = d::findRecords;
+        zone = d;
+        break;
+    }
+
+    records = null;
+    System.out.printf("%n%s retains %d MB of heap%n", store, (usedHeap() - before) >> 20);
+    if (zone instanceof PackedZone) {
+      System.out.printf(
+          "%s stores %d MB of records%n", store, ((PackedZone) zone).getPackedSize() >> 20);
+    }
+  }
+
+  private static long usedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  @Benchmark
+  public SetResponse findExisting() {
+    return lookup.apply(existing[next++ & 1023], Type.A);
+  }
+
+  @Benchmark
+  public SetResponse findMissing() {
+    return lookup.apply(missing[next++ & 1023], Type.A);
+  }
+}
@@ -0,0 +1,136 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.dnssec.ValidatingResolver;
+
+/**
+ * Validates a large signed response from the root zone: the apex RRsets for an ANY query and a
+ * number of NSEC RRsets in the authority section, all signed by the root zone signing key. The
+ * signature cache is disabled to measure the verification itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidatingResolverBenchmark {
+  @Param({"false", "true"})
+  boolean parallelVerification;
+
+  @Param({"4"})
+  int threads;
+
+  @Param({"16"})
+  int nsecRRsets;
+
+  private Instant now;
+  private ExecutorService executor;
+  private ValidatingResolver resolver;
+  private Message query;
+
+  @Setup
+  public void setup() throws IOException {
+    Message keys = new Message();
+    keys.getHeader().setFlag(Flags.QR);
+    keys.getHeader().setFlag(Flags.AA);
+    keys.addRecord(Record.newRecord(Name.root, Type.DNSKEY, DClass.IN), Section.QUESTION);
+    Message response = new Message();
+    response.getHeader().setFlag(Flags.QR);
+    response.getHeader().setFlag(Flags.AA);
+    response.addRecord(Record.newRecord(Name.root, Type.ANY, DClass.IN), Section.QUESTION);
+    StringBuilder trustAnchors = new StringBuilder();
+    int nsecs = 0;
+    List<RRset> rrsets = BenchmarkData.rootZoneRRsets();
+    for (RRset rrset : rrsets) {
+      if (rrset.getName().equals(Name.root)) {
+        addRRset(response, rrset, Section.ANSWER);
+        if (rrset.getType() == Type.DNSKEY) {
+          addRRset(keys, rrset, Section.ANSWER);
+          for (Record r : rrset.rrs(false)) {
+            trustAnchors.append(r).append('\n');
+          }
+        }
+      } else if (rrset.getType() == Type.NSEC && nsecs++ < nsecRRsets) {
+        addRRset(response, rrset, Section.AUTHORITY);
+      }
+    }
+
+    Properties config = new Properties();
+    config.setProperty("dnsjava.dnssec.sigcache.max_size", "0");
+    config.setProperty(
+        ValidatingResolver.PARALLEL_VERIFICATION_PROPERTY, Boolean.toString(parallelVerification));
+    resolver =
+        new ValidatingResolver(
+            new SimpleResolver("127.0.0.1") {
+              @Override
+              public CompletionStage<Message> sendAsync(Message query, Executor executor) {
+                Message m = query.getQuestion().getType() == Type.DNSKEY ? keys : response;
+                Message answer = m.clone();
+                answer.getHeader().setID(query.getHeader().getID());
+                return CompletableFuture.completedFuture(answer);
+              }
+            },
+            Clock.fixed(now, ZoneOffset.UTC));
+    resolver.init(config);
+    resolver.loadTrustAnchors(
+        new ByteArrayInputStream(trustAnchors.toString().getBytes(StandardCharsets.US_ASCII)));
+    executor = Executors.newFixedThreadPool(threads);
+    query = Message.newQuery(Record.newRecord(Name.root, Type.ANY, DClass.IN));
+
+    // prime the key cache
+    Message validated = validate();
+    if (!validated.getHeader().getFlag(Flags.AD)) {
+      throw new IllegalStateException("Response did not validate:\n" + validated);
+    }
+  }
+
+  private void addRRset(Message m, RRset rrset, int section) {
+    for (Record r : rrset.rrs(false)) {
+      m.addRecord(r, section);
+    }
+    for (RRSIGRecord r : rrset.sigs()) {
+      m.addRecord(r, section);
+      // the signatures of the recorded zone are long expired
+      if (now == null || r.getTimeSigned().isAfter(now)) {
+        now = r.getTimeSigned().plusSeconds(1);
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public Message validate() {
+    return resolver.sendAsync(query, executor).toCompletableFuture().join();
+  }
+}
@@ -0,0 +1,86 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Computes the SHA-384 ZONEMD digest of a zone with 50000 names with an A and two TXT records each,
+ * sequentially and with the canonicalization in parallel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZoneDigestBenchmark {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+
+  @Param({"1", "4"})
+  private int parallelism;
+
+  private ForkJoinPool pool;
+  private Zone zone;
+
+  @Setup
+  public void setup() throws IOException {
+    zone =
+        new Zone(
+            ORIGIN,
+            new SOARecord(
+                ORIGIN,
+                DClass.IN,
+                3600,
+                new Name("ns", ORIGIN),
+                new Name("hostmaster", ORIGIN),
+                1,
+                3600,
+                600,
+                86400,
+                300),
+            new NSRecord(ORIGIN, DClass.IN, 3600, new Name("ns", ORIGIN)));
+    for (int i = 0; i < 50000; i++) {
+      Name name = new Name("host" + i, ORIGIN);
+      zone.addRecord(
+          new ARecord(
+              name,
+              DClass.IN,
+              3600,
+              new byte[] {10, (byte) (i >>> 16), (byte) (i >>> 8), (byte) i}));
+      zone.addRecord(new TXTRecord(name, DClass.IN, 3600, "v=spf1 -all"));
+      zone.addRecord(new TXTRecord(name, DClass.IN, 3600, "record " + i));
+    }
+
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public byte[] sequential() throws NoSuchAlgorithmException {
+    return ZoneDigest.digest(zone, ZoneMDRecord.Hash.SHA384);
+  }
+
+  @Benchmark
+  public byte[] parallel() throws NoSuchAlgorithmException {
+    return ZoneDigest.digest(zone, ZoneMDRecord.Hash.SHA384, pool);
+  }
+}
@@ -0,0 +1,109 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Signs a zone with 10000 A RRsets and one ECDSA P-256 key. The {@code signatures} counter is the
+ * number of RRSIGs per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZoneSignerBenchmark {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+
+  @Param({"1", "4"})
+  private int parallelism;
+
+  private ForkJoinPool pool;
+  private Zone zone;
+  private ZoneSigner signer;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long signatures;
+  }
+
+  @Setup
+  public void setup() throws IOException, GeneralSecurityException, DNSSEC.DNSSECException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    KeyPair pair = generator.generateKeyPair();
+    DNSKEYRecord key =
+        new DNSKEYRecord(
+            ORIGIN,
+            DClass.IN,
+            3600,
+            DNSKEYRecord.Flags.ZONE_KEY,
+            DNSKEYRecord.Protocol.DNSSEC,
+            DNSSEC.Algorithm.ECDSAP256SHA256,
+            pair.getPublic());
+
+    Record[] records = new Record[10003];
+    records[0] =
+        new SOARecord(
+            ORIGIN,
+            DClass.IN,
+            3600,
+            new Name("ns", ORIGIN),
+            new Name("hostmaster", ORIGIN),
+            1,
+            3600,
+            600,
+            86400,
+            300);
+    records[1] = new NSRecord(ORIGIN, DClass.IN, 3600, new Name("ns", ORIGIN));
+    records[2] = key;
+    for (int i = 0; i < 10000; i++) {
+      records[i + 3] =
+          new ARecord(
+              new Name("host" + i, ORIGIN),
+              DClass.IN,
+              3600,
+              new byte[] {10, 0, (byte) (i >>> 8), (byte) i});
+    }
+
+    zone = new Zone(ORIGIN, records);
+    pool = new ForkJoinPool(parallelism);
+    Instant inception = Instant.parse("2024-01-01T00:00:00Z");
+    signer = new ZoneSigner(inception, inception.plusSeconds(86400 * 14), pool);
+    signer.addKey(key, pair.getPrivate());
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public int sign(Counters counters) throws DNSSEC.DNSSECException {
+    int signatures = signer.sign(zone);
+    counters.signatures += signatures;
+    return signatures;
+  }
+}
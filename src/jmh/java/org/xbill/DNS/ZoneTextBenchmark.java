@@ -0,0 +1,57 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Parsing the text representation of records, single ones and the whole root zone. */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ZoneTextBenchmark {
+  private String[] rdata;
+  private Name[] names;
+  private int[] types;
+  private int index;
+
+  @Setup
+  public void setup() {
+    List<Record> zone = BenchmarkData.rootZone();
+    rdata = new String[zone.size()];
+    names = new Name[zone.size()];
+    types = new int[zone.size()];
+    for (int i = 0; i < zone.size(); i++) {
+      Record r = zone.get(i);
+      rdata[i] = r.rdataToString();
+      names[i] = r.getName();
+      types[i] = r.getType();
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Record recordFromString() throws IOException {
+    int i = index;
+    index = (index + 1) % rdata.length;
+    return Record.fromString(names[i], types[i], DClass.IN, 3600, rdata[i], Name.root);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<Record> masterRootZone() {
+    return BenchmarkData.parse(BenchmarkData.rootZoneBytes());
+  }
+}
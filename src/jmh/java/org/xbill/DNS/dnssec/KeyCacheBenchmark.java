@@ -0,0 +1,59 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.NameTooLongException;
+import org.xbill.DNS.TextParseException;
+
+/**
+ * Closest key lookups for names three labels below 1000 cached zones. Run with e.g. {@code -t 1 -t
+ * 8} (one run each) to see how concurrent lookups scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyCacheBenchmark {
+  private KeyCache keyCache;
+  private Name[] names;
+
+  @Setup
+  public void setup() throws TextParseException, NameTooLongException {
+    keyCache = new KeyCache();
+    keyCache.store(KeyEntry.newNullKeyEntry(Name.root, DClass.IN, 3600));
+    List<Name> queries = new ArrayList<>();
+    for (int tld = 0; tld < 10; tld++) {
+      Name tldName = Name.fromString("tld" + tld + ".");
+      keyCache.store(KeyEntry.newNullKeyEntry(tldName, DClass.IN, 3600));
+      for (int zone = 0; zone < 100; zone++) {
+        Name zoneName = Name.fromString("zone" + zone, tldName);
+        keyCache.store(KeyEntry.newNullKeyEntry(zoneName, DClass.IN, 3600));
+        queries.add(Name.concatenate(Name.fromString("www.sub"), zoneName));
+      }
+    }
+
+    names = queries.toArray(new Name[0]);
+  }
+
+  @Benchmark
+  public KeyEntry find() {
+    return keyCache.find(names[ThreadLocalRandom.current().nextInt(names.length)], DClass.IN);
+  }
+}
@@ -0,0 +1,62 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.xbill.DNS.ExtendedFlags;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.OPTRecord;
+import org.xbill.DNS.Section;
+
+/**
+ * The responses that were captured from public resolvers for the DNSSEC validation tests: answers,
+ * referrals, NXDOMAIN and NODATA proofs with RRSIG, NSEC and NSEC3 records.
+ */
+public final class RecordedResponses {
+  private RecordedResponses() {}
+
+  /**
+   * Reads all recorded responses. The recordings don't contain the additional section, the OPT
+   * record with the DO bit that all of them had is added back.
+   */
+  public static List<Message> load() throws IOException {
+    Path recordings;
+    try {
+      recordings = Paths.get(RecordedResponses.class.getResource("/recordings").toURI());
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+
+    List<Path> files;
+    try (Stream<Path> s = Files.walk(recordings)) {
+      files = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+
+    MessageReader reader = new MessageReader();
+    List<Message> responses = new ArrayList<>();
+    for (Path file : files) {
+      try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        Message m;
+        while ((m = reader.readMessage(r)) != null) {
+          m.getHeader().setFlag(Flags.QR);
+          m.getHeader().setFlag(Flags.RD);
+          m.getHeader().setFlag(Flags.RA);
+          m.addRecord(new OPTRecord(4096, 0, 0, ExtendedFlags.DO), Section.ADDITIONAL);
+          responses.add(m);
+        }
+      }
+    }
+
+    return responses;
+  }
+}
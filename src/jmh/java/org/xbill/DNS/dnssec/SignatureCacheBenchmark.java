@@ -0,0 +1,137 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.DNSSEC;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.RRset;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+/**
+ * Verifies the signed RRsets of the responses recorded for the DNSSEC validation tests, like a
+ * validating resolver that sees the same responses over and over.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureCacheBenchmark {
+  private final List<SRRset> rrsets = new ArrayList<>();
+  private final List<KeyEntry> keys = new ArrayList<>();
+  private final List<Instant> dates = new ArrayList<>();
+  private DnsSecVerifier verifier;
+
+  @Param({"0", "10000"})
+  int cacheSize;
+
+  @Setup
+  public void setup() throws IOException, URISyntaxException {
+    Properties config = new Properties();
+    config.setProperty(SignatureCache.MAX_CACHE_SIZE_CONFIG, Integer.toString(cacheSize));
+    // Some old keys are only 1023 bits long
+    config.setProperty(ValUtils.ALGORITHM_RSA_MIN_KEY_SIZE, "1023");
+    ValUtils valUtils = new ValUtils();
+    valUtils.init(config);
+    verifier = valUtils.getVerifier();
+
+    Path recordings = Paths.get(getClass().getResource("/recordings").toURI());
+    List<Path> files;
+    try (Stream<Path> s = Files.walk(recordings)) {
+      files = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+
+    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+    MessageReader reader = new MessageReader();
+    for (Path file : files) {
+      List<SRRset> signed = new ArrayList<>();
+      Map<Name, KeyEntry> keysByName = new HashMap<>();
+      Instant date;
+      try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        date =
+            ZonedDateTime.parse(r.readLine().substring("#Date: ".length()), formatter).toInstant();
+        Message m;
+        while ((m = reader.readMessage(r)) != null) {
+          for (int section : new int[] {Section.ANSWER, Section.AUTHORITY}) {
+            for (RRset rrset : m.getSectionRRsets(section)) {
+              if (rrset.getType() == Type.DNSKEY) {
+                keysByName.put(rrset.getName(), KeyEntry.newKeyEntry(new SRRset(rrset)));
+              }
+              if (!rrset.sigs().isEmpty()) {
+                signed.add(new SRRset(rrset));
+              }
+            }
+          }
+        }
+      }
+
+      // only keep what verifies, the failures of the bogus scenarios are never cached
+      for (SRRset rrset : signed) {
+        RRSIGRecord sig = rrset.sigs().get(0);
+        KeyEntry key = keysByName.get(sig.getSigner());
+        if (key != null && verifies(rrset, sig, key, date)) {
+          rrsets.add(rrset);
+          keys.add(key);
+          dates.add(date);
+        }
+      }
+    }
+
+    if (rrsets.isEmpty()) {
+      throw new IllegalStateException("No verifiable RRsets in the recordings");
+    }
+  }
+
+  private static boolean verifies(RRset rrset, RRSIGRecord sig, KeyEntry key, Instant date) {
+    for (Record r : key.rrs(false)) {
+      try {
+        DNSSEC.verify(rrset, sig, (DNSKEYRecord) r, date);
+        return true;
+      } catch (DNSSEC.DNSSECException e) {
+        // try the next key
+      }
+    }
+    return false;
+  }
+
+  @Benchmark
+  public void verify() {
+    for (int i = 0; i < rrsets.size(); i++) {
+      verifier.verify(rrsets.get(i), keys.get(i), dates.get(i));
+    }
+  }
+}
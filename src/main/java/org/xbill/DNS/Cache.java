@@ -5,12 +5,19 @@ package org.xbill.DNS;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -19,6 +26,19 @@ import lombok.extern.slf4j.Slf4j;
  * each RRset is maintained, so that more credible records replace less credible records, and
  * lookups can specify the minimum credibility of data they are requesting.
  *
+ * <p>By default, all operations on a Cache are serialized on a single lock. A Cache created with a
+ * concurrency level greater than one splits its entries into segments by the hash of the owner
+ * {@link Name}, each with its own lock and approximate LRU eviction, so that lookups for different
+ * names do not contend with each other.
+ *
+ * <p>Expired entries are removed when a lookup encounters them. To reclaim the space of entries
+ * that are never looked up again, expired entries can additionally be removed in the background
+ * with {@link #scheduleExpiry(ScheduledExecutorService, Duration, int)}.
+ *
+ * <p>Expired entries can be retained for a while to serve stale answers when the authoritative
+ * servers cannot be reached (RFC 8767), see {@link #setMaxStale(int)} and {@link
+ * #lookupStaleRecords(Name, int, int)}.
+ *
  * @see RRset
  * @see Credibility
  * @author Brian Wellington
@@ -31,16 +51,40 @@ public class Cache {
 
     int compareCredibility(int cred);
 
+    Name getName();
+
     int getType();
 
+    int getExpire();
+
     boolean isAuthenticated();
+
+    /** Whether this element was replaced or removed from its {@link CacheMap}. */
+    boolean isRemoved();
+
+    void setRemoved();
+
+    /**
+     * The list that holds this element and the other elements of its name, or {@code null} if this
+     * is the only element stored for its name.
+     */
+    List<Element> getSiblings();
+
+    void setSiblings(List<Element> siblings);
   }
 
-  private static int limitExpire(long ttl, long maxttl) {
+  private static final Comparator<Element> EXPIRE_ORDER =
+      Comparator.comparingInt(Element::getExpire);
+
+  private static long limitTtl(long ttl, long maxttl) {
     if (maxttl >= 0 && maxttl < ttl) {
-      ttl = maxttl;
+      return maxttl;
     }
-    long expire = (System.currentTimeMillis() / 1000) + ttl;
+    return ttl;
+  }
+
+  private static int limitExpire(long ttl, long maxttl) {
+    long expire = (System.currentTimeMillis() / 1000) + limitTtl(ttl, maxttl);
     if (expire < 0 || expire > Integer.MAX_VALUE) {
       return Integer.MAX_VALUE;
     }
@@ -50,11 +94,15 @@ public class Cache {
   static class CacheRRset extends RRset implements Element {
     int credibility;
     int expire;
+    long lifetime;
     boolean isAuthenticated;
+    boolean removed;
+    List<Element> siblings;
 
     public CacheRRset(Record rec, int cred, long maxttl, boolean isAuthenticated) {
       this.credibility = cred;
       this.expire = limitExpire(rec.getTTL(), maxttl);
+      this.lifetime = limitTtl(rec.getTTL(), maxttl);
       this.isAuthenticated = isAuthenticated;
       addRR(rec);
     }
@@ -63,15 +111,33 @@ public class Cache {
       super(rrset);
       this.credibility = cred;
       this.expire = limitExpire(rrset.getTTL(), maxttl);
+      this.lifetime = limitTtl(rrset.getTTL(), maxttl);
       this.isAuthenticated = isAuthenticated;
     }
 
+    /**
+     * Returns the part of the TTL of this RRset that has not yet elapsed, in percent of the TTL
+     * when the RRset was added to the Cache.
+     */
+    int getRemainingTtlPercent() {
+      if (lifetime <= 0) {
+        return 0;
+      }
+      long remaining = expire - System.currentTimeMillis() / 1000;
+      return (int) Math.max(0, Math.min(100, remaining * 100 / lifetime));
+    }
+
     @Override
     public final boolean expired() {
       int now = (int) (System.currentTimeMillis() / 1000);
       return now >= expire;
     }
 
+    @Override
+    public int getExpire() {
+      return expire;
+    }
+
     @Override
     public final int compareCredibility(int cred) {
       return credibility - cred;
@@ -86,6 +152,26 @@ public class Cache {
     public boolean isAuthenticated() {
       return isAuthenticated;
     }
+
+    @Override
+    public boolean isRemoved() {
+      return removed;
+    }
+
+    @Override
+    public void setRemoved() {
+      removed = true;
+    }
+
+    @Override
+    public List<Element> getSiblings() {
+      return siblings;
+    }
+
+    @Override
+    public void setSiblings(List<Element> siblings) {
+      this.siblings = siblings;
+    }
   }
 
   private static class NegativeElement implements Element {
@@ -94,6 +180,8 @@ public class Cache {
     int credibility;
     int expire;
     boolean isAuthenticated;
+    boolean removed;
+    List<Element> siblings;
 
     public NegativeElement(
         Name name, int type, SOARecord soa, int cred, long maxttl, boolean isAuthenticated) {
@@ -108,6 +196,11 @@ public class Cache {
       this.isAuthenticated = isAuthenticated;
     }
 
+    @Override
+    public Name getName() {
+      return name;
+    }
+
     @Override
     public int getType() {
       return type;
@@ -119,6 +212,11 @@ public class Cache {
       return now >= expire;
     }
 
+    @Override
+    public int getExpire() {
+      return expire;
+    }
+
     @Override
     public final int compareCredibility(int cred) {
       return credibility - cred;
@@ -129,6 +227,26 @@ public class Cache {
       return isAuthenticated;
     }
 
+    @Override
+    public boolean isRemoved() {
+      return removed;
+    }
+
+    @Override
+    public void setRemoved() {
+      removed = true;
+    }
+
+    @Override
+    public List<Element> getSiblings() {
+      return siblings;
+    }
+
+    @Override
+    public void setSiblings(List<Element> siblings) {
+      this.siblings = siblings;
+    }
+
     @Override
     public String toString() {
       StringBuilder sb = new StringBuilder();
@@ -146,37 +264,102 @@ public class Cache {
   private static class CacheMap extends LinkedHashMap<Name, Object> {
     private int maxsize;
 
+    /**
+     * Elements ordered by expiry time, or {@code null} while expiry tracking is disabled. Elements
+     * that were replaced or removed from the map are not removed from the queue; they are flagged
+     * as removed and skipped when they reach the head, or dropped when the queue is rebuilt.
+     */
+    PriorityQueue<Element> expiryQueue;
+
+    long evicted;
+    long expired;
+
     CacheMap(int maxsize) {
       super(16, (float) 0.75, true);
       this.maxsize = maxsize;
     }
 
-    int getMaxSize() {
-      return maxsize;
-    }
-
     void setMaxSize(int maxsize) {
-      /*
-       * Note that this doesn't shrink the size of the map if
-       * the maximum size is lowered, but it should shrink as
-       * entries expire.
-       */
       this.maxsize = maxsize;
+      if (maxsize >= 0 && size() > maxsize) {
+        Iterator<Object> it = values().iterator();
+        while (size() > maxsize) {
+          markRemoved(it.next());
+          it.remove();
+          evicted++;
+        }
+      }
     }
 
     @Override
     protected boolean removeEldestEntry(Map.Entry<Name, Object> eldest) {
-      return maxsize >= 0 && size() > maxsize;
+      if (maxsize >= 0 && size() > maxsize) {
+        markRemoved(eldest.getValue());
+        evicted++;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public Object remove(Object key) {
+      Object types = super.remove(key);
+      if (types != null) {
+        markRemoved(types);
+      }
+      return types;
+    }
+
+    @Override
+    public void clear() {
+      for (Object types : values()) {
+        markRemoved(types);
+      }
+      super.clear();
+    }
+
+    private static void markRemoved(Object types) {
+      for (Element element : allElements(types)) {
+        element.setRemoved();
+      }
+    }
+
+    void trackExpiry(Element element) {
+      if (expiryQueue == null) {
+        return;
+      }
+      expiryQueue.add(element);
+      if (expiryQueue.size() > 2 * size() + 64) {
+        rebuildExpiryQueue();
+      }
+    }
+
+    void rebuildExpiryQueue() {
+      PriorityQueue<Element> queue = new PriorityQueue<>(Math.max(16, size()), EXPIRE_ORDER);
+      for (Object types : values()) {
+        for (Element element : allElements(types)) {
+          queue.add(element);
+        }
+      }
+      expiryQueue = queue;
     }
   }
 
-  private final CacheMap data;
+  private final CacheMap[] segments;
   private final int dclass;
   private int maxncache = -1;
   private int maxcache = -1;
+  private int maxEntries;
+  private int maxStale;
+  private int nextExpirySegment;
 
   private static final int DEFAULT_MAX_ENTRIES = 50000;
 
+  /** The TTL of stale answers, as recommended by RFC 8767, Section 4. */
+  private static final int STALE_ANSWER_TTL = 30;
+
+  private static final int MAX_CONCURRENCY_LEVEL = 1 << 16;
+
   /**
    * Creates an empty Cache
    *
@@ -184,8 +367,37 @@ public class Cache {
    * @see DClass
    */
   public Cache(int dclass) {
+    this(dclass, 1);
+  }
+
+  /**
+   * Creates an empty Cache whose entries are split into independently locked segments.
+   *
+   * <p>The maximum number of entries is distributed evenly across the segments, and each segment
+   * evicts its least recently used entries independently. The eviction order of the Cache as a
+   * whole is therefore only approximately LRU.
+   *
+   * @param dclass The DNS class of this cache
+   * @param concurrencyLevel The number of segments, rounded up to the next power of two. A value of
+   *     one creates a Cache that serializes all operations on a single lock.
+   * @see DClass
+   * @since 3.6.5
+   */
+  public Cache(int dclass, int concurrencyLevel) {
+    if (concurrencyLevel < 1 || concurrencyLevel > MAX_CONCURRENCY_LEVEL) {
+      throw new IllegalArgumentException(
+          "concurrencyLevel must be between 1 and " + MAX_CONCURRENCY_LEVEL);
+    }
     this.dclass = dclass;
-    data = new CacheMap(DEFAULT_MAX_ENTRIES);
+    int segmentCount = Integer.highestOneBit(concurrencyLevel);
+    if (segmentCount < concurrencyLevel) {
+      segmentCount <<= 1;
+    }
+    segments = new CacheMap[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new CacheMap(-1);
+    }
+    setMaxEntries(DEFAULT_MAX_ENTRIES);
   }
 
   /**
@@ -223,15 +435,23 @@ public class Cache {
     }
   }
 
-  private synchronized Object exactName(Name name) {
-    return data.get(name);
+  private CacheMap segmentFor(Name name) {
+    if (segments.length == 1) {
+      return segments[0];
+    }
+    int h = name.hashCode();
+    h ^= h >>> 16;
+    return segments[h & (segments.length - 1)];
   }
 
-  private synchronized void removeName(Name name) {
-    data.remove(name);
+  private void removeName(Name name) {
+    CacheMap data = segmentFor(name);
+    synchronized (data) {
+      data.remove(name);
+    }
   }
 
-  private synchronized Element[] allElements(Object types) {
+  private static Element[] allElements(Object types) {
     if (types instanceof List) {
       @SuppressWarnings("unchecked")
       List<Element> typelist = (List<Element>) types;
@@ -243,7 +463,14 @@ public class Cache {
     }
   }
 
-  private synchronized Element oneElement(Name name, Object types, int type, int minCred) {
+  // The caller must hold the lock of the segment that contains name
+  private Element oneElement(CacheMap data, Name name, Object types, int type, int minCred) {
+    return oneElement(data, name, types, type, minCred, false);
+  }
+
+  // The caller must hold the lock of the segment that contains name
+  private Element oneElement(
+      CacheMap data, Name name, Object types, int type, int minCred, boolean allowStale) {
     Element found = null;
 
     if (type == Type.ANY) {
@@ -268,8 +495,15 @@ public class Cache {
       return null;
     }
     if (found.expired()) {
-      removeElement(name, type);
-      return null;
+      if (!isRetainedStale(found)) {
+        removeElement(data, name, type);
+        data.expired++;
+        return null;
+      }
+      if (!allowStale || found.compareCredibility(minCred) < 0) {
+        return null;
+      }
+      return found instanceof CacheRRset ? staleCopy((CacheRRset) found) : found;
     }
     if (found.compareCredibility(minCred) < 0) {
       return null;
@@ -277,15 +511,44 @@ public class Cache {
     return found;
   }
 
-  private synchronized Element findElement(Name name, int type, int minCred) {
-    Object types = exactName(name);
+  /** Checks if an expired element is still within the period in which it can be served stale. */
+  private boolean isRetainedStale(Element element) {
+    return maxStale > 0
+        && System.currentTimeMillis() / 1000 < (long) element.getExpire() + maxStale;
+  }
+
+  /** Creates a copy of an expired RRset with the TTLs capped for use as a stale answer. */
+  private static CacheRRset staleCopy(CacheRRset rrset) {
+    RRset copy = new RRset();
+    for (Record r : rrset.rrs(false)) {
+      Record c = r.cloneRecord();
+      c.setTTL(Math.min(r.getTTL(), STALE_ANSWER_TTL));
+      copy.addRR(c);
+    }
+    for (RRSIGRecord sig : rrset.sigs()) {
+      Record c = sig.cloneRecord();
+      c.setTTL(Math.min(sig.getTTL(), STALE_ANSWER_TTL));
+      copy.addRR((RRSIGRecord) c);
+    }
+    return new CacheRRset(copy, rrset.credibility, STALE_ANSWER_TTL, rrset.isAuthenticated);
+  }
+
+  // The caller must hold the lock of the segment that contains name
+  private Element findElement(CacheMap data, Name name, int type, int minCred) {
+    Object types = data.get(name);
     if (types == null) {
       return null;
     }
-    return oneElement(name, types, type, minCred);
+    return oneElement(data, name, types, type, minCred);
   }
 
-  private synchronized void addElement(Name name, Element element) {
+  // The caller must hold the lock of the segment that contains name
+  private void addElement(CacheMap data, Name name, Element element) {
+    putElement(data, name, element);
+    data.trackExpiry(element);
+  }
+
+  private static void putElement(CacheMap data, Name name, Element element) {
     Object types = data.get(name);
     if (types == null) {
       data.put(name, element);
@@ -299,24 +562,31 @@ public class Cache {
         Element elt = list.get(i);
         if (elt.getType() == type) {
           list.set(i, element);
+          element.setSiblings(list);
+          elt.setRemoved();
           return;
         }
       }
       list.add(element);
+      element.setSiblings(list);
     } else {
       Element elt = (Element) types;
       if (elt.getType() == type) {
         data.put(name, element);
+        elt.setRemoved();
       } else {
         LinkedList<Element> list = new LinkedList<>();
         list.add(elt);
         list.add(element);
+        elt.setSiblings(list);
+        element.setSiblings(list);
         data.put(name, list);
       }
     }
   }
 
-  private synchronized void removeElement(Name name, int type) {
+  // The caller must hold the lock of the segment that contains name
+  private void removeElement(CacheMap data, Name name, int type) {
     Object types = data.get(name);
     if (types == null) {
       return;
@@ -328,6 +598,7 @@ public class Cache {
         Element elt = list.get(i);
         if (elt.getType() == type) {
           list.remove(i);
+          elt.setRemoved();
           if (list.isEmpty()) {
             data.remove(name);
           }
@@ -344,8 +615,12 @@ public class Cache {
   }
 
   /** Empties the Cache. */
-  public synchronized void clearCache() {
-    data.clear();
+  public void clearCache() {
+    for (CacheMap data : segments) {
+      synchronized (data) {
+        data.clear();
+      }
+    }
   }
 
   /**
@@ -357,7 +632,7 @@ public class Cache {
    * @deprecated use {@link #addRecord(Record, int)}
    */
   @Deprecated
-  public synchronized void addRecord(Record r, int cred, Object o) {
+  public void addRecord(Record r, int cred, Object o) {
     addRecord(r, cred, false);
   }
 
@@ -368,23 +643,26 @@ public class Cache {
    * @param cred The credibility of the record
    * @see Record
    */
-  public synchronized void addRecord(Record r, int cred) {
+  public void addRecord(Record r, int cred) {
     addRecord(r, cred, false);
   }
 
-  private synchronized void addRecord(Record r, int cred, boolean isAuthenticated) {
+  private void addRecord(Record r, int cred, boolean isAuthenticated) {
     Name name = r.getName();
     int type = r.getRRsetType();
     if (!Type.isRR(type)) {
       return;
     }
-    Element element = findElement(name, type, cred);
-    if (element == null) {
-      CacheRRset crrset = new CacheRRset(r, cred, maxcache, isAuthenticated);
-      addRRset(crrset, cred, isAuthenticated);
-    } else if (element.compareCredibility(cred) == 0 && element instanceof CacheRRset) {
-      CacheRRset crrset = (CacheRRset) element;
-      crrset.addRR(r);
+    CacheMap data = segmentFor(name);
+    synchronized (data) {
+      Element element = findElement(data, name, type, cred);
+      if (element == null) {
+        CacheRRset crrset = new CacheRRset(r, cred, maxcache, isAuthenticated);
+        addRRset(crrset, cred, isAuthenticated);
+      } else if (element.compareCredibility(cred) == 0 && element instanceof CacheRRset) {
+        CacheRRset crrset = (CacheRRset) element;
+        crrset.addRR(r);
+      }
     }
   }
 
@@ -395,32 +673,34 @@ public class Cache {
    * @param cred The credibility of these records
    * @see RRset
    */
-  public synchronized <T extends Record> void addRRset(RRset rrset, int cred) {
+  public <T extends Record> void addRRset(RRset rrset, int cred) {
     addRRset(rrset, cred, false);
   }
 
-  private synchronized <T extends Record> void addRRset(
-      RRset rrset, int cred, boolean isAuthenticated) {
+  private <T extends Record> void addRRset(RRset rrset, int cred, boolean isAuthenticated) {
     long ttl = rrset.getTTL();
     Name name = rrset.getName();
     int type = rrset.getType();
-    Element element = findElement(name, type, 0);
-    if (ttl == 0) {
-      if (element != null && element.compareCredibility(cred) <= 0) {
-        removeElement(name, type);
-      }
-    } else {
-      if (element != null && element.compareCredibility(cred) <= 0) {
-        element = null;
-      }
-      if (element == null) {
-        CacheRRset crrset;
-        if (rrset instanceof CacheRRset) {
-          crrset = (CacheRRset) rrset;
-        } else {
-          crrset = new CacheRRset(rrset, cred, maxcache, isAuthenticated);
+    CacheMap data = segmentFor(name);
+    synchronized (data) {
+      Element element = findElement(data, name, type, 0);
+      if (ttl == 0) {
+        if (element != null && element.compareCredibility(cred) <= 0) {
+          removeElement(data, name, type);
+        }
+      } else {
+        if (element != null && element.compareCredibility(cred) <= 0) {
+          element = null;
+        }
+        if (element == null) {
+          CacheRRset crrset;
+          if (rrset instanceof CacheRRset) {
+            crrset = (CacheRRset) rrset;
+          } else {
+            crrset = new CacheRRset(rrset, cred, maxcache, isAuthenticated);
+          }
+          addElement(data, name, crrset);
         }
-        addElement(name, crrset);
       }
     }
   }
@@ -434,38 +714,43 @@ public class Cache {
    *     is derived from the SOA.
    * @param cred The credibility of the negative entry
    */
-  public synchronized void addNegative(Name name, int type, SOARecord soa, int cred) {
+  public void addNegative(Name name, int type, SOARecord soa, int cred) {
     addNegative(name, type, soa, cred, false);
   }
 
-  private synchronized void addNegative(
-      Name name, int type, SOARecord soa, int cred, boolean isAuthenticated) {
+  private void addNegative(Name name, int type, SOARecord soa, int cred, boolean isAuthenticated) {
     long ttl = 0;
     if (soa != null) {
       ttl = Math.min(soa.getMinimum(), soa.getTTL());
     }
-    Element element = findElement(name, type, 0);
-    if (ttl == 0) {
-      if (element != null && element.compareCredibility(cred) <= 0) {
-        removeElement(name, type);
-      }
-    } else {
-      if (element != null && element.compareCredibility(cred) <= 0) {
-        element = null;
-      }
-      if (element == null) {
-        addElement(name, new NegativeElement(name, type, soa, cred, maxncache, isAuthenticated));
+    CacheMap data = segmentFor(name);
+    synchronized (data) {
+      Element element = findElement(data, name, type, 0);
+      if (ttl == 0) {
+        if (element != null && element.compareCredibility(cred) <= 0) {
+          removeElement(data, name, type);
+        }
+      } else {
+        if (element != null && element.compareCredibility(cred) <= 0) {
+          element = null;
+        }
+        if (element == null) {
+          addElement(
+              data, name, new NegativeElement(name, type, soa, cred, maxncache, isAuthenticated));
+        }
       }
     }
   }
 
   /** Finds all matching sets or something that causes the lookup to stop. */
-  protected synchronized SetResponse lookup(Name name, int type, int minCred) {
+  protected SetResponse lookup(Name name, int type, int minCred) {
+    return lookup(name, type, minCred, false);
+  }
+
+  private SetResponse lookup(Name name, int type, int minCred, boolean allowStale) {
     int labels;
     int tlabels;
-    Element element;
     Name tname;
-    Object types;
 
     labels = name.labels();
 
@@ -481,73 +766,99 @@ public class Cache {
         tname = new Name(name, labels - tlabels);
       }
 
-      types = data.get(tname);
-      if (types == null) {
-        continue;
+      CacheMap data = segmentFor(tname);
+      SetResponse sr;
+      synchronized (data) {
+        sr = lookupName(data, tname, isExact, type, minCred, allowStale);
+      }
+      if (sr != null) {
+        return sr;
       }
+    }
+    return SetResponse.ofType(SetResponseType.UNKNOWN);
+  }
 
-      /*
-       * If this is the name, look for the actual type or a CNAME
-       * (unless it's an ANY query, where we return everything).
-       * Otherwise, look for a DNAME.
-       */
-      if (isExact && type == Type.ANY) {
-        Element[] elements = allElements(types);
-        SetResponse sr = SetResponse.ofType(SetResponseType.SUCCESSFUL);
-        int added = 0;
-        for (Element value : elements) {
-          element = value;
-          if (element.expired()) {
-            removeElement(tname, element.getType());
-            continue;
-          }
-          if (!(element instanceof CacheRRset)) {
+  /**
+   * Checks a single name of the lookup walk. Returns {@code null} if the lookup should continue at
+   * the parent name. The caller must hold the lock of the segment that contains tname.
+   */
+  private SetResponse lookupName(
+      CacheMap data, Name tname, boolean isExact, int type, int minCred, boolean allowStale) {
+    Element element;
+    Object types = data.get(tname);
+    if (types == null) {
+      return null;
+    }
+
+    /*
+     * If this is the name, look for the actual type or a CNAME
+     * (unless it's an ANY query, where we return everything).
+     * Otherwise, look for a DNAME.
+     */
+    if (isExact && type == Type.ANY) {
+      Element[] elements = allElements(types);
+      SetResponse sr = SetResponse.ofType(SetResponseType.SUCCESSFUL);
+      int added = 0;
+      for (Element value : elements) {
+        element = value;
+        if (element.expired()) {
+          if (!isRetainedStale(element)) {
+            removeElement(data, tname, element.getType());
+            data.expired++;
             continue;
-          }
-          if (element.compareCredibility(minCred) < 0) {
+          } else if (!allowStale) {
             continue;
           }
-          sr.addRRset((CacheRRset) element);
-          added++;
-        }
-        /* There were positive entries */
-        if (added > 0) {
-          return sr;
         }
-      } else if (isExact) {
-        element = oneElement(tname, types, type, minCred);
-        if (element instanceof CacheRRset) {
-          return SetResponse.ofType(SetResponseType.SUCCESSFUL, (CacheRRset) element);
-        } else if (element != null) {
-          return SetResponse.ofType(SetResponseType.NXRRSET);
+        if (!(element instanceof CacheRRset)) {
+          continue;
         }
-
-        element = oneElement(tname, types, Type.CNAME, minCred);
-        if (element instanceof CacheRRset) {
-          return SetResponse.ofType(SetResponseType.CNAME, (CacheRRset) element);
+        if (element.compareCredibility(minCred) < 0) {
+          continue;
         }
-      } else {
-        element = oneElement(tname, types, Type.DNAME, minCred);
-        if (element instanceof CacheRRset) {
-          return SetResponse.ofType(SetResponseType.DNAME, (CacheRRset) element);
+        if (element.expired()) {
+          element = staleCopy((CacheRRset) element);
         }
+        sr.addRRset((CacheRRset) element);
+        added++;
+      }
+      /* There were positive entries */
+      if (added > 0) {
+        return sr;
+      }
+    } else if (isExact) {
+      element = oneElement(data, tname, types, type, minCred, allowStale);
+      if (element instanceof CacheRRset) {
+        return SetResponse.ofType(SetResponseType.SUCCESSFUL, (CacheRRset) element);
+      } else if (element != null) {
+        return SetResponse.ofType(SetResponseType.NXRRSET);
       }
 
-      /* Look for an NS */
-      element = oneElement(tname, types, Type.NS, minCred);
+      element = oneElement(data, tname, types, Type.CNAME, minCred, allowStale);
       if (element instanceof CacheRRset) {
-        return SetResponse.ofType(SetResponseType.DELEGATION, (CacheRRset) element);
+        return SetResponse.ofType(SetResponseType.CNAME, (CacheRRset) element);
       }
+    } else {
+      element = oneElement(data, tname, types, Type.DNAME, minCred, allowStale);
+      if (element instanceof CacheRRset) {
+        return SetResponse.ofType(SetResponseType.DNAME, (CacheRRset) element);
+      }
+    }
 
-      /* Check for the special NXDOMAIN element. */
-      if (isExact) {
-        element = oneElement(tname, types, 0, minCred);
-        if (element != null) {
-          return SetResponse.ofType(SetResponseType.NXDOMAIN);
-        }
+    /* Look for an NS */
+    element = oneElement(data, tname, types, Type.NS, minCred, allowStale);
+    if (element instanceof CacheRRset) {
+      return SetResponse.ofType(SetResponseType.DELEGATION, (CacheRRset) element);
+    }
+
+    /* Check for the special NXDOMAIN element. */
+    if (isExact) {
+      element = oneElement(data, tname, types, 0, minCred, allowStale);
+      if (element != null) {
+        return SetResponse.ofType(SetResponseType.NXDOMAIN);
       }
     }
-    return SetResponse.ofType(SetResponseType.UNKNOWN);
+    return null;
   }
 
   /**
@@ -564,6 +875,23 @@ public class Cache {
     return lookup(name, type, minCred);
   }
 
+  /**
+   * Looks up Records in the Cache, including records whose TTL has passed but which are retained
+   * for serving stale answers. This should only be used when fresh data cannot be obtained, for
+   * example because the authoritative servers are unreachable. The TTL of stale records in the
+   * response is capped to 30 seconds.
+   *
+   * @param name The name to look up
+   * @param type The type to look up
+   * @param minCred The minimum acceptable credibility
+   * @return A SetResponse object
+   * @see #setMaxStale(int)
+   * @since 3.6.5
+   */
+  public SetResponse lookupStaleRecords(Name name, int type, int minCred) {
+    return lookup(name, type, minCred, true);
+  }
+
   private List<RRset> findRecords(Name name, int type, int minCred) {
     SetResponse cr = lookupRecords(name, type, minCred);
     if (cr.isSuccessful()) {
@@ -797,7 +1125,10 @@ public class Cache {
    * @see RRset
    */
   public void flushSet(Name name, int type) {
-    removeElement(name, type);
+    CacheMap data = segmentFor(name);
+    synchronized (data) {
+      removeElement(data, name, type);
+    }
   }
 
   /**
@@ -842,12 +1173,40 @@ public class Cache {
     return maxcache;
   }
 
+  /**
+   * Sets the length of time for which records and negative responses are retained in this Cache
+   * after their TTL has passed, to serve them with {@link #lookupStaleRecords(Name, int, int)}. The
+   * default of zero disables retaining expired entries. RFC 8767 suggests a value between one and
+   * three days.
+   *
+   * @since 3.6.5
+   */
+  public void setMaxStale(int seconds) {
+    maxStale = Math.max(0, seconds);
+  }
+
+  /**
+   * Gets the length of time for which records and negative responses are retained in this Cache
+   * after their TTL has passed.
+   *
+   * @since 3.6.5
+   */
+  public int getMaxStale() {
+    return maxStale;
+  }
+
   /**
    * Gets the current number of entries in the Cache, where an entry consists of all records with a
    * specific Name.
    */
   public int getSize() {
-    return data.size();
+    int size = 0;
+    for (CacheMap data : segments) {
+      synchronized (data) {
+        size += data.size();
+      }
+    }
+    return size;
   }
 
   /**
@@ -855,22 +1214,155 @@ public class Cache {
    * specific Name. A negative value is treated as an infinite limit.
    */
   public int getMaxEntries() {
-    return data.getMaxSize();
+    return maxEntries;
   }
 
   /**
    * Sets the maximum number of entries in the Cache, where an entry consists of all records with a
    * specific Name. A negative value is treated as an infinite limit.
    *
-   * <p>Note that setting this to a value lower than the current number of entries will not cause
-   * the Cache to shrink immediately.
+   * <p>Setting this to a value lower than the current number of entries immediately evicts the
+   * least recently used entries.
    *
-   * <p>The default maximum number of entries is 50000.
+   * <p>The default maximum number of entries is 50000. In a Cache with more than one segment, the
+   * limit is divided evenly among the segments and enforced per segment.
    *
    * @param entries The maximum number of entries in the Cache.
    */
   public void setMaxEntries(int entries) {
-    data.setMaxSize(entries);
+    maxEntries = entries;
+    int segmentMax = entries < 0 ? -1 : (entries + segments.length - 1) / segments.length;
+    for (CacheMap data : segments) {
+      synchronized (data) {
+        data.setMaxSize(segmentMax);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of entries that were removed from the Cache because the maximum number of
+   * entries was exceeded.
+   *
+   * @since 3.6.5
+   */
+  public long getEvictedCount() {
+    long count = 0;
+    for (CacheMap data : segments) {
+      synchronized (data) {
+        count += data.evicted;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of RRsets and negative entries that were removed from the Cache because their
+   * TTL had passed, either during a lookup or by {@link #removeExpired(int)}.
+   *
+   * @since 3.6.5
+   */
+  public long getExpiredCount() {
+    long count = 0;
+    for (CacheMap data : segments) {
+      synchronized (data) {
+        count += data.expired;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Removes expired RRsets and negative entries from the Cache, without waiting for a lookup to
+   * encounter them. The first invocation of this method starts tracking the expiry time of all
+   * entries in the Cache.
+   *
+   * @param limit The maximum number of expired entries to inspect in this invocation, to bound the
+   *     time the Cache is locked. Entries that are not processed are handled on the next call.
+   * @return The number of entries that were removed.
+   * @since 3.6.5
+   */
+  public int removeExpired(int limit) {
+    int now = (int) (System.currentTimeMillis() / 1000);
+    int removed = 0;
+    int work = 0;
+    int start;
+    synchronized (segments) {
+      start = nextExpirySegment;
+      nextExpirySegment = (start + 1) % segments.length;
+    }
+
+    for (int i = 0; i < segments.length && work < limit; i++) {
+      CacheMap data = segments[(start + i) % segments.length];
+      synchronized (data) {
+        if (data.expiryQueue == null) {
+          data.rebuildExpiryQueue();
+        }
+
+        PriorityQueue<Element> queue = data.expiryQueue;
+        Element head;
+        while (work < limit
+            && (head = queue.peek()) != null
+            && (long) head.getExpire() + maxStale <= now) {
+          queue.poll();
+          work++;
+          if (!head.isRemoved()) {
+            removeCurrentElement(data, head);
+            data.expired++;
+            removed++;
+          }
+        }
+      }
+    }
+
+    if (removed > 0) {
+      log.debug("Removed {} expired entries from the cache", removed);
+    }
+    return removed;
+  }
+
+  /**
+   * Removes an element that is still stored in the Cache without looking up its name, which would
+   * make the name the most recently used entry of the access-ordered map.
+   */
+  private static void removeCurrentElement(CacheMap data, Element element) {
+    List<Element> list = element.getSiblings();
+    if (list == null) {
+      data.remove(element.getName());
+      return;
+    }
+    for (Iterator<Element> it = list.iterator(); it.hasNext(); ) {
+      if (it.next() == element) {
+        it.remove();
+        element.setRemoved();
+        break;
+      }
+    }
+    if (list.isEmpty()) {
+      data.remove(element.getName());
+    }
+  }
+
+  /**
+   * Periodically removes expired RRsets and negative entries from the Cache with {@link
+   * #removeExpired(int)}.
+   *
+   * @param executor The executor that runs the expiry task.
+   * @param interval The interval between two runs of the expiry task.
+   * @param limit The maximum number of expired entries to inspect per run.
+   * @return The future of the scheduled task, which can be cancelled to stop the removal.
+   * @since 3.6.5
+   */
+  public ScheduledFuture<?> scheduleExpiry(
+      ScheduledExecutorService executor, Duration interval, int limit) {
+    long millis = interval.toMillis();
+    if (millis <= 0) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+    return executor.scheduleWithFixedDelay(
+        () -> removeExpired(limit), millis, millis, TimeUnit.MILLISECONDS);
   }
 
   /** Returns the DNS class of this cache. */
@@ -882,12 +1374,14 @@ public class Cache {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    synchronized (this) {
-      for (Object o : data.values()) {
-        Element[] elements = allElements(o);
-        for (Element element : elements) {
-          sb.append(element);
-          sb.append("\n");
+    for (CacheMap data : segments) {
+      synchronized (data) {
+        for (Object o : data.values()) {
+          Element[] elements = allElements(o);
+          for (Element element : elements) {
+            sb.append(element);
+            sb.append("\n");
+          }
         }
       }
     }
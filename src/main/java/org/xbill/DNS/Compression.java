@@ -14,20 +14,20 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class Compression {
-
-  private static class Entry {
-    Name name;
-    int pos;
-    Entry next;
-  }
-
-  private static final int TABLE_SIZE = 17;
+  private static final int INITIAL_CAPACITY = 32;
   private static final int MAX_POINTER = 0x3FFF;
-  private final Entry[] table;
+
+  // open addressing with linear probing, the capacity is always a power of two
+  private Name[] names;
+  private int[] hashes;
+  private int[] positions;
+  private int size;
 
   /** Creates a new Compression object. */
   public Compression() {
-    table = new Entry[TABLE_SIZE];
+    names = new Name[INITIAL_CAPACITY];
+    hashes = new int[INITIAL_CAPACITY];
+    positions = new int[INITIAL_CAPACITY];
   }
 
   /**
@@ -40,12 +40,24 @@ public class Compression {
     if (pos > MAX_POINTER) {
       return;
     }
-    int row = (name.hashCode() & 0x7FFFFFFF) % TABLE_SIZE;
-    Entry entry = new Entry();
-    entry.name = name;
-    entry.pos = pos;
-    entry.next = table[row];
-    table[row] = entry;
+
+    int hash = spread(name.hashCode());
+    int mask = names.length - 1;
+    int i = hash & mask;
+    for (Name n = names[i]; n != null; n = names[i]) {
+      if (hashes[i] == hash && n.equals(name)) {
+        // keep the first position, a pointer to it is as good as to any later one
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+
+    names[i] = name;
+    hashes[i] = hash;
+    positions[i] = pos;
+    if (++size * 2 > names.length) {
+      resize();
+    }
     log.trace("Adding {} at {}", name, pos);
   }
 
@@ -56,14 +68,44 @@ public class Compression {
    * @return The position of the name, or -1 if not found.
    */
   public int get(Name name) {
-    int row = (name.hashCode() & 0x7FFFFFFF) % TABLE_SIZE;
+    int hash = spread(name.hashCode());
+    int mask = names.length - 1;
     int pos = -1;
-    for (Entry entry = table[row]; entry != null; entry = entry.next) {
-      if (entry.name.equals(name)) {
-        pos = entry.pos;
+    for (int i = hash & mask; names[i] != null; i = (i + 1) & mask) {
+      if (hashes[i] == hash && names[i].equals(name)) {
+        pos = positions[i];
+        break;
       }
     }
     log.trace("Looking for {}, found {}", name, pos);
     return pos;
   }
+
+  private void resize() {
+    Name[] oldNames = names;
+    int[] oldHashes = hashes;
+    int[] oldPositions = positions;
+    int capacity = oldNames.length * 2;
+    int mask = capacity - 1;
+    names = new Name[capacity];
+    hashes = new int[capacity];
+    positions = new int[capacity];
+    for (int j = 0; j < oldNames.length; j++) {
+      if (oldNames[j] != null) {
+        int i = oldHashes[j] & mask;
+        while (names[i] != null) {
+          i = (i + 1) & mask;
+        }
+        names[i] = oldNames[j];
+        hashes[i] = oldHashes[j];
+        positions[i] = oldPositions[j];
+      }
+    }
+  }
+
+  private static int spread(int h) {
+    // Name.hashCode is a simple shift/add hash, mix the high bits into the used low bits
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
 }
@@ -176,6 +176,14 @@ public class DNSOutput {
     writeByteArray(s, 0, s.length);
   }
 
+  /**
+   * Returns the internal buffer of the stream without copying it. The contents are only valid up to
+   * {@link #current()} and until the next write.
+   */
+  byte[] array() {
+    return array;
+  }
+
   /** Returns a byte array containing the current contents of the stream. */
   public byte[] toByteArray() {
     byte[] out = new byte[pos];
@@ -5,7 +5,9 @@ package org.xbill.DNS;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -25,8 +27,11 @@ import java.security.spec.RSAPublicKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import lombok.Getter;
 
@@ -300,40 +305,174 @@ public class DNSSEC {
    * @return The data to be cryptographically signed or verified.
    */
   public static byte[] digestRRset(RRSIGRecord rrsig, RRset rrset) {
-    DNSOutput out = new DNSOutput();
-    digestSIG(out, rrsig);
+    CanonicalRRsetWriter writer = CANONICAL_RRSET_WRITER.get();
+    try {
+      DNSOutput out = writer.write(rrsig, rrset);
+      return Arrays.copyOf(out.array(), out.current());
+    } finally {
+      writer.release();
+    }
+  }
 
-    Name name = rrset.getName();
-    Name wild = null;
-    int sigLabels = rrsig.getLabels() + 1; // Add the root label back.
-    if (name.labels() > sigLabels) {
-      wild = name.wild(name.labels() - sigLabels);
+  /**
+   * The data that an RRSIG signs for an RRset, see {@link #digestRRset(RRSIGRecord, RRset)}. It is
+   * only created from the records with {@link #signedData(RRSIGRecord, RRset)}, so {@link
+   * #verify(SignedData, DNSKEYRecord, Instant)} always verifies the signature over these records.
+   *
+   * @since 3.6.5
+   */
+  public static final class SignedData {
+    private final RRSIGRecord rrsig;
+    private final int type;
+    private final byte[] data;
+
+    private SignedData(RRSIGRecord rrsig, int type, byte[] data) {
+      this.rrsig = rrsig;
+      this.type = type;
+      this.data = data;
     }
 
-    DNSOutput header = new DNSOutput();
-    if (wild != null) {
-      wild.toWireCanonical(header);
-    } else {
-      name.toWireCanonical(header);
-    }
-    header.writeU16(rrset.getType());
-    header.writeU16(rrset.getDClass());
-    header.writeU32(rrsig.getOrigTTL());
-    rrset.rrs(false).stream()
-        .sorted()
-        .forEachOrdered(
-            r -> {
-              out.writeByteArray(header.toByteArray());
-              int lengthPosition = out.current();
-              out.writeU16(0);
-              r.rrToWire(out, null, true);
-              int rrlength = out.current() - lengthPosition - 2;
-              out.save();
-              out.jump(lengthPosition);
-              out.writeU16(rrlength);
-              out.restore();
-            });
-    return out.toByteArray();
+    /**
+     * Adds the data to a message digest, e.g. to identify the signature in a cache.
+     *
+     * @param md The message digest to update.
+     */
+    public void update(MessageDigest md) {
+      md.update(ByteBuffer.wrap(data).asReadOnlyBuffer());
+    }
+  }
+
+  /**
+   * Creates the data that an RRSIG signs for an RRset, to verify it with {@link #verify(SignedData,
+   * DNSKEYRecord, Instant)} after using it otherwise.
+   *
+   * @param rrsig The RRSIG record used to verify the rrset.
+   * @param rrset The data to be verified.
+   * @since 3.6.5
+   */
+  public static SignedData signedData(RRSIGRecord rrsig, RRset rrset) {
+    return new SignedData(rrsig, rrset.getType(), digestRRset(rrsig, rrset));
+  }
+
+  private static final ThreadLocal<CanonicalRRsetWriter> CANONICAL_RRSET_WRITER =
+      ThreadLocal.withInitial(CanonicalRRsetWriter::new);
+
+  /**
+   * Writes the data that is signed for an RRset into buffers that are reused for the next RRset of
+   * the same thread. The records are sorted by their canonical RDATA, which is written once into a
+   * scratch buffer instead of being created for every comparison.
+   */
+  private static final class CanonicalRRsetWriter {
+    /** Buffers that grew beyond this size for a large RRset are not kept. */
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private DNSOutput out = new DNSOutput();
+    private DNSOutput rdata = new DNSOutput();
+
+    /** The start of each record's RDATA in {@link #rdata}, followed by the end of the last one. */
+    private int[] offsets = new int[17];
+
+    private int[] order = new int[16];
+    private int[] merge = new int[16];
+
+    DNSOutput write(RRSIGRecord rrsig, RRset rrset) {
+      out.jump(0);
+      rdata.jump(0);
+      digestSIG(out, rrsig);
+
+      List<Record> rrs = rrset.rrs(false);
+      int n = rrs.size();
+      if (order.length < n) {
+        offsets = new int[n + 1];
+        order = new int[n];
+        merge = new int[n];
+      }
+
+      for (int i = 0; i < n; i++) {
+        offsets[i] = rdata.current();
+        order[i] = i;
+        rrs.get(i).rrToWire(rdata, null, true);
+      }
+      offsets[n] = rdata.current();
+      sort(0, n);
+
+      Name name = rrset.getName();
+      int sigLabels = rrsig.getLabels() + 1; // Add the root label back.
+      if (name.labels() > sigLabels) {
+        name = name.wild(name.labels() - sigLabels);
+      }
+
+      int headerStart = out.current();
+      name.toWireCanonical(out);
+      out.writeU16(rrset.getType());
+      out.writeU16(rrset.getDClass());
+      out.writeU32(rrsig.getOrigTTL());
+      int headerLength = out.current() - headerStart;
+      byte[] rdataArray = rdata.array();
+      for (int k = 0; k < n; k++) {
+        if (k > 0) {
+          out.writeByteArray(out.array(), headerStart, headerLength);
+        }
+
+        int i = order[k];
+        int length = offsets[i + 1] - offsets[i];
+        out.writeU16(length);
+        out.writeByteArray(rdataArray, offsets[i], length);
+      }
+
+      return out;
+    }
+
+    /** Stable merge sort of the record indices in {@link #order} by their canonical RDATA. */
+    private void sort(int from, int to) {
+      if (to - from < 2) {
+        return;
+      }
+
+      int mid = (from + to) >>> 1;
+      sort(from, mid);
+      sort(mid, to);
+      if (compare(order[mid - 1], order[mid]) <= 0) {
+        return;
+      }
+
+      System.arraycopy(order, from, merge, from, to - from);
+      for (int k = from, i = from, j = mid; k < to; k++) {
+        if (j >= to || (i < mid && compare(merge[i], merge[j]) <= 0)) {
+          order[k] = merge[i++];
+        } else {
+          order[k] = merge[j++];
+        }
+      }
+    }
+
+    /** Compares the canonical RDATA of two records like {@link Record#compareTo(Record)}. */
+    private int compare(int a, int b) {
+      byte[] array = rdata.array();
+      int aStart = offsets[a];
+      int aLength = offsets[a + 1] - aStart;
+      int bStart = offsets[b];
+      int bLength = offsets[b + 1] - bStart;
+      int minLength = Math.min(aLength, bLength);
+      for (int i = 0; i < minLength; i++) {
+        int cmp = (array[aStart + i] & 0xFF) - (array[bStart + i] & 0xFF);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+
+      return aLength - bLength;
+    }
+
+    void release() {
+      if (out.array().length > MAX_RETAINED_SIZE) {
+        out = new DNSOutput();
+      }
+
+      if (rdata.array().length > MAX_RETAINED_SIZE) {
+        rdata = new DNSOutput();
+      }
+    }
   }
 
   /**
@@ -564,6 +703,123 @@ public class DNSSEC {
     }
   }
 
+  /**
+   * Per-thread {@link KeyFactory} and {@link Signature} instances, by algorithm (and provider).
+   * Both are not thread-safe, but getting a new instance for every key or signature means a
+   * provider lookup each time.
+   */
+  private static final ThreadLocal<Map<String, KeyFactory>> KEY_FACTORIES =
+      ThreadLocal.withInitial(HashMap::new);
+
+  private static final ThreadLocal<Map<String, Signature>> SIGNATURES =
+      ThreadLocal.withInitial(HashMap::new);
+
+  static final String PUBLIC_KEY_CACHE_SIZE_PROPERTY = "dnsjava.dnssec.public_key_cache.max_size";
+
+  /**
+   * Keys parsed from KEY/DNSKEY data, shared between all records with the same data. {@link
+   * KEYBase} only remembers the key of a record instance, which does not help when the same key is
+   * parsed from each response.
+   */
+  private static final Map<PublicKeyCacheKey, PublicKey> PUBLIC_KEY_CACHE =
+      Collections.synchronizedMap(
+          new PublicKeyCacheMap(Integer.getInteger(PUBLIC_KEY_CACHE_SIZE_PROPERTY, 1000)));
+
+  private static class PublicKeyCacheMap extends LinkedHashMap<PublicKeyCacheKey, PublicKey> {
+    private final int maxsize;
+
+    PublicKeyCacheMap(int maxsize) {
+      super(16, 0.75f, true);
+      this.maxsize = maxsize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<PublicKeyCacheKey, PublicKey> eldest) {
+      return size() > maxsize;
+    }
+  }
+
+  private static final class PublicKeyCacheKey {
+    private final int alg;
+    private final byte[] key;
+    private final int hashCode;
+
+    PublicKeyCacheKey(int alg, byte[] key) {
+      this.alg = alg;
+      this.key = key;
+      this.hashCode = 31 * alg + Arrays.hashCode(key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PublicKeyCacheKey)) {
+        return false;
+      }
+
+      PublicKeyCacheKey other = (PublicKeyCacheKey) o;
+      return alg == other.alg && Arrays.equals(key, other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** Removes all keys from the shared cache of parsed public keys. */
+  static void clearPublicKeyCache() {
+    PUBLIC_KEY_CACHE.clear();
+  }
+
+  private static KeyFactory keyFactory(String algorithm) throws GeneralSecurityException {
+    Map<String, KeyFactory> factories = KEY_FACTORIES.get();
+    KeyFactory factory = factories.get(algorithm);
+    if (factory == null) {
+      factory = KeyFactory.getInstance(algorithm);
+      factories.put(algorithm, factory);
+    }
+
+    return factory;
+  }
+
+  /**
+   * Gets a {@link Signature} of this thread that is initialized for verification with {@code
+   * publicKey}, or for signing with {@code privateKey}.
+   */
+  private static Signature signature(
+      String algorithm, String provider, PublicKey publicKey, PrivateKey privateKey)
+      throws GeneralSecurityException {
+    Map<String, Signature> signatures = SIGNATURES.get();
+    String name = provider == null ? algorithm : algorithm + "/" + provider;
+    Signature s = signatures.get(name);
+    if (s != null) {
+      try {
+        init(s, publicKey, privateKey);
+        return s;
+      } catch (InvalidKeyException e) {
+        // Without an explicit provider, the provider of an instance is chosen for the first key.
+        // Keys from another provider might need a new instance.
+      }
+    }
+
+    s =
+        provider == null
+            ? Signature.getInstance(algorithm)
+            : Signature.getInstance(algorithm, provider);
+    init(s, publicKey, privateKey);
+    signatures.put(name, s);
+    return s;
+  }
+
+  private static void init(Signature s, PublicKey publicKey, PrivateKey privateKey)
+      throws InvalidKeyException {
+    if (publicKey != null) {
+      s.initVerify(publicKey);
+    } else {
+      s.initSign(privateKey);
+    }
+  }
+
   private static PublicKey toRSAPublicKey(byte[] key) throws IOException, GeneralSecurityException {
     DNSInput in = new DNSInput(key);
     int exponentLength = in.readU8();
@@ -573,8 +829,7 @@ public class DNSSEC {
     BigInteger exponent = readBigInteger(in, exponentLength);
     BigInteger modulus = readBigInteger(in);
 
-    KeyFactory factory = KeyFactory.getInstance("RSA");
-    return factory.generatePublic(new RSAPublicKeySpec(modulus, exponent));
+    return keyFactory("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
   }
 
   private static PublicKey toDSAPublicKey(byte[] key)
@@ -591,8 +846,7 @@ public class DNSSEC {
     BigInteger g = readBigInteger(in, 64 + t * 8);
     BigInteger y = readBigInteger(in, 64 + t * 8);
 
-    KeyFactory factory = KeyFactory.getInstance("DSA");
-    return factory.generatePublic(new DSAPublicKeySpec(y, p, q, g));
+    return keyFactory("DSA").generatePublic(new DSAPublicKeySpec(y, p, q, g));
   }
 
   private static class ECKeyInfo {
@@ -654,8 +908,7 @@ public class DNSSEC {
     BigInteger y = readBigIntegerLittleEndian(in, keyinfo.length);
     ECPoint q = new ECPoint(x, y);
 
-    KeyFactory factory = KeyFactory.getInstance("ECGOST3410");
-    return factory.generatePublic(new ECPublicKeySpec(q, keyinfo.spec));
+    return keyFactory("ECGOST3410").generatePublic(new ECPublicKeySpec(q, keyinfo.spec));
   }
 
   private static PublicKey toECDSAPublicKey(byte[] key, ECKeyInfo keyinfo)
@@ -667,8 +920,7 @@ public class DNSSEC {
     BigInteger y = readBigInteger(in, keyinfo.length);
     ECPoint q = new ECPoint(x, y);
 
-    KeyFactory factory = KeyFactory.getInstance("EC");
-    return factory.generatePublic(new ECPublicKeySpec(q, keyinfo.spec));
+    return keyFactory("EC").generatePublic(new ECPublicKeySpec(q, keyinfo.spec));
   }
 
   private static PublicKey toEdDSAPublicKey(byte[] key, byte algId)
@@ -689,8 +941,7 @@ public class DNSSEC {
     encoded[10] = (byte) (key.length + 1); // length
     System.arraycopy(key, 0, encoded, 12, key.length);
     X509EncodedKeySpec keySpec = new X509EncodedKeySpec(encoded);
-    KeyFactory keyFactory = KeyFactory.getInstance("EdDSA");
-    return keyFactory.generatePublic(keySpec);
+    return keyFactory("EdDSA").generatePublic(keySpec);
   }
 
   /** Converts a KEY/DNSKEY record into a PublicKey */
@@ -700,6 +951,17 @@ public class DNSSEC {
 
   /** Converts a KEY/DNSKEY record into a PublicKey */
   static PublicKey toPublicKey(int alg, byte[] key, Record r) throws DNSSECException {
+    PublicKeyCacheKey cacheKey = new PublicKeyCacheKey(alg, key);
+    PublicKey publicKey = PUBLIC_KEY_CACHE.get(cacheKey);
+    if (publicKey == null) {
+      publicKey = parsePublicKey(alg, key, r);
+      PUBLIC_KEY_CACHE.put(new PublicKeyCacheKey(alg, key.clone()), publicKey);
+    }
+
+    return publicKey;
+  }
+
+  private static PublicKey parsePublicKey(int alg, byte[] key, Record r) throws DNSSECException {
     try {
       switch (alg) {
         case Algorithm.RSAMD5:
@@ -985,6 +1247,12 @@ public class DNSSEC {
 
   private static void verify(KEYBase keyRecord, SIGBase sigRecord, byte[] data, int coveredType)
       throws DNSSECException {
+    verify(keyRecord, sigRecord, data, 0, data.length, coveredType);
+  }
+
+  private static void verify(
+      KEYBase keyRecord, SIGBase sigRecord, byte[] data, int offset, int length, int coveredType)
+      throws DNSSECException {
     PublicKey key = keyRecord.getPublicKey();
     int alg = sigRecord.getAlgorithm();
     byte[] signature = sigRecord.getSignature();
@@ -1019,9 +1287,8 @@ public class DNSSEC {
     }
 
     try {
-      Signature s = Signature.getInstance(algString(alg));
-      s.initVerify(key);
-      s.update(data);
+      Signature s = signature(algString(alg), null, key, null);
+      s.update(data, offset, length);
       if (!s.verify(signature)) {
         throw new SignatureVerificationException(
             "Key "
@@ -1111,6 +1378,40 @@ public class DNSSEC {
    */
   public static void verify(RRset rrset, RRSIGRecord rrsig, DNSKEYRecord key, Instant date)
       throws DNSSECException {
+    checkDnskeyAndSigRecord(rrsig, key, date);
+    CanonicalRRsetWriter writer = CANONICAL_RRSET_WRITER.get();
+    try {
+      DNSOutput data = writer.write(rrsig, rrset);
+      verify(key, rrsig, data.array(), 0, data.current(), rrset.getType());
+    } finally {
+      writer.release();
+    }
+  }
+
+  /**
+   * Verify a DNSSEC signature over data that was already created with {@link
+   * #signedData(RRSIGRecord, RRset)}, e.g. because it also identifies the signature in a cache.
+   *
+   * @param data The signed data of the RRset and the RRSIG record containing the signature.
+   * @param key The DNSKEY record to verify the signature with.
+   * @param date The date against which the signature is verified.
+   * @throws UnsupportedAlgorithmException The algorithm is unknown
+   * @throws MalformedKeyException The key is malformed
+   * @throws KeyMismatchException The key and signature do not match
+   * @throws SignatureExpiredException The signature has expired
+   * @throws SignatureNotYetValidException The signature is not yet valid
+   * @throws SignatureVerificationException The signature does not verify.
+   * @throws DNSSECException Some other error occurred.
+   * @since 3.6.5
+   */
+  public static void verify(SignedData data, DNSKEYRecord key, Instant date)
+      throws DNSSECException {
+    checkDnskeyAndSigRecord(data.rrsig, key, date);
+    verify(key, data.rrsig, data.data, data.type);
+  }
+
+  private static void checkDnskeyAndSigRecord(RRSIGRecord rrsig, DNSKEYRecord key, Instant date)
+      throws DNSSECException {
     if ((key.getFlags() & DNSKEYRecord.Flags.ZONE_KEY) != DNSKEYRecord.Flags.ZONE_KEY) {
       throw new InvalidDnskeyException(
           key, "zone key flag is not set", ExtendedErrorCodeOption.NO_ZONE_KEY_BIT_SET);
@@ -1122,8 +1423,6 @@ public class DNSSEC {
     }
 
     checkKeyAndSigRecord(rrsig, key, date);
-
-    verify(key, rrsig, digestRRset(rrsig, rrset), rrset.getType());
   }
 
   private static void checkKeyAndSigRecord(SIGBase sig, KEYBase key, Instant date)
@@ -1143,16 +1442,22 @@ public class DNSSEC {
 
   static byte[] sign(PrivateKey privkey, PublicKey pubkey, int alg, byte[] data, String provider)
       throws DNSSECException {
+    return sign(privkey, pubkey, alg, data, 0, data.length, provider);
+  }
+
+  private static byte[] sign(
+      PrivateKey privkey,
+      PublicKey pubkey,
+      int alg,
+      byte[] data,
+      int offset,
+      int length,
+      String provider)
+      throws DNSSECException {
     byte[] signature;
     try {
-      Signature s;
-      if (provider != null) {
-        s = Signature.getInstance(algString(alg), provider);
-      } else {
-        s = Signature.getInstance(algString(alg));
-      }
-      s.initSign(privkey);
-      s.update(data);
+      Signature s = signature(algString(alg), provider, null, privkey);
+      s.update(data, offset, length);
       signature = s.sign();
     } catch (GeneralSecurityException e) {
       throw new DNSSECException(e);
@@ -1339,7 +1644,14 @@ public class DNSSEC {
             key.getName(),
             null);
 
-    rrsig.setSignature(sign(privkey, key.getPublicKey(), alg, digestRRset(rrsig, rrset), provider));
+    CanonicalRRsetWriter writer = CANONICAL_RRSET_WRITER.get();
+    try {
+      DNSOutput data = writer.write(rrsig, rrset);
+      rrsig.setSignature(
+          sign(privkey, key.getPublicKey(), alg, data.array(), 0, data.current(), provider));
+    } finally {
+      writer.release();
+    }
     return rrsig;
   }
 
@@ -0,0 +1,170 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A priority queue of values ordered by a {@link System#nanoTime()} deadline, used by the NIO
+ * clients to time out pending transactions. Unlike {@link java.util.PriorityQueue}, each entry
+ * knows its position in the heap, so that entries of transactions which complete before their
+ * deadline can be removed in O(log n).
+ *
+ * @param <T> the type of the values in this queue.
+ */
+final class DeadlineQueue<T> {
+  static final class Entry<T> {
+    private final long deadline;
+    private final T value;
+    private int index = -1;
+
+    private Entry(long deadline, T value) {
+      this.deadline = deadline;
+      this.value = value;
+    }
+
+    T getValue() {
+      return value;
+    }
+  }
+
+  private Entry<?>[] heap = new Entry<?>[16];
+  private int size;
+
+  /**
+   * Adds a value to the queue.
+   *
+   * @param deadline The deadline of the value, as obtained from {@link System#nanoTime()}.
+   * @return The entry that can be used to {@link #remove(Entry)} the value before its deadline.
+   */
+  synchronized Entry<T> add(long deadline, T value) {
+    Entry<T> e = new Entry<>(deadline, value);
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    e.index = size;
+    heap[size++] = e;
+    siftUp(e.index);
+    return e;
+  }
+
+  /**
+   * Removes an entry from the queue.
+   *
+   * @param e The entry, or {@code null} if the value was not added yet.
+   * @return {@code true} if the entry was still queued, {@code false} if it was already removed,
+   *     has expired or is {@code null}.
+   */
+  synchronized boolean remove(Entry<T> e) {
+    if (e == null) {
+      return false;
+    }
+
+    int i = e.index;
+    if (i < 0) {
+      return false;
+    }
+
+    removeAt(i);
+    return true;
+  }
+
+  /**
+   * Removes all entries whose deadline has passed.
+   *
+   * @param now The current time, as obtained from {@link System#nanoTime()}.
+   * @return The values of the expired entries, in deadline order.
+   */
+  synchronized List<T> pollExpired(long now) {
+    List<T> expired = null;
+    while (size > 0 && heap[0].deadline - now <= 0) {
+      if (expired == null) {
+        expired = new ArrayList<>();
+      }
+      expired.add(entry(0).value);
+      removeAt(0);
+    }
+    return expired == null ? Collections.emptyList() : expired;
+  }
+
+  /** Removes all entries and returns their values. */
+  synchronized List<T> clear() {
+    List<T> all = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Entry<T> e = entry(i);
+      e.index = -1;
+      all.add(e.value);
+      heap[i] = null;
+    }
+    size = 0;
+    return all;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Entry<T> entry(int i) {
+    return (Entry<T>) heap[i];
+  }
+
+  private void removeAt(int i) {
+    Entry<T> removed = entry(i);
+    removed.index = -1;
+    int last = --size;
+    if (i != last) {
+      Entry<T> moved = entry(last);
+      heap[i] = moved;
+      moved.index = i;
+      heap[last] = null;
+      if (!siftUp(i)) {
+        siftDown(i);
+      }
+    } else {
+      heap[last] = null;
+    }
+  }
+
+  private boolean siftUp(int i) {
+    Entry<T> e = entry(i);
+    int start = i;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      Entry<T> p = entry(parent);
+      if (e.deadline - p.deadline >= 0) {
+        break;
+      }
+      heap[i] = p;
+      p.index = i;
+      i = parent;
+    }
+    heap[i] = e;
+    e.index = i;
+    return i != start;
+  }
+
+  private void siftDown(int i) {
+    Entry<T> e = entry(i);
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      Entry<T> c = entry(child);
+      int right = child + 1;
+      if (right < size && entry(right).deadline - c.deadline < 0) {
+        child = right;
+        c = entry(child);
+      }
+      if (e.deadline - c.deadline <= 0) {
+        break;
+      }
+      heap[i] = c;
+      c.index = i;
+      i = child;
+    }
+    heap[i] = e;
+    e.index = i;
+  }
+}
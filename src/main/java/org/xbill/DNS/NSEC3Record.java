@@ -4,6 +4,7 @@
 package org.xbill.DNS;
 
 import java.io.IOException;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import org.xbill.DNS.utils.base16;
@@ -238,26 +239,39 @@ public class NSEC3Record extends Record {
     return types.contains(type);
   }
 
+  /** The SHA-1 instance of each thread, hashing is done for many names with many iterations. */
+  private static final ThreadLocal<MessageDigest> SHA1 = new ThreadLocal<>();
+
   static byte[] hashName(Name name, int hashAlg, int iterations, byte[] salt)
       throws NoSuchAlgorithmException {
-    MessageDigest digest;
-    if (hashAlg == Digest.SHA1) {
-      digest = MessageDigest.getInstance("sha-1");
-    } else {
+    if (hashAlg != Digest.SHA1) {
       throw new NoSuchAlgorithmException("Unknown NSEC3 algorithm identifier: " + hashAlg);
     }
-    byte[] hash = null;
-    for (int i = 0; i <= iterations; i++) {
-      digest.reset();
-      if (i == 0) {
-        digest.update(name.toWireCanonical());
-      } else {
+
+    MessageDigest digest = SHA1.get();
+    if (digest == null) {
+      digest = MessageDigest.getInstance("sha-1");
+      SHA1.set(digest);
+    }
+
+    digest.reset();
+    digest.update(name.toWireCanonical());
+    if (salt != null) {
+      digest.update(salt);
+    }
+    byte[] hash = digest.digest();
+    try {
+      for (int i = 0; i < iterations; i++) {
+        // the digest copies its input, the hash can be overwritten in place
         digest.update(hash);
+        if (salt != null) {
+          digest.update(salt);
+        }
+        digest.digest(hash, 0, hash.length);
       }
-      if (salt != null) {
-        digest.update(salt);
-      }
-      hash = digest.digest();
+    } catch (DigestException e) {
+      // cannot happen, the buffer has exactly the length of the digest
+      throw new IllegalStateException(e);
     }
     return hash;
   }
@@ -727,8 +727,15 @@ public class Name implements Comparable<Name>, Serializable {
    * @param out The output stream to which the message is written.
    */
   public void toWireCanonical(DNSOutput out) {
-    byte[] b = toWireCanonical();
-    out.writeByteArray(b);
+    int start = out.current();
+    out.writeByteArray(name, 0, name.length);
+    byte[] b = out.array();
+    for (int i = 0, pos = start; i < labels; i++) {
+      int len = b[pos++];
+      for (int j = 0; j < len; j++, pos++) {
+        b[pos] = lowercase[b[pos] & 0xFF];
+      }
+    }
   }
 
   /**
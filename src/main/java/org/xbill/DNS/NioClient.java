@@ -9,10 +9,14 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.xbill.DNS.utils.hexdump;
 
@@ -29,6 +33,16 @@ import org.xbill.DNS.utils.hexdump;
  *   <dd>Set selector timeout in milliseconds. Default/Max 1000, Min 1.
  *   <dt>{@value REGISTER_SHUTDOWN_HOOK_PROPERTY}
  *   <dd>Register Shutdown Hook termination of NIO. Default True.
+ *   <dt>{@value SELECTOR_THREADS_PROPERTY}
+ *   <dd>Number of selector threads (event loops) that handle the network I/O. UDP sockets are
+ *       assigned round-robin, TCP connections by their local and remote address. Default 1.
+ *   <dt>{@value NioUdpClient#POOL_SIZE_PROPERTY}
+ *   <dd>Number of long-lived UDP sockets per remote address that are shared by queries without an
+ *       explicit local port. Replies are matched to queries by message id and question. Default 0,
+ *       which opens a new socket for every query.
+ *   <dt>{@value NioUdpClient#POOL_ROTATE_PROPERTY}
+ *   <dd>Number of queries after which a pooled UDP socket is replaced by one with a new random
+ *       source port. Default 1000.
  * </dl>
  *
  * @since 3.4
@@ -38,48 +52,138 @@ import org.xbill.DNS.utils.hexdump;
 public abstract class NioClient {
   static final String SELECTOR_TIMEOUT_PROPERTY = "dnsjava.nio.selector_timeout";
   static final String REGISTER_SHUTDOWN_HOOK_PROPERTY = "dnsjava.nio.register_shutdown_hook";
+  static final String SELECTOR_THREADS_PROPERTY = "dnsjava.nio.selector_threads";
   private static final Object NIO_CLIENT_LOCK = new Object();
 
   /** Packet logger, if available. */
   private static PacketLogger packetLogger = null;
 
-  private static final Runnable[] TIMEOUT_TASKS = new Runnable[2];
   private static final Runnable[] CLOSE_TASKS = new Runnable[2];
 
   private static Consumer<Selector> tcpRegistrationsTask;
   private static Consumer<Selector> udpRegistrationsTask;
+  private static Consumer<Selector> tcpTimeoutTask;
+  private static Consumer<Selector> udpTimeoutTask;
 
-  private static Thread selectorThread;
   private static Thread closeThread;
-  private static volatile Selector selector;
+  private static volatile EventLoop[] eventLoops;
+  private static final AtomicInteger nextEventLoop = new AtomicInteger();
+  private static int runningEventLoops;
   private static volatile boolean run;
   private static volatile boolean closeDone;
 
+  /**
+   * Receive buffers of the selector threads. Replies are copied once from these buffers into an
+   * array of the exact length, the buffers never leave their thread.
+   */
+  private static final ThreadLocal<ByteBuffer> RECEIVE_BUFFER =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(Message.MAXLENGTH));
+
   interface KeyProcessor {
     void processReadyKey(SelectionKey key);
   }
 
+  @RequiredArgsConstructor
+  private static final class EventLoop {
+    private final Selector selector;
+    private Thread thread;
+  }
+
+  /** Gets the selector of the first event loop, starting the event loops if necessary. */
   static Selector selector() throws IOException {
-    if (selector == null) {
+    return eventLoops()[0].selector;
+  }
+
+  /**
+   * Gets the selector of the event loop that should handle a channel, starting the event loops if
+   * necessary.
+   *
+   * @param key The key that assigns channels to the same event loop, e.g. the remote address. If
+   *     {@code null}, the event loops are assigned round-robin.
+   */
+  static Selector selector(Object key) throws IOException {
+    EventLoop[] loops = eventLoops();
+    if (loops.length == 1) {
+      return loops[0].selector;
+    }
+
+    int index;
+    if (key == null) {
+      index = nextEventLoop.getAndIncrement();
+    } else {
+      index = key.hashCode();
+      index ^= index >>> 16;
+    }
+
+    return loops[Math.floorMod(index, loops.length)].selector;
+  }
+
+  /** Gets the threads of the running event loops. */
+  static List<Thread> selectorThreads() {
+    EventLoop[] loops = eventLoops;
+    List<Thread> threads = new ArrayList<>();
+    if (loops != null) {
+      for (EventLoop loop : loops) {
+        threads.add(loop.thread);
+      }
+    }
+    return threads;
+  }
+
+  private static EventLoop[] eventLoops() throws IOException {
+    EventLoop[] loops = eventLoops;
+    if (loops == null) {
       synchronized (NIO_CLIENT_LOCK) {
-        if (selector == null) {
-          selector = Selector.open();
-          log.debug("Starting dnsjava NIO selector thread");
-          run = true;
-          selectorThread = new Thread(NioClient::runSelector);
-          selectorThread.setDaemon(true);
-          selectorThread.setName("dnsjava NIO selector");
-          selectorThread.start();
-          closeThread = new Thread(() -> close(true));
-          closeThread.setName("dnsjava NIO shutdown hook");
-          if (Boolean.parseBoolean(System.getProperty(REGISTER_SHUTDOWN_HOOK_PROPERTY, "true"))) {
-            Runtime.getRuntime().addShutdownHook(closeThread);
-          }
+        loops = eventLoops;
+        if (loops == null) {
+          loops = startEventLoops();
+          eventLoops = loops;
         }
       }
     }
 
-    return selector;
+    return loops;
+  }
+
+  private static EventLoop[] startEventLoops() throws IOException {
+    int timeout = selectorTimeout();
+    int threads = Integer.getInteger(SELECTOR_THREADS_PROPERTY, 1);
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Invalid selector_threads, must be at least 1");
+    }
+
+    EventLoop[] loops = new EventLoop[threads];
+    try {
+      for (int i = 0; i < threads; i++) {
+        loops[i] = new EventLoop(Selector.open());
+      }
+    } catch (IOException e) {
+      for (EventLoop loop : loops) {
+        if (loop != null) {
+          loop.selector.close();
+        }
+      }
+      throw e;
+    }
+
+    log.debug("Starting {} dnsjava NIO selector thread(s)", threads);
+    run = true;
+    runningEventLoops = threads;
+    for (int i = 0; i < threads; i++) {
+      EventLoop loop = loops[i];
+      loop.thread = new Thread(() -> runSelector(loop.selector, timeout));
+      loop.thread.setDaemon(true);
+      loop.thread.setName("dnsjava NIO selector" + (threads > 1 ? " " + i : ""));
+      loop.thread.start();
+    }
+
+    closeThread = new Thread(() -> close(true));
+    closeThread.setName("dnsjava NIO shutdown hook");
+    if (Boolean.parseBoolean(System.getProperty(REGISTER_SHUTDOWN_HOOK_PROPERTY, "true"))) {
+      Runtime.getRuntime().addShutdownHook(closeThread);
+    }
+
+    return loops;
   }
 
   /**
@@ -95,11 +199,8 @@ public abstract class NioClient {
 
   private static void close(boolean fromHook) {
     log.debug("Closing dnsjava NIO selector, fromHook={}", fromHook);
-    run = false;
-    Selector localSelector = selector;
-    if (localSelector != null) {
-      selector.wakeup();
-    }
+    EventLoop[] localEventLoops = eventLoops;
+    stop(localEventLoops);
 
     if (!fromHook) {
       synchronized (NIO_CLIENT_LOCK) {
@@ -113,7 +214,7 @@ public abstract class NioClient {
       }
     }
 
-    if (localSelector == null) {
+    if (localEventLoops == null) {
       // Prevent hanging when close() was called without starting
       return;
     }
@@ -131,29 +232,53 @@ public abstract class NioClient {
     }
   }
 
-  static void runSelector() {
-    int timeout = Integer.getInteger(SELECTOR_TIMEOUT_PROPERTY, 1000);
+  private static void stop(EventLoop[] loops) {
+    run = false;
+    if (loops != null) {
+      for (EventLoop loop : loops) {
+        loop.selector.wakeup();
+      }
+    }
+  }
 
+  /**
+   * Gets the receive buffer of the current thread, cleared and limited to {@code max} bytes. The
+   * buffer may only be used until the current {@link KeyProcessor#processReadyKey} returns.
+   */
+  static ByteBuffer receiveBuffer(int max) {
+    ByteBuffer buffer = RECEIVE_BUFFER.get();
+    buffer.clear();
+    buffer.limit(Math.min(max, buffer.capacity()));
+    return buffer;
+  }
+
+  static int selectorTimeout() {
+    int timeout = Integer.getInteger(SELECTOR_TIMEOUT_PROPERTY, 1000);
     if (timeout <= 0 || timeout > 1000) {
       throw new IllegalArgumentException("Invalid selector_timeout, must be between 1 and 1000");
     }
 
+    return timeout;
+  }
+
+  private static void runSelector(Selector selector, int timeout) {
     while (run) {
       try {
-        int numSelects = selector.select(timeout);
+        selector.select(timeout);
         if (Thread.currentThread().isInterrupted()) {
           log.debug("Sector thread was interrupted, stopping");
-          close();
+          stop(eventLoops);
           break;
         }
 
-        if (numSelects == 0) {
-          runTasks(TIMEOUT_TASKS);
-        }
+        // Check the timeouts on every iteration, a busy selector would otherwise never time out
+        // queries. The checks only look at the expired transactions of this event loop and are
+        // cheap.
+        runSelectorTasks(tcpTimeoutTask, udpTimeoutTask, selector);
 
         if (run) {
-          runRegistrationTasks();
-          processReadyKeys();
+          runSelectorTasks(tcpRegistrationsTask, udpRegistrationsTask, selector);
+          processReadyKeys(selector);
         }
       } catch (IOException e) {
         log.error("A selection operation failed", e);
@@ -162,6 +287,14 @@ public abstract class NioClient {
       }
     }
 
+    synchronized (NIO_CLIENT_LOCK) {
+      if (--runningEventLoops > 0) {
+        log.debug("dnsjava NIO selector thread stopped");
+        return;
+      }
+    }
+
+    // the last event loop to stop closes the clients and all selectors
     runClose();
     log.debug("dnsjava NIO selector thread stopped");
   }
@@ -173,35 +306,36 @@ public abstract class NioClient {
       log.warn("Failed to execute shutdown task, ignoring and continuing close", e);
     }
 
-    Selector localSelector = selector;
-    Thread localSelectorThread = selectorThread;
+    EventLoop[] localEventLoops;
     synchronized (NIO_CLIENT_LOCK) {
-      selector = null;
-      selectorThread = null;
+      localEventLoops = eventLoops;
+      eventLoops = null;
       closeThread = null;
       closeDone = true;
       NIO_CLIENT_LOCK.notifyAll();
     }
 
-    if (localSelector != null) {
-      try {
-        localSelector.close();
-      } catch (IOException e) {
-        log.warn("Failed to properly close selector, ignoring and continuing close", e);
-      }
-    }
-
-    if (localSelectorThread != null) {
-      try {
-        localSelectorThread.join();
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+    if (localEventLoops != null) {
+      for (EventLoop loop : localEventLoops) {
+        try {
+          loop.selector.close();
+        } catch (IOException e) {
+          log.warn("Failed to properly close selector, ignoring and continuing close", e);
+        }
       }
     }
   }
 
-  static void setTimeoutTask(Runnable r, boolean isTcpClient) {
-    addTask(TIMEOUT_TASKS, r, isTcpClient);
+  /**
+   * Sets the task that times out the transactions of an event loop. It is called with the selector
+   * of the event loop on each iteration.
+   */
+  static void setTimeoutTask(Consumer<Selector> r, boolean isTcpClient) {
+    if (isTcpClient) {
+      tcpTimeoutTask = r;
+    } else {
+      udpTimeoutTask = r;
+    }
   }
 
   static void setRegistrationsTask(Consumer<Selector> r, boolean isTcpClient) {
@@ -235,18 +369,17 @@ public abstract class NioClient {
     }
   }
 
-  private static void runRegistrationTasks() {
-    Consumer<Selector> tcpTask = tcpRegistrationsTask;
+  private static void runSelectorTasks(
+      Consumer<Selector> tcpTask, Consumer<Selector> udpTask, Selector selector) {
     if (tcpTask != null) {
       tcpTask.accept(selector);
     }
-    Consumer<Selector> udpTask = udpRegistrationsTask;
     if (udpTask != null) {
       udpTask.accept(selector);
     }
   }
 
-  private static void processReadyKeys() {
+  private static void processReadyKeys(Selector selector) {
     Iterator<SelectionKey> it = selector.selectedKeys().iterator();
     while (it.hasNext()) {
       SelectionKey key = it.next();
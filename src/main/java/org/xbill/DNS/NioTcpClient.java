@@ -23,8 +23,10 @@ import org.xbill.DNS.io.TcpIoClient;
 
 @Slf4j
 final class NioTcpClient extends NioClient implements TcpIoClient {
-  private final Queue<ChannelState> registrationQueue = new ConcurrentLinkedQueue<>();
+  private final Map<Selector, Queue<ChannelState>> registrationQueues = new ConcurrentHashMap<>();
   private final Map<ChannelKey, ChannelState> channelMap = new ConcurrentHashMap<>();
+  private final Map<Selector, DeadlineQueue<Transaction>> pendingTimeouts =
+      new ConcurrentHashMap<>();
 
   NioTcpClient() {
     setRegistrationsTask(this::processPendingRegistrations, true);
@@ -33,6 +35,11 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
   }
 
   private void processPendingRegistrations(Selector selector) {
+    Queue<ChannelState> registrationQueue = registrationQueues.get(selector);
+    if (registrationQueue == null) {
+      return;
+    }
+
     while (!registrationQueue.isEmpty()) {
       ChannelState state = registrationQueue.poll();
       if (state == null) {
@@ -51,38 +58,63 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
     }
   }
 
-  private void checkTransactionTimeouts() {
-    for (ChannelState state : channelMap.values()) {
-      for (Iterator<Transaction> it = state.pendingTransactions.iterator(); it.hasNext(); ) {
-        Transaction t = it.next();
-        if (t.endTime - System.nanoTime() < 0) {
-          t.f.completeExceptionally(new SocketTimeoutException("Query timed out"));
-          it.remove();
-        }
+  private void checkTransactionTimeouts(Selector selector) {
+    DeadlineQueue<Transaction> timeouts = pendingTimeouts.get(selector);
+    if (timeouts == null) {
+      return;
+    }
+
+    // a partially written query stays with its channel until the rest is written, see
+    // Transaction#isDone()
+    for (Transaction t : timeouts.pollExpired(System.nanoTime())) {
+      t.f.completeExceptionally(new SocketTimeoutException("Query timed out"));
+      if (t.isDone()) {
+        t.pendingTransactions.remove(t);
       }
     }
   }
 
+  /** Gets the number of transactions of all channels that were not answered or timed out. */
+  int pendingTransactions() {
+    int count = 0;
+    for (ChannelState state : channelMap.values()) {
+      count += state.pendingTransactions.size();
+    }
+
+    return count;
+  }
+
   private void closeTcp() {
-    registrationQueue.clear();
+    registrationQueues.clear();
     EOFException closing = new EOFException("Client is closing");
     for (ChannelState state : channelMap.values()) {
       state.handleTransactionException(closing);
       state.handleChannelException(closing);
     }
     channelMap.clear();
+    pendingTimeouts.values().forEach(DeadlineQueue::clear);
+    pendingTimeouts.clear();
   }
 
   @RequiredArgsConstructor
   private static final class Transaction {
     private final Message query;
     private final byte[] queryData;
-    private final long endTime;
     private final SocketChannel channel;
+    private final Queue<Transaction> pendingTransactions;
     private final CompletableFuture<byte[]> f;
+    private DeadlineQueue.Entry<Transaction> timeoutEntry;
     private ByteBuffer queryDataBuffer;
     long bytesWrittenTotal = 0;
 
+    /**
+     * Whether the transaction has completed, e.g. timed out, and no part of the query is waiting to
+     * be written, i.e. it can be removed from its channel.
+     */
+    boolean isDone() {
+      return f.isDone() && (bytesWrittenTotal == 0 || bytesWrittenTotal == queryData.length + 2);
+    }
+
     boolean send() throws IOException {
       // send can be invoked multiple times if the entire buffer couldn't be written at once
       if (bytesWrittenTotal == queryData.length + 2) {
@@ -133,9 +165,14 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
   @RequiredArgsConstructor
   private class ChannelState implements KeyProcessor {
     private final SocketChannel channel;
+    private final Selector selector;
+
+    /** The deadlines of the transactions, checked by the event loop of the selector. */
+    private final DeadlineQueue<Transaction> timeouts;
+
     final Queue<Transaction> pendingTransactions = new ConcurrentLinkedQueue<>();
     ByteBuffer responseLengthData = ByteBuffer.allocate(2);
-    ByteBuffer responseData = ByteBuffer.allocate(Message.MAXLENGTH);
+    ByteBuffer responseData;
     int readState = 0;
 
     @Override
@@ -159,6 +196,7 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
     void handleTransactionException(IOException e) {
       for (Iterator<Transaction> it = pendingTransactions.iterator(); it.hasNext(); ) {
         Transaction t = it.next();
+        timeouts.remove(t.timeoutEntry);
         t.f.completeExceptionally(e);
         it.remove();
       }
@@ -207,8 +245,11 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
             int length =
                 ((responseLengthData.get(0) & 0xFF) << 8) + (responseLengthData.get(1) & 0xFF);
             responseLengthData.flip();
-            responseData.limit(length);
+            // allocated with the exact length to pass the array on without copying it
+            responseData = ByteBuffer.allocate(length);
             readState = 1;
+          } else {
+            return;
           }
         }
 
@@ -227,10 +268,8 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
       }
 
       readState = 0;
-      responseData.flip();
-      byte[] data = new byte[responseData.limit()];
-      System.arraycopy(
-          responseData.array(), responseData.arrayOffset(), data, 0, responseData.limit());
+      byte[] data = responseData.array();
+      responseData = null;
 
       // The message was shorter than the minimum length to find the transaction, abort
       if (data.length < 2) {
@@ -253,9 +292,13 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
         Transaction t = it.next();
         int qid = t.query.getHeader().getID();
         if (id == qid) {
-          t.f.complete(data);
+          timeouts.remove(t.timeoutEntry);
+          it.remove();
+          if (t.f.complete(data)) {
+            return;
+          }
+        } else if (t.isDone()) {
           it.remove();
-          return;
         }
       }
 
@@ -265,6 +308,12 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
     private void processWrite(SelectionKey key) {
       for (Iterator<Transaction> it = pendingTransactions.iterator(); it.hasNext(); ) {
         Transaction t = it.next();
+        if (t.isDone()) {
+          // timed out before it was sent or while waiting for the answer
+          it.remove();
+          continue;
+        }
+
         try {
           if (!t.send()) {
             // Write was incomplete because the output buffer was full. Wait until the selector
@@ -273,6 +322,7 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
             return;
           }
         } catch (IOException e) {
+          timeouts.remove(t.timeoutEntry);
           t.f.completeExceptionally(e);
           it.remove();
           key.cancel();
@@ -298,49 +348,52 @@ final class NioTcpClient extends NioClient implements TcpIoClient {
       byte[] data,
       Duration timeout) {
     CompletableFuture<byte[]> f = new CompletableFuture<>();
-    try {
-      final Selector selector = selector();
-      long endTime = System.nanoTime() + timeout.toNanos();
-      ChannelState channel =
-          channelMap.computeIfAbsent(
-              new ChannelKey(local, remote),
-              key -> {
-                log.debug("Opening async channel for l={}/r={}", local, remote);
-                SocketChannel c = null;
-                try {
-                  c = SocketChannel.open();
-                  c.configureBlocking(false);
-                  if (local != null) {
-                    c.bind(local);
-                  }
+    long endTime = System.nanoTime() + timeout.toNanos();
+    ChannelState channel =
+        channelMap.computeIfAbsent(
+            new ChannelKey(local, remote),
+            key -> {
+              log.debug("Opening async channel for l={}/r={}", local, remote);
+              SocketChannel c = null;
+              try {
+                Selector selector = selector(key);
+                c = SocketChannel.open();
+                c.configureBlocking(false);
+                if (local != null) {
+                  c.bind(local);
+                }
 
-                  c.connect(remote);
-                  return new ChannelState(c);
-                } catch (IOException e) {
-                  if (c != null) {
-                    try {
-                      c.close();
-                    } catch (IOException ee) {
-                      // ignore
-                    }
+                c.connect(remote);
+                return new ChannelState(
+                    c,
+                    selector,
+                    pendingTimeouts.computeIfAbsent(selector, k -> new DeadlineQueue<>()));
+              } catch (IOException e) {
+                if (c != null) {
+                  try {
+                    c.close();
+                  } catch (IOException ee) {
+                    // ignore
                   }
-                  f.completeExceptionally(e);
-                  return null;
                 }
-              });
-      if (channel != null) {
-        log.trace(
-            "Creating transaction for id {} ({}/{})",
-            query.getHeader().getID(),
-            query.getQuestion().getName(),
-            Type.string(query.getQuestion().getType()));
-        Transaction t = new Transaction(query, data, endTime, channel.channel, f);
-        channel.pendingTransactions.add(t);
-        registrationQueue.add(channel);
-        selector.wakeup();
-      }
-    } catch (IOException e) {
-      f.completeExceptionally(e);
+                f.completeExceptionally(e);
+                return null;
+              }
+            });
+    if (channel != null) {
+      log.trace(
+          "Creating transaction for id {} ({}/{})",
+          query.getHeader().getID(),
+          query.getQuestion().getName(),
+          Type.string(query.getQuestion().getType()));
+      Transaction t = new Transaction(query, data, channel.channel, channel.pendingTransactions, f);
+      // the deadline must be set before the selector thread can see the transaction
+      t.timeoutEntry = channel.timeouts.add(endTime, t);
+      channel.pendingTransactions.add(t);
+      registrationQueues
+          .computeIfAbsent(channel.selector, k -> new ConcurrentLinkedQueue<>())
+          .add(channel);
+      channel.selector.wakeup();
     }
 
     return f;
@@ -13,24 +13,56 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.security.SecureRandom;
 import java.time.Duration;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.xbill.DNS.io.UdpIoClient;
 
 @Slf4j
 final class NioUdpClient extends NioClient implements UdpIoClient {
+  static final String POOL_SIZE_PROPERTY = "dnsjava.udp.pool.size";
+  static final String POOL_ROTATE_PROPERTY = "dnsjava.udp.pool.rotate_queries";
+
   private final int ephemeralStart;
   private final int ephemeralRange;
+  private final int poolSize;
+  private final int poolRotateQueries;
 
   private final SecureRandom prng;
-  private final Queue<Transaction> registrationQueue = new ConcurrentLinkedQueue<>();
-  private final Queue<Transaction> pendingTransactions = new ConcurrentLinkedQueue<>();
+  private final Map<Selector, Queue<Transaction>> registrationQueues = new ConcurrentHashMap<>();
+  private final Map<Selector, DeadlineQueue<Transaction>> pendingTransactions =
+      new ConcurrentHashMap<>();
+  private final Map<PoolKey, SocketPool> pools = new ConcurrentHashMap<>();
 
   NioUdpClient() {
+    this(Integer.getInteger(POOL_SIZE_PROPERTY, 0), Integer.getInteger(POOL_ROTATE_PROPERTY, 1000));
+  }
+
+  /**
+   * Creates a new UDP client.
+   *
+   * @param poolSize The number of long-lived sockets per remote address that are shared by all
+   *     queries without an explicit local port. {@code 0} opens a new socket for every query.
+   * @param poolRotateQueries The number of queries after which a pooled socket is replaced by a new
+   *     one with another random source port.
+   */
+  NioUdpClient(int poolSize, int poolRotateQueries) {
+    if (poolSize < 0) {
+      throw new IllegalArgumentException("Invalid " + POOL_SIZE_PROPERTY + ", must not be < 0");
+    }
+    if (poolRotateQueries < 1) {
+      throw new IllegalArgumentException("Invalid " + POOL_ROTATE_PROPERTY + ", must be > 0");
+    }
+
+    this.poolSize = poolSize;
+    this.poolRotateQueries = poolRotateQueries;
+
     // https://datatracker.ietf.org/doc/html/rfc6335#section-6
     int ephemeralStartDefault = 49152;
     int ephemeralEndDefault = 65535;
@@ -56,6 +88,11 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
   }
 
   private void processPendingRegistrations(Selector selector) {
+    Queue<Transaction> registrationQueue = registrationQueues.get(selector);
+    if (registrationQueue == null) {
+      return;
+    }
+
     while (!registrationQueue.isEmpty()) {
       Transaction t = registrationQueue.poll();
       if (t == null) {
@@ -63,8 +100,12 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
       }
 
       try {
-        log.trace("Registering OP_READ for transaction with id {}", t.id);
-        t.channel.register(selector, SelectionKey.OP_READ, t);
+        if (t.socket == null) {
+          log.trace("Registering OP_READ for transaction with id {}", t.id);
+          t.channel.register(selector, SelectionKey.OP_READ, t);
+        } else {
+          t.socket.register();
+        }
         t.send();
       } catch (IOException e) {
         t.completeExceptionally(e);
@@ -72,14 +113,25 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
     }
   }
 
-  private void checkTransactionTimeouts() {
-    for (Iterator<Transaction> it = pendingTransactions.iterator(); it.hasNext(); ) {
-      Transaction t = it.next();
-      if (t.endTime - System.nanoTime() < 0) {
-        t.completeExceptionally(new SocketTimeoutException("Query timed out"));
-        it.remove();
-      }
+  private void register(Selector selector, Transaction t) {
+    registrationQueues.computeIfAbsent(selector, k -> new ConcurrentLinkedQueue<>()).add(t);
+    selector.wakeup();
+  }
+
+  private void checkTransactionTimeouts(Selector selector) {
+    DeadlineQueue<Transaction> timeouts = pendingTransactions.get(selector);
+    if (timeouts == null) {
+      return;
     }
+
+    for (Transaction t : timeouts.pollExpired(System.nanoTime())) {
+      t.completeExceptionally(new SocketTimeoutException("Query timed out"));
+    }
+  }
+
+  /** Names are only case-insensitive for ASCII letters, as in {@link Name}. */
+  private static int toLowerAscii(byte b) {
+    return b >= 'A' && b <= 'Z' ? b - 'A' + 'a' : b;
   }
 
   @RequiredArgsConstructor
@@ -87,9 +139,23 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
     private final int id;
     private final byte[] data;
     private final int max;
-    private final long endTime;
-    private final DatagramChannel channel;
     private final CompletableFuture<byte[]> f;
+    private DatagramChannel channel;
+    private PooledSocket socket;
+    private DeadlineQueue<Transaction> timeouts;
+    private DeadlineQueue.Entry<Transaction> timeoutEntry;
+
+    /** Sets the deadline, which is checked by the event loop of the selector. */
+    void setDeadline(Selector selector, long endTime) {
+      timeouts = pendingTransactions.computeIfAbsent(selector, k -> new DeadlineQueue<>());
+      timeoutEntry = timeouts.add(endTime, this);
+    }
+
+    void cancelDeadline() {
+      if (timeouts != null) {
+        timeouts.remove(timeoutEntry);
+      }
+    }
 
     void send() throws IOException {
       ByteBuffer buffer = ByteBuffer.wrap(data);
@@ -112,19 +178,19 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
     public void processReadyKey(SelectionKey key) {
       if (!key.isValid()) {
         completeExceptionally(new EOFException("Key for transaction " + id + " is invalid"));
-        pendingTransactions.remove(this);
+        cancelDeadline();
         return;
       }
 
       if (!key.isReadable()) {
         completeExceptionally(new EOFException("Key for transaction " + id + " is not readable"));
-        pendingTransactions.remove(this);
+        cancelDeadline();
         key.cancel();
         return;
       }
 
       DatagramChannel keyChannel = (DatagramChannel) key.channel();
-      ByteBuffer buffer = ByteBuffer.allocate(max);
+      ByteBuffer buffer = receiveBuffer(max);
       int read;
       try {
         read = keyChannel.read(buffer);
@@ -133,14 +199,14 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
         }
       } catch (IOException | NotYetConnectedException e) {
         completeExceptionally(e);
-        pendingTransactions.remove(this);
+        cancelDeadline();
         key.cancel();
         return;
       }
 
       buffer.flip();
       byte[] resultingData = new byte[read];
-      System.arraycopy(buffer.array(), 0, resultingData, 0, read);
+      buffer.get(resultingData);
       verboseLog(
           "UDP read: transaction id=" + id,
           keyChannel.socket().getLocalSocketAddress(),
@@ -149,14 +215,85 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
       key.cancel();
       silentDisconnectAndCloseChannel();
       f.complete(resultingData);
-      pendingTransactions.remove(this);
+      cancelDeadline();
     }
 
     private void completeExceptionally(Exception e) {
-      silentDisconnectAndCloseChannel();
+      if (socket == null) {
+        silentDisconnectAndCloseChannel();
+      } else {
+        socket.release(this);
+      }
       f.completeExceptionally(e);
     }
 
+    /**
+     * Checks that a reply on a shared socket is for this transaction by comparing the question
+     * section with the query. Names are compared case-insensitively.
+     */
+    private boolean matchesQuestion(ByteBuffer reply) {
+      int length = reply.limit();
+      if (length < Header.LENGTH || data.length < Header.LENGTH) {
+        return false;
+      }
+
+      // qdcount
+      if (reply.get(4) != data[4] || reply.get(5) != data[5]) {
+        return false;
+      }
+
+      int qdcount = ((data[4] & 0xFF) << 8) + (data[5] & 0xFF);
+      int pos = Header.LENGTH;
+      for (int q = 0; q < qdcount; q++) {
+        // only the first name in a query can be uncompressed, so stop at pointers
+        while (true) {
+          if (pos >= data.length || pos >= length) {
+            return false;
+          }
+
+          int len = data[pos] & 0xFF;
+          if (reply.get(pos) != data[pos]) {
+            return false;
+          }
+
+          pos++;
+          if (len == 0) {
+            break;
+          } else if ((len & 0xC0) != 0) {
+            if (pos >= data.length || pos >= length || reply.get(pos) != data[pos]) {
+              return false;
+            }
+
+            pos++;
+            break;
+          }
+
+          if (pos + len > data.length || pos + len > length) {
+            return false;
+          }
+
+          for (int i = 0; i < len; i++, pos++) {
+            if (toLowerAscii(reply.get(pos)) != toLowerAscii(data[pos])) {
+              return false;
+            }
+          }
+        }
+
+        // type and class
+        if (pos + 4 > data.length || pos + 4 > length) {
+          return false;
+        }
+
+        for (int i = 0; i < 4; i++, pos++) {
+          if (reply.get(pos) != data[pos]) {
+            return false;
+          }
+        }
+      }
+
+      return true;
+    }
+
     private void silentDisconnectAndCloseChannel() {
       try {
         channel.disconnect();
@@ -168,6 +305,189 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
     }
   }
 
+  @RequiredArgsConstructor
+  @EqualsAndHashCode
+  private static class PoolKey {
+    final InetSocketAddress local;
+    final InetSocketAddress remote;
+  }
+
+  /** A set of sockets connected to the same remote address, used in a round-robin fashion. */
+  @RequiredArgsConstructor
+  private final class SocketPool {
+    private final InetSocketAddress local;
+    private final InetSocketAddress remote;
+    private final PooledSocket[] sockets = new PooledSocket[poolSize];
+    private int next;
+
+    /**
+     * Assigns the transaction to a socket that has no other pending transaction with the same id.
+     *
+     * @return {@code false} if the id is in use on all sockets of this pool.
+     */
+    synchronized boolean add(Transaction t) throws IOException {
+      for (int i = 0; i < sockets.length; i++) {
+        int slot = next;
+        next = (next + 1) % sockets.length;
+        PooledSocket socket = sockets[slot];
+        if (socket == null) {
+          socket = new PooledSocket(this, open(), selector(null));
+          sockets[slot] = socket;
+        }
+
+        if (socket.transactions.putIfAbsent(t.id, t) == null) {
+          t.socket = socket;
+          t.channel = socket.channel;
+          if (++socket.queries >= poolRotateQueries) {
+            // keep the source port unpredictable, the socket is closed when all pending
+            // transactions are done
+            sockets[slot] = null;
+            socket.retire();
+          }
+
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    private DatagramChannel open() throws IOException {
+      DatagramChannel channel = DatagramChannel.open();
+      try {
+        channel.configureBlocking(false);
+        boolean bound = false;
+        for (int i = 0; i < 1024 && !bound; i++) {
+          bound = tryBindToSocket(local, channel);
+        }
+
+        if (!bound) {
+          throw new IOException("No available source port found");
+        }
+
+        channel.connect(remote);
+        log.debug(
+            "Opened pooled UDP socket l={}/r={}", channel.socket().getLocalSocketAddress(), remote);
+        return channel;
+      } catch (IOException e) {
+        silentCloseChannel(channel);
+        throw e;
+      }
+    }
+
+    synchronized void discard(PooledSocket socket) {
+      for (int i = 0; i < sockets.length; i++) {
+        if (sockets[i] == socket) {
+          sockets[i] = null;
+        }
+      }
+      socket.retire();
+    }
+
+    synchronized void close() {
+      for (int i = 0; i < sockets.length; i++) {
+        if (sockets[i] != null) {
+          silentCloseChannel(sockets[i].channel);
+          sockets[i] = null;
+        }
+      }
+    }
+  }
+
+  /** A long-lived socket that demultiplexes replies by message id and question. */
+  @RequiredArgsConstructor
+  private final class PooledSocket implements KeyProcessor {
+    private final SocketPool pool;
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final Map<Integer, Transaction> transactions = new ConcurrentHashMap<>();
+    private int queries;
+    private volatile boolean retired;
+
+    void register() throws IOException {
+      if (channel.keyFor(selector) == null) {
+        log.trace(
+            "Registering OP_READ for pooled socket {}", channel.socket().getLocalSocketAddress());
+        channel.register(selector, SelectionKey.OP_READ, this);
+      }
+    }
+
+    void release(Transaction t) {
+      transactions.remove(t.id, t);
+      if (retired && transactions.isEmpty()) {
+        silentCloseChannel(channel);
+      }
+    }
+
+    void retire() {
+      retired = true;
+      if (transactions.isEmpty()) {
+        silentCloseChannel(channel);
+      }
+    }
+
+    @Override
+    public void processReadyKey(SelectionKey key) {
+      if (!key.isValid() || !key.isReadable()) {
+        fail(new EOFException("Key for pooled socket is invalid"));
+        return;
+      }
+
+      while (true) {
+        ByteBuffer buffer = receiveBuffer(Message.MAXLENGTH);
+        int read;
+        try {
+          read = channel.read(buffer);
+        } catch (IOException | NotYetConnectedException e) {
+          fail(e);
+          return;
+        }
+
+        if (read <= 0) {
+          return;
+        }
+
+        buffer.flip();
+        processReply(buffer);
+      }
+    }
+
+    private void processReply(ByteBuffer reply) {
+      Transaction t = null;
+      if (reply.remaining() >= 2) {
+        t = transactions.get(reply.getShort(0) & 0xFFFF);
+      }
+
+      if (t == null || !t.matchesQuestion(reply)) {
+        verboseLog(
+            "UDP read: unexpected reply on pooled socket, discarding",
+            channel.socket().getLocalSocketAddress(),
+            channel.socket().getRemoteSocketAddress(),
+            reply);
+        return;
+      }
+
+      byte[] data = new byte[Math.min(reply.remaining(), t.max)];
+      reply.get(data);
+      verboseLog(
+          "UDP read: transaction id=" + t.id,
+          channel.socket().getLocalSocketAddress(),
+          channel.socket().getRemoteSocketAddress(),
+          data);
+      t.cancelDeadline();
+      release(t);
+      t.f.complete(data);
+    }
+
+    private void fail(Exception e) {
+      pool.discard(this);
+      for (Transaction t : new ArrayList<>(transactions.values())) {
+        t.cancelDeadline();
+        t.completeExceptionally(e);
+      }
+    }
+  }
+
   @Override
   public CompletableFuture<byte[]> sendAndReceiveUdp(
       InetSocketAddress local,
@@ -178,13 +498,34 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
       Duration timeout) {
     long endTime = System.nanoTime() + timeout.toNanos();
     CompletableFuture<byte[]> f = new CompletableFuture<>();
+    if (poolSize > 0 && (local == null || local.getPort() == 0)) {
+      Transaction t = new Transaction(query.getHeader().getID(), data, max, f);
+      try {
+        SocketPool pool =
+            pools.computeIfAbsent(
+                new PoolKey(local, remote), k -> new SocketPool(k.local, k.remote));
+        if (pool.add(t)) {
+          // the deadline is set once the transaction has its socket, a timeout releases it
+          t.setDeadline(t.socket.selector, endTime);
+          register(t.socket.selector, t);
+          return f;
+        }
+
+        // the id is already in use on all pooled sockets, use a dedicated one
+      } catch (IOException e) {
+        f.completeExceptionally(e);
+        return f;
+      }
+    }
+
     DatagramChannel channel = null;
     try {
-      final Selector selector = selector();
+      final Selector selector = selector(null);
       channel = DatagramChannel.open();
       channel.configureBlocking(false);
 
-      Transaction t = new Transaction(query.getHeader().getID(), data, max, endTime, channel, f);
+      Transaction t = new Transaction(query.getHeader().getID(), data, max, f);
+      t.channel = channel;
       if (local == null || local.getPort() == 0) {
         boolean bound = false;
         for (int i = 0; i < 1024 && !bound; i++) {
@@ -198,9 +539,8 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
       }
 
       channel.connect(remote);
-      pendingTransactions.add(t);
-      registrationQueue.add(t);
-      selector.wakeup();
+      t.setDeadline(selector, endTime);
+      register(selector, t);
     } catch (IOException e) {
       silentCloseChannel(channel);
       f.completeExceptionally(e);
@@ -250,9 +590,13 @@ final class NioUdpClient extends NioClient implements UdpIoClient {
   }
 
   private void closeUdp() {
-    registrationQueue.clear();
+    registrationQueues.clear();
     EOFException closing = new EOFException("Client is closing");
-    pendingTransactions.forEach(t -> t.completeExceptionally(closing));
+    pendingTransactions
+        .values()
+        .forEach(timeouts -> timeouts.clear().forEach(t -> t.completeExceptionally(closing)));
     pendingTransactions.clear();
+    pools.values().forEach(SocketPool::close);
+    pools.clear();
   }
 }
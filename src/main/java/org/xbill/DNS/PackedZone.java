@@ -0,0 +1,899 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import lombok.Getter;
+
+/**
+ * A read-only DNS zone that keeps its records in packed byte arenas instead of {@link Record}
+ * objects, for zones with millions of records. Owner names and RDATA are stored once per name in
+ * canonical order, in pages on the heap or off-heap ({@link ByteBuffer#allocateDirect direct}
+ * buffers), with a sorted index of the names. {@link RRset RRsets} and records are created only
+ * when they are looked up or iterated.
+ *
+ * <p>The lookup methods behave like those of {@link Zone}. Records of the same RRset that only
+ * differ in their TTL are stored once. While the zone is loaded, the records are first collected in
+ * a temporary arena and sorted, so loading needs about twice the memory of the packed zone.
+ *
+ * <p>Instances are immutable and safe to use from multiple threads.
+ *
+ * @since 3.6.5
+ */
+public class PackedZone implements Iterable<RRset> {
+  /** Returns the zone's origin. */
+  @Getter private final Name origin;
+
+  private final Arena arena;
+
+  /** The addresses of the names in the arena, in canonical order. */
+  private final long[] nodes;
+
+  private final boolean hasWild;
+  private final SOARecord soaRecord;
+  private final RRset nsRRset;
+
+  /**
+   * Creates a zone from the records in the specified master file, stored on the heap.
+   *
+   * @param zone The name of the zone.
+   * @param file The master file to read from.
+   * @throws IllegalArgumentException if {@code zone} or {@code file} is {@code null}.
+   * @throws IOException if the zone file does not contain a {@link SOARecord} or no {@link
+   *     NSRecord}s.
+   */
+  public PackedZone(Name zone, String file) throws IOException {
+    this(zone, new Master(checkNotNull(file, "no file name specified"), zone), false);
+  }
+
+  /**
+   * Creates a zone from the records in the specified master file, stored on the heap.
+   *
+   * @param zone The name of the zone.
+   * @param input The master file to read from.
+   * @throws IllegalArgumentException if {@code zone} or {@code input} is {@code null}.
+   * @throws IOException if the zone file does not contain a {@link SOARecord} or no {@link
+   *     NSRecord}s.
+   */
+  public PackedZone(Name zone, InputStream input) throws IOException {
+    this(zone, new Master(checkNotNull(input, "no input stream specified"), zone), false);
+  }
+
+  /**
+   * Creates a zone from the records of a master file parser. The parser is closed afterwards.
+   *
+   * @param zone The name of the zone.
+   * @param master The master file parser to read from.
+   * @param direct {@code true} to store the records in direct (off-heap) buffers.
+   * @throws IllegalArgumentException if {@code zone} or {@code master} is {@code null}.
+   * @throws IOException if the zone file does not contain a {@link SOARecord} or no {@link
+   *     NSRecord}s.
+   */
+  public PackedZone(Name zone, Master master, boolean direct) throws IOException {
+    checkNotNull(zone, "no zone name specified");
+    checkNotNull(master, "no master file specified");
+    origin = zone;
+    Packer packer = new Packer(zone);
+    try {
+      Record r;
+      while ((r = master.nextRecord()) != null) {
+        packer.add(r);
+      }
+    } finally {
+      master.close();
+    }
+
+    arena = new Arena(direct);
+    nodes = packer.pack(arena);
+    hasWild = packer.hasWild;
+    soaRecord = packer.soa;
+    nsRRset = validate();
+  }
+
+  /**
+   * Creates a zone from an array of records, stored on the heap.
+   *
+   * @param zone The name of the zone.
+   * @param records The records to add to the zone.
+   * @throws IllegalArgumentException if {@code zone} or {@code records} is {@code null}.
+   * @throws IOException if the records do not contain a {@link SOARecord} or no {@link NSRecord}s.
+   */
+  public PackedZone(Name zone, Record... records) throws IOException {
+    checkNotNull(zone, "no zone name specified");
+    checkNotNull(records, "no records are specified");
+    origin = zone;
+    Packer packer = new Packer(zone);
+    for (Record r : records) {
+      packer.add(r);
+    }
+
+    arena = new Arena(false);
+    nodes = packer.pack(arena);
+    hasWild = packer.hasWild;
+    soaRecord = packer.soa;
+    nsRRset = validate();
+  }
+
+  /**
+   * Creates a packed copy of a zone.
+   *
+   * @param zone The zone to copy.
+   * @param direct {@code true} to store the records in direct (off-heap) buffers.
+   * @throws IllegalArgumentException if {@code zone} is {@code null}.
+   */
+  public PackedZone(Zone zone, boolean direct) {
+    checkNotNull(zone, "no zone specified");
+    origin = zone.getOrigin();
+    Packer packer = new Packer(origin);
+    try {
+      for (RRset rrset : zone) {
+        for (Record r : rrset.rrs(false)) {
+          packer.add(r);
+        }
+        for (Record r : rrset.sigs()) {
+          packer.add(r);
+        }
+      }
+    } catch (IOException e) {
+      // the records of a zone are already validated
+      throw new IllegalStateException(e);
+    }
+
+    arena = new Arena(direct);
+    nodes = packer.pack(arena);
+    hasWild = packer.hasWild;
+    soaRecord = packer.soa;
+    try {
+      nsRRset = validate();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static <T> T checkNotNull(T value, String message) {
+    if (value == null) {
+      throw new IllegalArgumentException(message);
+    }
+
+    return value;
+  }
+
+  private RRset validate() throws IOException {
+    if (nodes.length == 0 || compare(key(origin), nodes[0]) != 0) {
+      throw new IOException(origin + ": no data specified");
+    }
+
+    if (soaRecord == null) {
+      throw new IOException(origin + ": exactly 1 SOA must be specified");
+    }
+
+    RRset ns = rrset(nodes[0], Type.NS);
+    if (ns == null) {
+      throw new IOException(origin + ": no NS set specified");
+    }
+
+    return ns;
+  }
+
+  /** Returns the zone's {@link DClass class}. */
+  public int getDClass() {
+    return DClass.IN;
+  }
+
+  /** Returns the zone origin's {@link NSRecord NS records}. */
+  public RRset getNS() {
+    return new RRset(nsRRset);
+  }
+
+  /** Returns the zone's {@link SOARecord SOA record}. */
+  public SOARecord getSOA() {
+    return soaRecord;
+  }
+
+  /** Returns the number of bytes used to store the records, excluding the index of the names. */
+  public long getPackedSize() {
+    return arena.size();
+  }
+
+  // ------------- Lookup
+
+  /**
+   * Looks up Records in the zone, finding exact matches only.
+   *
+   * @param name The name to look up
+   * @param type The type to look up
+   * @return The matching RRset or {@code null} if no exact match is found.
+   * @throws IllegalArgumentException if {@code name} is {@code null}.
+   * @throws InvalidTypeException if the specified {@code type} is invalid.
+   * @see Zone#findExactMatch(Name, int)
+   */
+  public RRset findExactMatch(Name name, int type) {
+    if (name == null) {
+      throw new IllegalArgumentException("name must not be null");
+    }
+    Type.check(type);
+    if (type == Type.ANY) {
+      throw new IllegalArgumentException("Cannot lookup an exact match for type ANY");
+    }
+
+    long node = find(name);
+    return node < 0 ? null : rrset(node, type);
+  }
+
+  /**
+   * Looks up Records in the zone. The answer can be a {@code CNAME} instead of the actual requested
+   * type and wildcards are expanded.
+   *
+   * @param name The name to look up
+   * @param type The type to look up
+   * @return A SetResponse object
+   * @throws IllegalArgumentException if {@code name} is {@code null}.
+   * @throws InvalidTypeException if the specified {@code type} is invalid.
+   * @see Zone#findRecords(Name, int)
+   */
+  public SetResponse findRecords(Name name, int type) {
+    if (name == null) {
+      throw new IllegalArgumentException("name must not be null");
+    }
+    Type.check(type);
+
+    if (!name.subdomain(origin)) {
+      return SetResponse.ofType(SetResponseType.NXDOMAIN);
+    }
+
+    // the same walk from the origin down to the name as in Zone
+    int labels = name.labels();
+    int olabels = origin.labels();
+    for (int tlabels = olabels; tlabels <= labels; tlabels++) {
+      boolean isOrigin = tlabels == olabels;
+      boolean isExact = tlabels == labels;
+      long node = isOrigin ? nodes[0] : find(isExact ? name : new Name(name, labels - tlabels));
+      if (node < 0) {
+        continue;
+      }
+
+      if (!isOrigin) {
+        RRset ns = rrset(node, Type.NS);
+        if (ns != null) {
+          return SetResponse.ofType(SetResponseType.DELEGATION, ns);
+        }
+      }
+
+      if (isExact && type == Type.ANY) {
+        SetResponse sr = SetResponse.ofType(SetResponseType.SUCCESSFUL);
+        for (RRset set : rrsets(node, -1)) {
+          sr.addRRset(set);
+        }
+        return sr;
+      }
+
+      if (isExact) {
+        RRset rrset = rrset(node, type);
+        if (rrset != null) {
+          return SetResponse.ofType(SetResponseType.SUCCESSFUL, rrset);
+        }
+        rrset = rrset(node, Type.CNAME);
+        if (rrset != null) {
+          return SetResponse.ofType(SetResponseType.CNAME, rrset);
+        }
+        return SetResponse.ofType(SetResponseType.NXRRSET);
+      }
+
+      RRset rrset = rrset(node, Type.DNAME);
+      if (rrset != null) {
+        return SetResponse.ofType(SetResponseType.DNAME, rrset);
+      }
+    }
+
+    if (hasWild) {
+      for (int i = 0; i < labels - olabels; i++) {
+        long node = find(name.wild(i + 1));
+        if (node < 0) {
+          continue;
+        }
+
+        if (type == Type.ANY) {
+          SetResponse sr = SetResponse.ofType(SetResponseType.SUCCESSFUL);
+          for (RRset set : rrsets(node, -1)) {
+            sr.addRRset(expandSet(set, name));
+          }
+          return sr;
+        } else {
+          RRset rrset = rrset(node, type);
+          if (rrset != null) {
+            return SetResponse.ofType(SetResponseType.SUCCESSFUL, expandSet(rrset, name));
+          }
+        }
+      }
+    }
+
+    return SetResponse.ofType(SetResponseType.NXDOMAIN);
+  }
+
+  private static RRset expandSet(RRset set, Name tname) {
+    RRset expandedSet = new RRset();
+    for (Record r : set.rrs(false)) {
+      expandedSet.addRR(r.withName(tname));
+    }
+    for (RRSIGRecord r : set.sigs()) {
+      expandedSet.addRR(r.withName(tname));
+    }
+    return expandedSet;
+  }
+
+  // ------------- Iterators
+
+  /** Returns an iterator over the {@link RRset RRsets} in the zone. */
+  @Override
+  public Iterator<RRset> iterator() {
+    return new PackedZoneIterator(false);
+  }
+
+  /**
+   * Returns an Iterator over the {@link RRset RRsets} in the zone that can be used to construct an
+   * AXFR response. This is identical to {@link #iterator} except that the SOA is returned at the
+   * end as well as the beginning.
+   */
+  public Iterator<RRset> AXFR() {
+    return new PackedZoneIterator(true);
+  }
+
+  /**
+   * Returns the contents of the zone in master file format.
+   *
+   * @see Master
+   */
+  public String toMasterFile() {
+    StringBuilder sb = new StringBuilder();
+    for (RRset rrset : this) {
+      rrset.rrs(false).forEach(r -> sb.append(r).append('\n'));
+      rrset.sigs().forEach(r -> sb.append(r).append('\n'));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the contents of the zone as a string.
+   *
+   * @see #toMasterFile
+   */
+  @Override
+  public String toString() {
+    return toMasterFile();
+  }
+
+  private class PackedZoneIterator implements Iterator<RRset> {
+    private int node;
+    private List<RRset> current;
+    private int index;
+    private boolean wantLastSOA;
+
+    PackedZoneIterator(boolean axfr) {
+      wantLastSOA = axfr;
+
+      // start at the origin, with SOA and NS as the first and second entries
+      current = new ArrayList<>();
+      current.add(rrset(nodes[0], Type.SOA));
+      current.add(rrset(nodes[0], Type.NS));
+      for (RRset rrset : rrsets(nodes[0], -1)) {
+        if (rrset.getType() != Type.SOA && rrset.getType() != Type.NS) {
+          current.add(rrset);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return current != null || wantLastSOA;
+    }
+
+    @Override
+    public RRset next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more elements");
+      }
+
+      if (current == null) {
+        wantLastSOA = false;
+        return rrset(nodes[0], Type.SOA);
+      }
+
+      RRset next = current.get(index++);
+      if (index == current.size()) {
+        current = ++node < nodes.length ? rrsets(nodes[node], -1) : null;
+        index = 0;
+      }
+
+      return next;
+    }
+  }
+
+  // ------------- Packed storage
+  //
+  // A name is stored with its labels in reverse order (the label closest to the root first), as
+  // length and bytes without the root label and terminated by a zero length. This is the wire
+  // format with the labels reversed, so names compare in canonical order label by label. The name
+  // is followed by the U32 number of records and the records as TYPE, CLASS, TTL, RDLENGTH and
+  // RDATA in wire format. The records are ordered by the type of their RRset, with RRSIGs after the
+  // records they cover.
+
+  /** Gets the address of a name in the arena, or -1 if the name is not in the zone. */
+  private long find(Name name) {
+    byte[] key = key(name);
+    int low = 0;
+    int high = nodes.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int c = compare(key, nodes[mid]);
+      if (c > 0) {
+        low = mid + 1;
+      } else if (c < 0) {
+        high = mid - 1;
+      } else {
+        return nodes[mid];
+      }
+    }
+
+    return -1;
+  }
+
+  /** Converts a name to the reversed, lowercase form it is compared with in the arena. */
+  private static byte[] key(Name name) {
+    return reverse(name.toWireCanonical());
+  }
+
+  /**
+   * Reverses the order of the labels in a name in wire format. Reversing a reversed name restores
+   * the wire format.
+   */
+  private static byte[] reverse(byte[] name) {
+    byte[] reversed = new byte[name.length];
+    int end = name.length - 1;
+    int pos = 0;
+    while (name[pos] != 0) {
+      int length = (name[pos] & 0xFF) + 1;
+      end -= length;
+      System.arraycopy(name, pos, reversed, end, length);
+      pos += length;
+    }
+
+    return reversed;
+  }
+
+  /** Compares a key from {@link #key(Name)} with a name in the arena. */
+  private int compare(byte[] key, long address) {
+    int pos = 0;
+    while (true) {
+      int keyLength = key[pos++] & 0xFF;
+      int length = arena.getU8(address++);
+      if (keyLength == 0 || length == 0) {
+        return keyLength - length;
+      }
+
+      for (int i = 0; i < keyLength && i < length; i++) {
+        int c = (key[pos + i] & 0xFF) - lowercase(arena.getU8(address + i));
+        if (c != 0) {
+          return c;
+        }
+      }
+
+      if (keyLength != length) {
+        return keyLength - length;
+      }
+
+      pos += keyLength;
+      address += length;
+    }
+  }
+
+  private static int lowercase(int b) {
+    return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+  }
+
+  /** Gets the length of the name at the address, including the terminating zero length. */
+  private static int nameLength(Arena arena, long address) {
+    int length = 0;
+    int labelLength;
+    while ((labelLength = arena.getU8(address + length)) != 0) {
+      length += labelLength + 1;
+    }
+
+    return length + 1;
+  }
+
+  private Name name(long node) {
+    byte[] reversed = new byte[nameLength(arena, node)];
+    arena.get(node, reversed, 0, reversed.length);
+    try {
+      return new Name(reverse(reversed));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private RRset rrset(long node, int type) {
+    List<RRset> rrsets = rrsets(node, type);
+    return rrsets.isEmpty() ? null : rrsets.get(0);
+  }
+
+  /**
+   * Creates the RRsets of a name.
+   *
+   * @param type The type of the RRset to create, or -1 for all.
+   */
+  private List<RRset> rrsets(long node, int type) {
+    List<RRset> rrsets = new ArrayList<>(type < 0 ? 4 : 1);
+    Name name = null;
+    long address = node + nameLength(arena, node);
+    long count = arena.getU32(address);
+    address += 4;
+    RRset rrset = null;
+    for (long i = 0; i < count; i++) {
+      int rtype = arena.getU16(address);
+      int rdlength = arena.getU16(address + 8);
+      long rdata = address + 10;
+      int setType = rtype == Type.RRSIG ? arena.getU16(rdata) : rtype;
+      address = rdata + rdlength;
+      if (type >= 0 && setType != type) {
+        if (setType > type) {
+          break;
+        }
+        continue;
+      }
+
+      if (name == null) {
+        name = name(node);
+      }
+
+      if (rrset == null || rrset.getType() != setType) {
+        rrset = new RRset();
+        rrsets.add(rrset);
+      }
+
+      byte[] data = new byte[rdlength];
+      arena.get(rdata, data, 0, rdlength);
+      int dclass = arena.getU16(rdata - 8);
+      long ttl = arena.getU32(rdata - 6);
+      rrset.addRR(Record.newRecord(name, rtype, dclass, ttl, rdlength, data));
+    }
+
+    return rrsets;
+  }
+
+  /** Collects the records of a zone and packs them in canonical order. */
+  private static class Packer {
+    private final Name origin;
+
+    /**
+     * The records as they are added: the reversed owner name, the U16 type of the RRset and then
+     * the record as it is stored in the packed zone.
+     */
+    private final Arena records = new Arena(false);
+
+    private long[] offsets = new long[1024];
+    private int count;
+    private SOARecord soa;
+    private boolean hasWild;
+    private final DNSOutput out = new DNSOutput();
+
+    Packer(Name origin) {
+      this.origin = origin;
+    }
+
+    /** Adds a record, ignoring records outside the zone like {@link Zone}. */
+    void add(Record r) throws IOException {
+      Name name = r.getName();
+      if (r.getType() == Type.SOA) {
+        if (!name.equals(origin)) {
+          throw new IOException("SOA owner " + name + " does not match zone origin " + origin);
+        }
+
+        // a new SOA replaces the previous one, it is added when packing
+        soa = (SOARecord) r;
+        return;
+      }
+
+      if (!name.subdomain(origin)) {
+        return;
+      }
+
+      hasWild |= name.isWild();
+      write(r);
+    }
+
+    private void write(Record r) {
+      out.jump(0);
+      out.writeByteArray(reverse(r.getName().toWire()));
+      out.writeU16(r.getRRsetType());
+      out.writeU16(r.getType());
+      out.writeU16(r.getDClass());
+      out.writeU32(r.getTTL());
+      int lengthPosition = out.current();
+      out.writeU16(0);
+      r.rrToWire(out, null, false);
+      out.writeU16At(out.current() - lengthPosition - 2, lengthPosition);
+
+      if (count == offsets.length) {
+        offsets = Arrays.copyOf(offsets, count * 2);
+      }
+
+      offsets[count++] = records.size();
+      records.write(out.array(), 0, out.current());
+    }
+
+    /**
+     * Sorts the records and writes them to the arena.
+     *
+     * @return The addresses of the names.
+     */
+    long[] pack(Arena arena) {
+      if (soa != null) {
+        write(soa);
+      }
+
+      sort(offsets, Arrays.copyOf(offsets, count), 0, count);
+
+      long[] nodes = new long[64];
+      int nodeCount = 0;
+      byte[] buffer = new byte[1024];
+      for (int i = 0; i < count; ) {
+        long first = offsets[i];
+        int nameLength = nameLength(records, first);
+        int end = i + 1;
+        while (end < count && compareNames(offsets[i], offsets[end]) == 0) {
+          end++;
+        }
+
+        if (nodeCount == nodes.length) {
+          nodes = Arrays.copyOf(nodes, nodeCount * 2);
+        }
+
+        nodes[nodeCount++] = arena.size();
+        buffer = copy(first, nameLength, buffer, arena);
+        long countAddress = arena.size();
+        arena.writeU32(0);
+
+        long written = 0;
+        long ttlAddress = -1;
+        for (int k = i; k < end; k++) {
+          long record = offsets[k] + nameLength + 2;
+          if (k > i && compareRecords(offsets[k - 1], offsets[k], nameLength) == 0) {
+            // the same record with another TTL, the RRset uses the lowest TTL
+            long ttl = records.getU32(record + 4);
+            if (ttl < arena.getU32(ttlAddress)) {
+              arena.putU32(ttlAddress, ttl);
+            }
+            continue;
+          }
+
+          ttlAddress = arena.size() + 4;
+          buffer = copy(record, 10 + records.getU16(record + 8), buffer, arena);
+          written++;
+        }
+
+        arena.putU32(countAddress, written);
+        i = end;
+      }
+
+      arena.trim();
+      return Arrays.copyOf(nodes, nodeCount);
+    }
+
+    private byte[] copy(long address, int length, byte[] buffer, Arena arena) {
+      if (buffer.length < length) {
+        buffer = new byte[length];
+      }
+
+      records.get(address, buffer, 0, length);
+      arena.write(buffer, 0, length);
+      return buffer;
+    }
+
+    /** A merge sort of the record offsets, which is fast for the mostly sorted master files. */
+    private void sort(long[] a, long[] tmp, int from, int to) {
+      if (to - from < 16) {
+        for (int i = from + 1; i < to; i++) {
+          long value = a[i];
+          int j = i - 1;
+          while (j >= from && compare(a[j], value) > 0) {
+            a[j + 1] = a[j];
+            j--;
+          }
+          a[j + 1] = value;
+        }
+        return;
+      }
+
+      // sort the halves of tmp into a, then merge them back
+      int mid = (from + to) >>> 1;
+      sort(tmp, a, from, mid);
+      sort(tmp, a, mid, to);
+      if (compare(tmp[mid - 1], tmp[mid]) <= 0) {
+        System.arraycopy(tmp, from, a, from, to - from);
+        return;
+      }
+
+      for (int i = from, p = from, q = mid; i < to; i++) {
+        if (q >= to || (p < mid && compare(tmp[p], tmp[q]) <= 0)) {
+          a[i] = tmp[p++];
+        } else {
+          a[i] = tmp[q++];
+        }
+      }
+    }
+
+    private int compare(long a, long b) {
+      int c = compareNames(a, b);
+      if (c != 0) {
+        return c;
+      }
+
+      return compareRecords(a, b, nameLength(records, a));
+    }
+
+    private int compareNames(long a, long b) {
+      while (true) {
+        int aLength = records.getU8(a++);
+        int bLength = records.getU8(b++);
+        if (aLength == 0 || bLength == 0) {
+          return aLength - bLength;
+        }
+
+        for (int i = 0; i < aLength && i < bLength; i++) {
+          int c = lowercase(records.getU8(a + i)) - lowercase(records.getU8(b + i));
+          if (c != 0) {
+            return c;
+          }
+        }
+
+        if (aLength != bLength) {
+          return aLength - bLength;
+        }
+
+        a += aLength;
+        b += bLength;
+      }
+    }
+
+    /** Compares RRset type, type, class and RDATA of two records with the same name. */
+    private int compareRecords(long a, long b, int nameLength) {
+      a += nameLength;
+      b += nameLength;
+      for (int i = 0; i < 6; i += 2) {
+        int c = records.getU16(a + i) - records.getU16(b + i);
+        if (c != 0) {
+          return c;
+        }
+      }
+
+      int aLength = records.getU16(a + 10);
+      int bLength = records.getU16(b + 10);
+      for (int i = 0; i < aLength && i < bLength; i++) {
+        int c = records.getU8(a + 12 + i) - records.getU8(b + 12 + i);
+        if (c != 0) {
+          return c;
+        }
+      }
+
+      return aLength - bLength;
+    }
+  }
+
+  /** Append-only storage in fixed size pages, addressed by a long offset. */
+  private static final class Arena {
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final boolean direct;
+    private ByteBuffer[] pages = new ByteBuffer[4];
+    private long size;
+
+    Arena(boolean direct) {
+      this.direct = direct;
+    }
+
+    long size() {
+      return size;
+    }
+
+    private ByteBuffer page(long address) {
+      return pages[(int) (address >>> PAGE_SHIFT)];
+    }
+
+    void write(byte[] b, int off, int len) {
+      while (len > 0) {
+        int page = (int) (size >>> PAGE_SHIFT);
+        if (page == pages.length) {
+          pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+        if (pages[page] == null) {
+          pages[page] =
+              direct ? ByteBuffer.allocateDirect(PAGE_SIZE) : ByteBuffer.allocate(PAGE_SIZE);
+        }
+
+        int pos = (int) (size & PAGE_MASK);
+        int n = Math.min(len, PAGE_SIZE - pos);
+        ByteBuffer target = pages[page].duplicate();
+        target.position(pos);
+        target.put(b, off, n);
+
+        off += n;
+        len -= n;
+        size += n;
+      }
+    }
+
+    void writeU32(long value) {
+      write(
+          new byte[] {
+            (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
+          },
+          0,
+          4);
+    }
+
+    void putU32(long address, long value) {
+      for (int i = 0; i < 4; i++) {
+        page(address + i).put((int) ((address + i) & PAGE_MASK), (byte) (value >>> (24 - 8 * i)));
+      }
+    }
+
+    int getU8(long address) {
+      return page(address).get((int) (address & PAGE_MASK)) & 0xFF;
+    }
+
+    int getU16(long address) {
+      return (getU8(address) << 8) | getU8(address + 1);
+    }
+
+    long getU32(long address) {
+      return ((long) getU16(address) << 16) | getU16(address + 2);
+    }
+
+    void get(long address, byte[] dst, int off, int len) {
+      while (len > 0) {
+        ByteBuffer page = page(address);
+        int pos = (int) (address & PAGE_MASK);
+        int n = Math.min(len, PAGE_SIZE - pos);
+        if (page.hasArray()) {
+          System.arraycopy(page.array(), page.arrayOffset() + pos, dst, off, n);
+        } else {
+          ByteBuffer source = page.duplicate();
+          source.position(pos);
+          source.get(dst, off, n);
+        }
+
+        address += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    /** Shrinks the last page to the used size, the arena must not be written afterwards. */
+    void trim() {
+      if (size == 0) {
+        pages = new ByteBuffer[0];
+        return;
+      }
+
+      int last = (int) ((size - 1) >>> PAGE_SHIFT);
+      int used = (int) ((size - 1) & PAGE_MASK) + 1;
+      if (used < PAGE_SIZE) {
+        ByteBuffer page = direct ? ByteBuffer.allocateDirect(used) : ByteBuffer.allocate(used);
+        ByteBuffer source = pages[last].duplicate();
+        source.limit(used);
+        page.put(source);
+        pages[last] = page;
+      }
+
+      pages = Arrays.copyOf(pages, last + 1);
+    }
+  }
+}
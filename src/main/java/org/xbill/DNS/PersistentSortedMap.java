@@ -0,0 +1,348 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable sorted map. Changes return a new map that shares all unchanged nodes with the
+ * previous one, so a change costs O(log n) new nodes (an AVL tree with path copying). A {@link
+ * Zone} uses it to publish new versions of its data while readers keep using older ones.
+ *
+ * <p>Changes with an edit token update the nodes that were created with the same token in place
+ * instead of copying them. The writer must use a new token once a map containing these nodes is
+ * published, after which they are immutable like all others.
+ */
+final class PersistentSortedMap<K extends Comparable<? super K>, V> implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  @SuppressWarnings("rawtypes")
+  private static final PersistentSortedMap EMPTY = new PersistentSortedMap<>(null);
+
+  private final Node<K, V> root;
+
+  private PersistentSortedMap(Node<K, V> root) {
+    this.root = root;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+    return (PersistentSortedMap<K, V>) EMPTY;
+  }
+
+  int size() {
+    return root == null ? 0 : root.size;
+  }
+
+  boolean isEmpty() {
+    return root == null;
+  }
+
+  V get(K key) {
+    Node<K, V> n = root;
+    while (n != null) {
+      int c = key.compareTo(n.key);
+      if (c == 0) {
+        return n.value;
+      }
+
+      n = c < 0 ? n.left : n.right;
+    }
+
+    return null;
+  }
+
+  /** Gets the smallest key greater than the key, or {@code null} if there is none. */
+  K higherKey(K key) {
+    Node<K, V> n = root;
+    K higher = null;
+    while (n != null) {
+      if (key.compareTo(n.key) < 0) {
+        higher = n.key;
+        n = n.left;
+      } else {
+        n = n.right;
+      }
+    }
+
+    return higher;
+  }
+
+  /** Returns a map with the key set to the value. An existing key object is kept. */
+  PersistentSortedMap<K, V> put(K key, V value) {
+    return put(key, value, null);
+  }
+
+  /**
+   * Returns a map with the key set to the value, changing the nodes that were created with the edit
+   * token in place. This map must not be used anymore if it shares such nodes.
+   */
+  PersistentSortedMap<K, V> put(K key, V value, Object edit) {
+    Node<K, V> newRoot = put(root, key, value, edit);
+    return newRoot == root ? this : new PersistentSortedMap<>(newRoot);
+  }
+
+  /** Returns a map without the key. */
+  PersistentSortedMap<K, V> remove(K key) {
+    return remove(key, null);
+  }
+
+  /**
+   * Returns a map without the key, changing the nodes that were created with the edit token in
+   * place. This map must not be used anymore if it shares such nodes.
+   */
+  PersistentSortedMap<K, V> remove(K key, Object edit) {
+    Node<K, V> newRoot = remove(root, key, edit);
+    if (newRoot == root) {
+      return this;
+    }
+
+    return newRoot == null ? empty() : new PersistentSortedMap<>(newRoot);
+  }
+
+  /** Iterates over the entries in ascending order of their keys. */
+  Iterator<Map.Entry<K, V>> iterator() {
+    return new EntryIterator<>(root, null, true);
+  }
+
+  /** Iterates over the entries with keys greater than (or equal to) {@code from}. */
+  Iterator<Map.Entry<K, V>> tailIterator(K from, boolean inclusive) {
+    return new EntryIterator<>(root, from, inclusive);
+  }
+
+  /** The keys in ascending order. */
+  Collection<K> keys() {
+    return new AbstractCollection<K>() {
+      @Override
+      public Iterator<K> iterator() {
+        Iterator<Map.Entry<K, V>> it = PersistentSortedMap.this.iterator();
+        return new Iterator<K>() {
+          @Override
+          public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override
+          public K next() {
+            return it.next().getKey();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return PersistentSortedMap.this.size();
+      }
+    };
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> put(
+      Node<K, V> n, K key, V value, Object edit) {
+    if (n == null) {
+      return new Node<>(key, value, null, null, edit);
+    }
+
+    int c = key.compareTo(n.key);
+    if (c < 0) {
+      Node<K, V> left = put(n.left, key, value, edit);
+      return unchanged(n.left, left, edit) ? n : balance(n, n.key, n.value, left, n.right, edit);
+    } else if (c > 0) {
+      Node<K, V> right = put(n.right, key, value, edit);
+      return unchanged(n.right, right, edit) ? n : balance(n, n.key, n.value, n.left, right, edit);
+    }
+
+    if (n.value == value) {
+      return n;
+    }
+
+    return node(n, n.key, value, n.left, n.right, edit);
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> remove(
+      Node<K, V> n, K key, Object edit) {
+    if (n == null) {
+      return null;
+    }
+
+    int c = key.compareTo(n.key);
+    if (c < 0) {
+      Node<K, V> left = remove(n.left, key, edit);
+      return unchanged(n.left, left, edit) ? n : balance(n, n.key, n.value, left, n.right, edit);
+    } else if (c > 0) {
+      Node<K, V> right = remove(n.right, key, edit);
+      return unchanged(n.right, right, edit) ? n : balance(n, n.key, n.value, n.left, right, edit);
+    }
+
+    if (n.left == null) {
+      return n.right;
+    } else if (n.right == null) {
+      return n.left;
+    }
+
+    Node<K, V> min = n.right;
+    while (min.left != null) {
+      min = min.left;
+    }
+
+    return balance(n, min.key, min.value, n.left, removeMin(n.right, edit), edit);
+  }
+
+  private static <K, V> Node<K, V> removeMin(Node<K, V> n, Object edit) {
+    if (n.left == null) {
+      return n.right;
+    }
+
+    return balance(n, n.key, n.value, removeMin(n.left, edit), n.right, edit);
+  }
+
+  /**
+   * Whether a subtree is unchanged after a change below it. A subtree that was changed in place is
+   * the same node, but the height and size of its parent must still be updated.
+   */
+  private static boolean unchanged(Node<?, ?> before, Node<?, ?> after, Object edit) {
+    return before == after && (after == null || edit == null || after.edit != edit);
+  }
+
+  private static int height(Node<?, ?> n) {
+    return n == null ? 0 : n.height;
+  }
+
+  /** Changes the node in place if it was created with the edit token, or creates a new one. */
+  private static <K, V> Node<K, V> node(
+      Node<K, V> n, K key, V value, Node<K, V> left, Node<K, V> right, Object edit) {
+    if (edit == null || n.edit != edit) {
+      return new Node<>(key, value, left, right, edit);
+    }
+
+    n.set(key, value, left, right);
+    return n;
+  }
+
+  /**
+   * Creates (or changes, see {@link #node}) a node, rotating once or twice if the heights of the
+   * subtrees differ by 2.
+   */
+  private static <K, V> Node<K, V> balance(
+      Node<K, V> n, K key, V value, Node<K, V> left, Node<K, V> right, Object edit) {
+    int hl = height(left);
+    int hr = height(right);
+    if (hl > hr + 1) {
+      if (height(left.left) >= height(left.right)) {
+        return new Node<>(
+            left.key, left.value, left.left, new Node<>(key, value, left.right, right, edit), edit);
+      }
+
+      Node<K, V> lr = left.right;
+      return new Node<>(
+          lr.key,
+          lr.value,
+          new Node<>(left.key, left.value, left.left, lr.left, edit),
+          new Node<>(key, value, lr.right, right, edit),
+          edit);
+    } else if (hr > hl + 1) {
+      if (height(right.right) >= height(right.left)) {
+        return new Node<>(
+            right.key,
+            right.value,
+            new Node<>(key, value, left, right.left, edit),
+            right.right,
+            edit);
+      }
+
+      Node<K, V> rl = right.left;
+      return new Node<>(
+          rl.key,
+          rl.value,
+          new Node<>(key, value, left, rl.left, edit),
+          new Node<>(right.key, right.value, rl.right, right.right, edit),
+          edit);
+    }
+
+    return node(n, key, value, left, right, edit);
+  }
+
+  private static final class Node<K, V> implements Map.Entry<K, V>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** The token of the change that may still change this node in place, or {@code null}. */
+    private final transient Object edit;
+
+    private K key;
+    private V value;
+    private Node<K, V> left;
+    private Node<K, V> right;
+    private int height;
+    private int size;
+
+    Node(K key, V value, Node<K, V> left, Node<K, V> right, Object edit) {
+      this.edit = edit;
+      set(key, value, left, right);
+    }
+
+    private void set(K key, V value, Node<K, V> left, Node<K, V> right) {
+      this.key = key;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      height = Math.max(height(left), height(right)) + 1;
+      size = (left == null ? 0 : left.size) + (right == null ? 0 : right.size) + 1;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class EntryIterator<K extends Comparable<? super K>, V>
+      implements Iterator<Map.Entry<K, V>> {
+    private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+
+    EntryIterator(Node<K, V> n, K from, boolean inclusive) {
+      while (n != null) {
+        int c = from == null ? -1 : from.compareTo(n.key);
+        if (c < 0 || (c == 0 && inclusive)) {
+          stack.push(n);
+          n = n.left;
+        } else {
+          n = n.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      Node<K, V> n = stack.pop();
+      for (Node<K, V> child = n.right; child != null; child = child.left) {
+        stack.push(child);
+      }
+
+      return n;
+    }
+  }
+}
@@ -263,7 +263,7 @@ public abstract class Record implements Cloneable, Comparable<Record>, Serializa
     return out.toByteArray();
   }
 
-  private void toWireCanonical(DNSOutput out, boolean noTTL) {
+  void toWireCanonical(DNSOutput out, boolean noTTL) {
     name.toWireCanonical(out);
     out.writeU16(type);
     out.writeU16(dclass);
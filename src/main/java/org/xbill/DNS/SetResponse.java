@@ -154,6 +154,26 @@ public class SetResponse {
     return data != null ? data.get(0) : null;
   }
 
+  /**
+   * Returns the part of the TTL of the returned RRsets that has not yet elapsed, in percent of the
+   * TTL they had when they were added to the {@link Cache}. If the response contains multiple
+   * RRsets, the lowest value is returned. Responses without RRsets or with RRsets that were not
+   * obtained from a Cache return 100.
+   *
+   * @since 3.6.5
+   */
+  public int getRemainingTtlPercent() {
+    int percent = 100;
+    if (data != null) {
+      for (RRset rrset : data) {
+        if (rrset instanceof Cache.CacheRRset) {
+          percent = Math.min(percent, ((Cache.CacheRRset) rrset).getRemainingTtlPercent());
+        }
+      }
+    }
+    return percent;
+  }
+
   /** Prints the value of the SetResponse */
   @Override
   public String toString() {
@@ -8,24 +8,28 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Supplier;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import lombok.Getter;
 
 /**
  * A DNS zone. This encapsulates all data related to a zone, and provides convenient lookup methods.
  * A zone always contains a {@link SOARecord} and at least one {@link NSRecord}.
  *
- * @implNote This class uses a {@link java.util.concurrent.locks.ReadWriteLock} to ensure access and
- *     manipulation is safe from multiple threads. Iterators are "weakly consistent" (see the
- *     package info from {@code java.util.concurrent}).
+ * @implNote The data of the zone is kept in immutable versions. Lookups and iterators use the
+ *     current version without locking and never see a partially applied change. Writers are
+ *     serialized by a lock and publish a new version after each change, or after all changes of an
+ *     {@link #update(Consumer) update}. Iterators therefore return the zone as it was when they
+ *     were created. Data that is not yet published, i.e. while the zone is loaded or that was
+ *     created earlier in the same update, is changed in place instead of being copied.
  * @author Brian Wellington
  */
 public class Zone implements Serializable, Iterable<RRset> {
@@ -35,22 +39,40 @@ public class Zone implements Serializable, Iterable<RRset> {
   /** A secondary zone. */
   public static final int SECONDARY = 2;
 
-  private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-  private final ReentrantReadWriteLock.ReadLock readLock = readWriteLock.readLock();
-  private final ReentrantReadWriteLock.WriteLock writeLock = readWriteLock.writeLock();
+  private final ReentrantLock writeLock = new ReentrantLock();
 
-  private final Map<Name, Object> data = new ConcurrentSkipListMap<>();
+  /** The published version of the zone data. */
+  private volatile Version current = new Version(PersistentSortedMap.empty(), false, null);
 
-  private Object originNode;
-  private boolean hasWild;
+  /** The version that is being changed by the thread holding the write lock. */
+  private transient Version working;
 
-  /** Returns the zone's origin. */
-  @Getter private Name origin;
+  /**
+   * The edit token of the map nodes that only {@link #working} contains, see {@link
+   * PersistentSortedMap}.
+   */
+  private transient Object edit;
 
-  /** Returns the zone origin's {@link NSRecord NS records}. */
-  private RRset nsRRset;
+  /** The RRsets and lists of RRsets that only {@link #working} contains, or {@code null}. */
+  private transient Set<Object> unpublished;
+
+  /** Whether the zone is being loaded by a constructor, i.e. nothing of it is published yet. */
+  private transient boolean loading = true;
+
+  /** The NSEC or NSEC3 chain that is updated with each change, or {@code null}. */
+  private ZoneDenialChain denialChain;
 
-  private SOARecord soaRecord;
+  /** The journal that records the changes for IXFR, or {@code null}. */
+  private transient ZoneJournal journal;
+
+  /** The listeners that are called after each change, replaced on each modification. */
+  private transient List<Runnable> changeListeners;
+
+  /** Whether the zone was validated after loading, i.e. an added SOA replaces the existing one. */
+  private boolean validated;
+
+  /** Returns the zone's origin. */
+  @Getter private Name origin;
 
   /** Returns the zone's {@link DClass class}. */
   public int getDClass() {
@@ -59,12 +81,12 @@ public class Zone implements Serializable, Iterable<RRset> {
 
   /** Returns the zone origin's {@link NSRecord NS records}. */
   public RRset getNS() {
-    return withReadLock(() -> new RRset(nsRRset));
+    return new RRset(oneRRsetWithoutLock(version().data.get(origin), Type.NS));
   }
 
   /** Returns the zone's {@link SOARecord SOA record}. */
   public SOARecord getSOA() {
-    return soaRecord;
+    return version().soa;
   }
 
   // ------------- Constructors
@@ -220,7 +242,7 @@ public class Zone implements Serializable, Iterable<RRset> {
   }
 
   private void validate() throws IOException {
-    originNode = exactName(origin);
+    Object originNode = current.data.get(origin);
     if (originNode == null) {
       throw new IOException(origin + ": no data specified");
     }
@@ -229,12 +251,14 @@ public class Zone implements Serializable, Iterable<RRset> {
     if (rrset == null || rrset.size() != 1) {
       throw new IOException(origin + ": exactly 1 SOA must be specified");
     }
-    soaRecord = (SOARecord) rrset.first();
 
-    nsRRset = oneRRsetWithoutLock(originNode, Type.NS);
-    if (nsRRset == null) {
+    if (oneRRsetWithoutLock(originNode, Type.NS) == null) {
       throw new IOException(origin + ": no NS set specified");
     }
+
+    validated = true;
+    loading = false;
+    edit = null;
   }
 
   // ------------- Iterators
@@ -287,18 +311,24 @@ public class Zone implements Serializable, Iterable<RRset> {
         () -> {
           RRset rrset = findRRsetWithoutLock(name, rtype);
           if (rrset == null) {
-            rrset = new RRset(r);
-            addRRsetWithoutLock(name, rrset);
+            rrset = unpublished(new RRset(r));
           } else {
+            if (!isUnpublished(rrset)) {
+              // Published RRsets are never changed, readers may still use them
+              rrset = unpublished(new RRset(rrset));
+            }
+
             // Adding a SOA must replace any existing record. We validated before that the zone name
             // didn't change
-            if (actualType == Type.SOA) {
-              rrset.deleteRR(soaRecord);
-              soaRecord = (SOARecord) r;
+            if (actualType == Type.SOA && validated) {
+              rrset.deleteRR(working.soa);
             }
 
             rrset.addRR(r);
           }
+
+          addRRsetWithoutLock(name, rrset);
+          updateDenialChainWithoutLock(name, rtype);
         });
   }
 
@@ -334,11 +364,17 @@ public class Zone implements Serializable, Iterable<RRset> {
           }
 
           if (rrset.size() + rrset.sigSize() > 1) {
+            if (!isUnpublished(rrset)) {
+              rrset = unpublished(new RRset(rrset));
+            }
             rrset.deleteRR(r);
+            addRRsetWithoutLock(name, rrset);
           } else {
             // Remove the set (and maybe the entire name) if the set is now empty
             removeRRsetWithoutLock(name, rtype);
           }
+
+          updateDenialChainWithoutLock(name, rtype);
         });
   }
 
@@ -376,12 +412,11 @@ public class Zone implements Serializable, Iterable<RRset> {
           "name " + name + " is absolute and not a subdomain of " + origin);
     }
 
+    RRset copy = new RRset(rrset);
     withWriteLock(
         () -> {
-          addRRsetWithoutLock(name, rrset);
-          if (type == Type.SOA) {
-            soaRecord = (SOARecord) rrset.first();
-          }
+          addRRsetWithoutLock(name, unpublished(copy));
+          updateDenialChainWithoutLock(name, type);
         });
   }
 
@@ -402,7 +437,95 @@ public class Zone implements Serializable, Iterable<RRset> {
     }
     Type.check(type);
 
-    withWriteLock(() -> removeRRsetWithoutLock(name, type));
+    withWriteLock(
+        () -> {
+          removeRRsetWithoutLock(name, type);
+          updateDenialChainWithoutLock(name, type);
+        });
+  }
+
+  /**
+   * Applies several changes to the zone at once. Lookups and iterators see either none or all of
+   * the changes, e.g. of a whole IXFR. If {@code changes} throws an exception, the zone is left
+   * unchanged.
+   *
+   * @param changes Changes the zone with its methods, e.g. {@link #addRecord(Record)} and {@link
+   *     #removeRecord(Record)}. It runs on the calling thread while other writers wait.
+   * @since 3.6.5
+   */
+  public void update(Consumer<Zone> changes) {
+    withWriteLock(() -> changes.accept(this));
+  }
+
+  /**
+   * Adds a listener that is called after each change of the zone has been published, e.g. to drop
+   * cached responses. It is called on the thread that changed the zone, once per {@link
+   * #update(Consumer)}.
+   *
+   * @param listener The listener to add.
+   * @since 3.6.5
+   */
+  public void addChangeListener(Runnable listener) {
+    writeLock.lock();
+    try {
+      List<Runnable> listeners =
+          changeListeners == null ? new ArrayList<>() : new ArrayList<>(changeListeners);
+      listeners.add(listener);
+      changeListeners = listeners;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Removes a listener that was added with {@link #addChangeListener(Runnable)}.
+   *
+   * @param listener The listener to remove.
+   * @since 3.6.5
+   */
+  public void removeChangeListener(Runnable listener) {
+    writeLock.lock();
+    try {
+      if (changeListeners != null) {
+        List<Runnable> listeners = new ArrayList<>(changeListeners);
+        listeners.remove(listener);
+        changeListeners = listeners.isEmpty() ? null : listeners;
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Creates an NSEC chain (RFC 4034) for the zone, replacing existing NSEC and NSEC3 records. The
+   * chain is then kept up to date with each change to the zone. The records of the chain are not
+   * signed, see {@link ZoneSigner}.
+   *
+   * @since 3.6.5
+   */
+  public void generateNsecChain() {
+    withWriteLock(
+        () -> {
+          ZoneDenialChain.removeAll(this);
+          denialChain = ZoneDenialChain.nsec(this);
+        });
+  }
+
+  /**
+   * Creates an NSEC3 chain (RFC 5155) with SHA-1 hashes for the zone, replacing existing NSEC and
+   * NSEC3 records. An NSEC3PARAM record is added to the origin. The chain is then kept up to date
+   * with each change to the zone. The records of the chain are not signed, see {@link ZoneSigner}.
+   *
+   * @param iterations The number of additional hash iterations, RFC 9276 recommends 0.
+   * @param salt The salt, RFC 9276 recommends none.
+   * @since 3.6.5
+   */
+  public void generateNsec3Chain(int iterations, byte[] salt) {
+    withWriteLock(
+        () -> {
+          ZoneDenialChain.removeAll(this);
+          denialChain = ZoneDenialChain.nsec3(this, iterations, salt);
+        });
   }
 
   // ------------- Search
@@ -422,16 +545,13 @@ public class Zone implements Serializable, Iterable<RRset> {
       throw new IllegalArgumentException("name must not be null");
     }
     Type.check(type);
-    return withReadLock(
-        () -> {
-          RRset set = findRRsetWithoutLock(name, type);
-          if (set == null) {
-            return null;
-          }
+    RRset set = oneRRsetWithoutLock(version().data.get(name), type);
+    if (set == null) {
+      return null;
+    }
 
-          // Create a copy to keep the thread safety guarantees and consistency
-          return new RRset(set);
-        });
+    // Create a copy to keep the thread safety guarantees and consistency
+    return new RRset(set);
   }
 
   /**
@@ -455,34 +575,222 @@ public class Zone implements Serializable, Iterable<RRset> {
       return SetResponse.ofType(SetResponseType.NXDOMAIN);
     }
 
-    return withReadLock(() -> findRecordsWithoutLock(name, type));
+    return findRecords(stableVersion(), name, type);
   }
 
-  // ----------- Internal
-  private <T> T withReadLock(Supplier<T> callable) {
-    readLock.lock();
+  /** Returns copies of all {@link RRset RRsets} of one version of the zone. */
+  List<RRset> copyRRsets() {
+    Version v = version();
+    List<RRset> copies = new ArrayList<>(v.data.size());
+    for (Iterator<Map.Entry<Name, Object>> it = v.data.iterator(); it.hasNext(); ) {
+      for (RRset set : allRRsetsWithoutLock(it.next().getValue())) {
+        copies.add(new RRset(set));
+      }
+    }
+    return copies;
+  }
+
+  /**
+   * Replaces RRsets of the zone with new versions, all at once. An RRset is only replaced if its
+   * records are still the same as those of the {@code originals} at the same index.
+   *
+   * @return Copies of the RRsets that were changed (but not removed) since the originals were
+   *     taken, and therefore not replaced.
+   */
+  List<RRset> replaceRRsets(List<RRset> originals, List<RRset> replacements) {
+    List<RRset> changed = new ArrayList<>();
+    withWriteLock(
+        () -> {
+          for (int i = 0; i < originals.size(); i++) {
+            RRset original = originals.get(i);
+            RRset present = findRRsetWithoutLock(original.getName(), original.getType());
+            if (present == null) {
+              continue;
+            }
+
+            if (present.rrs(false).equals(original.rrs(false))) {
+              addRRsetWithoutLock(original.getName(), replacements.get(i));
+            } else {
+              changed.add(new RRset(present));
+            }
+          }
+        });
+    return changed;
+  }
+
+  // ----------- For ZoneDenialChain, ...WithoutLock needs the write lock held by the caller (or by
+  // the thread that started a parallel computation)
+
+  private void updateDenialChainWithoutLock(Name name, int type) {
+    if (denialChain != null) {
+      denialChain.update(this, name, type);
+    }
+  }
+
+  Collection<Name> namesWithoutLock() {
+    return working.data.keys();
+  }
+
+  /** Gets the names below the name, in canonical order. */
+  List<Name> namesBelowWithoutLock(Name name) {
+    List<Name> names = new ArrayList<>();
+    for (Iterator<Map.Entry<Name, Object>> it = working.data.tailIterator(name, false);
+        it.hasNext(); ) {
+      Name below = it.next().getKey();
+      if (!below.subdomain(name)) {
+        break;
+      }
+
+      names.add(below);
+    }
+
+    return names;
+  }
+
+  boolean hasNamesBelowWithoutLock(Name name) {
+    Name next = working.data.higherKey(name);
+    return next != null && next.subdomain(name);
+  }
+
+  int[] typesWithoutLock(Name name) {
+    Object types = working.data.get(name);
+    if (types == null) {
+      return new int[0];
+    }
+
+    return allRRsetsWithoutLock(types).stream().mapToInt(RRset::getType).toArray();
+  }
+
+  void putChainRecordWithoutLock(Record r) {
+    addRRsetWithoutLock(r.getName(), new RRset(r));
+  }
+
+  void removeChainRecordWithoutLock(Name name, int type) {
+    removeRRsetWithoutLock(name, type);
+  }
+
+  /** Gets the current version of the zone data, for reading it consistently. */
+  Version snapshot() {
+    return stableVersion();
+  }
+
+  /**
+   * Sets the journal that is told about each change, replacing the current one.
+   *
+   * @return The current version of the zone, which the journal starts from.
+   */
+  Version setJournal(ZoneJournal journal) {
+    writeLock.lock();
     try {
-      return callable.get();
+      this.journal = journal;
+      return stableVersion();
     } finally {
-      readLock.unlock();
+      writeLock.unlock();
+    }
+  }
+
+  // ----------- Internal
+
+  /**
+   * Gets the version for the current thread, which includes its own changes while it writes. The
+   * version must not be kept, it may still be changed in place by the writer.
+   */
+  private Version version() {
+    return writeLock.isHeldByCurrentThread() ? working : current;
+  }
+
+  /**
+   * Gets the version for the current thread like {@link #version()}. If the thread writes, its
+   * further changes copy the data of this version instead of changing it in place, so it can be
+   * kept.
+   */
+  private Version stableVersion() {
+    if (!writeLock.isHeldByCurrentThread() || working == null) {
+      return current;
     }
+
+    publishWithoutLock();
+    return working;
+  }
+
+  /** Treats the data of the working version as published, i.e. changes copy it from now on. */
+  private void publishWithoutLock() {
+    loading = false;
+    edit = new Object();
+    unpublished = null;
+  }
+
+  /** Whether the RRset or list of RRsets is only part of the working version. */
+  private boolean isUnpublished(Object rrsetOrList) {
+    return loading || (unpublished != null && unpublished.contains(rrsetOrList));
+  }
+
+  /** Marks an RRset or list of RRsets that was just created as only part of the working version. */
+  private <T> T unpublished(T rrsetOrList) {
+    if (!loading) {
+      if (unpublished == null) {
+        unpublished = Collections.newSetFromMap(new IdentityHashMap<>());
+      }
+
+      unpublished.add(rrsetOrList);
+    }
+
+    return rrsetOrList;
   }
 
   private void withWriteLock(Runnable callable) {
     writeLock.lock();
+    boolean outermost = writeLock.getHoldCount() == 1;
+    if (outermost) {
+      working = current;
+      if (edit == null) {
+        // a constructor keeps the token until the zone is validated
+        edit = new Object();
+      }
+    }
+
+    List<Runnable> notify = null;
     try {
       callable.run();
+      if (outermost) {
+        if (journal != null) {
+          journal.commit(working);
+        }
+
+        if (working != current) {
+          notify = changeListeners;
+        }
+
+        current = working;
+      }
+    } catch (RuntimeException | Error e) {
+      if (outermost && denialChain != null) {
+        // the chain keeps its own index of the records, rebuild it for the unchanged zone
+        working = current;
+        publishWithoutLock();
+        denialChain = denialChain.rebuild(this);
+      }
+
+      throw e;
     } finally {
+      if (outermost) {
+        working = null;
+        if (!loading) {
+          edit = null;
+          unpublished = null;
+        }
+      }
+
       writeLock.unlock();
     }
-  }
 
-  private Object exactName(Name name) {
-    return data.get(name);
+    if (notify != null) {
+      notify.forEach(Runnable::run);
+    }
   }
 
   @SuppressWarnings("unchecked")
-  private List<RRset> allRRsetsWithoutLock(Object types) {
+  private static List<RRset> allRRsetsWithoutLock(Object types) {
     if (types instanceof List) {
       return (List<RRset>) types;
     } else {
@@ -490,7 +798,11 @@ public class Zone implements Serializable, Iterable<RRset> {
     }
   }
 
-  private RRset oneRRsetWithoutLock(Object types, int type) {
+  private static RRset oneRRsetWithoutLock(Object types, int type) {
+    if (types == null) {
+      return null;
+    }
+
     if (type == Type.ANY) {
       throw new IllegalArgumentException("Cannot lookup an exact match for type ANY");
     }
@@ -514,57 +826,54 @@ public class Zone implements Serializable, Iterable<RRset> {
   }
 
   private RRset findRRsetWithoutLock(Name name, int type) {
-    Object types = exactName(name);
-    if (types == null) {
-      return null;
-    }
-    return oneRRsetWithoutLock(types, type);
+    return oneRRsetWithoutLock(working.data.get(name), type);
   }
 
   private void addRRsetWithoutLock(Name name, RRset rrset) {
-    if (!hasWild && name.isWild()) {
-      hasWild = true;
-    }
-
-    Object types = data.get(name);
-
-    // Nothing in the zone for this name, add the set directly
-    if (types == null) {
-      data.put(name, rrset);
-      return;
-    }
-
+    Version v = working;
+    Object types = v.data.get(name);
     int rtype = rrset.getType();
+    Object newTypes;
 
-    // Multiple types for this name
-    if (types instanceof List) {
+    if (types == null) {
+      // Nothing in the zone for this name, add the set directly
+      newTypes = rrset;
+    } else if (types instanceof List) {
+      // Multiple types for this name, replace the set of the same type or add it
       @SuppressWarnings("unchecked")
       List<RRset> list = (List<RRset>) types;
-      for (int i = 0; i < list.size(); i++) {
-        RRset set = list.get(i);
-        // There's already a set of the specified type, replace it
-        if (set.getType() == rtype) {
-          list.set(i, rrset);
-          return;
-        }
+      if (!isUnpublished(list)) {
+        list = unpublished(new ArrayList<>(list));
       }
 
-      // The new type doesn't exist yet, add it
-      list.add(rrset);
-    } else {
-      // One type for this name
-      RRset set = (RRset) types;
-      if (set.getType() == rtype) {
-        // There's already a set of the specified type, replace it
-        data.put(name, rrset);
+      int i = 0;
+      while (i < list.size() && list.get(i).getType() != rtype) {
+        i++;
+      }
+
+      if (i < list.size()) {
+        list.set(i, rrset);
       } else {
-        // Different type, replace the RRset in the map with a list
-        LinkedList<RRset> list = new LinkedList<>();
-        list.add(set);
         list.add(rrset);
-        data.put(name, list);
       }
+      newTypes = list;
+    } else if (((RRset) types).getType() == rtype) {
+      // One type for this name, replace it
+      newTypes = rrset;
+    } else {
+      // Different type, replace the RRset in the map with a list
+      newTypes = unpublished(new ArrayList<>(Arrays.asList((RRset) types, rrset)));
+    }
+
+    if (journal != null) {
+      journal.changed(name);
     }
+
+    working =
+        v.with(
+            v.data.put(name, newTypes, edit),
+            v.hasWild || name.isWild(),
+            rtype == Type.SOA ? (SOARecord) rrset.first() : v.soa);
   }
 
   private void removeRRsetWithoutLock(Name name, int type) {
@@ -576,43 +885,36 @@ public class Zone implements Serializable, Iterable<RRset> {
       throw new IllegalArgumentException("Cannot remove all NS");
     }
 
-    Object types = data.get(name);
-    // Nothing in the zone for this name/type
-    if (types == null) {
+    Version v = working;
+    Object types = v.data.get(name);
+    if (oneRRsetWithoutLock(types, type) == null) {
+      // Nothing in the zone for this name/type
       return;
     }
 
-    // Multiple types for this name
+    PersistentSortedMap<Name, Object> data;
     if (types instanceof List) {
-      @SuppressWarnings("unchecked")
-      List<RRset> list = (List<RRset>) types;
-      for (int i = 0; i < list.size(); i++) {
-        RRset set = list.get(i);
-        if (set.getType() == type) {
-          // The type of this RRset matched, remove the set
-          list.remove(i);
-          break;
-        }
+      // Multiple types for this name, keep the others
+      List<RRset> list = allRRsetsWithoutLock(types);
+      if (!isUnpublished(list)) {
+        list = unpublished(new ArrayList<>(list));
       }
 
-      // No types left, remove the entire name
-      if (list.isEmpty()) {
-        data.remove(name);
-      }
+      list.removeIf(set -> set.getType() == type);
+      data = v.data.put(name, list.size() == 1 ? list.get(0) : list, edit);
     } else {
-      // One type for this name
-      RRset set = (RRset) types;
-      if (set.getType() != type) {
-        // Type doesn't match, nothing to remove
-        return;
-      }
-
       // The only type matched, remove the entire name
-      data.remove(name);
+      data = v.data.remove(name, edit);
+    }
+
+    if (journal != null) {
+      journal.changed(name);
     }
+
+    working = v.with(data, v.hasWild, v.soa);
   }
 
-  private SetResponse findRecordsWithoutLock(Name name, int type) {
+  private SetResponse findRecords(Version v, Name name, int type) {
     int labels = name.labels();
     int olabels = origin.labels();
 
@@ -629,7 +931,7 @@ public class Zone implements Serializable, Iterable<RRset> {
         tname = new Name(name, labels - tlabels);
       }
 
-      Object types = exactName(tname);
+      Object types = v.data.get(tname);
       if (types == null) {
         continue;
       }
@@ -675,10 +977,10 @@ public class Zone implements Serializable, Iterable<RRset> {
       }
     }
 
-    if (hasWild) {
+    if (v.hasWild) {
       for (int i = 0; i < labels - olabels; i++) {
         Name tname = name.wild(i + 1);
-        Object types = exactName(tname);
+        Object types = v.data.get(tname);
         if (types == null) {
           continue;
         }
@@ -727,16 +1029,14 @@ public class Zone implements Serializable, Iterable<RRset> {
    */
   public String toMasterFile() {
     StringBuilder sb = new StringBuilder();
-    withReadLock(
-        () -> {
-          nodeToString(sb, originNode);
-          for (Map.Entry<Name, Object> entry : data.entrySet()) {
-            if (!origin.equals(entry.getKey())) {
-              nodeToString(sb, entry.getValue());
-            }
-          }
-          return null;
-        });
+    Version v = version();
+    nodeToString(sb, v.data.get(origin));
+    for (Iterator<Map.Entry<Name, Object>> it = v.data.iterator(); it.hasNext(); ) {
+      Map.Entry<Name, Object> entry = it.next();
+      if (!origin.equals(entry.getKey())) {
+        nodeToString(sb, entry.getValue());
+      }
+    }
     return sb.toString();
   }
 
@@ -750,6 +1050,47 @@ public class Zone implements Serializable, Iterable<RRset> {
     return toMasterFile();
   }
 
+  /**
+   * An immutable version of the zone data. The values of the map are an {@link RRset} or a list of
+   * RRsets, which are not changed once the version is published.
+   */
+  static final class Version implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final PersistentSortedMap<Name, Object> data;
+    private final boolean hasWild;
+    private final SOARecord soa;
+
+    private Version(PersistentSortedMap<Name, Object> data, boolean hasWild, SOARecord soa) {
+      this.data = data;
+      this.hasWild = hasWild;
+      this.soa = soa;
+    }
+
+    /** Returns this version if nothing changed, e.g. because the map was changed in place. */
+    private Version with(PersistentSortedMap<Name, Object> data, boolean hasWild, SOARecord soa) {
+      if (data == this.data && hasWild == this.hasWild && soa == this.soa) {
+        return this;
+      }
+
+      return new Version(data, hasWild, soa);
+    }
+
+    SOARecord soa() {
+      return soa;
+    }
+
+    /** The names of the zone, in canonical order. */
+    Collection<Name> names() {
+      return data.keys();
+    }
+
+    List<RRset> rrsets(Name name) {
+      Object types = data.get(name);
+      return types == null ? Collections.emptyList() : allRRsetsWithoutLock(types);
+    }
+  }
+
   class ZoneIterator implements Iterator<RRset> {
     private final Iterator<Map.Entry<Name, Object>> zoneEntries;
     private List<RRset> current;
@@ -759,13 +1100,12 @@ public class Zone implements Serializable, Iterable<RRset> {
     private RRset soaSet;
 
     ZoneIterator(boolean axfr) {
-      zoneEntries = data.entrySet().iterator();
+      Version v = stableVersion();
+      zoneEntries = v.data.iterator();
       wantLastSOA = axfr;
 
       // Start the iterator at origin, with SOA and NS as the first and second entries
-      // Create a copy of the RRset list to ensure that concurrent manipulation is safe
-      List<RRset> originSets =
-          withReadLock(() -> new ArrayList<>(allRRsetsWithoutLock(originNode)));
+      List<RRset> originSets = allRRsetsWithoutLock(v.data.get(origin));
       RRset[] sortedOriginSets = new RRset[originSets.size()];
       current = Arrays.asList(sortedOriginSets);
       for (int i = 0, j = 2; i < originSets.size(); i++) {
@@ -813,9 +1153,7 @@ public class Zone implements Serializable, Iterable<RRset> {
             continue;
           }
 
-          // Create a copy of the RRset list to ensure that concurrent manipulation is safe
-          List<RRset> sets =
-              withReadLock(() -> new ArrayList<>(allRRsetsWithoutLock(entry.getValue())));
+          List<RRset> sets = allRRsetsWithoutLock(entry.getValue());
           if (sets.isEmpty()) {
             // Ignore empty sets (they shouldn't exist anyway)
             continue;
@@ -843,7 +1181,7 @@ public class Zone implements Serializable, Iterable<RRset> {
         throw new IllegalStateException("Not at an element");
       }
 
-      withWriteLock(() -> removeRRsetWithoutLock(returnedSet.getName(), returnedSet.getType()));
+      removeRRset(returnedSet.getName(), returnedSet.getType());
     }
   }
 }
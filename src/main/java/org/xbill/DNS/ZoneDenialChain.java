@@ -0,0 +1,296 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.Serializable;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.xbill.DNS.utils.base32;
+
+/**
+ * The NSEC or NSEC3 chain of a {@link Zone}. All methods must be called while holding the write
+ * lock of the zone.
+ *
+ * <p>The chain is built in canonical order of the zone. After a change to the zone, only the
+ * records of the changed name (and for NSEC3 its empty non-terminal ancestors, for zone cuts its
+ * descendants) and of their predecessors in the chain are updated.
+ */
+final class ZoneDenialChain implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, true);
+
+  private final Name origin;
+  private final long ttl;
+
+  /** The NSEC3 parameters, or {@code null} for an NSEC chain. */
+  private final NSEC3PARAMRecord param;
+
+  /** The records of the chain, by owner name (the hashed owner name for NSEC3). */
+  private final TreeMap<Name, Record> records = new TreeMap<>();
+
+  private ZoneDenialChain(Name origin, long ttl, NSEC3PARAMRecord param) {
+    this.origin = origin;
+    this.ttl = ttl;
+    this.param = param;
+  }
+
+  /** Removes all NSEC, NSEC3 and NSEC3PARAM records from the zone. */
+  static void removeAll(Zone zone) {
+    for (Name name : new ArrayList<>(zone.namesWithoutLock())) {
+      for (int type : zone.typesWithoutLock(name)) {
+        if (type == Type.NSEC || type == Type.NSEC3 || type == Type.NSEC3PARAM) {
+          zone.removeChainRecordWithoutLock(name, type);
+        }
+      }
+    }
+  }
+
+  /** Builds an NSEC chain over the zone. */
+  static ZoneDenialChain nsec(Zone zone) {
+    ZoneDenialChain chain = new ZoneDenialChain(zone.getOrigin(), ttl(zone.getSOA()), null);
+    chain.build(zone, new ArrayList<>(zone.namesWithoutLock()));
+    return chain;
+  }
+
+  /** Builds an NSEC3 chain with SHA-1 hashes over the zone. */
+  static ZoneDenialChain nsec3(Zone zone, int iterations, byte[] salt) {
+    Name origin = zone.getOrigin();
+    long ttl = ttl(zone.getSOA());
+    NSEC3PARAMRecord param =
+        new NSEC3PARAMRecord(origin, DClass.IN, 0, NSEC3Record.Digest.SHA1, 0, iterations, salt);
+    zone.putChainRecordWithoutLock(param);
+
+    // empty non-terminals are part of an NSEC3 chain
+    NavigableSet<Name> names = new TreeSet<>();
+    for (Name name : zone.namesWithoutLock()) {
+      if (names.add(name)) {
+        for (int i = 1; i < name.labels() - origin.labels(); i++) {
+          names.add(new Name(name, i));
+        }
+      }
+    }
+
+    ZoneDenialChain chain = new ZoneDenialChain(origin, ttl, param);
+    chain.build(zone, new ArrayList<>(names));
+    return chain;
+  }
+
+  /** Builds a new chain of the same kind, with the same parameters, over the zone. */
+  ZoneDenialChain rebuild(Zone zone) {
+    removeAll(zone);
+    return param == null ? nsec(zone) : nsec3(zone, param.getIterations(), param.getSalt());
+  }
+
+  /** The TTL of NSEC and NSEC3 records (RFC 9077). */
+  private static long ttl(SOARecord soa) {
+    return Math.min(soa.getTTL(), soa.getMinimum());
+  }
+
+  private void build(Zone zone, List<Name> names) {
+    // computing the type bitmaps and hashing the names only reads the zone
+    Name[] candidates = names.toArray(new Name[0]);
+    int[][] types = new int[candidates.length][];
+    Arrays.parallelSetAll(types, i -> types(zone, candidates[i]));
+    Name[] owners = new Name[candidates.length];
+    Arrays.parallelSetAll(owners, i -> types[i] == null ? null : owner(candidates[i]));
+
+    TreeMap<Name, int[]> chain = new TreeMap<>();
+    for (int i = 0; i < candidates.length; i++) {
+      if (owners[i] != null) {
+        chain.put(owners[i], types[i]);
+      }
+    }
+
+    List<Name> sorted = new ArrayList<>(chain.keySet());
+    for (int i = 0; i < sorted.size(); i++) {
+      Name owner = sorted.get(i);
+      put(zone, record(owner, sorted.get((i + 1) % sorted.size()), chain.get(owner)));
+    }
+  }
+
+  /**
+   * Updates the chain after an RRset of the zone changed.
+   *
+   * @param name The owner name of the RRset.
+   * @param type The type of the RRset.
+   */
+  void update(Zone zone, Name name, int type) {
+    if (type == Type.NSEC || type == Type.NSEC3 || type == Type.NSEC3PARAM) {
+      return;
+    }
+
+    NavigableSet<Name> affected = new TreeSet<>();
+    affected.add(name);
+    if ((type == Type.NS && !name.equals(origin)) || type == Type.DNAME) {
+      // the names below are now occluded, or no longer
+      for (Name below : zone.namesBelowWithoutLock(name)) {
+        affected.add(below);
+        if (param != null) {
+          for (int i = 1; i < below.labels() - name.labels(); i++) {
+            affected.add(new Name(below, i));
+          }
+        }
+      }
+    }
+
+    if (param != null) {
+      for (int i = 1; i < name.labels() - origin.labels(); i++) {
+        affected.add(new Name(name, i));
+      }
+    }
+
+    for (Name n : affected) {
+      updateName(zone, n);
+    }
+  }
+
+  private void updateName(Zone zone, Name name) {
+    int[] types = types(zone, name);
+    Name owner = owner(name);
+    Record current = records.get(owner);
+    if (types == null) {
+      if (current != null) {
+        unlink(zone, owner, current);
+      }
+    } else if (current == null) {
+      link(zone, owner, types);
+    } else if (!Arrays.equals(types, types(current))) {
+      put(zone, record(owner, next(current), types));
+    }
+  }
+
+  private void link(Zone zone, Name owner, int[] types) {
+    if (records.isEmpty()) {
+      put(zone, record(owner, owner, types));
+      return;
+    }
+
+    Record previous = previous(owner);
+    put(zone, record(owner, next(previous), types));
+    put(zone, withNext(previous, owner));
+  }
+
+  private void unlink(Zone zone, Name owner, Record current) {
+    records.remove(owner);
+    zone.removeChainRecordWithoutLock(owner, current.getType());
+    if (!records.isEmpty()) {
+      put(zone, withNext(previous(owner), next(current)));
+    }
+  }
+
+  /** Gets the record before the owner name, wrapping around at the start of the chain. */
+  private Record previous(Name owner) {
+    Map.Entry<Name, Record> previous = records.lowerEntry(owner);
+    return previous != null ? previous.getValue() : records.lastEntry().getValue();
+  }
+
+  private void put(Zone zone, Record r) {
+    records.put(r.getName(), r);
+    zone.putChainRecordWithoutLock(r);
+  }
+
+  /**
+   * Gets the type bitmap of the chain record for a name, or {@code null} if the name is not part of
+   * the chain.
+   */
+  private int[] types(Zone zone, Name name) {
+    if (!name.subdomain(origin) || isOccluded(zone, name)) {
+      return null;
+    }
+
+    List<Integer> types = new ArrayList<>();
+    for (int type : zone.typesWithoutLock(name)) {
+      if (type != Type.NSEC && type != Type.NSEC3 && type != Type.RRSIG) {
+        types.add(type);
+      }
+    }
+
+    if (types.isEmpty()) {
+      // an empty non-terminal
+      return param != null && zone.hasNamesBelowWithoutLock(name) ? new int[0] : null;
+    }
+
+    if (param == null) {
+      types.add(Type.NSEC);
+      types.add(Type.RRSIG);
+    } else if (name.equals(origin) || !types.contains(Type.NS) || types.contains(Type.DS)) {
+      // only the RRsets of insecure delegations are not signed
+      types.add(Type.RRSIG);
+    }
+
+    Collections.sort(types);
+    return types.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /** Checks if the name is below a delegation or a DNAME. */
+  private boolean isOccluded(Zone zone, Name name) {
+    for (int i = 1; i < name.labels() - origin.labels(); i++) {
+      for (int type : zone.typesWithoutLock(new Name(name, i))) {
+        if (type == Type.NS || type == Type.DNAME) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  private Name owner(Name name) {
+    if (param == null) {
+      return name;
+    }
+
+    try {
+      return new Name(b32.toString(param.hashName(name)), origin);
+    } catch (NoSuchAlgorithmException | TextParseException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] hash(Name owner) {
+    return b32.fromString(owner.getLabelString(0));
+  }
+
+  private Record record(Name owner, Name next, int[] types) {
+    if (param == null) {
+      return new NSECRecord(owner, DClass.IN, ttl, next, types);
+    }
+
+    return new NSEC3Record(
+        owner,
+        DClass.IN,
+        ttl,
+        param.getHashAlgorithm(),
+        0,
+        param.getIterations(),
+        param.getSalt(),
+        hash(next),
+        types);
+  }
+
+  private Record withNext(Record r, Name next) {
+    return record(r.getName(), next, types(r));
+  }
+
+  private Name next(Record r) {
+    if (r instanceof NSECRecord) {
+      return ((NSECRecord) r).getNext();
+    }
+
+    try {
+      return new Name(b32.toString(((NSEC3Record) r).getNext()), origin);
+    } catch (TextParseException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static int[] types(Record r) {
+    return r instanceof NSECRecord ? ((NSECRecord) r).getTypes() : ((NSEC3Record) r).getTypes();
+  }
+}
@@ -0,0 +1,303 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Computes and verifies message digests of zones (ZONEMD) with the {@link
+ * ZoneMDRecord.Scheme#SIMPLE SIMPLE} scheme.
+ *
+ * <p>The records are canonicalized and hashed while walking one version of the (already sorted)
+ * data of the zone, without a sorted copy of the zone. To verify a zone transfer, load it with
+ * {@link Zone#Zone(ZoneTransferIn)} and call {@link #verify(Zone)}.
+ *
+ * <p>The SIMPLE scheme hashes all records with a single digest, which cannot be split. The parallel
+ * variants canonicalize partitions of the zone on a {@link ForkJoinPool} and feed them to the
+ * digest in order, while a bounded number of partitions ahead are canonicalized.
+ *
+ * @see <a href="https://datatracker.ietf.org/doc/html/rfc8976">RFC 8976</a>
+ * @since 3.6.5
+ */
+@UtilityClass
+public class ZoneDigest {
+  /** Names per partition in the parallel mode. */
+  private static final int PARTITION_SIZE = 1024;
+
+  private static final ThreadLocal<Canonicalizer> CANONICALIZER =
+      ThreadLocal.withInitial(Canonicalizer::new);
+
+  /**
+   * Computes the digest of a zone.
+   *
+   * @param zone The zone to hash.
+   * @param hashAlgorithm The hash algorithm, see {@link ZoneMDRecord.Hash}.
+   * @return The digest.
+   * @throws NoSuchAlgorithmException if the hash algorithm is not supported.
+   */
+  public static byte[] digest(Zone zone, int hashAlgorithm) throws NoSuchAlgorithmException {
+    MessageDigest digest = messageDigest(hashAlgorithm);
+    Zone.Version version = zone.snapshot();
+    Canonicalizer canonicalizer = CANONICALIZER.get();
+    try {
+      for (Name name : version.names()) {
+        DNSOutput out = canonicalizer.write(zone.getOrigin(), version, name);
+        digest.update(out.array(), 0, out.current());
+      }
+    } finally {
+      canonicalizer.release();
+    }
+
+    return digest.digest();
+  }
+
+  /**
+   * Computes the digest of a zone, canonicalizing the records in parallel.
+   *
+   * @param zone The zone to hash.
+   * @param hashAlgorithm The hash algorithm, see {@link ZoneMDRecord.Hash}.
+   * @param pool The pool to canonicalize the records on.
+   * @return The digest.
+   * @throws NoSuchAlgorithmException if the hash algorithm is not supported.
+   */
+  public static byte[] digest(Zone zone, int hashAlgorithm, ForkJoinPool pool)
+      throws NoSuchAlgorithmException {
+    MessageDigest digest = messageDigest(hashAlgorithm);
+    Zone.Version version = zone.snapshot();
+    List<Name> names = new ArrayList<>(version.names());
+    int window = 2 * pool.getParallelism();
+    Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>(window);
+    int next = 0;
+    while (next < names.size() || !pending.isEmpty()) {
+      while (next < names.size() && pending.size() < window) {
+        List<Name> partition = names.subList(next, Math.min(names.size(), next + PARTITION_SIZE));
+        pending.add(pool.submit(() -> canonicalize(zone.getOrigin(), version, partition)));
+        next += partition.size();
+      }
+
+      digest.update(pending.remove().join());
+    }
+
+    return digest.digest();
+  }
+
+  private static byte[] canonicalize(Name origin, Zone.Version version, List<Name> names) {
+    DNSOutput partition = new DNSOutput();
+    Canonicalizer canonicalizer = CANONICALIZER.get();
+    try {
+      for (Name name : names) {
+        DNSOutput out = canonicalizer.write(origin, version, name);
+        partition.writeByteArray(out.array(), 0, out.current());
+      }
+    } finally {
+      canonicalizer.release();
+    }
+
+    return partition.toByteArray();
+  }
+
+  /**
+   * Creates a ZONEMD record for the zone apex. The zone must already contain a ZONEMD record with
+   * the same parameters if it is signed afterwards, as the presence of the ZONEMD type at the apex
+   * is part of the NSEC or NSEC3 records and thus of the digest.
+   *
+   * @param zone The zone to hash.
+   * @param hashAlgorithm The hash algorithm, see {@link ZoneMDRecord.Hash}.
+   * @return The ZONEMD record with the serial and TTL of the zone's SOA.
+   * @throws NoSuchAlgorithmException if the hash algorithm is not supported.
+   */
+  public static ZoneMDRecord create(Zone zone, int hashAlgorithm) throws NoSuchAlgorithmException {
+    SOARecord soa = zone.getSOA();
+    return new ZoneMDRecord(
+        zone.getOrigin(),
+        DClass.IN,
+        soa.getTTL(),
+        soa.getSerial(),
+        ZoneMDRecord.Scheme.SIMPLE,
+        hashAlgorithm,
+        digest(zone, hashAlgorithm));
+  }
+
+  /**
+   * Verifies the zone against the ZONEMD records at its apex.
+   *
+   * @param zone The zone to verify.
+   * @return {@code true} if one of the ZONEMD records with the SOA serial and a supported scheme
+   *     and hash algorithm matches the digest of the zone, {@code false} otherwise (including if
+   *     there is no such record).
+   */
+  public static boolean verify(Zone zone) {
+    return verify(zone, null);
+  }
+
+  /**
+   * Verifies the zone against the ZONEMD records at its apex, canonicalizing the records in
+   * parallel.
+   *
+   * @param zone The zone to verify.
+   * @param pool The pool to canonicalize the records on.
+   * @return {@code true} if one of the ZONEMD records with the SOA serial and a supported scheme
+   *     and hash algorithm matches the digest of the zone, {@code false} otherwise (including if
+   *     there is no such record).
+   */
+  public static boolean verify(Zone zone, ForkJoinPool pool) {
+    RRset zonemd = zone.findExactMatch(zone.getOrigin(), Type.ZONEMD);
+    if (zonemd == null) {
+      return false;
+    }
+
+    long serial = zone.getSOA().getSerial();
+    for (Record r : zonemd.rrs(false)) {
+      ZoneMDRecord record = (ZoneMDRecord) r;
+      if (record.getSerial() != serial
+          || record.getScheme() != ZoneMDRecord.Scheme.SIMPLE
+          || ZoneMDRecord.Hash.hashLength(record.getHashAlgorithm()) < 0) {
+        continue;
+      }
+
+      try {
+        byte[] digest =
+            pool == null
+                ? digest(zone, record.getHashAlgorithm())
+                : digest(zone, record.getHashAlgorithm(), pool);
+        if (MessageDigest.isEqual(digest, record.getDigest())) {
+          return true;
+        }
+      } catch (NoSuchAlgorithmException e) {
+        // try the next record
+      }
+    }
+
+    return false;
+  }
+
+  private static MessageDigest messageDigest(int hashAlgorithm) throws NoSuchAlgorithmException {
+    switch (hashAlgorithm) {
+      case ZoneMDRecord.Hash.SHA384:
+        return MessageDigest.getInstance("SHA-384");
+      case ZoneMDRecord.Hash.SHA512:
+        return MessageDigest.getInstance("SHA-512");
+      default:
+        throw new NoSuchAlgorithmException(
+            "Unknown ZONEMD hash algorithm " + ZoneMDRecord.Hash.string(hashAlgorithm));
+    }
+  }
+
+  /**
+   * Writes the records of a name in the order of the SIMPLE scheme: by type, then by canonical
+   * RDATA. The ZONEMD RRset at the apex and its signatures are excluded.
+   */
+  private static class Canonicalizer {
+    private final DNSOutput out = new DNSOutput();
+    private final DNSOutput scratch = new DNSOutput();
+    private final List<Record> records = new ArrayList<>();
+    private int[] offsets = new int[16];
+    private Integer[] order = new Integer[16];
+
+    DNSOutput write(Name origin, Zone.Version version, Name name) {
+      out.jump(0);
+      boolean apex = name.equals(origin);
+      List<RRset> rrsets = new ArrayList<>(version.rrsets(name));
+      rrsets.sort((a, b) -> Integer.compare(a.getType(), b.getType()));
+
+      boolean sigsWritten = false;
+      for (RRset rrset : rrsets) {
+        if (!sigsWritten && rrset.getType() > Type.RRSIG) {
+          writeSignatures(rrsets, apex);
+          sigsWritten = true;
+        }
+
+        if (apex && rrset.getType() == Type.ZONEMD) {
+          continue;
+        }
+
+        records.addAll(rrset.rrs(false));
+        writeSorted();
+      }
+
+      if (!sigsWritten) {
+        writeSignatures(rrsets, apex);
+      }
+
+      return out;
+    }
+
+    private void writeSignatures(List<RRset> rrsets, boolean apex) {
+      for (RRset rrset : rrsets) {
+        for (RRSIGRecord sig : rrset.sigs()) {
+          if (!apex || sig.getTypeCovered() != Type.ZONEMD) {
+            records.add(sig);
+          }
+        }
+      }
+
+      writeSorted();
+    }
+
+    /** Writes the collected records of one type, sorted by their canonical RDATA. */
+    private void writeSorted() {
+      int count = records.size();
+      if (count == 0) {
+        return;
+      }
+
+      if (offsets.length < count * 2 + 1) {
+        offsets = new int[count * 2 + 1];
+        order = new Integer[count];
+      }
+
+      // the record starts at offsets[2i], its RDATA at offsets[2i+1]; the RDATA ends where the
+      // next record starts
+      scratch.jump(0);
+      for (int i = 0; i < count; i++) {
+        offsets[2 * i] = scratch.current();
+        records.get(i).toWireCanonical(scratch, false);
+        offsets[2 * i + 1] = offsets[2 * i] + records.get(i).getName().length() + 10;
+        order[i] = i;
+      }
+
+      offsets[2 * count] = scratch.current();
+      byte[] data = scratch.array();
+      if (count > 1) {
+        Arrays.sort(order, 0, count, (a, b) -> compareRdata(data, a, b));
+      }
+
+      for (int i = 0; i < count; i++) {
+        int start = offsets[2 * order[i]];
+        out.writeByteArray(data, start, offsets[2 * order[i] + 2] - start);
+      }
+
+      records.clear();
+    }
+
+    private int compareRdata(byte[] data, int a, int b) {
+      int aStart = offsets[2 * a + 1];
+      int aLength = offsets[2 * a + 2] - aStart;
+      int bStart = offsets[2 * b + 1];
+      int bLength = offsets[2 * b + 2] - bStart;
+      for (int i = 0; i < aLength && i < bLength; i++) {
+        int n = (data[aStart + i] & 0xFF) - (data[bStart + i] & 0xFF);
+        if (n != 0) {
+          return n;
+        }
+      }
+
+      return aLength - bLength;
+    }
+
+    /** Drops buffers that grew large for a big RRset, to not keep them in the thread. */
+    void release() {
+      if (out.array().length > 65536 || scratch.array().length > 65536) {
+        CANONICALIZER.remove();
+      }
+    }
+  }
+}
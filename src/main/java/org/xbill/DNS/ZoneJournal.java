@@ -0,0 +1,453 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records the changes of a {@link Zone} to answer incremental zone transfers (IXFR, <a
+ * href="https://datatracker.ietf.org/doc/html/rfc1995">RFC 1995</a>).
+ *
+ * <p>A delta is recorded whenever a change of the zone, e.g. {@link Zone#addRecord(Record)} or all
+ * changes of one {@link Zone#update(java.util.function.Consumer)}, changes the serial of the SOA.
+ * Changes that do not change the serial are sent with the next delta. Records of the NSEC or NSEC3
+ * chain and signatures are recorded like all other records.
+ *
+ * <p>The journal is bounded by the number of records in its deltas; the oldest deltas are dropped
+ * first. The deltas can be stored in a file instead of the heap, which is read again if the journal
+ * is reopened for the zone at the same serial. If the file cannot be written, the journal stops
+ * recording and all transfers are answered with a full zone transfer.
+ *
+ * @since 3.6.5
+ */
+@Slf4j
+public class ZoneJournal implements Closeable {
+  /** Length, start serial, end serial and number of records of a delta in the file. */
+  private static final int HEADER_SIZE = 16;
+
+  private final Zone zone;
+  private final int maxRecords;
+  private final FileChannel file;
+  private final Deque<Delta> deltas = new ArrayDeque<>();
+
+  /** The names changed since {@link #base}, only used while holding the zone's write lock. */
+  private final Set<Name> changed = new TreeSet<>();
+
+  /** The version of the zone at the end serial of the last delta. */
+  private Zone.Version base;
+
+  private int records;
+  private long fileEnd;
+
+  /** Whether writing the file failed, the journal then only follows the zone's versions. */
+  private boolean failed;
+
+  /**
+   * Creates a journal that keeps the deltas on the heap and starts recording changes of the zone.
+   *
+   * @param zone The zone to record.
+   * @param maxRecords The maximum number of records in all deltas.
+   */
+  public ZoneJournal(Zone zone, int maxRecords) {
+    this.zone = zone;
+    this.maxRecords = maxRecords;
+    file = null;
+    base = zone.setJournal(this);
+  }
+
+  /**
+   * Creates a journal that keeps the deltas in a file and starts recording changes of the zone. If
+   * the file contains the deltas of an earlier journal that end at the current serial of the zone,
+   * these are kept.
+   *
+   * @param zone The zone to record.
+   * @param maxRecords The maximum number of records in all deltas.
+   * @param path The file to store the deltas in.
+   * @throws IOException if the file cannot be opened or read.
+   */
+  public ZoneJournal(Zone zone, int maxRecords, Path path) throws IOException {
+    this.zone = zone;
+    this.maxRecords = maxRecords;
+    file =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      readFile(zone.getSOA().getSerial());
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+
+    base = zone.setJournal(this);
+  }
+
+  /**
+   * Gets the records of a zone transfer from the specified serial to the current serial. This is an
+   * IXFR if the serial is in the journal and a full zone transfer (AXFR) otherwise. If the serial
+   * is not older than the current one, only the SOA is returned.
+   *
+   * @param serial The serial of the zone the client has.
+   * @return The records in the order they are sent in the answer section of the response.
+   */
+  public Iterator<Record> IXFR(long serial) {
+    List<Delta> ixfr = new ArrayList<>();
+    SOARecord soa;
+    synchronized (this) {
+      soa = base.soa();
+      if (Serial.compare(serial, soa.getSerial()) >= 0) {
+        return Collections.<Record>singletonList(soa).iterator();
+      }
+
+      boolean found = false;
+      for (Delta delta : deltas) {
+        found |= delta.start == serial;
+        if (found) {
+          ixfr.add(delta);
+        }
+      }
+
+      if (ixfr.isEmpty()) {
+        return new AXFRIterator(zone.AXFR());
+      }
+
+      // read the deltas while the file does not change
+      List<Record> transfer = new ArrayList<>();
+      transfer.add(soa);
+      try {
+        for (Delta delta : ixfr) {
+          transfer.addAll(read(delta));
+        }
+      } catch (IOException e) {
+        log.warn("Failed to read the journal, sending AXFR", e);
+        return new AXFRIterator(zone.AXFR());
+      }
+
+      transfer.add(soa);
+      return transfer.iterator();
+    }
+  }
+
+  /** Stops recording changes of the zone and closes the file, if any. */
+  @Override
+  public void close() throws IOException {
+    zone.setJournal(null);
+    if (file != null) {
+      synchronized (this) {
+        file.close();
+      }
+    }
+  }
+
+  /** Called by the zone for each changed name while holding its write lock. */
+  void changed(Name name) {
+    changed.add(name);
+  }
+
+  /** Called by the zone before it publishes a new version, while holding its write lock. */
+  synchronized void commit(Zone.Version next) {
+    SOARecord start = base.soa();
+    SOARecord end = next.soa();
+    if (start.getSerial() == end.getSerial()) {
+      return;
+    }
+
+    if (failed) {
+      base = next;
+      changed.clear();
+      return;
+    }
+
+    List<Record> deletes = new ArrayList<>();
+    List<Record> adds = new ArrayList<>();
+    for (Name name : changed) {
+      diff(base.rrsets(name), next.rrsets(name), deletes);
+      diff(next.rrsets(name), base.rrsets(name), adds);
+    }
+
+    List<Record> delta = new ArrayList<>(deletes.size() + adds.size() + 2);
+    delta.add(start);
+    delta.addAll(deletes);
+    delta.add(end);
+    delta.addAll(adds);
+    try {
+      append(new Delta(start.getSerial(), end.getSerial(), delta));
+    } catch (IOException e) {
+      log.error(
+          "Failed to write the journal of zone {}, answering IXFR with AXFR", zone.getOrigin(), e);
+      disable();
+    }
+
+    base = next;
+    changed.clear();
+  }
+
+  /** Drops all deltas and the contents of the file, which might be incomplete. */
+  private void disable() {
+    failed = true;
+    deltas.clear();
+    records = 0;
+    fileEnd = 0;
+    try {
+      file.truncate(0);
+    } catch (IOException e) {
+      log.debug("Failed to truncate the journal of zone {}", zone.getOrigin(), e);
+    }
+  }
+
+  /** Adds the records of {@code from} that are not identical in {@code to}, except the SOA. */
+  private static void diff(List<RRset> from, List<RRset> to, List<Record> result) {
+    for (RRset set : from) {
+      RRset other = null;
+      for (RRset candidate : to) {
+        if (candidate.getType() == set.getType()) {
+          other = candidate;
+          break;
+        }
+      }
+
+      if (set.getType() != Type.SOA) {
+        missing(set.rrs(false), other == null ? null : other.rrs(false), result);
+      }
+
+      missing(set.sigs(), other == null ? null : other.sigs(), result);
+    }
+  }
+
+  private static void missing(
+      List<? extends Record> from, List<? extends Record> to, List<Record> result) {
+    for (Record r : from) {
+      boolean found = false;
+      if (to != null) {
+        for (Record o : to) {
+          if (o.equals(r) && o.getTTL() == r.getTTL()) {
+            found = true;
+            break;
+          }
+        }
+      }
+
+      if (!found) {
+        result.add(r);
+      }
+    }
+  }
+
+  private void append(Delta delta) throws IOException {
+    if (file != null) {
+      DNSOutput out = new DNSOutput();
+      out.writeU32(0);
+      out.writeU32(delta.start);
+      out.writeU32(delta.end);
+      out.writeU32(delta.size);
+      for (Record r : delta.records) {
+        r.toWire(out, Section.ANSWER, null);
+      }
+
+      byte[] data = out.toByteArray();
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      buffer.putInt(0, data.length - HEADER_SIZE);
+      long offset = fileEnd;
+      while (buffer.hasRemaining()) {
+        offset += file.write(buffer, offset);
+      }
+
+      delta =
+          new Delta(
+              delta.start, delta.end, delta.size, fileEnd + HEADER_SIZE, data.length - HEADER_SIZE);
+      fileEnd = offset;
+    }
+
+    deltas.add(delta);
+    records += delta.size;
+    while (records > maxRecords && !deltas.isEmpty()) {
+      records -= deltas.removeFirst().size;
+    }
+
+    if (file != null) {
+      compact();
+    }
+  }
+
+  /** Moves the deltas to the start of the file once the dropped ones take more than half of it. */
+  private void compact() throws IOException {
+    long start = deltas.isEmpty() ? fileEnd : deltas.peekFirst().offset - HEADER_SIZE;
+    if (start == 0 || start < fileEnd - start) {
+      return;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    long from = start;
+    long to = 0;
+    while (from < fileEnd) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), fileEnd - from));
+      from += readFully(buffer, from);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        to += file.write(buffer, to);
+      }
+    }
+
+    file.truncate(to);
+    fileEnd = to;
+    Deque<Delta> moved = new ArrayDeque<>(deltas.size());
+    for (Delta delta : deltas) {
+      moved.add(new Delta(delta.start, delta.end, delta.size, delta.offset - start, delta.length));
+    }
+
+    deltas.clear();
+    deltas.addAll(moved);
+  }
+
+  private List<Record> read(Delta delta) throws IOException {
+    if (delta.records != null) {
+      return delta.records;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(delta.length);
+    readFully(buffer, delta.offset);
+    DNSInput in = new DNSInput(buffer.array());
+    List<Record> result = new ArrayList<>(delta.size);
+    for (int i = 0; i < delta.size; i++) {
+      result.add(Record.fromWire(in, Section.ANSWER));
+    }
+
+    return result;
+  }
+
+  private int readFully(ByteBuffer buffer, long position) throws IOException {
+    int total = 0;
+    while (buffer.hasRemaining()) {
+      int n = file.read(buffer, position + total);
+      if (n < 0) {
+        throw new EOFException("Journal ends at " + (position + total));
+      }
+
+      total += n;
+    }
+
+    return total;
+  }
+
+  /**
+   * Reads the index of the deltas in the file. Deltas that do not end at the serial of the zone
+   * cannot be used and are removed.
+   */
+  private void readFile(long serial) throws IOException {
+    long size = file.size();
+    long offset = 0;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    while (offset + HEADER_SIZE <= size) {
+      header.clear();
+      readFully(header, offset);
+      long length = header.getInt(0) & 0xFFFFFFFFL;
+      long start = header.getInt(4) & 0xFFFFFFFFL;
+      long end = header.getInt(8) & 0xFFFFFFFFL;
+      int count = header.getInt(12);
+      if (offset + HEADER_SIZE + length > size
+          || count < 2
+          || (!deltas.isEmpty() && deltas.peekLast().end != start)) {
+        break;
+      }
+
+      deltas.add(new Delta(start, end, count, offset + HEADER_SIZE, (int) length));
+      records += count;
+      offset += HEADER_SIZE + length;
+    }
+
+    if (deltas.isEmpty() || deltas.peekLast().end != serial) {
+      log.debug("Journal does not end at serial {}, discarding it", serial);
+      deltas.clear();
+      records = 0;
+      offset = 0;
+    }
+
+    file.truncate(offset);
+    fileEnd = offset;
+    while (records > maxRecords && !deltas.isEmpty()) {
+      records -= deltas.removeFirst().size;
+    }
+
+    compact();
+  }
+
+  private static final class Delta {
+    private final long start;
+    private final long end;
+
+    /** The number of records, including both SOA records. */
+    private final int size;
+
+    /** The records, or {@code null} if they are in the file. */
+    private final List<Record> records;
+
+    private final long offset;
+    private final int length;
+
+    Delta(long start, long end, List<Record> records) {
+      this.start = start;
+      this.end = end;
+      this.size = records.size();
+      this.records = records;
+      offset = 0;
+      length = 0;
+    }
+
+    Delta(long start, long end, int size, long offset, int length) {
+      this.start = start;
+      this.end = end;
+      this.size = size;
+      records = null;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /** The records of the RRsets of an AXFR, without the signatures of the final SOA. */
+  private static final class AXFRIterator implements Iterator<Record> {
+    private final Iterator<RRset> rrsets;
+    private Iterator<? extends Record> records = Collections.emptyIterator();
+    private Iterator<? extends Record> sigs = Collections.emptyIterator();
+
+    AXFRIterator(Iterator<RRset> rrsets) {
+      this.rrsets = rrsets;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return records.hasNext() || sigs.hasNext() || rrsets.hasNext();
+    }
+
+    @Override
+    public Record next() {
+      if (records.hasNext()) {
+        return records.next();
+      } else if (sigs.hasNext()) {
+        return sigs.next();
+      } else if (!rrsets.hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      RRset rrset = rrsets.next();
+      records = rrset.rrs(false).iterator();
+      // the transfer ends with the SOA record itself
+      sigs = rrsets.hasNext() ? rrset.sigs().iterator() : Collections.emptyIterator();
+      return next();
+    }
+  }
+}
@@ -0,0 +1,277 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import java.security.PrivateKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Signs all authoritative {@link RRset RRsets} of a {@link Zone}. The signatures are computed in
+ * parallel on a {@link ForkJoinPool} and then added to the zone at once, replacing signatures of
+ * the same keys.
+ *
+ * <p>If both key signing keys (with the {@link DNSKEYRecord.Flags#SEP_KEY SEP} flag) and zone
+ * signing keys are added, the key signing keys sign the DNSKEY, CDNSKEY and CDS RRsets and the zone
+ * signing keys sign all others. Otherwise, all keys sign all RRsets.
+ *
+ * <p>At delegations, only the DS and NSEC RRsets are signed. Glue and other names below a
+ * delegation or a DNAME are not signed.
+ *
+ * @since 3.6.5
+ */
+public class ZoneSigner {
+  /** RRsets per fork-join task that are signed without splitting the task further. */
+  private static final int SEQUENTIAL_THRESHOLD = 16;
+
+  private final List<DNSKEYRecord> keys = new ArrayList<>();
+  private final List<PrivateKey> privateKeys = new ArrayList<>();
+  private final ForkJoinPool pool;
+
+  /** The start of the validity period of the signatures. */
+  @Getter @Setter private Instant inception;
+
+  /** The end of the validity period of the signatures. */
+  @Getter @Setter private Instant expiration;
+
+  /** The JCA provider to sign with, or {@code null} to use the default provider. */
+  @Getter @Setter private String provider;
+
+  /**
+   * Creates a signer that uses the {@link ForkJoinPool#commonPool() common pool}.
+   *
+   * @param inception The start of the validity period of the signatures.
+   * @param expiration The end of the validity period of the signatures.
+   */
+  public ZoneSigner(Instant inception, Instant expiration) {
+    this(inception, expiration, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a signer.
+   *
+   * @param inception The start of the validity period of the signatures.
+   * @param expiration The end of the validity period of the signatures.
+   * @param pool The pool to compute the signatures on.
+   */
+  public ZoneSigner(Instant inception, Instant expiration, ForkJoinPool pool) {
+    this.inception = inception;
+    this.expiration = expiration;
+    this.pool = pool;
+  }
+
+  /**
+   * Adds a key to sign with.
+   *
+   * @param key The public key, which must be in the zone's DNSKEY RRset to validate the signatures.
+   * @param privateKey The private key of {@code key}.
+   * @return {@code this}.
+   */
+  public ZoneSigner addKey(DNSKEYRecord key, PrivateKey privateKey) {
+    keys.add(key);
+    privateKeys.add(privateKey);
+    return this;
+  }
+
+  /**
+   * Signs all authoritative RRsets of the zone. RRsets that are changed while they are signed are
+   * signed again.
+   *
+   * @param zone The zone to sign.
+   * @return The number of signatures that were created, including those of RRsets that were signed
+   *     again.
+   * @throws IllegalArgumentException if no key was added or a key is not owned by the zone origin.
+   * @throws DNSSEC.DNSSECException if an RRset could not be signed.
+   */
+  public int sign(Zone zone) throws DNSSEC.DNSSECException {
+    if (keys.isEmpty()) {
+      throw new IllegalArgumentException("no keys to sign with");
+    }
+
+    for (DNSKEYRecord key : keys) {
+      if (!key.getName().equals(zone.getOrigin())) {
+        throw new IllegalArgumentException(
+            "key " + key.getName() + " is not owned by the zone origin " + zone.getOrigin());
+      }
+    }
+
+    boolean splitKeys = false;
+    for (DNSKEYRecord key : keys) {
+      splitKeys |= isKeySigningKey(key) != isKeySigningKey(keys.get(0));
+    }
+
+    int count = 0;
+    List<RRset> rrsets = authoritativeRRsets(zone.getOrigin(), zone.copyRRsets());
+    while (!rrsets.isEmpty()) {
+      RRset[] signed = new RRset[rrsets.size()];
+      try {
+        pool.invoke(new SignTask(rrsets, signed, splitKeys, 0, rrsets.size()));
+      } catch (SignException e) {
+        throw e.getCause();
+      }
+
+      for (int i = 0; i < rrsets.size(); i++) {
+        count += signed[i].sigSize() - rrsets.get(i).sigSize() + ownSignatures(rrsets.get(i));
+      }
+
+      rrsets = zone.replaceRRsets(rrsets, Arrays.asList(signed));
+    }
+
+    return count;
+  }
+
+  /** Gets the RRsets that are signed by the zone: not below a zone cut or DNAME, no glue. */
+  private static List<RRset> authoritativeRRsets(Name origin, List<RRset> rrsets) {
+    Set<Name> delegations = new HashSet<>();
+    Set<Name> dnames = new HashSet<>();
+    for (RRset rrset : rrsets) {
+      if (rrset.getType() == Type.NS && !rrset.getName().equals(origin)) {
+        delegations.add(rrset.getName());
+      } else if (rrset.getType() == Type.DNAME) {
+        dnames.add(rrset.getName());
+      }
+    }
+
+    List<RRset> authoritative = new ArrayList<>(rrsets.size());
+    for (RRset rrset : rrsets) {
+      Name name = rrset.getName();
+      if (isBelow(name, origin, delegations) || isBelow(name, origin, dnames)) {
+        continue;
+      }
+
+      int type = rrset.getType();
+      if (delegations.contains(name) && type != Type.DS && type != Type.NSEC) {
+        continue;
+      }
+
+      authoritative.add(rrset);
+    }
+
+    return authoritative;
+  }
+
+  /** Checks if one of the names between {@code name} (exclusive) and the origin is in the set. */
+  private static boolean isBelow(Name name, Name origin, Set<Name> names) {
+    if (names.isEmpty()) {
+      return false;
+    }
+
+    int depth = name.labels() - origin.labels();
+    for (int i = 1; i < depth; i++) {
+      if (names.contains(new Name(name, i))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean isKeySigningKey(DNSKEYRecord key) {
+    return (key.getFlags() & DNSKEYRecord.Flags.SEP_KEY) != 0;
+  }
+
+  private boolean signsWith(DNSKEYRecord key, int type, boolean splitKeys) {
+    if (!splitKeys) {
+      return true;
+    }
+
+    boolean keyset = type == Type.DNSKEY || type == Type.CDNSKEY || type == Type.CDS;
+    return isKeySigningKey(key) == keyset;
+  }
+
+  private boolean isOwnSignature(RRSIGRecord sig) {
+    for (DNSKEYRecord key : keys) {
+      if (sig.getAlgorithm() == key.getAlgorithm() && sig.getFootprint() == key.getFootprint()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private int ownSignatures(RRset rrset) {
+    int own = 0;
+    for (RRSIGRecord sig : rrset.sigs()) {
+      if (isOwnSignature(sig)) {
+        own++;
+      }
+    }
+
+    return own;
+  }
+
+  private RRset sign(RRset rrset, boolean splitKeys) throws DNSSEC.DNSSECException {
+    RRset signed = new RRset();
+    for (Record r : rrset.rrs(false)) {
+      signed.addRR(r);
+    }
+
+    for (RRSIGRecord sig : rrset.sigs()) {
+      if (!isOwnSignature(sig)) {
+        signed.addRR(sig);
+      }
+    }
+
+    for (int i = 0; i < keys.size(); i++) {
+      DNSKEYRecord key = keys.get(i);
+      if (signsWith(key, rrset.getType(), splitKeys)) {
+        signed.addRR(DNSSEC.sign(rrset, key, privateKeys.get(i), inception, expiration, provider));
+      }
+    }
+
+    return signed;
+  }
+
+  private static class SignException extends RuntimeException {
+    SignException(DNSSEC.DNSSECException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized DNSSEC.DNSSECException getCause() {
+      return (DNSSEC.DNSSECException) super.getCause();
+    }
+  }
+
+  private class SignTask extends RecursiveAction {
+    private final List<RRset> rrsets;
+    private final RRset[] signed;
+    private final boolean splitKeys;
+    private final int from;
+    private final int to;
+
+    SignTask(List<RRset> rrsets, RRset[] signed, boolean splitKeys, int from, int to) {
+      this.rrsets = rrsets;
+      this.signed = signed;
+      this.splitKeys = splitKeys;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SEQUENTIAL_THRESHOLD) {
+        try {
+          for (int i = from; i < to; i++) {
+            signed[i] = sign(rrsets.get(i), splitKeys);
+          }
+        } catch (DNSSEC.DNSSECException e) {
+          throw new SignException(e);
+        }
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(
+          new SignTask(rrsets, signed, splitKeys, from, middle),
+          new SignTask(rrsets, signed, splitKeys, middle, to));
+    }
+  }
+}
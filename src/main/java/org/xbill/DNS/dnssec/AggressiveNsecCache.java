@@ -0,0 +1,521 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Header;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.NSECRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.NameTooLongException;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+import org.xbill.DNS.utils.base32;
+
+/**
+ * Cache of validated NSEC and NSEC3 records for the aggressive use of DNSSEC-validated denial of
+ * existence (<a href="https://datatracker.ietf.org/doc/html/rfc8198">RFC 8198</a>).
+ *
+ * <p>The records of a secure NXDOMAIN or NODATA response are stored per zone, sorted by owner name
+ * (NSEC) or hash (NSEC3), together with the SOA record of the zone. A query for a name that falls
+ * into a cached range is then answered from the cache if the same proofs that are used to validate
+ * a response from upstream prove the name error or the absence of the type.
+ *
+ * @since 3.6.5
+ */
+@Slf4j
+final class AggressiveNsecCache {
+  /** Name of the property that enables the aggressive use of NSEC and NSEC3 records. */
+  public static final String ENABLED_CONFIG = "dnsjava.dnssec.aggressive_nsec";
+
+  /** Name of the property that configures the maximum number of cached NSEC(3) RRsets. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "dnsjava.dnssec.aggressive_nsec.max_size";
+
+  private static final int DEFAULT_MAX_CACHE_SIZE = 10_000;
+
+  /** Maximum number of names that are hashed to find the NSEC3 records for a query. */
+  private static final int MAX_NSEC3_CALCULATIONS = 8;
+
+  private static final Name WILDCARD = Name.fromConstantString("*");
+  private static final base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, false);
+  private static final Comparator<Entry> EXPIRATION_ORDER =
+      Comparator.comparing(entry -> entry.expiration);
+
+  private final Map<Name, Zone> zones = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final Clock clock;
+  private final NSEC3ValUtils n3valUtils;
+
+  private volatile boolean enabled;
+
+  /** This is the maximum number of NSEC(3) RRsets that the cache will hold. */
+  private volatile int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+  /** The number of NSEC(3) RRsets in the cache, only modified while holding the lock. */
+  private int size;
+
+  /**
+   * The NSEC(3) entries ordered by expiration, only used while holding the lock. Entries that were
+   * replaced or removed stay in the queue until they reach the head or the queue is rebuilt.
+   */
+  private PriorityQueue<Entry> expiryQueue = new PriorityQueue<>(EXPIRATION_ORDER);
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param clock The clock to use for cache eviction.
+   * @param n3valUtils The NSEC3 utilities to prove the non-existence with.
+   */
+  AggressiveNsecCache(Clock clock, NSEC3ValUtils n3valUtils) {
+    this.clock = clock;
+    this.n3valUtils = n3valUtils;
+  }
+
+  /**
+   * Initialize the cache. This implementation recognizes the following configuration parameters:
+   *
+   * <dl>
+   *   <dt>{@value #ENABLED_CONFIG}
+   *   <dd>If {@code true}, queries are answered from validated NSEC and NSEC3 records. Defaults to
+   *       {@code false}.
+   *   <dt>{@value #MAX_CACHE_SIZE_CONFIG}
+   *   <dd>The maximum number of NSEC and NSEC3 RRsets that the cache will hold.
+   * </dl>
+   *
+   * @param config The configuration information.
+   */
+  public synchronized void init(Properties config) {
+    enabled = Boolean.parseBoolean(config.getProperty(ENABLED_CONFIG, Boolean.toString(enabled)));
+    maxCacheSize =
+        Integer.parseInt(
+            config.getProperty(MAX_CACHE_SIZE_CONFIG, Integer.toString(DEFAULT_MAX_CACHE_SIZE)));
+    if (!enabled || maxCacheSize <= 0) {
+      zones.clear();
+      expiryQueue.clear();
+      size = 0;
+    }
+  }
+
+  /**
+   * Stores the NSEC or NSEC3 records of a validated response.
+   *
+   * @param request The request that generated the response.
+   * @param response The response, only secure NXDOMAIN and NODATA responses are considered.
+   */
+  void store(Message request, SMessage response) {
+    if (!enabled || maxCacheSize <= 0 || response.getStatus() != SecurityStatus.SECURE) {
+      return;
+    }
+
+    ResponseClassification subtype = ValUtils.classifyResponse(request, response);
+    if (subtype != ResponseClassification.NAMEERROR && subtype != ResponseClassification.NODATA) {
+      return;
+    }
+
+    List<SRRset> authority = response.getSectionRRsets(Section.AUTHORITY);
+    SRRset soa =
+        authority.stream()
+            .filter(set -> set.getType() == Type.SOA && set.getName().equals(set.getSignerName()))
+            .findFirst()
+            .orElse(null);
+    if (soa == null) {
+      return;
+    }
+
+    // RFC 8198, 5.4: the negative cache TTL of the zone also limits the NSEC(3) TTLs
+    SOARecord soaRecord = (SOARecord) soa.first();
+    long negativeTtl = Math.min(soaRecord.getTTL(), soaRecord.getMinimum());
+    Instant now = clock.instant();
+    Name zoneName = soa.getName();
+    synchronized (this) {
+      Zone zone = zones.computeIfAbsent(zoneName, k -> new Zone(k, soa.getDClass()));
+      if (zone.dclass != soa.getDClass()) {
+        return;
+      }
+
+      zone.soa = new Entry(zone, soa, expiration(soa, soa.getTTL(), now), null);
+      for (SRRset set : authority) {
+        if (!zoneName.equals(set.getSignerName()) || !set.getName().equals(set.first().getName())) {
+          // from another zone, or the NSEC of a wildcard expansion
+          continue;
+        }
+
+        Instant expiration = expiration(set, Math.min(set.getTTL(), negativeTtl), now);
+        if (set.getType() == Type.NSEC) {
+          Entry entry = new Entry(zone, set, expiration, null);
+          if (zone.nsecs.put(set.getName(), entry) == null) {
+            size++;
+          }
+
+          trackExpiration(entry);
+        } else if (set.getType() == Type.NSEC3) {
+          storeNsec3(zone, set, expiration);
+        }
+      }
+
+      evict();
+    }
+  }
+
+  private void storeNsec3(Zone zone, SRRset set, Instant expiration) {
+    byte[] hash = b32.fromString(set.getName().getLabelString(0));
+    if (hash == null) {
+      return;
+    }
+
+    NSEC3Record nsec3 = (NSEC3Record) set.first();
+    NSEC3Record params = zone.nsec3Params;
+    if (params == null
+        || params.getHashAlgorithm() != nsec3.getHashAlgorithm()
+        || params.getIterations() != nsec3.getIterations()
+        || !Arrays.equals(params.getSalt(), nsec3.getSalt())) {
+      // new parameters, the hashes of the old chain are useless
+      size -= zone.nsec3s.size();
+      zone.nsec3s.clear();
+      zone.nsec3Params = nsec3;
+    }
+
+    Entry entry = new Entry(zone, set, expiration, hash);
+    if (zone.nsec3s.put(hash, entry) == null) {
+      size++;
+    }
+
+    trackExpiration(entry);
+  }
+
+  private void trackExpiration(Entry entry) {
+    expiryQueue.add(entry);
+    if (expiryQueue.size() > 2 * size + 64) {
+      // drop the entries that were replaced or removed in the meantime
+      PriorityQueue<Entry> queue = new PriorityQueue<>(Math.max(16, size), EXPIRATION_ORDER);
+      for (Entry e : expiryQueue) {
+        if (e.zone.isCurrent(e)) {
+          queue.add(e);
+        }
+      }
+
+      expiryQueue = queue;
+    }
+  }
+
+  private static Instant expiration(SRRset set, long ttl, Instant now) {
+    Instant expiration = now.plus(ttl, ChronoUnit.SECONDS);
+    for (RRSIGRecord sig : set.sigs()) {
+      if (sig.getExpire().isBefore(expiration)) {
+        expiration = sig.getExpire();
+      }
+    }
+
+    return expiration;
+  }
+
+  /**
+   * Removes the entries that expire first (or have already expired) until the cache is no longer
+   * full. The other ranges of their zones stay usable.
+   */
+  private void evict() {
+    Entry head;
+    while (size > maxCacheSize && (head = expiryQueue.poll()) != null) {
+      Zone zone = head.zone;
+      if (zone.remove(head)) {
+        size--;
+        if (zone.isEmpty()) {
+          zones.remove(zone.name, zone);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tries to answer a query from the cached NSEC and NSEC3 records.
+   *
+   * @param query The query to answer.
+   * @return A secure NXDOMAIN or NODATA response, or {@code null} if the query must be sent
+   *     upstream.
+   */
+  Message lookup(Message query) {
+    Record question = query.getQuestion();
+    if (!enabled || zones.isEmpty() || question == null) {
+      return null;
+    }
+
+    // DS records are proven by the parent zone and ANY cannot be denied
+    int qtype = question.getType();
+    if (qtype == Type.DS || qtype == Type.ANY) {
+      return null;
+    }
+
+    Name qname = question.getName();
+    Zone zone = null;
+    for (int strip = 0; zone == null && strip < qname.labels(); strip++) {
+      zone = zones.get(strip == 0 ? qname : new Name(qname, strip));
+    }
+
+    Instant now = clock.instant();
+    if (zone == null
+        || zone.dclass != question.getDClass()
+        || zone.soa == null
+        || zone.soa.isExpired(now)) {
+      return null;
+    }
+
+    Message response = lookupNsec(query, zone, qname, qtype, now);
+    if (response == null) {
+      response = lookupNsec3(query, zone, qname, qtype, now);
+    }
+
+    if (response != null) {
+      log.debug("Answered {}/{} from validated NSEC(3) records", qname, Type.string(qtype));
+      hits.increment();
+    }
+
+    return response;
+  }
+
+  private Message lookupNsec(Message query, Zone zone, Name qname, int qtype, Instant now) {
+    Entry entry = floor(zone.nsecs, qname, now);
+    if (entry == null) {
+      return null;
+    }
+
+    NSECRecord nsec = (NSECRecord) entry.set.first();
+    ValUtils.NsecProvesNodataResponse nodata =
+        ValUtils.nsecProvesNodata(entry.set, nsec, qname, qtype);
+    if (nodata.result && nodata.wc == null) {
+      return response(query, Rcode.NOERROR, zone, now, entry);
+    }
+
+    if (!ValUtils.nsecProvesNameError(entry.set, nsec, qname)) {
+      return null;
+    }
+
+    Name wc;
+    try {
+      wc =
+          Name.concatenate(
+              WILDCARD, ValUtils.closestEncloser(qname, entry.set.getName(), nsec.getNext()));
+    } catch (NameTooLongException e) {
+      return null;
+    }
+
+    Entry wcEntry = floor(zone.nsecs, wc, now);
+    if (wcEntry == null
+        || !ValUtils.nsecProvesNameError(wcEntry.set, (NSECRecord) wcEntry.set.first(), wc)) {
+      return null;
+    }
+
+    return wcEntry == entry
+        ? response(query, Rcode.NXDOMAIN, zone, now, entry)
+        : response(query, Rcode.NXDOMAIN, zone, now, entry, wcEntry);
+  }
+
+  private Message lookupNsec3(Message query, Zone zone, Name qname, int qtype, Instant now) {
+    NSEC3Record params = zone.nsec3Params;
+    if (params == null || zone.nsec3s.isEmpty()) {
+      return null;
+    }
+
+    // Collect the NSEC3s that match or cover the names from qname up to the closest encloser and
+    // let the same proofs that validate responses decide.
+    List<Entry> entries = new ArrayList<>();
+    List<SRRset> nsec3s = new ArrayList<>();
+    Name closestEncloser = null;
+    try {
+      Name name = qname;
+      for (int i = 0; i < MAX_NSEC3_CALCULATIONS && name.subdomain(zone.name); i++) {
+        byte[] hash = hash(params, name);
+        Entry entry = floorNsec3(zone, hash, now);
+        if (entry == null) {
+          return null;
+        }
+
+        addOnce(entries, nsec3s, entry);
+        if (Arrays.equals(entry.hash, hash)) {
+          closestEncloser = name;
+          break;
+        }
+
+        name = new Name(name, 1);
+      }
+
+      if (closestEncloser == null) {
+        return null;
+      }
+
+      Nsec3ValidationState state = new Nsec3ValidationState(n3valUtils.getHashCache());
+      if (closestEncloser.equals(qname)) {
+        JustifiedSecStatus status = n3valUtils.proveNodata(nsec3s, qname, qtype, zone.name, state);
+        return status.status == SecurityStatus.SECURE
+            ? response(query, Rcode.NOERROR, zone, now, entries.toArray(new Entry[0]))
+            : null;
+      }
+
+      Name wc = Name.concatenate(WILDCARD, closestEncloser);
+      Entry wcEntry = floorNsec3(zone, hash(params, wc), now);
+      if (wcEntry == null) {
+        return null;
+      }
+
+      addOnce(entries, nsec3s, wcEntry);
+      return n3valUtils.proveNameError(nsec3s, qname, zone.name, state) == SecurityStatus.SECURE
+          ? response(query, Rcode.NXDOMAIN, zone, now, entries.toArray(new Entry[0]))
+          : null;
+    } catch (NoSuchAlgorithmException | NameTooLongException e) {
+      return null;
+    }
+  }
+
+  private byte[] hash(NSEC3Record params, Name name) throws NoSuchAlgorithmException {
+    return n3valUtils.getHashCache().hash(Nsec3HashCache.key(params, name), params, name);
+  }
+
+  private static void addOnce(List<Entry> entries, List<SRRset> sets, Entry entry) {
+    for (Entry e : entries) {
+      if (e == entry) {
+        return;
+      }
+    }
+
+    entries.add(entry);
+    sets.add(entry.set);
+  }
+
+  private static Entry floor(NavigableMap<Name, Entry> nsecs, Name name, Instant now) {
+    Map.Entry<Name, Entry> floor = nsecs.floorEntry(name);
+    return floor == null || floor.getValue().isExpired(now) ? null : floor.getValue();
+  }
+
+  /** Gets the NSEC3 whose hash is the greatest not greater than the hash, wrapping to the last. */
+  private static Entry floorNsec3(Zone zone, byte[] hash, Instant now) {
+    Map.Entry<byte[], Entry> floor = zone.nsec3s.floorEntry(hash);
+    if (floor == null) {
+      floor = zone.nsec3s.lastEntry();
+    }
+
+    return floor == null || floor.getValue().isExpired(now) ? null : floor.getValue();
+  }
+
+  private static Message response(
+      Message query, int rcode, Zone zone, Instant now, Entry... proof) {
+    Message m = new Message(query.getHeader().getID());
+    Header h = m.getHeader();
+    h.setFlag(Flags.QR);
+    h.setFlag(Flags.RA);
+    h.setFlag(Flags.AD);
+    if (query.getHeader().getFlag(Flags.RD)) {
+      h.setFlag(Flags.RD);
+    }
+
+    h.setRcode(rcode);
+    m.addRecord(query.getQuestion(), Section.QUESTION);
+    addRRset(m, zone.soa, now);
+    for (Entry entry : proof) {
+      addRRset(m, entry, now);
+    }
+
+    return m;
+  }
+
+  /**
+   * Adds the records of an entry with the TTL they have left, as {@link org.xbill.DNS.Cache} does.
+   */
+  private static void addRRset(Message m, Entry entry, Instant now) {
+    long remaining = Math.max(0, ChronoUnit.SECONDS.between(now, entry.expiration));
+    for (Record r : entry.set.rrs(false)) {
+      m.addRecord(withTtl(r, remaining), Section.AUTHORITY);
+    }
+
+    for (RRSIGRecord sig : entry.set.sigs()) {
+      m.addRecord(withTtl(sig, remaining), Section.AUTHORITY);
+    }
+  }
+
+  private static Record withTtl(Record r, long remaining) {
+    if (r.getTTL() <= remaining) {
+      return r;
+    }
+
+    return Record.newRecord(
+        r.getName(), r.getType(), r.getDClass(), remaining, r.rdataToWireCanonical());
+  }
+
+  /** Gets the number of queries that were answered from the cache. */
+  long getHits() {
+    return hits.sum();
+  }
+
+  /** Gets the number of cached NSEC and NSEC3 RRsets. */
+  synchronized int size() {
+    return size;
+  }
+
+  private static final class Zone {
+    private final Name name;
+    private final int dclass;
+    private final NavigableMap<Name, Entry> nsecs = new ConcurrentSkipListMap<>();
+    private final NavigableMap<byte[], Entry> nsec3s =
+        new ConcurrentSkipListMap<>(ByteArrayComparator::compare);
+    private volatile Entry soa;
+    private volatile NSEC3Record nsec3Params;
+
+    Zone(Name name, int dclass) {
+      this.name = name;
+      this.dclass = dclass;
+    }
+
+    /** Whether the NSEC(3) entry is still stored in this zone. */
+    boolean isCurrent(Entry entry) {
+      return entry.hash == null
+          ? nsecs.get(entry.set.getName()) == entry
+          : nsec3s.get(entry.hash) == entry;
+    }
+
+    boolean remove(Entry entry) {
+      return entry.hash == null
+          ? nsecs.remove(entry.set.getName(), entry)
+          : nsec3s.remove(entry.hash, entry);
+    }
+
+    boolean isEmpty() {
+      return nsecs.isEmpty() && nsec3s.isEmpty();
+    }
+  }
+
+  private static final class Entry {
+    private final Zone zone;
+    private final SRRset set;
+    private final Instant expiration;
+    private final byte[] hash;
+
+    Entry(Zone zone, SRRset set, Instant expiration, byte[] hash) {
+      this.zone = zone;
+      this.set = set;
+      this.expiration = expiration;
+      this.hash = hash;
+    }
+
+    boolean isExpired(Instant now) {
+      return expiration.isBefore(now);
+    }
+  }
+}
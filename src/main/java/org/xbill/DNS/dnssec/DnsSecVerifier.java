@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.xbill.DNS.DClass;
 import org.xbill.DNS.DNSKEYRecord;
@@ -36,6 +38,9 @@ final class DnsSecVerifier {
   private final ValUtils valUtils;
   private int maxValidateRRsigs;
 
+  @Getter(AccessLevel.PACKAGE)
+  private final SignatureCache signatureCache = new SignatureCache();
+
   public DnsSecVerifier(ValUtils valUtils) {
     this.valUtils = valUtils;
   }
@@ -47,10 +52,12 @@ final class DnsSecVerifier {
    *   <li>{@value #MAX_VALIDATE_RRSIGS_PROPERTY}
    * </ul>
    *
+   * @see SignatureCache#init(Properties)
    * @param config The configuration data for this module.
    */
   public void init(Properties config) {
     maxValidateRRsigs = Integer.parseInt(config.getProperty(MAX_VALIDATE_RRSIGS_PROPERTY, "8"));
+    signatureCache.init(config);
   }
 
   /**
@@ -85,6 +92,26 @@ final class DnsSecVerifier {
     return res;
   }
 
+  /**
+   * Verify an RRset with a signature and key, skipping the cryptographic verification if the same
+   * signature was already verified for the same data and key.
+   */
+  private void verifyCached(RRset rrset, RRSIGRecord sigrec, DNSKEYRecord dnskey, Instant date)
+      throws DNSSECException {
+    if (!signatureCache.isEnabled()) {
+      DNSSEC.verify(rrset, sigrec, dnskey, date);
+      return;
+    }
+
+    // the signed data is both hashed for the cache key and verified on a miss
+    DNSSEC.SignedData data = DNSSEC.signedData(sigrec, rrset);
+    SignatureCache.Key cacheKey = signatureCache.key(data, sigrec, dnskey);
+    if (!signatureCache.isVerified(cacheKey, sigrec, date)) {
+      DNSSEC.verify(data, dnskey, date);
+      signatureCache.store(cacheKey, sigrec);
+    }
+  }
+
   /**
    * Verify an RRset against a particular signature.
    *
@@ -110,7 +137,7 @@ final class DnsSecVerifier {
 
     for (DNSKEYRecord dnskey : keys) {
       try {
-        DNSSEC.verify(rrset, sigrec, dnskey, date);
+        verifyCached(rrset, sigrec, dnskey, date);
         ValUtils.setCanonicalNsecOwner(rrset, sigrec);
         return new JustifiedSecStatus(SecurityStatus.SECURE, -1, null);
       } catch (KeyMismatchException kme) {
@@ -253,7 +280,7 @@ final class DnsSecVerifier {
 
       numVerified++;
       try {
-        DNSSEC.verify(rrset, sigrec, dnskey, date);
+        verifyCached(rrset, sigrec, dnskey, date);
         return new JustifiedSecStatus(SecurityStatus.SECURE, -1, null);
       } catch (DNSSECException e) {
         log.warn(
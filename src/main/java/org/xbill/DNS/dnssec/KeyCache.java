@@ -6,10 +6,9 @@ package org.xbill.DNS.dnssec;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import org.xbill.DNS.Name;
 import org.xbill.DNS.Type;
 
@@ -17,6 +16,17 @@ import org.xbill.DNS.Type;
  * Cache for DNSKEY RRsets or corresponding null/bad key entries with a limited size and respect for
  * TTL values.
  *
+ * <p>The entries are stored per class in an array that is sorted by name in canonical order. A
+ * name's closest enclosing entry is usually the greatest stored name that is not greater than it,
+ * so finding it is a single binary search that neither locks nor allocates. Only if that entry is
+ * in a sibling subtree the search continues with the common ancestor. Keys are looked up far more
+ * often than they are stored, modifications are therefore synchronized and replace the array.
+ *
+ * <p>Eviction follows a segmented LRU policy: new entries start in a probationary segment and are
+ * promoted to a protected segment if they were used before they reach the end of the probationary
+ * segment. This keeps frequently used keys (e.g. of the root and the TLDs) in the cache while a
+ * burst of one-time lookups passes through.
+ *
  * @since 3.5
  */
 final class KeyCache {
@@ -29,8 +39,16 @@ final class KeyCache {
   private static final int DEFAULT_MAX_TTL = 900;
   private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
 
-  /** This is the main caching data structure. */
-  private final Map<String, CacheEntry> cache;
+  /** Percentage of the maximum cache size that is reserved for the protected segment. */
+  private static final int PROTECTED_PERCENTAGE = 80;
+
+  private static final CacheEntry[] EMPTY = new CacheEntry[0];
+
+  /** The entries per class, sorted by name. The arrays are never modified once published. */
+  private final Map<Integer, CacheEntry[]> classes = new ConcurrentHashMap<>();
+
+  private final Segment probation = new Segment();
+  private final Segment protectedSegment = new Segment();
 
   private final Clock clock;
 
@@ -52,14 +70,6 @@ final class KeyCache {
    */
   public KeyCache(Clock clock) {
     this.clock = clock;
-    this.cache =
-        Collections.synchronizedMap(
-            new LinkedHashMap<String, CacheEntry>() {
-              @Override
-              protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
-                return size() >= KeyCache.this.maxCacheSize;
-              }
-            });
   }
 
   /**
@@ -69,7 +79,8 @@ final class KeyCache {
    *   <dt>{@value #MAX_TTL_CONFIG}
    *   <dd>The maximum TTL to apply to any cache entry.
    *   <dt>{@value #MAX_CACHE_SIZE_CONFIG}
-   *   <dd>The maximum number of entries that the cache will hold.
+   *   <dd>The maximum number of entries that the cache will hold, 1000 by default. Negative values
+   *       are treated as 0, i.e. no keys are cached.
    * </dl>
    *
    * @param config The configuration information.
@@ -86,7 +97,10 @@ final class KeyCache {
 
     s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
     if (s != null) {
-      this.maxCacheSize = Integer.parseInt(s);
+      synchronized (this) {
+        this.maxCacheSize = Math.max(Integer.parseInt(s), 0);
+        this.evict();
+      }
     }
   }
 
@@ -98,17 +112,65 @@ final class KeyCache {
    * @return The 'closest' entry to 'n' in the same class as 'dclass'.
    */
   public KeyEntry find(Name n, int dclass) {
-    while (n.labels() > 0) {
-      String k = this.key(n, dclass);
-      KeyEntry entry = this.lookupEntry(k);
-      if (entry != null) {
-        return entry;
+    CacheEntry[] entries = n.isAbsolute() ? this.classes.get(dclass) : null;
+    if (entries == null) {
+      return null;
+    }
+
+    Name target = n;
+    while (true) {
+      int i = floor(entries, target);
+      if (i < 0) {
+        return null;
+      }
+
+      CacheEntry entry = entries[i];
+      if (!target.subdomain(entry.name)) {
+        // The greatest name before the target is in a sibling subtree. The closest enclosing entry
+        // of the target is then also the closest enclosing entry of their common ancestor.
+        target = commonAncestor(target, entry.name);
+      } else if (entry.expiration.isBefore(this.clock.instant())) {
+        this.remove(entry);
+        if (entry.name.equals(Name.root)) {
+          return null;
+        }
+
+        target = new Name(entry.name, 1);
+      } else {
+        entry.accessed = true;
+        return entry.keyEntry;
       }
+    }
+  }
+
+  /** Gets the index of the greatest entry whose name is not greater than the name, or -1. */
+  private static int floor(CacheEntry[] entries, Name name) {
+    int low = 0;
+    int high = entries.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = entries[mid].name.compareTo(name);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+
+    return high;
+  }
 
-      n = new Name(n, 1);
+  private static Name commonAncestor(Name a, Name b) {
+    for (int strip = 1; strip < a.labels() - 1; strip++) {
+      Name ancestor = new Name(a, strip);
+      if (b.subdomain(ancestor)) {
+        return ancestor;
+      }
     }
 
-    return null;
+    return Name.root;
   }
 
   /**
@@ -126,42 +188,140 @@ final class KeyCache {
       return;
     }
 
-    String k = this.key(ke.getName(), ke.getDClass());
-    CacheEntry ce = new CacheEntry(ke, this.maxTtl);
-    this.cache.put(k, ce);
+    Name name = ke.getName();
+    if (!name.isAbsolute()) {
+      return;
+    }
+
+    long ttl = Math.min(ke.getTTL(), this.maxTtl);
+    CacheEntry entry = new CacheEntry(ke, name, this.clock.instant().plus(ttl, ChronoUnit.SECONDS));
+    synchronized (this) {
+      CacheEntry[] entries = this.classes.getOrDefault(ke.getDClass(), EMPTY);
+      int i = floor(entries, name);
+      CacheEntry[] updated;
+      if (i >= 0 && entries[i].name.equals(name)) {
+        this.segmentOf(entries[i]).remove(entries[i]);
+        updated = entries.clone();
+        updated[i] = entry;
+      } else {
+        updated = new CacheEntry[entries.length + 1];
+        System.arraycopy(entries, 0, updated, 0, i + 1);
+        updated[i + 1] = entry;
+        System.arraycopy(entries, i + 1, updated, i + 2, entries.length - i - 1);
+      }
+
+      this.classes.put(ke.getDClass(), updated);
+      this.probation.addFirst(entry);
+      this.evict();
+    }
   }
 
-  private String key(Name n, int dclass) {
-    return "K" + dclass + "/" + n;
+  /** Gets the number of entries in the cache. */
+  synchronized int size() {
+    return this.probation.size + this.protectedSegment.size;
   }
 
-  private KeyEntry lookupEntry(String key) {
-    CacheEntry centry = this.cache.get(key);
-    if (centry == null) {
-      return null;
+  private Segment segmentOf(CacheEntry entry) {
+    return entry.isProtected ? this.protectedSegment : this.probation;
+  }
+
+  private synchronized void remove(CacheEntry entry) {
+    int dclass = entry.keyEntry.getDClass();
+    CacheEntry[] entries = this.classes.get(dclass);
+    int i = floor(entries, entry.name);
+    // the entry might have been replaced or evicted concurrently
+    if (i < 0 || entries[i] != entry) {
+      return;
     }
 
-    if (centry.expiration.isBefore(clock.instant())) {
-      this.cache.remove(key);
-      return null;
+    CacheEntry[] updated = new CacheEntry[entries.length - 1];
+    System.arraycopy(entries, 0, updated, 0, i);
+    System.arraycopy(entries, i + 1, updated, i, updated.length - i);
+    this.classes.put(dclass, updated);
+    this.segmentOf(entry).remove(entry);
+  }
+
+  private void evict() {
+    int maxProtected = (int) ((long) this.maxCacheSize * PROTECTED_PERCENTAGE / 100);
+    Instant now = this.clock.instant();
+    while (this.probation.size + this.protectedSegment.size > this.maxCacheSize) {
+      CacheEntry victim = this.probation.last();
+      if (victim == null) {
+        this.remove(this.protectedSegment.last());
+        continue;
+      }
+
+      if (victim.accessed && maxProtected > 0 && !victim.expiration.isBefore(now)) {
+        // used while it was on probation, give it another round in the protected segment
+        victim.accessed = false;
+        this.probation.remove(victim);
+        victim.isProtected = true;
+        this.protectedSegment.addFirst(victim);
+        while (this.protectedSegment.size > maxProtected) {
+          CacheEntry demoted = this.protectedSegment.last();
+          demoted.accessed = false;
+          this.protectedSegment.remove(demoted);
+          demoted.isProtected = false;
+          this.probation.addFirst(demoted);
+        }
+      } else {
+        this.remove(victim);
+      }
+    }
+  }
+
+  /** A doubly linked list of cache entries in LRU order, only modified while holding the lock. */
+  private static final class Segment {
+    private final CacheEntry head = new CacheEntry();
+    private int size;
+
+    Segment() {
+      head.prev = head;
+      head.next = head;
+    }
+
+    void addFirst(CacheEntry entry) {
+      entry.prev = head;
+      entry.next = head.next;
+      head.next.prev = entry;
+      head.next = entry;
+      size++;
     }
 
-    return centry.keyEntry;
+    void remove(CacheEntry entry) {
+      entry.prev.next = entry.next;
+      entry.next.prev = entry.prev;
+      entry.prev = null;
+      entry.next = null;
+      size--;
+    }
+
+    CacheEntry last() {
+      return head.prev == head ? null : head.prev;
+    }
   }
 
   /** Utility class to cache key entries with an expiration date. */
-  private class CacheEntry {
+  private static final class CacheEntry {
     private final Instant expiration;
     private final KeyEntry keyEntry;
+    private final Name name;
+    private volatile boolean accessed;
+    private boolean isProtected;
+    private CacheEntry prev;
+    private CacheEntry next;
 
-    CacheEntry(KeyEntry keyEntry, long maxTtl) {
-      long ttl = keyEntry.getTTL();
-      if (ttl > maxTtl) {
-        ttl = maxTtl;
-      }
+    /** Creates the head of a {@link Segment}. */
+    CacheEntry() {
+      this.expiration = null;
+      this.keyEntry = null;
+      this.name = null;
+    }
 
-      this.expiration = clock.instant().plus(ttl, ChronoUnit.SECONDS);
+    CacheEntry(KeyEntry keyEntry, Name name, Instant expiration) {
+      this.expiration = expiration;
       this.keyEntry = keyEntry;
+      this.name = name;
     }
   }
 }
@@ -17,6 +17,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.xbill.DNS.DNSKEYRecord;
 import org.xbill.DNS.DNSSEC.Algorithm;
@@ -58,6 +60,9 @@ final class NSEC3ValUtils {
 
   private final TreeMap<Integer, Integer> maxIterations;
 
+  @Getter(AccessLevel.PACKAGE)
+  private final Nsec3HashCache hashCache = new Nsec3HashCache();
+
   /** Creates a new instance of this class. */
   NSEC3ValUtils() {
     // see RFC5155#10.3 for the max iteration count
@@ -75,8 +80,10 @@ final class NSEC3ValUtils {
    * </ul>
    *
    * @param config The configuration data.
+   * @see Nsec3HashCache#init(Properties)
    */
   void init(Properties config) {
+    this.hashCache.init(config);
     boolean first = true;
     for (Map.Entry<?, ?> s : config.entrySet()) {
       String key = s.getKey().toString();
@@ -0,0 +1,154 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.Name;
+
+/**
+ * Cache of NSEC3 hashes that is shared by all validations of a resolver. Denial of existence proofs
+ * for the same zone hash the same names (the zone apex, the closest encloser and its wildcard) with
+ * the same parameters over and over again, each time with up to the configured maximum number of
+ * iterations. When the cache is full, the least recently used hash is dropped.
+ *
+ * @since 3.6.5
+ */
+final class Nsec3HashCache {
+  /** Name of the property that configures the maximum cache size, {@code 0} disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "dnsjava.dnssec.nsec3.hashcache.max_size";
+
+  private static final int DEFAULT_MAX_CACHE_SIZE = 10_000;
+
+  /** The hashes in access order. Guarded by itself. */
+  private final Map<Key, byte[]> cache =
+      new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+          return size() > maxCacheSize;
+        }
+      };
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /** This is the maximum number of entries that the cache will hold. */
+  private volatile int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+  /**
+   * Initialize the cache. This implementation recognizes the following configuration parameters:
+   *
+   * <dl>
+   *   <dt>{@value #MAX_CACHE_SIZE_CONFIG}
+   *   <dd>The maximum number of hashes that the cache will hold.
+   * </dl>
+   *
+   * @param config The configuration information.
+   */
+  public void init(Properties config) {
+    maxCacheSize =
+        Integer.parseInt(
+            config.getProperty(MAX_CACHE_SIZE_CONFIG, Integer.toString(DEFAULT_MAX_CACHE_SIZE)));
+    if (maxCacheSize <= 0) {
+      synchronized (cache) {
+        cache.clear();
+      }
+    }
+  }
+
+  /**
+   * Gets the hash of a name with the parameters of an NSEC3 record, computing it if it isn't
+   * cached.
+   *
+   * @param key The key, as obtained by {@link #key(NSEC3Record, Name)}.
+   * @param nsec3 The record that defines the hash algorithm, the iterations and the salt.
+   * @param name The name to hash.
+   * @return The hash. The returned array is shared and must not be modified.
+   * @throws NoSuchAlgorithmException The hash algorithm is unknown.
+   */
+  byte[] hash(Key key, NSEC3Record nsec3, Name name) throws NoSuchAlgorithmException {
+    if (maxCacheSize <= 0) {
+      return nsec3.hashName(name);
+    }
+
+    byte[] hash;
+    synchronized (cache) {
+      hash = cache.get(key);
+    }
+
+    if (hash != null) {
+      hits.increment();
+      return hash;
+    }
+
+    misses.increment();
+    hash = nsec3.hashName(name);
+    synchronized (cache) {
+      cache.put(key, hash);
+    }
+
+    return hash;
+  }
+
+  /** Creates the key that identifies the hash of a name with the parameters of an NSEC3 record. */
+  static Key key(NSEC3Record nsec3, Name name) {
+    return new Key(name, nsec3.getHashAlgorithm(), nsec3.getIterations(), nsec3.getSalt());
+  }
+
+  /** Gets the number of hashes that were answered from the cache. */
+  long getHits() {
+    return hits.sum();
+  }
+
+  /** Gets the number of hashes that had to be computed. */
+  long getMisses() {
+    return misses.sum();
+  }
+
+  /** Gets the number of cached hashes. */
+  int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  static final class Key {
+    private final Name name;
+    private final int algorithm;
+    private final int iterations;
+    private final byte[] salt;
+    private final int hashCode;
+
+    private Key(Name name, int algorithm, int iterations, byte[] salt) {
+      this.name = name;
+      this.algorithm = algorithm;
+      this.iterations = iterations;
+      this.salt = salt;
+      hashCode =
+          31 * (31 * (31 * name.hashCode() + algorithm) + iterations) + Arrays.hashCode(salt);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) o;
+      return hashCode == other.hashCode
+          && algorithm == other.algorithm
+          && iterations == other.iterations
+          && name.equals(other.name)
+          && Arrays.equals(salt, other.salt);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -1,7 +1,6 @@
 // SPDX-License-Identifier: BSD-3-Clause
 package org.xbill.DNS.dnssec;
 
-import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,21 +13,30 @@ import org.xbill.DNS.utils.base32;
 /**
  * Cache for NSEC3 hashes and to keep track of the number of hash calculations as well as
  * calculation errors.
+ *
+ * <p>The hashes are obtained from the {@link Nsec3HashCache} that is shared between validations.
+ * Every distinct hash still counts as a calculation, whether it was cached or not, so that the
+ * outcome of a validation doesn't depend on what was validated before.
  */
 class Nsec3ValidationState {
   private static final base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, false);
 
-  private final Map<String, Nsec3CacheEntry> cache = new HashMap<>();
+  private final Map<Nsec3HashCache.Key, Nsec3CacheEntry> cache = new HashMap<>();
+  private final Nsec3HashCache hashCache;
 
   int numCalc;
   int numCalcErrors;
 
+  Nsec3ValidationState(Nsec3HashCache hashCache) {
+    this.hashCache = hashCache;
+  }
+
   public Nsec3CacheEntry computeIfAbsent(NSEC3Record nsec3, Name name)
       throws NoSuchAlgorithmException {
-    String key = key(nsec3, name);
+    Nsec3HashCache.Key key = Nsec3HashCache.key(nsec3, name);
     Nsec3CacheEntry entry = cache.get(key);
     if (entry == null) {
-      byte[] hash = nsec3.hashName(name);
+      byte[] hash = hashCache.hash(key, nsec3, name);
       entry = new Nsec3CacheEntry(hash);
       cache.put(key, entry);
       numCalc++;
@@ -50,14 +58,4 @@ class Nsec3ValidationState {
       return asBase32;
     }
   }
-
-  private String key(NSEC3Record nsec3, Name name) {
-    return name
-        + "/"
-        + nsec3.getHashAlgorithm()
-        + "/"
-        + nsec3.getIterations()
-        + "/"
-        + (nsec3.getSalt() == null ? "-" : new BigInteger(nsec3.getSalt()).toString());
-  }
 }
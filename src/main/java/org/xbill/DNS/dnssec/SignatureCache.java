@@ -0,0 +1,168 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.DNSSEC;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.RRset;
+
+/**
+ * Cache of successful signature verifications. An entry is identified by a SHA-256 hash over the
+ * signed data of an RRset (the RRSIG fields and the canonical RRset), the signature itself and the
+ * DNSKEY that verified it. Entries are valid until the signature expires. When the cache is full,
+ * the least recently used entry is dropped.
+ *
+ * @since 3.6.5
+ */
+final class SignatureCache {
+  /** Name of the property that configures the maximum cache size, {@code 0} disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "dnsjava.dnssec.sigcache.max_size";
+
+  private static final int DEFAULT_MAX_CACHE_SIZE = 10_000;
+
+  /** The expiration of the verified signatures, in access order. Guarded by itself. */
+  private final Map<Key, Instant> cache =
+      new LinkedHashMap<Key, Instant>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Instant> eldest) {
+          return size() > maxCacheSize;
+        }
+      };
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /** This is the maximum number of entries that the cache will hold. */
+  private volatile int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+  /**
+   * Initialize the cache. This implementation recognizes the following configuration parameters:
+   *
+   * <dl>
+   *   <dt>{@value #MAX_CACHE_SIZE_CONFIG}
+   *   <dd>The maximum number of verified signatures that the cache will hold.
+   * </dl>
+   *
+   * @param config The configuration information.
+   */
+  public void init(Properties config) {
+    maxCacheSize =
+        Integer.parseInt(
+            config.getProperty(MAX_CACHE_SIZE_CONFIG, Integer.toString(DEFAULT_MAX_CACHE_SIZE)));
+    if (maxCacheSize <= 0) {
+      synchronized (cache) {
+        cache.clear();
+      }
+    }
+  }
+
+  /** Checks if verifications are cached at all. */
+  boolean isEnabled() {
+    return maxCacheSize > 0;
+  }
+
+  /**
+   * Creates the cache key for a signature verification.
+   *
+   * @param data The signed data, as obtained by {@link DNSSEC#signedData(RRSIGRecord, RRset)}.
+   * @param sigrec The signature.
+   * @param dnskey The key that verifies the signature.
+   */
+  Key key(DNSSEC.SignedData data, RRSIGRecord sigrec, DNSKEYRecord dnskey) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+
+    data.update(md);
+    md.update(sigrec.getSignature());
+    md.update(dnskey.rdataToWireCanonical());
+    return new Key(md.digest());
+  }
+
+  /**
+   * Checks if the signature identified by the key was verified before and is still valid at the
+   * given date.
+   *
+   * @param key The key, as obtained by {@link #key(DNSSEC.SignedData, RRSIGRecord, DNSKEYRecord)}.
+   * @param sigrec The signature that is to be verified.
+   * @param date The date against which the signature is verified.
+   */
+  boolean isVerified(Key key, RRSIGRecord sigrec, Instant date) {
+    Instant expire;
+    synchronized (cache) {
+      expire = cache.get(key);
+      if (expire != null && date.isAfter(expire)) {
+        cache.remove(key);
+      }
+    }
+
+    if (expire != null && !date.isAfter(expire) && !date.isBefore(sigrec.getTimeSigned())) {
+      hits.increment();
+      return true;
+    }
+
+    misses.increment();
+    return false;
+  }
+
+  /**
+   * Records a successful verification.
+   *
+   * @param key The key, as obtained by {@link #key(DNSSEC.SignedData, RRSIGRecord, DNSKEYRecord)}.
+   * @param sigrec The signature that verified.
+   */
+  void store(Key key, RRSIGRecord sigrec) {
+    synchronized (cache) {
+      cache.put(key, sigrec.getExpire());
+    }
+  }
+
+  /** Gets the number of verifications that were answered from the cache. */
+  long getHits() {
+    return hits.sum();
+  }
+
+  /** Gets the number of verifications that were not found in the cache. */
+  long getMisses() {
+    return misses.sum();
+  }
+
+  /** Gets the number of cached verifications. */
+  int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  static final class Key {
+    private final byte[] hash;
+    private final int hashCode;
+
+    private Key(byte[] hash) {
+      this.hash = hash;
+      hashCode = Arrays.hashCode(hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && Arrays.equals(hash, ((Key) o).hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
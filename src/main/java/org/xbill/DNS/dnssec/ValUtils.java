@@ -12,6 +12,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.xbill.DNS.DClass;
 import org.xbill.DNS.DNSKEYRecord;
@@ -50,6 +52,7 @@ final class ValUtils {
   private static final Name WILDCARD = Name.fromConstantString("*");
 
   /** A local copy of the verifier object. */
+  @Getter(AccessLevel.PACKAGE)
   private final DnsSecVerifier verifier;
 
   private int[] digestPreference = null;
@@ -11,10 +11,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +27,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.xbill.DNS.CNAMERecord;
@@ -67,6 +70,14 @@ public final class ValidatingResolver implements Resolver {
    */
   public static final String TRUST_ANCHOR_FILE_PROPERTY = "dnsjava.dnssec.trust_anchor_file";
 
+  /**
+   * Property name to enable verifying the signatures of the RRsets in a response concurrently.
+   *
+   * @since 3.6.5
+   */
+  public static final String PARALLEL_VERIFICATION_PROPERTY =
+      "dnsjava.dnssec.parallel_verification";
+
   /**
    * The QCLASS being used for the injection of the reason why the validator came to the returned
    * result.
@@ -91,12 +102,18 @@ public final class ValidatingResolver implements Resolver {
   /** The local NSEC3 validation utilities. */
   private final NSEC3ValUtils n3valUtils;
 
+  /** The validated NSEC and NSEC3 records to answer queries for names within the proven gaps. */
+  private final AggressiveNsecCache aggressiveNsecCache;
+
   /** The resolver that performs the actual DNS lookups. */
   private final Resolver headResolver;
 
   /** The clock used to validate messages. */
   private final Clock clock;
 
+  /** Verify the RRsets of a response concurrently on the executor of the request. */
+  private boolean parallelVerification;
+
   /**
    * If {@code true}, an additional record with the validation reason is added to the {@link
    * Section#ADDITIONAL} section. The record is available at {@code ./TXT/}{@value
@@ -130,6 +147,7 @@ public final class ValidatingResolver implements Resolver {
     this.keyCache = new KeyCache();
     this.valUtils = new ValUtils();
     this.n3valUtils = new NSEC3ValUtils();
+    this.aggressiveNsecCache = new AggressiveNsecCache(clock, this.n3valUtils);
     this.trustAnchors = new DefaultTrustAnchorStore();
     try {
       init(System.getProperties());
@@ -146,6 +164,10 @@ public final class ValidatingResolver implements Resolver {
    * <dl>
    *   <dt>{@value #TRUST_ANCHOR_FILE_PROPERTY}
    *   <dd>A filename from where to load the trust anchors
+   *   <dt>{@value #PARALLEL_VERIFICATION_PROPERTY}
+   *   <dd>If {@code true}, the signatures of independent RRsets in a response are verified
+   *       concurrently on the {@link Executor} passed to {@link #sendAsync(Message, Executor)} when
+   *       their keys are already known. Defaults to {@code false}.
    * </dl>
    *
    * See links for other initialized classes and their configuration values (or the readme).
@@ -154,6 +176,9 @@ public final class ValidatingResolver implements Resolver {
    * @see ValUtils#init(Properties)
    * @see NSEC3ValUtils#init(Properties)
    * @see DnsSecVerifier#init(Properties)
+   * @see SignatureCache#init(Properties)
+   * @see Nsec3HashCache#init(Properties)
+   * @see AggressiveNsecCache#init(Properties)
    * @param config The configuration data for this module.
    * @throws IOException When the file specified in the config does not exist or cannot be read.
    */
@@ -161,6 +186,11 @@ public final class ValidatingResolver implements Resolver {
     this.keyCache.init(config);
     this.n3valUtils.init(config);
     this.valUtils.init(config);
+    this.aggressiveNsecCache.init(config);
+    this.parallelVerification =
+        Boolean.parseBoolean(
+            config.getProperty(
+                PARALLEL_VERIFICATION_PROPERTY, Boolean.toString(parallelVerification)));
 
     // Load trust anchors
     String s = config.getProperty(TRUST_ANCHOR_FILE_PROPERTY);
@@ -236,6 +266,61 @@ public final class ValidatingResolver implements Resolver {
     return this.trustAnchors;
   }
 
+  /**
+   * Gets the number of signature verifications that were answered from the cache of previously
+   * verified signatures.
+   *
+   * @return The number of cache hits since this resolver was created.
+   * @since 3.6.5
+   */
+  public long getSignatureCacheHits() {
+    return valUtils.getVerifier().getSignatureCache().getHits();
+  }
+
+  /**
+   * Gets the number of signature verifications that required a cryptographic verification because
+   * the signature was not in the cache of previously verified signatures.
+   *
+   * @return The number of cache misses since this resolver was created.
+   * @since 3.6.5
+   */
+  public long getSignatureCacheMisses() {
+    return valUtils.getVerifier().getSignatureCache().getMisses();
+  }
+
+  /**
+   * Gets the number of NSEC3 hashes that were answered from the cache of previously computed
+   * hashes.
+   *
+   * @return The number of cache hits since this resolver was created.
+   * @since 3.6.5
+   */
+  public long getNsec3HashCacheHits() {
+    return n3valUtils.getHashCache().getHits();
+  }
+
+  /**
+   * Gets the number of NSEC3 hashes that had to be computed because they were not in the cache of
+   * previously computed hashes.
+   *
+   * @return The number of cache misses since this resolver was created.
+   * @since 3.6.5
+   */
+  public long getNsec3HashCacheMisses() {
+    return n3valUtils.getHashCache().getMisses();
+  }
+
+  /**
+   * Gets the number of queries that were answered as NXDOMAIN or NODATA from previously validated
+   * NSEC or NSEC3 records without sending them upstream.
+   *
+   * @return The number of queries since this resolver was created.
+   * @since 3.6.5
+   */
+  public long getAggressiveNsecHits() {
+    return aggressiveNsecCache.getHits();
+  }
+
   /**
    * For messages that are not referrals, if the chase reply contains an unsigned NS record in the
    * authority section it could have been inserted by a (BIND) forwarder that thinks the zone is
@@ -293,9 +378,11 @@ public final class ValidatingResolver implements Resolver {
     Map<Name, Name> wcs = new HashMap<>(1);
     List<SRRset> nsec3s = new ArrayList<>(0);
     List<SRRset> nsecs = new ArrayList<>(0);
+    Map<SRRset, PendingVerification> pending =
+        this.startVerification(response, executor, Section.ANSWER, Section.AUTHORITY);
 
     return this.validateAnswerAndGetWildcards(
-            response, request.getQuestion().getType(), wcs, executor)
+            response, request.getQuestion().getType(), wcs, pending, executor)
         .thenCompose(
             success -> {
               if (Boolean.TRUE.equals(success)) {
@@ -316,11 +403,13 @@ public final class ValidatingResolver implements Resolver {
                     sections,
                     new AtomicInteger(0),
                     new AtomicInteger(0),
+                    pending,
                     executor);
               }
 
               return completedFuture(false);
             })
+        .whenComplete((success, ex) -> this.cancelVerification(pending))
         .thenAccept(
             success -> {
               if (!Boolean.TRUE.equals(success)) {
@@ -402,6 +491,7 @@ public final class ValidatingResolver implements Resolver {
       int[] sections,
       AtomicInteger sectionIndex,
       AtomicInteger setIndex,
+      Map<SRRset, PendingVerification> pending,
       Executor executor) {
     // reached the end of the sections to validate, end recursion, success
     if (sectionIndex.get() >= sections.length) {
@@ -415,7 +505,7 @@ public final class ValidatingResolver implements Resolver {
       sectionIndex.getAndIncrement();
       setIndex.set(0);
       return this.validatePositiveResponseRecursive(
-          response, wcs, nsec3s, nsecs, sections, sectionIndex, setIndex, executor);
+          response, wcs, nsec3s, nsecs, sections, sectionIndex, setIndex, pending, executor);
     }
 
     SRRset set = sectionRRsets.get(setIndex.getAndIncrement());
@@ -428,31 +518,46 @@ public final class ValidatingResolver implements Resolver {
                 return completedFuture(false);
               }
 
-              JustifiedSecStatus res = this.valUtils.verifySRRset(set, ke, this.clock.instant());
-              // If anything in the authority section fails to be secure, we
-              // have a bad message.
-              if (res.status != SecurityStatus.SECURE) {
-                response.setBogus(R.get("failed.authority.positive", set));
-                return completedFuture(false);
-              }
+              return this.verifySRRset(set, ke, pending)
+                  .thenCompose(
+                      res -> {
+                        // If anything in the authority section fails to be secure, we
+                        // have a bad message.
+                        if (res.status != SecurityStatus.SECURE) {
+                          response.setBogus(R.get("failed.authority.positive", set));
+                          return completedFuture(false);
+                        }
 
-              if (!wcs.isEmpty()) {
-                if (set.getType() == Type.NSEC) {
-                  nsecs.add(set);
-                } else if (set.getType() == Type.NSEC3) {
-                  nsec3s.add(set);
-                }
-              }
+                        if (!wcs.isEmpty()) {
+                          if (set.getType() == Type.NSEC) {
+                            nsecs.add(set);
+                          } else if (set.getType() == Type.NSEC3) {
+                            nsec3s.add(set);
+                          }
+                        }
 
-              return this.validatePositiveResponseRecursive(
-                  response, wcs, nsec3s, nsecs, sections, sectionIndex, setIndex, executor);
+                        return this.validatePositiveResponseRecursive(
+                            response,
+                            wcs,
+                            nsec3s,
+                            nsecs,
+                            sections,
+                            sectionIndex,
+                            setIndex,
+                            pending,
+                            executor);
+                      });
             });
   }
 
   private CompletionStage<Boolean> validateAnswerAndGetWildcards(
-      SMessage response, int qtype, Map<Name, Name> wcs, Executor executor) {
+      SMessage response,
+      int qtype,
+      Map<Name, Name> wcs,
+      Map<SRRset, PendingVerification> pending,
+      Executor executor) {
     return this.validateAnswerAndGetWildcardsRecursive(
-        response, qtype, wcs, new AtomicInteger(0), executor);
+        response, qtype, wcs, new AtomicInteger(0), pending, executor);
   }
 
   private CompletionStage<Boolean> validateAnswerAndGetWildcardsRecursive(
@@ -460,6 +565,7 @@ public final class ValidatingResolver implements Resolver {
       int qtype,
       Map<Name, Name> wcs,
       AtomicInteger setIndex,
+      Map<SRRset, PendingVerification> pending,
       Executor executor) {
     // validate the ANSWER section - this will be the answer itself
     List<SRRset> sectionRRsets = response.getSectionRRsets(Section.ANSWER);
@@ -480,70 +586,77 @@ public final class ValidatingResolver implements Resolver {
                 return completedFuture(false);
               }
 
-              JustifiedSecStatus res = this.valUtils.verifySRRset(set, ke, this.clock.instant());
-              // If the answer rrset failed to validate, then this message is BAD
-              if (res.status != SecurityStatus.SECURE) {
-                response.setBogus(R.get("failed.answer.positive", set));
-                return completedFuture(false);
-              }
-
-              // Check to see if the rrset is the result of a wildcard expansion.
-              // If so, an additional check will need to be made in the authority
-              // section.
-              Name wc;
-              try {
-                wc = ValUtils.rrsetWildcard(set);
-              } catch (RuntimeException ex) {
-                response.setBogus(R.get(ex.getMessage(), set.getName()));
-                return completedFuture(false);
-              }
-
-              if (wc != null) {
-                // RFC 4592, Section 4.4 does not allow wildcarded DNAMEs
-                if (set.getType() == Type.DNAME) {
-                  response.setBogus(R.get("failed.dname.wildcard", set.getName()));
-                  return completedFuture(false);
-                }
+              return this.verifySRRset(set, ke, pending)
+                  .thenCompose(
+                      res -> {
+                        // If the answer rrset failed to validate, then this message is BAD
+                        if (res.status != SecurityStatus.SECURE) {
+                          response.setBogus(R.get("failed.answer.positive", set));
+                          return completedFuture(false);
+                        }
 
-                wcs.put(set.getName(), wc);
-              }
+                        // Check to see if the rrset is the result of a wildcard expansion.
+                        // If so, an additional check will need to be made in the authority
+                        // section.
+                        Name wc;
+                        try {
+                          wc = ValUtils.rrsetWildcard(set);
+                        } catch (RuntimeException ex) {
+                          response.setBogus(R.get(ex.getMessage(), set.getName()));
+                          return completedFuture(false);
+                        }
 
-              // Notice a DNAME that should be followed by an unsigned CNAME.
-              if (qtype != Type.DNAME && set.getType() == Type.DNAME) {
-                DNAMERecord dname = (DNAMERecord) set.first();
-                if (setIndex.getAndIncrement() < sectionRRsets.size()) {
-                  SRRset cnameSet = sectionRRsets.get(setIndex.get());
-                  // Validate the CNAME following a (validated) DNAME is correctly
-                  // synthesized.
-                  if (cnameSet.getType() == Type.CNAME && dname != null) {
-                    if (cnameSet.size() > 1) {
-                      response.setBogus(R.get("failed.synthesize.multiple"));
-                      return completedFuture(false);
-                    }
+                        if (wc != null) {
+                          // RFC 4592, Section 4.4 does not allow wildcarded DNAMEs
+                          if (set.getType() == Type.DNAME) {
+                            response.setBogus(R.get("failed.dname.wildcard", set.getName()));
+                            return completedFuture(false);
+                          }
 
-                    CNAMERecord cname = (CNAMERecord) cnameSet.first();
-                    try {
-                      Name expected =
-                          Name.concatenate(
-                              cname.getName().relativize(dname.getName()), dname.getTarget());
-                      if (!expected.equals(cname.getTarget())) {
-                        response.setBogus(
-                            R.get("failed.synthesize.nomatch", cname.getTarget(), expected));
-                        return completedFuture(false);
-                      }
-                    } catch (NameTooLongException e) {
-                      response.setBogus(R.get("failed.synthesize.toolong"));
-                      return completedFuture(false);
-                    }
+                          wcs.put(set.getName(), wc);
+                        }
 
-                    cnameSet.setSecurityStatus(SecurityStatus.SECURE);
-                  }
-                }
-              }
+                        // Notice a DNAME that should be followed by an unsigned CNAME.
+                        if (qtype != Type.DNAME && set.getType() == Type.DNAME) {
+                          DNAMERecord dname = (DNAMERecord) set.first();
+                          if (setIndex.getAndIncrement() < sectionRRsets.size()) {
+                            SRRset cnameSet = sectionRRsets.get(setIndex.get());
+                            // Validate the CNAME following a (validated) DNAME is correctly
+                            // synthesized.
+                            if (cnameSet.getType() == Type.CNAME && dname != null) {
+                              if (cnameSet.size() > 1) {
+                                response.setBogus(R.get("failed.synthesize.multiple"));
+                                return completedFuture(false);
+                              }
+
+                              CNAMERecord cname = (CNAMERecord) cnameSet.first();
+                              try {
+                                Name expected =
+                                    Name.concatenate(
+                                        cname.getName().relativize(dname.getName()),
+                                        dname.getTarget());
+                                if (!expected.equals(cname.getTarget())) {
+                                  response.setBogus(
+                                      R.get(
+                                          "failed.synthesize.nomatch",
+                                          cname.getTarget(),
+                                          expected));
+                                  return completedFuture(false);
+                                }
+                              } catch (NameTooLongException e) {
+                                response.setBogus(R.get("failed.synthesize.toolong"));
+                                return completedFuture(false);
+                              }
+
+                              cnameSet.setSecurityStatus(SecurityStatus.SECURE);
+                            }
+                          }
+                        }
 
-              setIndex.getAndIncrement();
-              return this.validateAnswerAndGetWildcardsRecursive(
-                  response, qtype, wcs, setIndex, executor);
+                        setIndex.getAndIncrement();
+                        return this.validateAnswerAndGetWildcardsRecursive(
+                            response, qtype, wcs, setIndex, pending, executor);
+                      });
             });
   }
 
@@ -583,8 +696,11 @@ public final class ValidatingResolver implements Resolver {
 
     // validate the AUTHORITY section
     Name qname = intermediateQname;
+    Map<SRRset, PendingVerification> pending =
+        this.startVerification(response, executor, Section.AUTHORITY);
     return this.validateNodataResponseRecursive(
-            response, new AtomicInteger(0), nsec3State, executor)
+            response, new AtomicInteger(0), nsec3State, pending, executor)
+        .whenComplete((result, ex) -> this.cancelVerification(pending))
         .handleAsync(
             (result, ex) -> {
               if (ex != null) {
@@ -678,6 +794,7 @@ public final class ValidatingResolver implements Resolver {
       SMessage response,
       AtomicInteger setIndex,
       Nsec3ValidationState nsec3State,
+      Map<SRRset, PendingVerification> pending,
       Executor executor) {
     if (setIndex.get() >= response.getSectionRRsets(Section.AUTHORITY).size()) {
       return completedFuture(null);
@@ -693,13 +810,17 @@ public final class ValidatingResolver implements Resolver {
                 return this.failedFuture(new Exception(kve.reason));
               }
 
-              JustifiedSecStatus res = this.valUtils.verifySRRset(set, ke, this.clock.instant());
-              if (res.status != SecurityStatus.SECURE) {
-                response.setBogus(R.get("failed.authority.nodata", set));
-                return this.failedFuture(new Exception("failed.authority.nodata"));
-              }
+              return this.verifySRRset(set, ke, pending)
+                  .thenCompose(
+                      res -> {
+                        if (res.status != SecurityStatus.SECURE) {
+                          response.setBogus(R.get("failed.authority.nodata", set));
+                          return this.failedFuture(new Exception("failed.authority.nodata"));
+                        }
 
-              return this.validateNodataResponseRecursive(response, setIndex, nsec3State, executor);
+                        return this.validateNodataResponseRecursive(
+                            response, setIndex, nsec3State, pending, executor);
+                      });
             });
   }
 
@@ -743,7 +864,11 @@ public final class ValidatingResolver implements Resolver {
 
     // validate the AUTHORITY section
     Name qname = intermediateQname;
-    return this.validateNameErrorResponseRecursive(response, new AtomicInteger(0), executor)
+    Map<SRRset, PendingVerification> pending =
+        this.startVerification(response, executor, Section.AUTHORITY);
+    return this.validateNameErrorResponseRecursive(
+            response, new AtomicInteger(0), pending, executor)
+        .whenComplete((result, ex) -> this.cancelVerification(pending))
         .thenComposeAsync(
             v -> {
               // Validate the authority section -- all RRsets in the authority section
@@ -845,7 +970,10 @@ public final class ValidatingResolver implements Resolver {
   }
 
   private CompletionStage<Void> validateNameErrorResponseRecursive(
-      SMessage response, AtomicInteger setIndex, Executor executor) {
+      SMessage response,
+      AtomicInteger setIndex,
+      Map<SRRset, PendingVerification> pending,
+      Executor executor) {
     if (setIndex.get() >= response.getSectionRRsets(Section.AUTHORITY).size()) {
       return completedFuture(null);
     }
@@ -860,16 +988,114 @@ public final class ValidatingResolver implements Resolver {
                 return this.failedFuture(new Exception(kve.reason));
               }
 
-              JustifiedSecStatus res = this.valUtils.verifySRRset(set, ke, this.clock.instant());
-              if (res.status != SecurityStatus.SECURE) {
-                response.setBogus(R.get("failed.nxdomain.authority", set));
-                return this.failedFuture(new Exception("failed.nxdomain.authority"));
-              }
+              return this.verifySRRset(set, ke, pending)
+                  .thenCompose(
+                      res -> {
+                        if (res.status != SecurityStatus.SECURE) {
+                          response.setBogus(R.get("failed.nxdomain.authority", set));
+                          return this.failedFuture(new Exception("failed.nxdomain.authority"));
+                        }
 
-              return this.validateNameErrorResponseRecursive(response, setIndex, executor);
+                        return this.validateNameErrorResponseRecursive(
+                            response, setIndex, pending, executor);
+                      });
             });
   }
 
+  /** A verification that was started before the validation reached its RRset. */
+  @RequiredArgsConstructor
+  private static final class PendingVerification {
+    private final KeyEntry keyEntry;
+    private final CompletableFuture<JustifiedSecStatus> result;
+  }
+
+  /**
+   * Starts verifying the signed RRsets of the given sections on the executor if parallel
+   * verification is enabled and the trusted keys are already in the key cache. The validation still
+   * walks the RRsets in order, it only picks up the results in {@link #verifySRRset(SRRset,
+   * KeyEntry, Map)} and thereby keeps the precedence of the results.
+   *
+   * @param response The response to validate.
+   * @param executor The service to use for the verification.
+   * @param sections The sections with the RRsets to verify.
+   * @return The started verifications by RRset.
+   */
+  private Map<SRRset, PendingVerification> startVerification(
+      SMessage response, Executor executor, int... sections) {
+    if (!this.parallelVerification) {
+      return Collections.emptyMap();
+    }
+
+    Map<SRRset, KeyEntry> verifiable = new IdentityHashMap<>();
+    for (int section : sections) {
+      for (SRRset set : response.getSectionRRsets(section)) {
+        Name signerName = set.getSignerName();
+        if (signerName == null || set.getSecurityStatus() == SecurityStatus.SECURE) {
+          continue;
+        }
+
+        KeyEntry ke = this.keyCache.find(signerName, set.getDClass());
+        if (ke != null && ke.isGood() && ke.getName().equals(signerName)) {
+          verifiable.put(set, ke);
+        }
+      }
+    }
+
+    // a single RRset is verified faster on the current thread
+    if (verifiable.size() < 2) {
+      return Collections.emptyMap();
+    }
+
+    Instant now = this.clock.instant();
+    DnsSecVerifier verifier = this.valUtils.getVerifier();
+    Map<SRRset, PendingVerification> pending = new IdentityHashMap<>();
+    for (Map.Entry<SRRset, KeyEntry> e : verifiable.entrySet()) {
+      SRRset set = e.getKey();
+      KeyEntry ke = e.getValue();
+      pending.put(
+          set,
+          new PendingVerification(
+              ke, CompletableFuture.supplyAsync(() -> verifier.verify(set, ke, now), executor)));
+    }
+
+    return pending;
+  }
+
+  /**
+   * Verifies an RRset, or picks up the result of the verification that was started for it with the
+   * same key.
+   */
+  private CompletionStage<JustifiedSecStatus> verifySRRset(
+      SRRset set, KeyEntry ke, Map<SRRset, PendingVerification> pending) {
+    PendingVerification p = pending.get(set);
+    if (p == null) {
+      return completedFuture(this.valUtils.verifySRRset(set, ke, this.clock.instant()));
+    }
+
+    // The started verification modifies the RRset as well, so the RRset is only verified again
+    // once it is done, e.g. if the walk found another key than the key cache at the start.
+    return p.result.handle(
+        (res, ex) -> {
+          if (ex == null && p.keyEntry == ke && set.getSecurityStatus() != SecurityStatus.SECURE) {
+            set.setSecurityStatus(res.status);
+            return res;
+          }
+
+          return this.valUtils.verifySRRset(set, ke, this.clock.instant());
+        });
+  }
+
+  /**
+   * Cancels the verifications that were started but not picked up, e.g. because the response was
+   * found to be bogus before the validation reached their RRsets. Those that are still queued on
+   * the executor are then not run at all.
+   */
+  private void cancelVerification(Map<SRRset, PendingVerification> pending) {
+    for (PendingVerification p : pending.values()) {
+      p.result.cancel(false);
+    }
+  }
+
   private CompletionStage<SMessage> sendRequest(Message request, Executor executor) {
     Record q = request.getQuestion();
     log.trace(
@@ -1126,7 +1352,7 @@ public final class ValidatingResolver implements Resolver {
         nsec3s.add(nsec3set);
       }
 
-      Nsec3ValidationState nsec3State = new Nsec3ValidationState();
+      Nsec3ValidationState nsec3State = new Nsec3ValidationState(this.n3valUtils.getHashCache());
       switch (this.n3valUtils.proveNoDS(nsec3s, qname, nsec3Signer, nsec3State)) {
         case INSECURE:
         case SECURE:
@@ -1227,7 +1453,7 @@ public final class ValidatingResolver implements Resolver {
       this.removeSpuriousAuthority(response);
     }
 
-    Nsec3ValidationState nsec3State = new Nsec3ValidationState();
+    Nsec3ValidationState nsec3State = new Nsec3ValidationState(this.n3valUtils.getHashCache());
     CompletionStage<Void> completionStage;
     switch (subtype) {
       case POSITIVE:
@@ -1400,6 +1626,8 @@ public final class ValidatingResolver implements Resolver {
 
   /**
    * Asynchronously sends a message and validates the response with DNSSEC before returning it.
+   * Queries that previously validated NSEC or NSEC3 records prove to have no answer are answered
+   * without sending them if {@value AggressiveNsecCache#ENABLED_CONFIG} is set.
    *
    * @param query The query to send.
    * @param executor The service to use for async operations.
@@ -1407,6 +1635,13 @@ public final class ValidatingResolver implements Resolver {
    */
   @Override
   public CompletionStage<Message> sendAsync(Message query, Executor executor) {
+    if (!query.getHeader().getFlag(Flags.CD)) {
+      Message synthesized = this.aggressiveNsecCache.lookup(query);
+      if (synthesized != null) {
+        return completedFuture(synthesized);
+      }
+    }
+
     return this.sendRequest(query, executor)
         .thenCompose(
             response -> {
@@ -1430,6 +1665,7 @@ public final class ValidatingResolver implements Resolver {
               return this.processValidate(query, response, executor)
                   .thenApply(
                       validated -> {
+                        this.aggressiveNsecCache.store(query, validated);
                         Message m = validated.getMessage();
                         String reason = validated.getBogusReason();
                         if (reason != null) {
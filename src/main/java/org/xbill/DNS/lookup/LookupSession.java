@@ -11,10 +11,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.NonNull;
@@ -68,6 +72,11 @@ public class LookupSession {
   private final HostsFileParser hostsFileParser;
   private final Executor executor;
   private final IrrelevantRecordMode irrelevantRecordMode;
+  private final int prefetchThreshold;
+  private final boolean serveStale;
+  private final int maxInFlightQueries;
+  private final Set<Record> prefetching = ConcurrentHashMap.newKeySet();
+  private final Map<Record, CompletableFuture<Message>> inFlightQueries = new ConcurrentHashMap<>();
 
   private LookupSession(
       @NonNull Resolver resolver,
@@ -78,7 +87,10 @@ public class LookupSession {
       List<Cache> caches,
       HostsFileParser hostsFileParser,
       Executor executor,
-      IrrelevantRecordMode irrelevantRecordMode) {
+      IrrelevantRecordMode irrelevantRecordMode,
+      int prefetchThreshold,
+      boolean serveStale,
+      int maxInFlightQueries) {
     this.resolver = resolver;
     this.maxRedirects = maxRedirects;
     this.ndots = ndots;
@@ -91,6 +103,9 @@ public class LookupSession {
     this.hostsFileParser = hostsFileParser;
     this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
     this.irrelevantRecordMode = irrelevantRecordMode;
+    this.prefetchThreshold = prefetchThreshold;
+    this.serveStale = serveStale;
+    this.maxInFlightQueries = maxInFlightQueries;
   }
 
   /**
@@ -111,6 +126,9 @@ public class LookupSession {
     private HostsFileParser hostsFileParser;
     private Executor executor;
     private IrrelevantRecordMode irrelevantRecordMode = IrrelevantRecordMode.REMOVE;
+    private int prefetchThreshold;
+    private boolean serveStale;
+    private int maxInFlightQueries;
 
     private LookupSessionBuilder() {}
 
@@ -228,6 +246,56 @@ public class LookupSession {
       return this;
     }
 
+    /**
+     * Enables refreshing popular cache entries before they expire. When an answer is served from
+     * the cache and less than the given percentage of its TTL remains, a single asynchronous query
+     * is sent to the {@link #resolver(Resolver)} to update the cache, while the cached answer is
+     * returned immediately. The default of zero disables prefetching.
+     *
+     * @param percent The remaining TTL, in percent of the original TTL, below which a cache hit
+     *     triggers a refresh. Must be between 0 and 100.
+     * @return {@code this}.
+     * @since 3.6.5
+     */
+    public LookupSessionBuilder prefetchThreshold(int percent) {
+      if (percent < 0 || percent > 100) {
+        throw new IllegalArgumentException("percent must be between 0 and 100");
+      }
+      this.prefetchThreshold = percent;
+      return this;
+    }
+
+    /**
+     * If set to {@code true}, expired cache entries are returned when the {@link
+     * #resolver(Resolver)} times out, cannot be reached, or fails with {@code SERVFAIL}, as
+     * described in RFC 8767. Expired entries are only available if the cache retains them, see
+     * {@link Cache#setMaxStale(int)}. The TTL of such stale records is capped to 30 seconds.
+     *
+     * @return {@code this}.
+     * @since 3.6.5
+     */
+    public LookupSessionBuilder serveStale(boolean serveStale) {
+      this.serveStale = serveStale;
+      return this;
+    }
+
+    /**
+     * Enables coalescing of identical queries. While a query for a name, type and class is sent to
+     * the {@link #resolver(Resolver)}, concurrent lookups that need the same answer, including
+     * lookups that follow a CNAME or DNAME to that name, wait for the response to this query
+     * instead of sending their own. Failures are propagated to all waiting lookups. The default of
+     * zero disables coalescing.
+     *
+     * @param maxInFlightQueries The maximum number of distinct queries that are tracked at the same
+     *     time. When this limit is reached, further queries are sent without coalescing.
+     * @return {@code this}.
+     * @since 3.6.5
+     */
+    public LookupSessionBuilder coalesceQueries(int maxInFlightQueries) {
+      this.maxInFlightQueries = maxInFlightQueries;
+      return this;
+    }
+
     /**
      * Enable querying the local hosts database using the system defaults.
      *
@@ -341,7 +409,10 @@ public class LookupSession {
           caches,
           hostsFileParser,
           executor,
-          irrelevantRecordMode);
+          irrelevantRecordMode,
+          prefetchThreshold,
+          serveStale,
+          maxInFlightQueries);
     }
   }
 
@@ -506,22 +577,157 @@ public class LookupSession {
   }
 
   private CompletionStage<LookupResult> lookupWithCache(Record queryRecord, List<Name> aliases) {
-    return Optional.ofNullable(caches.get(queryRecord.getDClass()))
-        .map(
-            c -> {
-              log.debug(
-                  "Looking for <{}/{}/{}> in cache",
-                  queryRecord.getName(),
-                  Type.string(queryRecord.getType()),
-                  DClass.string(queryRecord.getDClass()));
-              return c.lookupRecords(
-                  queryRecord.getName(), queryRecord.getType(), Credibility.NORMAL);
+    Cache cache = caches.get(queryRecord.getDClass());
+    if (cache == null) {
+      return lookupWithResolver(queryRecord, aliases);
+    }
+
+    log.debug(
+        "Looking for <{}/{}/{}> in cache",
+        queryRecord.getName(),
+        Type.string(queryRecord.getType()),
+        DClass.string(queryRecord.getDClass()));
+    SetResponse setResponse =
+        cache.lookupRecords(queryRecord.getName(), queryRecord.getType(), Credibility.NORMAL);
+    if (setResponse != null) {
+      CompletionStage<LookupResult> fromCache =
+          setResponseToMessageFuture(setResponse, queryRecord, aliases);
+      if (fromCache != null) {
+        maybePrefetch(setResponse, queryRecord);
+        return fromCache;
+      }
+    }
+
+    CompletionStage<LookupResult> fromResolver = lookupWithResolver(queryRecord, aliases);
+    if (!serveStale) {
+      return fromResolver;
+    }
+
+    return fromResolver
+        .handle(
+            (result, ex) -> {
+              if (ex == null) {
+                return CompletableFuture.completedFuture(result);
+              }
+              return lookupStale(cache, queryRecord, aliases, ex);
             })
-        .map(setResponse -> setResponseToMessageFuture(setResponse, queryRecord, aliases))
-        .orElseGet(() -> lookupWithResolver(queryRecord, aliases));
+        .thenCompose(Function.identity());
+  }
+
+  private void maybePrefetch(SetResponse setResponse, Record queryRecord) {
+    if (prefetchThreshold == 0
+        || !setResponse.isSuccessful()
+        || setResponse.getRemainingTtlPercent() > prefetchThreshold
+        || !prefetching.add(queryRecord)) {
+      return;
+    }
+
+    log.debug(
+        "Prefetching <{}/{}/{}>",
+        queryRecord.getName(),
+        Type.string(queryRecord.getType()),
+        DClass.string(queryRecord.getDClass()));
+    try {
+      lookupWithResolver(queryRecord, null)
+          .whenComplete(
+              (result, ex) -> {
+                prefetching.remove(queryRecord);
+                if (ex != null) {
+                  log.debug(
+                      "Prefetching <{}/{}/{}> failed",
+                      queryRecord.getName(),
+                      Type.string(queryRecord.getType()),
+                      DClass.string(queryRecord.getDClass()),
+                      ex);
+                }
+              });
+    } catch (RuntimeException e) {
+      prefetching.remove(queryRecord);
+      log.debug("Prefetching <{}> failed", queryRecord.getName(), e);
+    }
+  }
+
+  private CompletionStage<LookupResult> lookupStale(
+      Cache cache, Record queryRecord, List<Name> aliases, Throwable ex) {
+    Throwable cause =
+        ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    if (cause instanceof IOException
+        || cause instanceof TimeoutException
+        || cause instanceof ServerFailedException) {
+      SetResponse setResponse =
+          cache.lookupStaleRecords(
+              queryRecord.getName(), queryRecord.getType(), Credibility.NORMAL);
+      CompletionStage<LookupResult> stale =
+          setResponse == null
+              ? null
+              : setResponseToMessageFuture(setResponse, queryRecord, aliases);
+      if (stale != null) {
+        log.debug(
+            "Serving stale answer for <{}/{}/{}> after: {}",
+            queryRecord.getName(),
+            Type.string(queryRecord.getType()),
+            DClass.string(queryRecord.getDClass()),
+            cause.toString());
+        return stale;
+      }
+    }
+
+    return completeExceptionally(cause);
   }
 
   private CompletionStage<LookupResult> lookupWithResolver(Record queryRecord, List<Name> aliases) {
+    return queryResolver(queryRecord)
+        .thenApply(answer -> buildResult(answer, aliases, queryRecord));
+  }
+
+  /**
+   * Sends a query to the resolver, or joins an identical query that is already in progress. The
+   * shared result is the normalized response message, which is already added to the cache, so that
+   * every caller can build its own {@link LookupResult} with the aliases it followed so far.
+   */
+  private CompletionStage<Message> queryResolver(Record queryRecord) {
+    if (maxInFlightQueries <= 0) {
+      return sendQuery(queryRecord);
+    }
+
+    CompletableFuture<Message> inFlight = inFlightQueries.get(queryRecord);
+    if (inFlight == null) {
+      if (inFlightQueries.size() >= maxInFlightQueries) {
+        return sendQuery(queryRecord);
+      }
+
+      CompletableFuture<Message> f = new CompletableFuture<>();
+      inFlight = inFlightQueries.putIfAbsent(queryRecord, f);
+      if (inFlight == null) {
+        try {
+          sendQuery(queryRecord)
+              .whenComplete(
+                  (m, ex) -> {
+                    // remove before completing, later lookups should use the cache
+                    inFlightQueries.remove(queryRecord, f);
+                    if (ex != null) {
+                      f.completeExceptionally(ex);
+                    } else {
+                      f.complete(m);
+                    }
+                  });
+        } catch (RuntimeException e) {
+          inFlightQueries.remove(queryRecord, f);
+          f.completeExceptionally(e);
+        }
+        return f;
+      }
+    }
+
+    log.debug(
+        "Joining in-flight query for <{}/{}/{}>",
+        queryRecord.getName(),
+        Type.string(queryRecord.getType()),
+        DClass.string(queryRecord.getDClass()));
+    return inFlight;
+  }
+
+  private CompletionStage<Message> sendQuery(Record queryRecord) {
     Message query = Message.newQuery(queryRecord);
     log.debug(
         "Asking {} for <{}/{}/{}>",
@@ -555,8 +761,7 @@ public class LookupSession {
                         "Message normalization failed, refusing to return it", e));
               }
             })
-        .thenApply(this::maybeAddToCache)
-        .thenApply(answer -> buildResult(answer, aliases, queryRecord));
+        .thenApply(this::maybeAddToCache);
   }
 
   private Message maybeAddToCache(Message message) {
@@ -0,0 +1,406 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The network part of {@link jnamed}. UDP is served by several threads that receive on the same
+ * port, each with its own socket if the platform supports {@code SO_REUSEPORT}. TCP connections are
+ * served by the same number of selector threads; they stay open for further, pipelined queries
+ * until the client closes them or nothing was read or written for too long, also while responses
+ * wait for a client that stopped reading.
+ */
+final class NioServer implements Closeable {
+  /** The largest DNS message, and the largest TCP frame. */
+  private static final int MAX_MESSAGE = 65535;
+
+  /** Responses that may be waiting for a slow TCP client before further queries are read. */
+  private static final int MAX_QUEUED_RESPONSES = 64;
+
+  /** Answers a query. */
+  interface Handler {
+    /**
+     * Answers a query.
+     *
+     * @param in The query.
+     * @param tcp The connection of the query, or {@code null} for UDP.
+     * @return The response, or {@code null} if there is none or it was sent with {@link
+     *     Connection#stream(Iterator)}.
+     */
+    byte[] handle(byte[] in, Connection tcp);
+  }
+
+  /** A TCP connection, as seen by the {@link Handler}. */
+  interface Connection {
+    /**
+     * Sends several responses, e.g. of a zone transfer. They are taken from the iterator only when
+     * the previous ones have been written, further queries are answered afterwards.
+     */
+    void stream(Iterator<byte[]> responses);
+  }
+
+  private final Handler handler;
+  private final int threads;
+  private final long idleTimeoutNanos;
+  private final List<Closeable> channels = new CopyOnWriteArrayList<>();
+  private final List<Selector> selectors = new CopyOnWriteArrayList<>();
+  private final List<Thread> loops = new CopyOnWriteArrayList<>();
+  private volatile boolean run = true;
+
+  NioServer(Handler handler, int threads, Duration idleTimeout) {
+    this.handler = handler;
+    this.threads = threads;
+    idleTimeoutNanos = idleTimeout.toNanos();
+  }
+
+  /**
+   * Starts serving UDP.
+   *
+   * @return The address the sockets are bound to.
+   */
+  InetSocketAddress addUDP(InetAddress addr, int port) throws IOException {
+    DatagramChannel first = DatagramChannel.open();
+    channels.add(first);
+    SocketOption<Boolean> reusePort = reusePort(first);
+    if (reusePort != null) {
+      first.setOption(reusePort, true);
+    }
+
+    first.bind(new InetSocketAddress(addr, port));
+    InetSocketAddress local = (InetSocketAddress) first.getLocalAddress();
+    for (int i = 0; i < threads; i++) {
+      DatagramChannel channel = first;
+      if (i > 0 && reusePort != null) {
+        channel = DatagramChannel.open();
+        channels.add(channel);
+        channel.setOption(reusePort, true);
+        channel.bind(local);
+      }
+
+      // without SO_REUSEPORT, all threads receive from the same socket
+      DatagramChannel c = channel;
+      start("jnamed UDP " + local + " #" + i, () -> serveUDP(c, local));
+    }
+
+    return local;
+  }
+
+  /**
+   * Starts serving TCP.
+   *
+   * @return The address the socket is bound to.
+   */
+  InetSocketAddress addTCP(InetAddress addr, int port) throws IOException {
+    ServerSocketChannel server = ServerSocketChannel.open();
+    channels.add(server);
+    server.bind(new InetSocketAddress(addr, port), 128);
+    server.configureBlocking(false);
+    InetSocketAddress local = (InetSocketAddress) server.getLocalAddress();
+    for (int i = 0; i < threads; i++) {
+      Selector selector = Selector.open();
+      selectors.add(selector);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+      start("jnamed TCP " + local + " #" + i, () -> serveTCP(selector, local));
+    }
+
+    return local;
+  }
+
+  /** Stops all threads and closes all sockets. */
+  @Override
+  public void close() {
+    run = false;
+    for (Closeable channel : channels) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+
+    selectors.forEach(Selector::wakeup);
+    for (Thread loop : loops) {
+      try {
+        loop.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void start(String name, Runnable loop) {
+    Thread t = new Thread(loop, name);
+    loops.add(t);
+    t.start();
+  }
+
+  /** Finds {@code SO_REUSEPORT}, which is not available in all Java versions and platforms. */
+  @SuppressWarnings("unchecked")
+  private static SocketOption<Boolean> reusePort(DatagramChannel channel) {
+    for (SocketOption<?> option : channel.supportedOptions()) {
+      if (option.name().equals("SO_REUSEPORT") && option.type() == Boolean.class) {
+        return (SocketOption<Boolean>) option;
+      }
+    }
+
+    return null;
+  }
+
+  private void serveUDP(DatagramChannel channel, InetSocketAddress local) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_MESSAGE);
+    while (run) {
+      try {
+        buffer.clear();
+        SocketAddress sender = channel.receive(buffer);
+        buffer.flip();
+        byte[] in = new byte[buffer.remaining()];
+        buffer.get(in);
+        byte[] response = handle(in, null);
+        if (response != null) {
+          channel.send(ByteBuffer.wrap(response), sender);
+        }
+      } catch (ClosedChannelException e) {
+        break;
+      } catch (IOException e) {
+        System.out.println("serveUDP(" + local + "): " + e);
+      }
+    }
+  }
+
+  private byte[] handle(byte[] in, Connection tcp) {
+    try {
+      return handler.handle(in, tcp);
+    } catch (RuntimeException e) {
+      System.out.println("query failed: " + e);
+      return null;
+    }
+  }
+
+  private void serveTCP(Selector selector, InetSocketAddress local) {
+    long tick = Math.max(idleTimeoutNanos / 2_000_000, 1);
+    while (run) {
+      try {
+        selector.select(tick);
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+
+          if (key.isAcceptable()) {
+            accept(selector, (ServerSocketChannel) key.channel());
+          } else {
+            ((TcpConnection) key.attachment()).ready(key);
+          }
+        }
+
+        closeIdle(selector);
+      } catch (IOException e) {
+        System.out.println("serveTCP(" + local + "): " + e);
+      }
+    }
+
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof TcpConnection) {
+        ((TcpConnection) key.attachment()).close();
+      }
+    }
+
+    try {
+      selector.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  private void accept(Selector selector, ServerSocketChannel server) throws IOException {
+    // all selector threads listen on the socket, another one may have been faster
+    SocketChannel channel = server.accept();
+    if (channel == null) {
+      return;
+    }
+
+    channel.configureBlocking(false);
+    // responses are written at once, don't delay those that follow a partial write
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    TcpConnection c = new TcpConnection(channel);
+    c.key = channel.register(selector, SelectionKey.OP_READ, c);
+  }
+
+  private void closeIdle(Selector selector) {
+    long now = System.nanoTime();
+    for (SelectionKey key : selector.keys()) {
+      Object attachment = key.attachment();
+      if (attachment instanceof TcpConnection
+          && now - ((TcpConnection) attachment).lastActive > idleTimeoutNanos) {
+        ((TcpConnection) attachment).close();
+      }
+    }
+  }
+
+  /** A TCP connection. All methods are called by the thread of its selector. */
+  private final class TcpConnection implements Connection {
+    private final SocketChannel channel;
+    private final Deque<ByteBuffer> out = new ArrayDeque<>();
+    private ByteBuffer in = ByteBuffer.allocate(2 + 512);
+    private SelectionKey key;
+    private Iterator<byte[]> stream;
+
+    /** When the last bytes were read or written. */
+    private long lastActive = System.nanoTime();
+
+    private TcpConnection(SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void stream(Iterator<byte[]> responses) {
+      stream = responses;
+    }
+
+    private void ready(SelectionKey key) {
+      try {
+        int read = key.isReadable() ? channel.read(in) : 0;
+        if (read < 0) {
+          close();
+          return;
+        }
+
+        if (read > 0) {
+          lastActive = System.nanoTime();
+        }
+
+        process();
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    /** Answers the complete queries in the input buffer and writes as much as possible. */
+    private void process() throws IOException {
+      while (true) {
+        while (stream == null && out.size() < MAX_QUEUED_RESPONSES && answerNext()) {
+          // answer pipelined queries
+        }
+
+        if (!write()) {
+          break;
+        }
+
+        if (stream != null) {
+          if (stream.hasNext()) {
+            queue(stream.next());
+          } else {
+            stream = null;
+          }
+        } else if (!hasQuery()) {
+          break;
+        }
+      }
+
+      // stop reading while responses wait for the client
+      int ops = out.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+      if (stream == null && out.size() < MAX_QUEUED_RESPONSES) {
+        ops |= SelectionKey.OP_READ;
+      }
+
+      if (key.isValid()) {
+        key.interestOps(ops);
+      }
+    }
+
+    private boolean hasQuery() {
+      return in.position() >= 2 && in.position() >= 2 + (in.getShort(0) & 0xFFFF);
+    }
+
+    private boolean answerNext() {
+      if (!hasQuery()) {
+        int length = in.position() >= 2 ? 2 + (in.getShort(0) & 0xFFFF) : 0;
+        if (length > in.capacity()) {
+          ByteBuffer larger = ByteBuffer.allocate(length);
+          in.flip();
+          larger.put(in);
+          in = larger;
+        }
+
+        return false;
+      }
+
+      int length = in.getShort(0) & 0xFFFF;
+      byte[] query = new byte[length];
+      in.flip();
+      in.position(2);
+      in.get(query);
+      in.compact();
+
+      byte[] response = handle(query, this);
+      if (response != null) {
+        queue(response);
+      }
+
+      return true;
+    }
+
+    private void queue(byte[] response) {
+      ByteBuffer frame = ByteBuffer.allocate(2 + response.length);
+      frame.putShort((short) response.length);
+      frame.put(response);
+      frame.flip();
+      out.add(frame);
+    }
+
+    /**
+     * Writes the queued responses.
+     *
+     * @return {@code true} if all were written.
+     */
+    private boolean write() throws IOException {
+      while (!out.isEmpty()) {
+        if (channel.write(out.toArray(new ByteBuffer[0])) > 0) {
+          lastActive = System.nanoTime();
+        }
+
+        while (!out.isEmpty() && !out.peekFirst().hasRemaining()) {
+          out.removeFirst();
+        }
+
+        if (!out.isEmpty() && out.peekFirst().hasRemaining()) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private void close() {
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+}
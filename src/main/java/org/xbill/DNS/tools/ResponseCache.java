@@ -0,0 +1,200 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.tools;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Type;
+
+/**
+ * Caches the wire format of authoritative responses of {@link jnamed}. The queries are only parsed
+ * as far as needed for the key: the question, the DO bit and the size of the response. A cached
+ * response is copied and only the ID, the RD flag and the case of the question are changed.
+ *
+ * <p>Only simple queries are cached: one question, no records other than an OPT record without a
+ * TSIG. The cache is emptied when it is full or a zone changes.
+ */
+final class ResponseCache {
+  private static final int HEADER_LENGTH = 12;
+  private static final int FLAGS_RD = 0x0100;
+
+  /** QR, opcode and rcode must be 0 in queries that are cached. */
+  private static final int FLAGS_UNCACHEABLE = 0xF80F;
+
+  private final int maxEntries;
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  ResponseCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  /** The key of a query and the length of its question name. */
+  static final class Key {
+    private final byte[] bytes;
+    private final int hash;
+    private final int nameLength;
+
+    private Key(byte[] bytes, int nameLength) {
+      this.bytes = bytes;
+      this.nameLength = nameLength;
+      hash = Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Entry {
+    private final byte[] response;
+    private final long generation;
+
+    Entry(byte[] response, long generation) {
+      this.response = response;
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * Gets the key of a query.
+   *
+   * @param in The query.
+   * @param tcp Whether the query was received over TCP, i.e. the response is not truncated.
+   * @return The key, or {@code null} if the response to the query cannot be cached.
+   */
+  static Key key(byte[] in, boolean tcp) {
+    if (in.length < HEADER_LENGTH
+        || (u16(in, 2) & FLAGS_UNCACHEABLE) != 0
+        || u16(in, 4) != 1
+        || u16(in, 6) != 0
+        || u16(in, 8) != 0
+        || u16(in, 10) > 1) {
+      return null;
+    }
+
+    // the uncompressed question name, lowercased
+    int pos = HEADER_LENGTH;
+    while (pos < in.length && in[pos] != 0) {
+      if ((in[pos] & 0xC0) != 0) {
+        return null;
+      }
+
+      pos += 1 + in[pos];
+    }
+
+    int nameLength = pos + 1 - HEADER_LENGTH;
+    if (pos + 5 > in.length || nameLength > 255) {
+      return null;
+    }
+
+    int end = pos + 5;
+    int maxLength = 512;
+    int dnssecOk = 0;
+    int edns = 0;
+    if (u16(in, 10) == 1) {
+      // OPT: root name, type, payload size, extended rcode, version, flags, rdata
+      if (end + 11 > in.length || in[end] != 0 || u16(in, end + 1) != Type.OPT) {
+        return null;
+      }
+
+      maxLength = Math.max(u16(in, end + 3), 512);
+      dnssecOk = (u16(in, end + 7) & 0x8000) != 0 ? 1 : 0;
+      edns = 1;
+      if (end + 11 + u16(in, end + 9) != in.length) {
+        return null;
+      }
+    } else if (end != in.length) {
+      return null;
+    }
+
+    if (tcp) {
+      maxLength = 65535;
+    }
+
+    byte[] key = new byte[nameLength + 4 + 4];
+    for (int i = 0; i < nameLength + 4; i++) {
+      byte b = in[HEADER_LENGTH + i];
+      key[i] = i < nameLength && b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    key[nameLength + 4] = (byte) (maxLength >>> 8);
+    key[nameLength + 5] = (byte) maxLength;
+    key[nameLength + 6] = (byte) dnssecOk;
+    key[nameLength + 7] = (byte) edns;
+    return new Key(key, nameLength);
+  }
+
+  /** Gets the generation that responses computed from now on belong to. */
+  long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Gets the cached response to a query.
+   *
+   * @param key The key of the query.
+   * @param in The query.
+   * @return A copy of the response for the query, or {@code null}.
+   */
+  byte[] get(Key key, byte[] in) {
+    Entry entry = entries.get(key);
+    if (entry == null || entry.generation != generation.get()) {
+      return null;
+    }
+
+    byte[] response = entry.response.clone();
+    response[0] = in[0];
+    response[1] = in[1];
+    response[2] = (byte) ((response[2] & ~(FLAGS_RD >>> 8)) | (in[2] & (FLAGS_RD >>> 8)));
+    System.arraycopy(in, HEADER_LENGTH, response, HEADER_LENGTH, key.nameLength);
+    return response;
+  }
+
+  /**
+   * Caches a response if it is an authoritative answer. Responses are only signed if the query was,
+   * and those have no key.
+   *
+   * @param key The key of the query.
+   * @param generation The {@link #generation()} before the response was computed, the response is
+   *     not cached if the cache was cleared since.
+   * @param response The response.
+   */
+  void put(Key key, long generation, byte[] response) {
+    if (generation != this.generation.get()) {
+      return;
+    }
+
+    int flags = u16(response, 2);
+    int rcode = flags & 0xF;
+    if ((flags & (1 << (15 - Flags.AA))) == 0
+        || (rcode != Rcode.NOERROR && rcode != Rcode.NXDOMAIN)) {
+      return;
+    }
+
+    if (entries.size() >= maxEntries) {
+      entries.clear();
+    }
+
+    entries.put(key, new Entry(response, generation));
+  }
+
+  /** Drops all responses, including those that are being computed. */
+  void clear() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  private static int u16(byte[] b, int pos) {
+    return ((b[pos] & 0xFF) << 8) | (b[pos + 1] & 0xFF);
+  }
+}
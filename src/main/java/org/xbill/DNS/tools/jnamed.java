@@ -9,18 +9,18 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.InterruptedIOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import org.xbill.DNS.Address;
 import org.xbill.DNS.CNAMERecord;
 import org.xbill.DNS.Cache;
@@ -38,12 +38,14 @@ import org.xbill.DNS.Opcode;
 import org.xbill.DNS.RRset;
 import org.xbill.DNS.Rcode;
 import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
 import org.xbill.DNS.Section;
 import org.xbill.DNS.SetResponse;
 import org.xbill.DNS.TSIG;
 import org.xbill.DNS.TSIGRecord;
 import org.xbill.DNS.Type;
 import org.xbill.DNS.Zone;
+import org.xbill.DNS.ZoneJournal;
 import org.xbill.DNS.ZoneTransferException;
 
 /**
@@ -59,12 +61,34 @@ public class jnamed {
   Map<Integer, Cache> caches;
   Map<Name, Zone> znames;
   Map<Name, TSIG> tsigs;
+  Map<Name, ZoneJournal> journals;
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private Duration tcpIdleTimeout = Duration.ofSeconds(10);
+  private NioServer server;
+  private ResponseCache responseCache = new ResponseCache(10000);
+  private int journalSize = 10000;
+
+  /** Registered once with each zone, so that adding a zone again doesn't add another listener. */
+  private final Runnable zoneChanged = this::clearResponseCache;
+
+  /** The maximum size of the messages of a zone transfer, without the TSIG. */
+  private static final int XFR_MESSAGE_SIZE = 16384;
 
   private static String addrport(InetAddress addr, int port) {
     return addr.getHostAddress() + "#" + port;
   }
 
+  /** Creates a server without zones that doesn't listen yet. */
+  public jnamed() {
+    caches = new ConcurrentHashMap<>();
+    znames = new ConcurrentHashMap<>();
+    tsigs = new HashMap<>();
+    journals = new ConcurrentHashMap<>();
+  }
+
   public jnamed(String conffile) throws IOException, ZoneTransferException {
+    this();
     FileInputStream fs;
     InputStreamReader isr;
     BufferedReader br;
@@ -80,10 +104,6 @@ public class jnamed {
     }
 
     try {
-      caches = new HashMap<>();
-      znames = new HashMap<>();
-      tsigs = new HashMap<>();
-
       String line;
       while ((line = br.readLine()) != null) {
         StringTokenizer st = new StringTokenizer(line);
@@ -125,6 +145,18 @@ public class jnamed {
             String addr = st.nextToken();
             addresses.add(Address.getByAddress(addr));
             break;
+          case "threads":
+            setThreads(Integer.parseInt(st.nextToken()));
+            break;
+          case "tcp-idle-timeout":
+            setTcpIdleTimeout(Duration.ofSeconds(Long.parseLong(st.nextToken())));
+            break;
+          case "response-cache":
+            setResponseCacheSize(Integer.parseInt(st.nextToken()));
+            break;
+          case "ixfr-journal":
+            setJournalSize(Integer.parseInt(st.nextToken()));
+            break;
           default:
             System.out.println("unknown keyword: " + keyword);
             break;
@@ -153,20 +185,86 @@ public class jnamed {
     }
   }
 
+  /**
+   * Sets the number of threads that receive UDP queries and the number of threads that serve TCP
+   * connections, for each address. The default is the number of processors.
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+
+    this.threads = threads;
+  }
+
+  /**
+   * Sets the time after which TCP connections without queries are closed, 10 seconds by default.
+   */
+  public void setTcpIdleTimeout(Duration timeout) {
+    tcpIdleTimeout = timeout;
+  }
+
+  /**
+   * Sets the number of authoritative responses that are cached in wire format, 10000 by default.
+   * The cache is emptied when a zone changes; {@code 0} disables it.
+   */
+  public void setResponseCacheSize(int entries) {
+    responseCache = entries > 0 ? new ResponseCache(entries) : null;
+  }
+
+  /**
+   * Sets the maximum number of records in the changes of each zone that are kept to answer IXFR,
+   * 10000 by default; {@code 0} answers all IXFR with a full zone transfer. Only applies to zones
+   * that are added afterwards.
+   */
+  public void setJournalSize(int records) {
+    journalSize = records;
+  }
+
+  public synchronized void addZone(Zone zone) {
+    Name origin = zone.getOrigin();
+    Zone replaced = znames.put(origin, zone);
+    if (replaced != null) {
+      replaced.removeChangeListener(zoneChanged);
+    }
+
+    ZoneJournal old = journals.remove(origin);
+    if (old != null) {
+      try {
+        old.close();
+      } catch (IOException e) {
+        // the journal has no file
+      }
+    }
+
+    if (journalSize > 0) {
+      journals.put(origin, new ZoneJournal(zone, journalSize));
+    }
+
+    zone.removeChangeListener(zoneChanged);
+    zone.addChangeListener(zoneChanged);
+    clearResponseCache();
+  }
+
+  private void clearResponseCache() {
+    ResponseCache c = responseCache;
+    if (c != null) {
+      c.clear();
+    }
+  }
+
   public void addPrimaryZone(String zname, String zonefile) throws IOException {
     Name origin = null;
     if (zname != null) {
       origin = Name.fromString(zname, Name.root);
     }
-    Zone newzone = new Zone(origin, zonefile);
-    znames.put(newzone.getOrigin(), newzone);
+    addZone(new Zone(origin, zonefile));
   }
 
   public void addSecondaryZone(String zone, String remote)
       throws IOException, ZoneTransferException {
     Name zname = Name.fromString(zone, Name.root);
-    Zone newzone = new Zone(zname, DClass.IN, remote);
-    znames.put(zname, newzone);
+    addZone(new Zone(zname, DClass.IN, remote));
   }
 
   public void addTSIG(String algstr, String namestr, String key) throws IOException {
@@ -367,50 +465,142 @@ public class jnamed {
     return rcode;
   }
 
-  byte[] doAXFR(Name name, Message query, TSIG tsig, TSIGRecord qtsig, Socket s) {
+  byte[] doAXFR(
+      Name name, Message query, TSIG tsig, TSIGRecord qtsig, NioServer.Connection connection) {
     Zone zone = znames.get(name);
-    boolean first = true;
     if (zone == null) {
       return errorMessage(query, Rcode.REFUSED);
     }
-    try {
-      DataOutputStream dataOut;
-      dataOut = new DataOutputStream(s.getOutputStream());
-      int id = query.getHeader().getID();
-      Iterator<RRset> it = zone.AXFR();
-      while (it.hasNext()) {
-        RRset rrset = it.next();
-        Message response = new Message(id);
-        Header header = response.getHeader();
-        header.setFlag(Flags.QR);
-        header.setFlag(Flags.AA);
-        addRRset(rrset.getName(), response, rrset, Section.ANSWER, FLAG_DNSSECOK);
-        if (tsig != null) {
-          tsig.apply(response, qtsig, first);
-          qtsig = response.getTSIG();
-        }
-        first = false;
-        byte[] out = response.toWire();
-        dataOut.writeShort(out.length);
-        dataOut.write(out);
-      }
-    } catch (IOException ex) {
-      System.out.println("AXFR failed");
+
+    int id = query.getHeader().getID();
+    Iterator<RRset> it = zone.AXFR();
+    stream(
+        connection,
+        tsig,
+        qtsig,
+        new Iterator<Message>() {
+          @Override
+          public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override
+          public Message next() {
+            RRset rrset = it.next();
+            Message response = xfrMessage(id);
+            addRRset(rrset.getName(), response, rrset, Section.ANSWER, FLAG_DNSSECOK);
+            return response;
+          }
+        });
+    return null;
+  }
+
+  /*
+   * Answers an IXFR from the journal of the zone, which falls back to a full zone transfer if it
+   * doesn't have the changes since the serial of the client. Over UDP only the current SOA is sent,
+   * the client then retries over TCP.
+   */
+  byte[] doIXFR(
+      Name name, Message query, TSIG tsig, TSIGRecord qtsig, NioServer.Connection connection) {
+    Zone zone = znames.get(name);
+    if (zone == null) {
+      return errorMessage(query, Rcode.REFUSED);
     }
-    try {
-      s.close();
-    } catch (IOException ex) {
-      // ignore
+
+    List<Record> authority = query.getSection(Section.AUTHORITY);
+    if (authority.size() != 1 || !(authority.get(0) instanceof SOARecord)) {
+      return errorMessage(query, Rcode.FORMERR);
+    }
+
+    ZoneJournal journal = journals.get(name);
+    if (journal == null && connection != null) {
+      return doAXFR(name, query, tsig, qtsig, connection);
     }
+
+    int id = query.getHeader().getID();
+    if (connection == null) {
+      Message response = xfrMessage(id);
+      response.addRecord(query.getQuestion(), Section.QUESTION);
+      response.addRecord(zone.getSOA(), Section.ANSWER);
+      response.setTSIG(tsig, Rcode.NOERROR, qtsig);
+      return response.toWire(512);
+    }
+
+    Iterator<Record> it = journal.IXFR(((SOARecord) authority.get(0)).getSerial());
+    stream(
+        connection,
+        tsig,
+        qtsig,
+        new Iterator<Message>() {
+          private Record next;
+
+          @Override
+          public boolean hasNext() {
+            return next != null || it.hasNext();
+          }
+
+          @Override
+          public Message next() {
+            Message response = xfrMessage(id);
+            int size = 0;
+            do {
+              if (next == null) {
+                next = it.next();
+              }
+
+              size += next.toWire(Section.ANSWER).length;
+              if (size > XFR_MESSAGE_SIZE && response.getHeader().getCount(Section.ANSWER) > 0) {
+                break;
+              }
+
+              response.addRecord(next, Section.ANSWER);
+              next = null;
+            } while (it.hasNext());
+            return response;
+          }
+        });
     return null;
   }
 
+  private static Message xfrMessage(int id) {
+    Message response = new Message(id);
+    Header header = response.getHeader();
+    header.setFlag(Flags.QR);
+    header.setFlag(Flags.AA);
+    return response;
+  }
+
+  private static void stream(
+      NioServer.Connection connection, TSIG tsig, TSIGRecord qtsig, Iterator<Message> responses) {
+    connection.stream(
+        new Iterator<byte[]>() {
+          private TSIGRecord lastTsig = qtsig;
+          private boolean first = true;
+
+          @Override
+          public boolean hasNext() {
+            return responses.hasNext();
+          }
+
+          @Override
+          public byte[] next() {
+            Message response = responses.next();
+            if (tsig != null) {
+              tsig.apply(response, lastTsig, first);
+              lastTsig = response.getTSIG();
+            }
+            first = false;
+            return response.toWire();
+          }
+        });
+  }
+
   /*
    * Note: a null return value means that the caller doesn't need to do
-   * anything.  Currently this only happens if this is an AXFR request over
-   * TCP.
+   * anything.  Currently this only happens if this is an AXFR or IXFR request
+   * over TCP, the responses are then streamed to the connection.
    */
-  byte[] generateReply(Message query, byte[] in, Socket s) {
+  byte[] generateReply(Message query, byte[] in, NioServer.Connection s) {
     Header header;
     int maxLength;
     int flags = 0;
@@ -463,6 +653,9 @@ public class jnamed {
     if (type == Type.AXFR && s != null) {
       return doAXFR(name, query, tsig, queryTSIG, s);
     }
+    if (type == Type.IXFR) {
+      return doIXFR(name, query, tsig, queryTSIG, s);
+    }
     if (!Type.isRR(type) && type != Type.ANY) {
       return errorMessage(query, Rcode.NOTIMP);
     }
@@ -511,98 +704,155 @@ public class jnamed {
     return buildErrorMessage(query.getHeader(), rcode, query.getQuestion());
   }
 
-  public void TCPclient(Socket s) {
-    try (InputStream is = s.getInputStream()) {
-      int inLength;
-      DataInputStream dataIn;
-      DataOutputStream dataOut;
-      byte[] in;
-
-      dataIn = new DataInputStream(is);
-      inLength = dataIn.readUnsignedShort();
-      in = new byte[inLength];
-      dataIn.readFully(in);
+  byte[] handleQuery(byte[] in, NioServer.Connection tcp) {
+    ResponseCache c = responseCache;
+    ResponseCache.Key key = c != null ? ResponseCache.key(in, tcp != null) : null;
+    if (key != null) {
+      byte[] cached = c.get(key, in);
+      if (cached != null) {
+        return cached;
+      }
+    }
 
-      Message query;
-      byte[] response;
-      try {
-        query = new Message(in);
-        response = generateReply(query, in, s);
-        if (response == null) {
-          return;
-        }
-      } catch (IOException e) {
-        response = formerrMessage(in);
+    try {
+      long generation = key != null ? c.generation() : 0;
+      Message query = new Message(in);
+      byte[] response = generateReply(query, in, tcp);
+      // answers from the resolver cache expire, those from the zones are valid until they change
+      if (key != null && response != null && cachesAreEmpty()) {
+        c.put(key, generation, response);
       }
-      dataOut = new DataOutputStream(s.getOutputStream());
-      dataOut.writeShort(response.length);
-      dataOut.write(response);
+
+      return response;
     } catch (IOException e) {
-      System.out.println(
-          "TCPclient(" + addrport(s.getLocalAddress(), s.getLocalPort()) + "): " + e);
+      return formerrMessage(in);
     }
   }
 
-  public void serveTCP(InetAddress addr, int port) {
-    try (ServerSocket sock = new ServerSocket(port, 128, addr)) {
-      while (true) {
-        final Socket s = sock.accept();
-        Thread t;
-        t = new Thread(() -> TCPclient(s));
-        t.start();
+  private boolean cachesAreEmpty() {
+    for (Cache cache : caches.values()) {
+      if (cache.getSize() > 0) {
+        return false;
       }
+    }
+
+    return true;
+  }
+
+  /**
+   * Starts serving UDP queries. Errors are printed, use {@link #listenUDP(InetAddress, int)} to
+   * handle them.
+   */
+  public void addUDP(InetAddress addr, int port) {
+    try {
+      listenUDP(addr, port);
+    } catch (IOException e) {
+      System.out.println("serveUDP(" + addrport(addr, port) + "): " + e);
+    }
+  }
+
+  /**
+   * Starts serving TCP connections. Errors are printed, use {@link #listenTCP(InetAddress, int)} to
+   * handle them.
+   */
+  public void addTCP(InetAddress addr, int port) {
+    try {
+      listenTCP(addr, port);
     } catch (IOException e) {
       System.out.println("serveTCP(" + addrport(addr, port) + "): " + e);
     }
   }
 
+  /**
+   * Starts serving UDP queries.
+   *
+   * @return The address the server listens on, with the port if {@code port} is {@code 0}.
+   * @throws IOException if the socket cannot be bound.
+   * @since 3.6.5
+   */
+  public InetSocketAddress listenUDP(InetAddress addr, int port) throws IOException {
+    return server().addUDP(addr, port);
+  }
+
+  /**
+   * Starts serving TCP connections.
+   *
+   * @return The address the server listens on, with the port if {@code port} is {@code 0}.
+   * @throws IOException if the socket cannot be bound.
+   * @since 3.6.5
+   */
+  public InetSocketAddress listenTCP(InetAddress addr, int port) throws IOException {
+    return server().addTCP(addr, port);
+  }
+
+  /**
+   * Starts serving UDP queries. This no longer blocks, the queries are served by the threads of the
+   * server.
+   *
+   * @deprecated use {@link #listenUDP(InetAddress, int)}
+   */
+  @Deprecated
   public void serveUDP(InetAddress addr, int port) {
-    try (DatagramSocket sock = new DatagramSocket(port, addr)) {
-      final short udpLength = 512;
-      byte[] in = new byte[udpLength];
-      DatagramPacket indp = new DatagramPacket(in, in.length);
-      DatagramPacket outdp = null;
-      while (true) {
-        indp.setLength(in.length);
-        try {
-          sock.receive(indp);
-        } catch (InterruptedIOException e) {
-          continue;
-        }
-        Message query;
-        byte[] response;
-        try {
-          query = new Message(in);
-          response = generateReply(query, in, null);
-          if (response == null) {
-            continue;
-          }
-        } catch (IOException e) {
-          response = formerrMessage(in);
-        }
-        if (outdp == null) {
-          outdp = new DatagramPacket(response, response.length, indp.getAddress(), indp.getPort());
-        } else {
-          outdp.setData(response);
-          outdp.setLength(response.length);
-          outdp.setAddress(indp.getAddress());
-          outdp.setPort(indp.getPort());
-        }
-        sock.send(outdp);
+    addUDP(addr, port);
+  }
+
+  /**
+   * Starts serving TCP connections. This no longer blocks, the connections are served by the
+   * threads of the server.
+   *
+   * @deprecated use {@link #listenTCP(InetAddress, int)}
+   */
+  @Deprecated
+  public void serveTCP(InetAddress addr, int port) {
+    addTCP(addr, port);
+  }
+
+  /**
+   * Answers one query on a connected socket and closes it.
+   *
+   * @deprecated the connections of {@link #listenTCP(InetAddress, int)} are served by the server
+   */
+  @Deprecated
+  public void TCPclient(Socket s) {
+    try (InputStream is = s.getInputStream()) {
+      DataInputStream dataIn = new DataInputStream(is);
+      byte[] in = new byte[dataIn.readUnsignedShort()];
+      dataIn.readFully(in);
+
+      AtomicReference<Iterator<byte[]>> stream = new AtomicReference<>();
+      byte[] response = handleQuery(in, stream::set);
+      DataOutputStream dataOut = new DataOutputStream(s.getOutputStream());
+      if (response != null) {
+        dataOut.writeShort(response.length);
+        dataOut.write(response);
+      }
+
+      Iterator<byte[]> it = stream.get();
+      while (it != null && it.hasNext()) {
+        byte[] next = it.next();
+        dataOut.writeShort(next.length);
+        dataOut.write(next);
       }
     } catch (IOException e) {
-      System.out.println("serveUDP(" + addrport(addr, port) + "): " + e);
+      System.out.println(
+          "TCPclient(" + addrport(s.getLocalAddress(), s.getLocalPort()) + "): " + e);
     }
   }
 
-  public void addTCP(final InetAddress addr, final int port) {
-    Thread t = new Thread(() -> serveTCP(addr, port));
-    t.start();
+  private synchronized NioServer server() {
+    if (server == null) {
+      server = new NioServer(this::handleQuery, threads, tcpIdleTimeout);
+    }
+
+    return server;
   }
 
-  public void addUDP(final InetAddress addr, final int port) {
-    Thread t = new Thread(() -> serveUDP(addr, port));
-    t.start();
+  /** Stops serving queries. */
+  public synchronized void close() {
+    if (server != null) {
+      server.close();
+      server = null;
+    }
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,249 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CacheTest {
+  private static final Name ZONE = Name.fromConstantString("example.com.");
+
+  private static ARecord a(String name, long ttl) throws Exception {
+    return new ARecord(
+        Name.fromString(name, ZONE), DClass.IN, ttl, InetAddress.getByName("192.0.2.1"));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, -1, 1 << 17})
+  void invalidConcurrencyLevel(int level) {
+    assertThrows(IllegalArgumentException.class, () -> new Cache(DClass.IN, level));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3, 16})
+  void lookupSuccessfulAndNxdomain(int level) throws Exception {
+    Cache cache = new Cache(DClass.IN, level);
+    ARecord www = a("www", 3600);
+    cache.addRecord(www, Credibility.AUTH_ANSWER);
+    cache.addNegative(
+        Name.fromString("nx", ZONE),
+        0,
+        new SOARecord(ZONE, DClass.IN, 3600, ZONE, ZONE, 1, 3600, 600, 86400, 3600),
+        Credibility.AUTH_AUTHORITY);
+
+    SetResponse sr = cache.lookupRecords(www.getName(), Type.A, Credibility.NORMAL);
+    assertTrue(sr.isSuccessful());
+    assertThat(sr.answers().get(0).rrs()).containsExactly(www);
+    assertTrue(
+        cache.lookupRecords(Name.fromString("nx", ZONE), Type.A, Credibility.NORMAL).isNXDOMAIN());
+    assertEquals(2, cache.getSize());
+
+    cache.flushName(www.getName());
+    assertTrue(cache.lookupRecords(www.getName(), Type.A, Credibility.NORMAL).isUnknown());
+    cache.clearCache();
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void lowerCredibilityDoesNotReplace() throws Exception {
+    Cache cache = new Cache(DClass.IN, 4);
+    ARecord auth = a("www", 3600);
+    cache.addRecord(auth, Credibility.AUTH_ANSWER);
+    cache.addRRset(
+        new RRset(new ARecord(auth.getName(), DClass.IN, 3600, InetAddress.getByName("192.0.2.2"))),
+        Credibility.GLUE);
+    SetResponse sr = cache.lookupRecords(auth.getName(), Type.A, Credibility.NORMAL);
+    assertThat(sr.answers().get(0).rrs()).containsExactly(auth);
+  }
+
+  @Test
+  void maxEntriesAcrossSegments() throws Exception {
+    Cache cache = new Cache(DClass.IN, 8);
+    cache.setMaxEntries(80);
+    assertEquals(80, cache.getMaxEntries());
+    for (int i = 0; i < 1000; i++) {
+      cache.addRecord(a("host" + i, 3600), Credibility.AUTH_ANSWER);
+    }
+    assertThat(cache.getSize()).isLessThanOrEqualTo(80).isPositive();
+  }
+
+  @Test
+  void concurrentAddAndLookup() throws Exception {
+    Cache cache = new Cache(DClass.IN, 16);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 500; i++) {
+                    ARecord r = a("t" + thread + "-" + i, 3600);
+                    cache.addRecord(r, Credibility.AUTH_ANSWER);
+                    assertTrue(
+                        cache
+                            .lookupRecords(r.getName(), Type.A, Credibility.NORMAL)
+                            .isSuccessful());
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(8 * 500, cache.getSize());
+  }
+
+  @Test
+  void lowerMaxEntriesShrinksImmediately() throws Exception {
+    Cache cache = new Cache();
+    for (int i = 0; i < 100; i++) {
+      cache.addRecord(a("host" + i, 3600), Credibility.AUTH_ANSWER);
+    }
+    assertEquals(100, cache.getSize());
+    cache.setMaxEntries(10);
+    assertEquals(10, cache.getSize());
+    assertEquals(90, cache.getEvictedCount());
+
+    // the most recently added entries survive
+    assertTrue(
+        cache
+            .lookupRecords(Name.fromString("host99", ZONE), Type.A, Credibility.NORMAL)
+            .isSuccessful());
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 4})
+  void removeExpiredIsBounded(int level) throws Exception {
+    Cache cache = new Cache(DClass.IN, level);
+    cache.setMaxCache(0);
+    for (int i = 0; i < 10; i++) {
+      cache.addRecord(a("host" + i, 3600), Credibility.AUTH_ANSWER);
+    }
+    cache.setMaxCache(-1);
+    cache.addRecord(a("live", 3600), Credibility.AUTH_ANSWER);
+    assertEquals(11, cache.getSize());
+
+    assertEquals(3, cache.removeExpired(3));
+    assertEquals(8, cache.getSize());
+    assertEquals(7, cache.removeExpired(100));
+    assertEquals(1, cache.getSize());
+    assertEquals(10, cache.getExpiredCount());
+    assertEquals(0, cache.removeExpired(100));
+  }
+
+  @Test
+  void removeExpiredIgnoresReplacedEntries() throws Exception {
+    Cache cache = new Cache();
+    assertEquals(0, cache.removeExpired(100));
+    cache.setMaxCache(0);
+    ARecord r = a("www", 3600);
+    cache.addRecord(r, Credibility.GLUE);
+    cache.setMaxCache(-1);
+    cache.addRecord(r, Credibility.AUTH_ANSWER);
+
+    assertEquals(0, cache.removeExpired(100));
+    assertTrue(cache.lookupRecords(r.getName(), Type.A, Credibility.NORMAL).isSuccessful());
+  }
+
+  @Test
+  void removeExpiredKeepsLeastRecentlyUsedOrder() throws Exception {
+    Cache cache = new Cache();
+    cache.setMaxEntries(3);
+    Name replaced = Name.fromString("replaced", ZONE);
+    Name shared = Name.fromString("shared", ZONE);
+    cache.setMaxCache(0);
+    cache.addRecord(a("replaced", 3600), Credibility.GLUE);
+    cache.addRecord(a("shared", 3600), Credibility.AUTH_ANSWER);
+    cache.setMaxCache(-1);
+    cache.addRecord(a("replaced", 3600), Credibility.AUTH_ANSWER);
+    cache.addRecord(new TXTRecord(shared, DClass.IN, 3600, "live"), Credibility.AUTH_ANSWER);
+    cache.addRecord(a("newest", 3600), Credibility.AUTH_ANSWER);
+
+    // skips the replaced entry and removes the expired A record of the shared name
+    assertEquals(1, cache.removeExpired(100));
+    assertEquals(3, cache.getSize());
+
+    // neither name was moved ahead of the newest entry by the expiry sweep
+    cache.addRecord(a("next1", 3600), Credibility.AUTH_ANSWER);
+    cache.addRecord(a("next2", 3600), Credibility.AUTH_ANSWER);
+    assertTrue(cache.lookupRecords(replaced, Type.A, Credibility.NORMAL).isUnknown());
+    assertTrue(cache.lookupRecords(shared, Type.TXT, Credibility.NORMAL).isUnknown());
+    assertTrue(
+        cache
+            .lookupRecords(Name.fromString("newest", ZONE), Type.A, Credibility.NORMAL)
+            .isSuccessful());
+  }
+
+  @Test
+  void scheduledExpiry() throws Exception {
+    Cache cache = new Cache(DClass.IN, 2);
+    cache.setMaxCache(0);
+    for (int i = 0; i < 10; i++) {
+      cache.addRecord(a("host" + i, 3600), Credibility.AUTH_ANSWER);
+    }
+
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      ScheduledFuture<?> future = cache.scheduleExpiry(executor, Duration.ofMillis(10), 4);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (cache.getSize() > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      future.cancel(false);
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(0, cache.getSize());
+    assertEquals(10, cache.getExpiredCount());
+  }
+
+  @Test
+  void staleEntriesAreOnlyReturnedByStaleLookup() throws Exception {
+    Cache cache = new Cache();
+    cache.setMaxStale(3600);
+    cache.setMaxCache(0);
+    ARecord r = a("www", 3600);
+    cache.addRecord(r, Credibility.AUTH_ANSWER);
+    cache.setMaxCache(-1);
+
+    assertTrue(cache.lookupRecords(r.getName(), Type.A, Credibility.NORMAL).isUnknown());
+    SetResponse sr = cache.lookupStaleRecords(r.getName(), Type.A, Credibility.NORMAL);
+    assertTrue(sr.isSuccessful());
+    assertEquals(30, sr.answers().get(0).getTTL());
+    assertEquals(1, cache.getSize());
+    assertEquals(0, cache.removeExpired(100));
+
+    cache.setMaxStale(0);
+    assertTrue(cache.lookupStaleRecords(r.getName(), Type.A, Credibility.NORMAL).isUnknown());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void remainingTtlPercent() throws Exception {
+    Cache cache = new Cache();
+    ARecord r = a("www", 3600);
+    cache.addRecord(r, Credibility.AUTH_ANSWER);
+    SetResponse sr = cache.lookupRecords(r.getName(), Type.A, Credibility.NORMAL);
+    assertThat(sr.getRemainingTtlPercent()).isBetween(99, 100);
+  }
+}
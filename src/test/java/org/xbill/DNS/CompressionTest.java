@@ -35,8 +35,11 @@
 //
 package org.xbill.DNS;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.net.InetAddress;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class CompressionTest {
@@ -53,4 +56,60 @@ class CompressionTest {
     c.add(10, n2);
     assertEquals(10, c.get(n2));
   }
+
+  @Test
+  void manyNames() throws TextParseException {
+    Compression c = new Compression();
+    for (int i = 0; i < 1000; i++) {
+      c.add(i, Name.fromString("host" + i + ".example.com."));
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, c.get(Name.fromString("HOST" + i + ".example.com.")));
+    }
+    assertEquals(-1, c.get(Name.fromString("host1000.example.com.")));
+  }
+
+  @Test
+  void firstPositionIsKept() throws TextParseException {
+    Compression c = new Compression();
+    Name n = Name.fromString("www.example.com.");
+    c.add(20, n);
+    c.add(40, n);
+    assertEquals(20, c.get(n));
+  }
+
+  @Test
+  void pointerTooLarge() throws TextParseException {
+    Compression c = new Compression();
+    Name n = Name.fromString("www.example.com.");
+    c.add(0x4000, n);
+    assertEquals(-1, c.get(n));
+  }
+
+  @Test
+  void largeMessageRoundTrip() throws Exception {
+    Name zone = Name.fromString("example.com.");
+    Message m = new Message();
+    m.addRecord(Record.newRecord(zone, Type.AXFR, DClass.IN), Section.QUESTION);
+    // stay below the maximum pointer target of 16 KiB
+    for (int i = 0; i < 300; i++) {
+      Name name = Name.fromString("host" + i, zone);
+      m.addRecord(
+          new ARecord(name, DClass.IN, 3600, InetAddress.getByAddress(new byte[] {10, 0, 0, 1})),
+          Section.ANSWER);
+      m.addRecord(
+          new CNAMERecord(Name.fromString("alias" + i, zone), DClass.IN, 3600, name),
+          Section.ANSWER);
+    }
+
+    byte[] wire = m.toWire();
+    Message parsed = new Message(wire);
+    List<Record> records = parsed.getSection(Section.ANSWER);
+    assertEquals(m.getSection(Section.ANSWER), records);
+
+    // A: owner label + pointer, fixed fields, address; CNAME: owner label + pointer, fixed
+    // fields, pointer to the already written target
+    assertThat(wire.length).isLessThanOrEqualTo(100 + 300 * (10 + 10 + 4) + 300 * (11 + 10 + 2));
+  }
 }
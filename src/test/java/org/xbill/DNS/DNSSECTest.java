@@ -2,10 +2,24 @@
 package org.xbill.DNS;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.xbill.DNS.DNSSEC.DNSSECException;
 
 class DNSSECTest {
@@ -38,6 +52,36 @@ class DNSSECTest {
     DNSSEC.verify(rrset, rrsig, dnskey, Instant.ofEpochMilli(60));
   }
 
+  @Test
+  void testVerifySignedData() throws IOException, DNSSECException {
+    DNSKEYRecord dnskey =
+        (DNSKEYRecord)
+            Record.fromString(
+                Name.root,
+                Type.DNSKEY,
+                DClass.IN,
+                3600,
+                "256 3 13 HgcQzDrxDm641ASGyEF0MXrjDji4XDnWzjrY9VoIn5GfAvHpuqI2W8yihplAz6C/56Zxq1XbAHjLZATfhZFmaA==",
+                Name.root);
+    RRSIGRecord rrsig =
+        (RRSIGRecord)
+            Record.fromString(
+                Name.root,
+                Type.RRSIG,
+                DClass.IN,
+                3600,
+                "TXT 13 0 3600 19700101000003 19700101000000 46271 . dRwMEthIeGiucMcEcDmwixM8/LZcZ+W6lMM0KDSY5rwAGrm1j7tS/VU6xs+rpD5dSRmBYosinkWD6Jk3zRmyBQ==",
+                Name.root);
+
+    RRset rrset = new RRset(txt);
+    DNSSEC.verify(DNSSEC.signedData(rrsig, rrset), dnskey, Instant.ofEpochMilli(60));
+
+    RRset other = new RRset(new TXTRecord(Name.root, DClass.IN, 3600, "other"));
+    assertThrows(
+        DNSSEC.SignatureVerificationException.class,
+        () -> DNSSEC.verify(DNSSEC.signedData(rrsig, other), dnskey, Instant.ofEpochMilli(60)));
+  }
+
   @Test
   void testECDSALeadingZeroOversize() throws IOException, DNSSECException {
     DNSKEYRecord dnskey =
@@ -158,4 +202,157 @@ class DNSSECTest {
     rrset.addRR(s2);
     assertArrayEquals(DNSSEC.digestRRset(s1, rrset), DNSSEC.digestRRset(s1, rrset));
   }
+
+  /** The data to sign as specified in RFC 4034, 3.1.8.1 and 6.3. */
+  private static byte[] canonicalRRset(RRSIGRecord rrsig, RRset rrset, Name owner) {
+    DNSOutput out = new DNSOutput();
+    out.writeU16(rrsig.getTypeCovered());
+    out.writeU8(rrsig.getAlgorithm());
+    out.writeU8(rrsig.getLabels());
+    out.writeU32(rrsig.getOrigTTL());
+    out.writeU32(rrsig.getExpire().getEpochSecond());
+    out.writeU32(rrsig.getTimeSigned().getEpochSecond());
+    out.writeU16(rrsig.getFootprint());
+    out.writeByteArray(rrsig.getSigner().toWireCanonical());
+    List<Record> records = new ArrayList<>(rrset.rrs(false));
+    Collections.sort(records);
+    for (Record r : records) {
+      out.writeByteArray(owner.toWireCanonical());
+      out.writeU16(r.getType());
+      out.writeU16(r.getDClass());
+      out.writeU32(rrsig.getOrigTTL());
+      byte[] rdata = r.rdataToWireCanonical();
+      out.writeU16(rdata.length);
+      out.writeByteArray(rdata);
+    }
+    return out.toByteArray();
+  }
+
+  private static RRSIGRecord rrsig(Name name, int type) {
+    return new RRSIGRecord(
+        name,
+        DClass.IN,
+        3600,
+        type,
+        DNSSEC.Algorithm.RSASHA256,
+        3600,
+        Instant.ofEpochSecond(2000000000),
+        Instant.ofEpochSecond(1000000000),
+        12345,
+        Name.fromConstantString("Example."),
+        new byte[] {1});
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 17, 500})
+  void testDigestRrsetIsCanonical(int count) {
+    Name name = Name.fromConstantString("WWW.Example.");
+    RRset rrset = new RRset();
+    Random random = new Random(count);
+    for (int i = 0; i < count; i++) {
+      char[] text = new char[random.nextInt(255)];
+      Arrays.fill(text, (char) ('A' + random.nextInt(26)));
+      rrset.addRR(new TXTRecord(name, DClass.IN, 3600 - i, new String(text)));
+    }
+
+    RRSIGRecord sig = rrsig(name, Type.TXT);
+    assertArrayEquals(canonicalRRset(sig, rrset, name), DNSSEC.digestRRset(sig, rrset));
+    // again with the buffers of the first invocation
+    assertArrayEquals(canonicalRRset(sig, rrset, name), DNSSEC.digestRRset(sig, rrset));
+  }
+
+  @Test
+  void testDigestRrsetCanonicalRdataNames() {
+    Name name = Name.fromConstantString("Example.");
+    RRset rrset = new RRset();
+    rrset.addRR(new NSRecord(name, DClass.IN, 3600, Name.fromConstantString("NS2.Example.")));
+    rrset.addRR(new NSRecord(name, DClass.IN, 3600, Name.fromConstantString("ns1.example.")));
+    rrset.addRR(new NSRecord(name, DClass.IN, 3600, Name.fromConstantString("ns10.example.")));
+
+    RRSIGRecord sig = rrsig(name, Type.NS);
+    assertArrayEquals(canonicalRRset(sig, rrset, name), DNSSEC.digestRRset(sig, rrset));
+  }
+
+  @Test
+  void testDigestRrsetWildcard() {
+    Name name = Name.fromConstantString("a.b.Example.");
+    RRset rrset = new RRset();
+    rrset.addRR(new ARecord(name, DClass.IN, 3600, new byte[] {10, 0, 0, 2}));
+    rrset.addRR(new ARecord(name, DClass.IN, 3600, new byte[] {10, 0, 0, 1}));
+
+    // the labels of the signature's owner name don't count the wildcard
+    RRSIGRecord sig = rrsig(Name.fromConstantString("*.Example."), Type.A);
+    assertArrayEquals(
+        canonicalRRset(sig, rrset, Name.fromConstantString("*.example.")),
+        DNSSEC.digestRRset(sig, rrset));
+  }
+
+  @Test
+  void testPublicKeyIsSharedBetweenRecords() throws IOException, DNSSECException {
+    String rdata =
+        "256 3 13 HgcQzDrxDm641ASGyEF0MXrjDji4XDnWzjrY9VoIn5GfAvHpuqI2W8yihplAz6C/56Zxq1XbAHjLZATfhZFmaA==";
+    DNSKEYRecord first =
+        (DNSKEYRecord) Record.fromString(Name.root, Type.DNSKEY, DClass.IN, 3600, rdata, Name.root);
+    DNSKEYRecord second =
+        (DNSKEYRecord) Record.fromString(Name.root, Type.DNSKEY, DClass.IN, 60, rdata, Name.root);
+    assertSame(first.getPublicKey(), second.getPublicKey());
+
+    DNSSEC.clearPublicKeyCache();
+    DNSKEYRecord third =
+        (DNSKEYRecord) Record.fromString(Name.root, Type.DNSKEY, DClass.IN, 3600, rdata, Name.root);
+    assertNotSame(first.getPublicKey(), third.getPublicKey());
+    assertEquals(first.getPublicKey(), third.getPublicKey());
+  }
+
+  @Test
+  void testSignAndVerifyWithDifferentAlgorithmsOnOneThread() throws Exception {
+    KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+    ec.initialize(new ECGenParameterSpec("secp256r1"));
+    KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+    rsa.initialize(1024);
+    KeyPair[] pairs = {ec.generateKeyPair(), rsa.generateKeyPair(), ec.generateKeyPair()};
+    int[] algs = {
+      DNSSEC.Algorithm.ECDSAP256SHA256, DNSSEC.Algorithm.RSASHA256, DNSSEC.Algorithm.ECDSAP256SHA256
+    };
+
+    RRset rrset = new RRset(txt);
+    Instant inception = Instant.parse("2024-01-01T00:00:00Z");
+    Instant expiration = inception.plusSeconds(3600);
+    RRSIGRecord[] sigs = new RRSIGRecord[pairs.length];
+    DNSKEYRecord[] keys = new DNSKEYRecord[pairs.length];
+    for (int i = 0; i < pairs.length; i++) {
+      keys[i] =
+          new DNSKEYRecord(
+              Name.root,
+              DClass.IN,
+              3600,
+              DNSKEYRecord.Flags.ZONE_KEY,
+              DNSKEYRecord.Protocol.DNSSEC,
+              algs[i],
+              pairs[i].getPublic());
+      sigs[i] = DNSSEC.sign(rrset, keys[i], pairs[i].getPrivate(), inception, expiration);
+    }
+
+    for (int i = 0; i < pairs.length; i++) {
+      DNSSEC.verify(rrset, sigs[i], keys[i], inception.plusSeconds(1));
+    }
+
+    // the signature of the first key must not verify with the third key of the same algorithm
+    RRSIGRecord forged =
+        new RRSIGRecord(
+            Name.root,
+            DClass.IN,
+            3600,
+            Type.TXT,
+            algs[2],
+            3600,
+            expiration,
+            inception,
+            keys[2].getFootprint(),
+            Name.root,
+            sigs[0].getSignature());
+    assertThrows(
+        DNSSEC.SignatureVerificationException.class,
+        () -> DNSSEC.verify(rrset, forged, keys[2], inception.plusSeconds(1)));
+  }
 }
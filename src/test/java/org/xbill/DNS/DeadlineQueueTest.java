@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DeadlineQueueTest {
+  @Test
+  void pollExpiredReturnsInDeadlineOrder() {
+    DeadlineQueue<String> q = new DeadlineQueue<>();
+    q.add(30, "c");
+    q.add(10, "a");
+    q.add(40, "d");
+    q.add(20, "b");
+
+    assertThat(q.pollExpired(5)).isEmpty();
+    assertThat(q.pollExpired(20)).containsExactly("a", "b");
+    assertEquals(2, q.size());
+    assertThat(q.pollExpired(100)).containsExactly("c", "d");
+    assertEquals(0, q.size());
+  }
+
+  @Test
+  void removeBeforeDeadline() {
+    DeadlineQueue<String> q = new DeadlineQueue<>();
+    q.add(10, "a");
+    DeadlineQueue.Entry<String> b = q.add(20, "b");
+    q.add(30, "c");
+
+    assertTrue(q.remove(b));
+    assertFalse(q.remove(b));
+    assertFalse(q.remove(null));
+    assertThat(q.pollExpired(100)).containsExactly("a", "c");
+  }
+
+  @Test
+  void removeAfterExpiry() {
+    DeadlineQueue<String> q = new DeadlineQueue<>();
+    DeadlineQueue.Entry<String> a = q.add(10, "a");
+    assertThat(q.pollExpired(10)).containsExactly("a");
+    assertFalse(q.remove(a));
+  }
+
+  @Test
+  void deadlinesAroundOverflow() {
+    DeadlineQueue<String> q = new DeadlineQueue<>();
+    q.add(Long.MIN_VALUE + 10, "b");
+    q.add(Long.MAX_VALUE - 10, "a");
+    assertThat(q.pollExpired(Long.MIN_VALUE + 10)).containsExactly("a", "b");
+  }
+
+  @Test
+  void randomAddAndRemove() {
+    Random r = new Random(42);
+    DeadlineQueue<Long> q = new DeadlineQueue<>();
+    List<DeadlineQueue.Entry<Long>> entries = new ArrayList<>();
+    List<Long> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      long deadline = r.nextInt(100_000);
+      entries.add(q.add(deadline, deadline));
+      expected.add(deadline);
+    }
+    for (int i = 0; i < 1000; i += 3) {
+      assertTrue(q.remove(entries.get(i)));
+      expected.remove(entries.get(i).getValue());
+    }
+
+    Collections.sort(expected);
+    assertEquals(expected, q.pollExpired(100_000));
+    assertThat(q.clear()).isEmpty();
+  }
+
+  @Test
+  void clearReturnsAll() {
+    DeadlineQueue<String> q = new DeadlineQueue<>();
+    DeadlineQueue.Entry<String> a = q.add(10, "a");
+    q.add(20, "b");
+    assertThat(q.clear()).containsExactlyInAnyOrder("a", "b");
+    assertFalse(q.remove(a));
+    assertEquals(0, q.size());
+  }
+}
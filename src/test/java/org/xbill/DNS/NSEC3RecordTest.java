@@ -4,9 +4,14 @@ package org.xbill.DNS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import org.junit.jupiter.api.Test;
+import org.xbill.DNS.utils.base16;
+import org.xbill.DNS.utils.base32;
 
 class NSEC3RecordTest {
 
@@ -27,4 +32,42 @@ class NSEC3RecordTest {
         null);
     assertNull(nsec3Record.getSalt());
   }
+
+  @Test
+  void hashName() throws Exception {
+    // RFC 5155, Appendix A
+    byte[] salt = base16.fromString("AABBCCDD");
+    base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, false);
+    assertEquals(
+        "0P9MHAVEQVM6T7VBL5LOP2U3T2RP3TOM",
+        b32.toString(
+            NSEC3Record.hashName(Name.fromString("example."), NSEC3Record.Digest.SHA1, 12, salt)));
+    assertEquals(
+        "35MTHGPGCU1QG68FAB165KLNSNK3DPVL",
+        b32.toString(
+            NSEC3Record.hashName(
+                Name.fromString("a.example."), NSEC3Record.Digest.SHA1, 12, salt)));
+    // the digest of the thread is reused, the result must not depend on the previous invocation
+    assertEquals(
+        "0P9MHAVEQVM6T7VBL5LOP2U3T2RP3TOM",
+        b32.toString(
+            NSEC3Record.hashName(Name.fromString("EXAMPLE."), NSEC3Record.Digest.SHA1, 12, salt)));
+  }
+
+  @Test
+  void hashNameWithoutSaltAndIterations() throws Exception {
+    assertEquals(
+        base16.toString(
+            MessageDigest.getInstance("SHA-1")
+                .digest(Name.fromString("example.").toWireCanonical())),
+        base16.toString(
+            NSEC3Record.hashName(Name.fromString("example."), NSEC3Record.Digest.SHA1, 0, null)));
+  }
+
+  @Test
+  void hashNameUnknownAlgorithm() {
+    assertThrows(
+        NoSuchAlgorithmException.class,
+        () -> NSEC3Record.hashName(Name.root, NSEC3Record.Digest.SHA1 + 1, 0, null));
+  }
 }
@@ -1497,6 +1497,18 @@ class NameTest {
       assertArrayEquals(raw, o.toByteArray());
     }
 
+    @Test
+    void appendsToOutput() throws TextParseException {
+      byte[] raw =
+          new byte[] {7, 1, 'a', 5, 'b', 'a', 's', 'i', 'c', 4, 'n', 'a', 'm', 'e', 0, 1, 'x', 0};
+      DNSOutput o = new DNSOutput(4);
+      o.writeU8(7);
+      new Name("A.Basic.Name.").toWireCanonical(o);
+      new Name("X.").toWireCanonical(o);
+
+      assertArrayEquals(raw, o.toByteArray());
+    }
+
     @Test
     void ctor_0arg() throws TextParseException {
       byte[] raw = new byte[] {1, 'a', 5, 'b', 'a', 's', 'i', 'c', 4, 'n', 'a', 'm', 'e', 0};
@@ -2,16 +2,18 @@
 package org.xbill.DNS;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.xbill.DNS.NioClient.SELECTOR_TIMEOUT_PROPERTY;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
@@ -27,6 +29,7 @@ import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -50,7 +53,7 @@ class NioTcpClientTest {
   void testSelectorTimeoutLimits(int timeout) {
     System.setProperty(SELECTOR_TIMEOUT_PROPERTY, Integer.toString(timeout));
     try {
-      assertThrows(IllegalArgumentException.class, NioClient::runSelector);
+      assertThrows(IllegalArgumentException.class, NioClient::selectorTimeout);
     } finally {
       System.clearProperty(SELECTOR_TIMEOUT_PROPERTY);
     }
@@ -95,9 +98,8 @@ class NioTcpClientTest {
 
       // Watch for unexpected exceptions
       AtomicReference<Throwable> sawCME = new AtomicReference<>(null);
-      Field selectorThreadField = NioClient.class.getDeclaredField("selectorThread");
-      selectorThreadField.setAccessible(true);
-      ((Thread) selectorThreadField.get(null))
+      NioClient.selectorThreads()
+          .get(0)
           .setUncaughtExceptionHandler(
               (t, e) -> {
                 if (e instanceof ConcurrentModificationException) {
@@ -430,4 +432,78 @@ class NioTcpClientTest {
       NioClient.close();
     }
   }
+
+  @Test
+  void testTimedOutQueryDoesNotBlockConnection() throws Exception {
+    try {
+      NioTcpClient nioTcpClient = new NioTcpClient();
+      Record qr = Record.newRecord(Name.fromConstantString("example.com."), Type.A, DClass.IN);
+      Message q1 = Message.newQuery(qr);
+      Message q2 = Message.newQuery(qr);
+      q2.getHeader().setID((q1.getHeader().getID() + 1) & 0xFFFF);
+      try (ServerSocket ss = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+        ss.setSoTimeout(15000);
+        InetSocketAddress remote = (InetSocketAddress) ss.getLocalSocketAddress();
+        assertThatThrownBy(
+                () ->
+                    nioTcpClient
+                        .sendAndReceiveTcp(null, remote, q1, q1.toWire(), Duration.ofMillis(200))
+                        .get(15, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(SocketTimeoutException.class);
+
+        CompletableFuture<byte[]> f2 =
+            nioTcpClient.sendAndReceiveTcp(null, remote, q2, q2.toWire(), Duration.ofSeconds(15));
+        try (Socket s = ss.accept()) {
+          DataInputStream in = new DataInputStream(s.getInputStream());
+          DataOutputStream out = new DataOutputStream(s.getOutputStream());
+          for (int i = 0; i < 2; i++) {
+            byte[] query = new byte[in.readUnsignedShort()];
+            in.readFully(query);
+            // the late answer to the timed out query is discarded
+            out.writeShort(query.length);
+            out.write(query);
+          }
+
+          assertThat(new Message(f2.get(15, TimeUnit.SECONDS)).getHeader().getID())
+              .isEqualTo(q2.getHeader().getID());
+        }
+      }
+    } finally {
+      NioClient.close();
+    }
+  }
+
+  @Test
+  void testTimedOutQueriesAreRemovedFromSilentConnection() throws Exception {
+    try {
+      NioTcpClient nioTcpClient = new NioTcpClient();
+      Record qr = Record.newRecord(Name.fromConstantString("example.com."), Type.A, DClass.IN);
+      // the connection is accepted by the backlog, but the server never reads or answers
+      try (ServerSocket ss = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+        InetSocketAddress remote = (InetSocketAddress) ss.getLocalSocketAddress();
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+          Message q = Message.newQuery(qr);
+          q.getHeader().setID(i);
+          futures.add(
+              nioTcpClient.sendAndReceiveTcp(null, remote, q, q.toWire(), Duration.ofMillis(200)));
+        }
+
+        for (CompletableFuture<byte[]> f : futures) {
+          assertThatThrownBy(() -> f.get(15, TimeUnit.SECONDS))
+              .hasCauseInstanceOf(SocketTimeoutException.class);
+        }
+
+        // the futures are completed just before the transactions are removed
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (nioTcpClient.pendingTransactions() > 0 && System.nanoTime() < end) {
+          Thread.sleep(10);
+        }
+
+        assertThat(nioTcpClient.pendingTransactions()).isZero();
+      }
+    } finally {
+      NioClient.close();
+    }
+  }
 }
@@ -1,6 +1,7 @@
 // SPDX-License-Identifier: BSD-3-Clause
 package org.xbill.DNS;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
@@ -14,20 +15,30 @@ import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import java.io.EOFException;
 import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledIf;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
@@ -36,6 +47,7 @@ import org.mockito.Mockito;
 @EnabledIf("notWindowsOrJre17Plus")
 class NioUdpClientTest {
   private static SocketAddress localAddress;
+  private static final Set<Integer> senderPorts = ConcurrentHashMap.newKeySet();
 
   @SuppressWarnings("java:S1144")
   private static boolean notWindowsOrJre17Plus() {
@@ -48,7 +60,10 @@ class NioUdpClientTest {
   static void beforeAll(Vertx vertx, VertxTestContext context) {
     DatagramSocket datagramSocket = vertx.createDatagramSocket();
     datagramSocket.handler(
-        p -> datagramSocket.send(p.data(), p.sender().port(), p.sender().host()));
+        p -> {
+          senderPorts.add(p.sender().port());
+          datagramSocket.send(p.data(), p.sender().port(), p.sender().host());
+        });
     datagramSocket
         .listen(0, "localhost")
         .map(
@@ -64,9 +79,18 @@ class NioUdpClientTest {
     NioClient.close();
   }
 
+  @AfterEach
+  void afterEach() {
+    // the mocked selector tests need a new selector
+    NioClient.close();
+  }
+
   private CompletableFuture<byte[]> createAndSendQuery() {
-    NioUdpClient udp = new NioUdpClient();
-    Message query = Message.newQuery(Record.newRecord(Name.root, Type.A, DClass.IN));
+    return sendQuery(
+        new NioUdpClient(), Message.newQuery(Record.newRecord(Name.root, Type.A, DClass.IN)));
+  }
+
+  private CompletableFuture<byte[]> sendQuery(NioUdpClient udp, Message query) {
     return udp.sendAndReceiveUdp(
         null,
         new InetSocketAddress(localAddress.hostAddress(), localAddress.port()),
@@ -130,4 +154,155 @@ class NioUdpClientTest {
           .hasMessageStartingWith("Could not read expected data");
     }
   }
+
+  @Test
+  void pooledSocketsAreReusedAndRotated() throws Exception {
+    NioUdpClient udp = new NioUdpClient(2, 10);
+    senderPorts.clear();
+    for (int i = 0; i < 30; i++) {
+      Message query = Message.newQuery(Record.newRecord(Name.root, Type.A, DClass.IN));
+      byte[] reply = sendQuery(udp, query).get();
+      assertThat(new Message(reply).getHeader().getID()).isEqualTo(query.getHeader().getID());
+    }
+
+    // 2 sockets, each replaced after 10 queries
+    assertThat(senderPorts).hasSize(4);
+  }
+
+  @Test
+  void pooledSocketsWithSameId() throws Exception {
+    NioUdpClient udp = new NioUdpClient(1, 1000);
+    List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Message query =
+          Message.newQuery(
+              Record.newRecord(Name.fromConstantString("q" + i + "."), Type.A, DClass.IN));
+      query.getHeader().setID(1234);
+      futures.add(sendQuery(udp, query));
+    }
+
+    for (int i = 0; i < futures.size(); i++) {
+      Message reply = new Message(futures.get(i).get());
+      assertThat(reply.getHeader().getID()).isEqualTo(1234);
+      assertThat(reply.getQuestion().getName()).hasToString("q" + i + ".");
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void replyMustMatchQuestionIgnoringOnlyAsciiCase(boolean latin1) throws Exception {
+    try (java.net.DatagramSocket server =
+        new java.net.DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+      Thread responder =
+          new Thread(
+              () -> {
+                try {
+                  DatagramPacket p = new DatagramPacket(new byte[512], 512);
+                  server.receive(p);
+                  // flip the case of the first character of the question name
+                  p.getData()[Header.LENGTH + 1] ^= 0x20;
+                  server.send(p);
+                } catch (IOException e) {
+                  // closed by the test
+                }
+              });
+      responder.start();
+
+      Name qname = Name.fromString(latin1 ? "\\192abc." : "abc.");
+      Message query = Message.newQuery(Record.newRecord(qname, Type.A, DClass.IN));
+      CompletableFuture<byte[]> result =
+          // the question is only compared on pooled sockets
+          new NioUdpClient(1, 1000)
+              .sendAndReceiveUdp(
+                  null,
+                  (InetSocketAddress) server.getLocalSocketAddress(),
+                  query,
+                  query.toWire(),
+                  512,
+                  Duration.ofSeconds(1));
+      if (latin1) {
+        // 0xC0 and 0xE0 are not the same character in a DNS name
+        assertThatThrownBy(result::get).cause().isInstanceOf(SocketTimeoutException.class);
+      } else {
+        assertThat(new Message(result.get()).getQuestion().getName()).hasToString("Abc.");
+      }
+
+      responder.join();
+    }
+  }
+
+  @Test
+  void pooledSocketsConcurrentQueries() throws Exception {
+    NioUdpClient udp = new NioUdpClient(4, 1000);
+    List<Message> queries = new ArrayList<>();
+    List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      Message query =
+          Message.newQuery(
+              Record.newRecord(Name.fromConstantString("q" + i + "."), Type.A, DClass.IN));
+      queries.add(query);
+      futures.add(sendQuery(udp, query));
+    }
+
+    for (int i = 0; i < futures.size(); i++) {
+      Message reply = new Message(futures.get(i).get());
+      assertThat(reply.getQuestion()).isEqualTo(queries.get(i).getQuestion());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 2})
+  void multipleSelectorThreads(int poolSize) throws Exception {
+    System.setProperty(NioClient.SELECTOR_THREADS_PROPERTY, "4");
+    try {
+      NioUdpClient udp = new NioUdpClient(poolSize, 1000);
+      List<Message> queries = new ArrayList<>();
+      List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        Message query =
+            Message.newQuery(
+                Record.newRecord(Name.fromConstantString("q" + i + "."), Type.A, DClass.IN));
+        queries.add(query);
+        futures.add(sendQuery(udp, query));
+      }
+
+      assertThat(NioClient.selectorThreads()).hasSize(4);
+      for (int i = 0; i < futures.size(); i++) {
+        Message reply = new Message(futures.get(i).get());
+        assertThat(reply.getQuestion()).isEqualTo(queries.get(i).getQuestion());
+      }
+    } finally {
+      System.clearProperty(NioClient.SELECTOR_THREADS_PROPERTY);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 2})
+  void multipleSelectorThreadsTimeOut(int poolSize) throws Exception {
+    System.setProperty(NioClient.SELECTOR_THREADS_PROPERTY, "4");
+    try (DatagramChannel silent = DatagramChannel.open()) {
+      silent.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      NioUdpClient udp = new NioUdpClient(poolSize, 1000);
+      List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        Message query = Message.newQuery(Record.newRecord(Name.root, Type.A, DClass.IN));
+        futures.add(
+            udp.sendAndReceiveUdp(
+                null,
+                (InetSocketAddress) silent.getLocalAddress(),
+                query,
+                query.toWire(),
+                512,
+                Duration.ofMillis(100)));
+      }
+
+      // each event loop times out its own transactions
+      for (CompletableFuture<byte[]> f : futures) {
+        assertThatThrownBy(() -> f.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(SocketTimeoutException.class);
+      }
+    } finally {
+      System.clearProperty(NioClient.SELECTOR_THREADS_PROPERTY);
+    }
+  }
 }
@@ -0,0 +1,242 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PackedZoneTest {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+
+  private static final String ZONE =
+      "$ORIGIN example.\n"
+          + "$TTL 3600\n"
+          + "@ SOA ns hostmaster 1 3600 600 86400 300\n"
+          + "@ NS ns\n"
+          + "@ NS ns2.example.org.\n"
+          + "@ MX 10 mail\n"
+          + "ns A 192.0.2.1\n"
+          + "Mail A 192.0.2.2\n"
+          + "mail AAAA 2001:db8::2\n"
+          + "mail A 192.0.2.3\n"
+          + "www CNAME mail\n"
+          + "*.wild TXT \"wildcard\"\n"
+          + "*.wild A 192.0.2.4\n"
+          + "sub NS ns.sub\n"
+          + "ns.sub A 192.0.2.5\n"
+          + "old DNAME new.example.org.\n"
+          + "a.b.c A 192.0.2.6\n"
+          + "UPPER A 192.0.2.7\n";
+
+  private Zone zone;
+  private PackedZone packed;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    zone = new Zone(ORIGIN, input(ZONE));
+    packed = new PackedZone(ORIGIN, input(ZONE));
+  }
+
+  private static ByteArrayInputStream input(String zone) {
+    return new ByteArrayInputStream(zone.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static Name name(String name) {
+    return Name.fromConstantString(name);
+  }
+
+  private static List<Record> records(RRset rrset) {
+    List<Record> records = new ArrayList<>(rrset.rrs(false));
+    records.addAll(rrset.sigs());
+    records.sort(null);
+    return records;
+  }
+
+  private static void assertSameResponse(SetResponse expected, SetResponse actual) {
+    assertThat(actual.toString().split(":")[0]).isEqualTo(expected.toString().split(":")[0]);
+    if (expected.answers() == null) {
+      assertThat(actual.answers()).isNull();
+      if (expected.getNS() != null) {
+        assertThat(records(actual.getNS())).isEqualTo(records(expected.getNS()));
+      }
+      return;
+    }
+
+    // the order of the RRsets of an ANY response is not defined
+    assertThat(actual.answers().stream().map(PackedZoneTest::records))
+        .containsExactlyInAnyOrderElementsOf(
+            expected.answers().stream().map(PackedZoneTest::records).collect(Collectors.toList()));
+  }
+
+  @Test
+  void findRecordsLikeZone() {
+    String[] names = {
+      "example.",
+      "ns.example.",
+      "mail.example.",
+      "MAIL.example.",
+      "www.example.",
+      "x.wild.example.",
+      "y.x.wild.example.",
+      "sub.example.",
+      "ns.sub.example.",
+      "x.old.example.",
+      "old.example.",
+      "c.example.",
+      "b.c.example.",
+      "a.b.c.example.",
+      "missing.example.",
+      "example.org."
+    };
+    int[] types = {Type.A, Type.AAAA, Type.MX, Type.TXT, Type.NS, Type.SOA, Type.CNAME, Type.ANY};
+    for (String name : names) {
+      for (int type : types) {
+        assertSameResponse(
+            zone.findRecords(name(name), type), packed.findRecords(name(name), type));
+      }
+    }
+  }
+
+  @Test
+  void findExactMatch() {
+    assertThat(records(packed.findExactMatch(name("mail.example."), Type.A)))
+        .isEqualTo(records(zone.findExactMatch(name("mail.example."), Type.A)));
+    assertThat(packed.findExactMatch(name("mail.example."), Type.TXT)).isNull();
+    assertThat(packed.findExactMatch(name("nothing.example."), Type.A)).isNull();
+    assertThatThrownBy(() -> packed.findExactMatch(ORIGIN, Type.ANY))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> packed.findExactMatch(null, Type.A))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void ownerNameCaseIsPreserved() {
+    assertThat(packed.findExactMatch(name("upper.example."), Type.A).getName().toString())
+        .isEqualTo("UPPER.example.");
+  }
+
+  @Test
+  void soaAndNs() {
+    assertThat(packed.getSOA()).isEqualTo(zone.getSOA());
+    assertThat(records(packed.getNS())).isEqualTo(records(zone.getNS()));
+    assertThat(packed.getOrigin()).isEqualTo(ORIGIN);
+  }
+
+  @Test
+  void iteration() {
+    List<List<Record>> expected = new ArrayList<>();
+    zone.forEach(rrset -> expected.add(records(rrset)));
+    List<List<Record>> actual = new ArrayList<>();
+    packed.forEach(rrset -> actual.add(records(rrset)));
+    assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+    assertThat(actual.get(0).get(0)).isEqualTo(zone.getSOA());
+    assertThat(actual.get(1).get(0).getType()).isEqualTo(Type.NS);
+  }
+
+  @Test
+  void axfrEndsWithSoa() {
+    Iterator<RRset> it = packed.AXFR();
+    RRset first = it.next();
+    RRset last = first;
+    int count = 1;
+    while (it.hasNext()) {
+      last = it.next();
+      count++;
+    }
+
+    assertThat(first.getType()).isEqualTo(Type.SOA);
+    assertThat(last.getType()).isEqualTo(Type.SOA);
+    List<RRset> sets = new ArrayList<>();
+    packed.forEach(sets::add);
+    assertThat(count).isEqualTo(sets.size() + 1);
+  }
+
+  @Test
+  void duplicatesAreStoredOnce() throws IOException {
+    PackedZone duplicates =
+        new PackedZone(ORIGIN, input(ZONE + "mail 60 A 192.0.2.2\nmail A 192.0.2.2\n"));
+    RRset rrset = duplicates.findExactMatch(name("mail.example."), Type.A);
+    assertThat(rrset.size()).isEqualTo(2);
+    assertThat(rrset.getTTL()).isEqualTo(60);
+  }
+
+  @Test
+  void lastSoaIsUsed() throws IOException {
+    PackedZone soa =
+        new PackedZone(ORIGIN, input(ZONE + "@ SOA ns hostmaster 2 3600 600 86400 300\n"));
+    assertThat(soa.getSOA().getSerial()).isEqualTo(2);
+    assertThat(soa.findExactMatch(ORIGIN, Type.SOA).size()).isEqualTo(1);
+  }
+
+  @Test
+  void missingRecords() {
+    assertThatThrownBy(() -> new PackedZone(ORIGIN, input("$ORIGIN example.\n")))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("no data");
+    assertThatThrownBy(() -> new PackedZone(ORIGIN, input("$ORIGIN example.\nwww 60 A 1.2.3.4\n")))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("no data");
+    assertThatThrownBy(
+            () ->
+                new PackedZone(
+                    ORIGIN,
+                    input("$ORIGIN example.\n@ 60 SOA ns hostmaster 1 3600 600 86400 300\n")))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("no NS");
+    assertThatThrownBy(() -> new PackedZone(ORIGIN, input("$ORIGIN example.\n@ 60 NS ns\n")))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("SOA");
+    assertThatThrownBy(() -> new PackedZone(null, input(ZONE)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void largeZoneAcrossPages(boolean direct) throws IOException {
+    Random random = new Random(1);
+    for (int i = 0; i < 3000; i++) {
+      Name name = new Name("h" + random.nextInt(1000) + ".l" + random.nextInt(20), ORIGIN);
+      zone.addRecord(
+          new ARecord(name, DClass.IN, 3600, InetAddress.getByName("10.0.0." + random.nextInt(8))));
+    }
+
+    // a single name with more data than a page
+    char[] data = new char[250];
+    for (int i = 0; i < 1200; i++) {
+      Arrays.fill(data, (char) ('a' + i % 26));
+      String text = i + new String(data);
+      zone.addRecord(
+          new TXTRecord(
+              name("big.example."), DClass.IN, 3600, Arrays.asList(text, text, text, text)));
+    }
+
+    PackedZone copy = new PackedZone(zone, direct);
+    assertThat(copy.getPackedSize()).isGreaterThan(1 << 20);
+    for (RRset rrset : zone) {
+      assertThat(records(copy.findExactMatch(rrset.getName(), rrset.getType())))
+          .isEqualTo(records(rrset));
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      Name name = new Name("h" + i + ".l" + random.nextInt(20), ORIGIN);
+      assertSameResponse(zone.findRecords(name, Type.A), copy.findRecords(name, Type.A));
+    }
+
+    assertThat(new PackedZone(ORIGIN, input(copy.toMasterFile())).toMasterFile())
+        .isEqualTo(copy.toMasterFile());
+  }
+}
@@ -0,0 +1,122 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class PersistentSortedMapTest {
+  private static List<Integer> keys(Iterator<Map.Entry<Integer, String>> it) {
+    List<Integer> keys = new ArrayList<>();
+    it.forEachRemaining(e -> keys.add(e.getKey()));
+    return keys;
+  }
+
+  @Test
+  void behavesLikeTreeMap() {
+    Random random = new Random(1);
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty();
+    for (int i = 0; i < 20000; i++) {
+      int key = random.nextInt(2000);
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.remove(key);
+      } else {
+        expected.put(key, "v" + i);
+        map = map.put(key, "v" + i);
+      }
+
+      if (i % 1000 == 0) {
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(keys(map.iterator())).containsExactlyElementsOf(expected.keySet());
+      }
+    }
+
+    for (int key = -1; key <= 2000; key++) {
+      assertThat(map.get(key)).isEqualTo(expected.get(key));
+      assertThat(map.higherKey(key)).isEqualTo(expected.higherKey(key));
+      assertThat(keys(map.tailIterator(key, true)))
+          .containsExactlyElementsOf(expected.tailMap(key, true).keySet());
+      assertThat(keys(map.tailIterator(key, false)))
+          .containsExactlyElementsOf(expected.tailMap(key, false).keySet());
+    }
+
+    assertThat(map.keys()).containsExactlyElementsOf(expected.keySet());
+  }
+
+  @Test
+  void oldVersionsAreUnchanged() {
+    PersistentSortedMap<Integer, String> v1 = PersistentSortedMap.empty();
+    for (int i = 0; i < 100; i++) {
+      v1 = v1.put(i, "a");
+    }
+
+    PersistentSortedMap<Integer, String> v2 = v1.remove(50).put(200, "b").put(1, "c");
+    assertThat(v1.size()).isEqualTo(100);
+    assertThat(v1.get(50)).isEqualTo("a");
+    assertThat(v1.get(200)).isNull();
+    assertThat(v1.get(1)).isEqualTo("a");
+    assertThat(v2.size()).isEqualTo(100);
+    assertThat(v2.get(50)).isNull();
+    assertThat(v2.get(1)).isEqualTo("c");
+  }
+
+  @Test
+  void editChangesOnlyItsOwnNodes() {
+    Random random = new Random(2);
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    PersistentSortedMap<Integer, String> published = PersistentSortedMap.empty();
+    for (int i = 0; i < 500; i++) {
+      expected.put(i, "a");
+      published = published.put(i, "a");
+    }
+
+    TreeMap<Integer, String> before = new TreeMap<>(expected);
+    PersistentSortedMap<Integer, String> map = published;
+    for (int round = 0; round < 3; round++) {
+      Object edit = new Object();
+      for (int i = 0; i < 5000; i++) {
+        int key = random.nextInt(1000);
+        if (random.nextInt(3) == 0) {
+          expected.remove(key);
+          map = map.remove(key, edit);
+        } else {
+          expected.put(key, "v" + i);
+          map = map.put(key, "v" + i, edit);
+        }
+      }
+
+      assertThat(map.size()).isEqualTo(expected.size());
+      assertThat(keys(map.iterator())).containsExactlyElementsOf(expected.keySet());
+      for (Integer key : expected.keySet()) {
+        assertThat(map.get(key)).isEqualTo(expected.get(key));
+      }
+
+      assertThat(published.size()).isEqualTo(before.size());
+      for (Map.Entry<Integer, String> e : before.entrySet()) {
+        assertThat(published.get(e.getKey())).isEqualTo(e.getValue());
+      }
+
+      // the next round uses a new token, which must not change this map
+      published = map;
+      before = new TreeMap<>(expected);
+    }
+  }
+
+  @Test
+  void unchangedMapIsReturned() {
+    PersistentSortedMap<Integer, String> map =
+        PersistentSortedMap.<Integer, String>empty().put(1, "a");
+    String value = map.get(1);
+    assertThat(map.put(1, value)).isSameAs(map);
+    assertThat(map.remove(2)).isSameAs(map);
+    assertThat(map.remove(1).isEmpty()).isTrue();
+  }
+}
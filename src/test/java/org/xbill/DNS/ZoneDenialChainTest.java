@@ -0,0 +1,246 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xbill.DNS.utils.base16;
+import org.xbill.DNS.utils.base32;
+
+class ZoneDenialChainTest {
+  private static final base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, true);
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+  private static final byte[] SALT = base16.fromString("AABBCCDD");
+
+  private Zone zone;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    zone =
+        new Zone(
+            ORIGIN,
+            new SOARecord(
+                ORIGIN,
+                DClass.IN,
+                3600,
+                new Name("ns", ORIGIN),
+                new Name("hostmaster", ORIGIN),
+                1,
+                3600,
+                600,
+                86400,
+                300),
+            new NSRecord(ORIGIN, DClass.IN, 3600, new Name("ns", ORIGIN)),
+            a("ns.example."),
+            a("a.example."),
+            a("b.example."),
+            new NSRecord(name("sub.example."), DClass.IN, 3600, name("ns.sub.example.")),
+            a("ns.sub.example."));
+  }
+
+  private static Name name(String name) {
+    return Name.fromConstantString(name);
+  }
+
+  private static ARecord a(String name) throws IOException {
+    return new ARecord(name(name), DClass.IN, 3600, InetAddress.getByName("192.0.2.1"));
+  }
+
+  /** Gets the records of the chain in the order of their owner names. */
+  private List<Record> chain(int type) {
+    List<Record> chain = new ArrayList<>();
+    for (RRset rrset : zone) {
+      if (rrset.getType() == type) {
+        chain.addAll(rrset.rrs(false));
+      }
+    }
+
+    chain.sort((r1, r2) -> r1.getName().compareTo(r2.getName()));
+    return chain;
+  }
+
+  private static Name next(Record r) {
+    if (r instanceof NSECRecord) {
+      return ((NSECRecord) r).getNext();
+    }
+
+    return name(b32.toString(((NSEC3Record) r).getNext()) + ".example.");
+  }
+
+  /** Checks that the chain is a ring in canonical order and equal to a rebuilt chain. */
+  private void assertConsistent(int type) {
+    List<Record> chain = chain(type);
+    for (int i = 0; i < chain.size(); i++) {
+      assertThat(next(chain.get(i))).isEqualTo(chain.get((i + 1) % chain.size()).getName());
+      assertThat(chain.get(i).getTTL()).isEqualTo(300);
+    }
+
+    if (type == Type.NSEC) {
+      zone.generateNsecChain();
+    } else {
+      zone.generateNsec3Chain(5, SALT);
+    }
+
+    assertThat(chain(type)).containsExactlyElementsOf(chain);
+  }
+
+  private NSECRecord nsec(String name) {
+    RRset rrset = zone.findExactMatch(name(name), Type.NSEC);
+    return rrset == null ? null : (NSECRecord) rrset.first();
+  }
+
+  private NSEC3Record nsec3(String name) throws NoSuchAlgorithmException {
+    byte[] hash = NSEC3Record.hashName(name(name), NSEC3Record.Digest.SHA1, 5, SALT);
+    RRset rrset = zone.findExactMatch(name(b32.toString(hash) + ".example."), Type.NSEC3);
+    return rrset == null ? null : (NSEC3Record) rrset.first();
+  }
+
+  @Test
+  void nsecChain() {
+    zone.generateNsecChain();
+
+    assertThat(chain(Type.NSEC))
+        .extracting(Record::getName)
+        .containsExactly(
+            name("example."),
+            name("a.example."),
+            name("b.example."),
+            name("ns.example."),
+            name("sub.example."));
+    assertThat(nsec("sub.example.").getNext()).isEqualTo(ORIGIN);
+    assertThat(nsec("example.").getTypes())
+        .containsExactly(Type.NS, Type.SOA, Type.RRSIG, Type.NSEC);
+    assertThat(nsec("sub.example.").getTypes()).containsExactly(Type.NS, Type.RRSIG, Type.NSEC);
+    assertThat(nsec("ns.sub.example.")).isNull();
+    assertConsistent(Type.NSEC);
+  }
+
+  @Test
+  void nsecChainIsUpdated() throws IOException {
+    zone.generateNsecChain();
+
+    zone.addRecord(a("c.example."));
+    assertThat(nsec("b.example.").getNext()).isEqualTo(name("c.example."));
+    assertThat(nsec("c.example.").getNext()).isEqualTo(name("ns.example."));
+
+    zone.addRecord(new TXTRecord(name("b.example."), DClass.IN, 3600, "text"));
+    assertThat(nsec("b.example.").getTypes())
+        .containsExactly(Type.A, Type.TXT, Type.RRSIG, Type.NSEC);
+
+    zone.removeRecord(a("a.example."));
+    assertThat(nsec("a.example.")).isNull();
+    assertThat(nsec("example.").getNext()).isEqualTo(name("b.example."));
+
+    // glue doesn't change the chain
+    zone.addRecord(a("ns2.sub.example."));
+    assertThat(nsec("ns2.sub.example.")).isNull();
+    assertConsistent(Type.NSEC);
+  }
+
+  @Test
+  void nsecChainWithNewDelegation() throws IOException {
+    zone.addRecord(a("host.deleg.example."));
+    zone.generateNsecChain();
+    assertThat(nsec("host.deleg.example.")).isNotNull();
+
+    zone.addRecord(new NSRecord(name("deleg.example."), DClass.IN, 3600, name("ns.example.")));
+    assertThat(nsec("host.deleg.example.")).isNull();
+    assertThat(nsec("deleg.example.").getTypes()).containsExactly(Type.NS, Type.RRSIG, Type.NSEC);
+    assertConsistent(Type.NSEC);
+  }
+
+  @Test
+  void nsec3Chain() throws NoSuchAlgorithmException {
+    zone.generateNsec3Chain(5, SALT);
+
+    // apex, a, b, ns, sub
+    assertThat(chain(Type.NSEC3)).hasSize(5);
+    assertThat(zone.findExactMatch(ORIGIN, Type.NSEC3PARAM)).isNotNull();
+    assertThat(nsec3("example.").getTypes())
+        .containsExactly(Type.NS, Type.SOA, Type.RRSIG, Type.NSEC3PARAM);
+    assertThat(nsec3("a.example.").getTypes()).containsExactly(Type.A, Type.RRSIG);
+    assertThat(nsec3("a.example.").getIterations()).isEqualTo(5);
+    assertThat(nsec3("a.example.").getSalt()).isEqualTo(SALT);
+
+    // insecure delegation
+    assertThat(nsec3("sub.example.").getTypes()).containsExactly(Type.NS);
+    assertThat(nsec3("ns.sub.example.")).isNull();
+    assertConsistent(Type.NSEC3);
+  }
+
+  @Test
+  void nsec3ChainIsUpdated() throws IOException, NoSuchAlgorithmException {
+    zone.generateNsec3Chain(5, SALT);
+
+    zone.addRecord(a("x.y.example."));
+    assertThat(nsec3("x.y.example.").getTypes()).containsExactly(Type.A, Type.RRSIG);
+    // empty non-terminal
+    assertThat(nsec3("y.example.").getTypes()).isEmpty();
+
+    zone.addRecord(
+        new DSRecord(
+            name("sub.example."),
+            DClass.IN,
+            3600,
+            1,
+            DNSSEC.Algorithm.ECDSAP256SHA256,
+            DNSSEC.Digest.SHA256,
+            new byte[32]));
+    assertThat(nsec3("sub.example.").getTypes()).containsExactly(Type.NS, Type.DS, Type.RRSIG);
+
+    zone.removeRecord(a("x.y.example."));
+    assertThat(nsec3("x.y.example.")).isNull();
+    assertThat(nsec3("y.example.")).isNull();
+    assertConsistent(Type.NSEC3);
+  }
+
+  @Test
+  void generatingReplacesChain() {
+    zone.generateNsecChain();
+    zone.generateNsec3Chain(0, new byte[0]);
+    assertThat(chain(Type.NSEC)).isEmpty();
+    assertThat(chain(Type.NSEC3)).hasSize(5);
+
+    zone.generateNsecChain();
+    assertThat(chain(Type.NSEC3)).isEmpty();
+    assertThat(zone.findExactMatch(ORIGIN, Type.NSEC3PARAM)).isNull();
+    assertThat(chain(Type.NSEC)).hasSize(5);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {Type.NSEC, Type.NSEC3})
+  void randomChanges(int type) throws IOException {
+    Random random = new Random(type);
+    if (type == Type.NSEC) {
+      zone.generateNsecChain();
+    } else {
+      zone.generateNsec3Chain(5, SALT);
+    }
+
+    for (int i = 0; i < 200; i++) {
+      String name = "h" + random.nextInt(10) + ".l" + random.nextInt(3) + ".example.";
+      if (random.nextBoolean()) {
+        zone.addRecord(a(name));
+      } else {
+        zone.removeRecord(a(name));
+      }
+
+      if (i % 50 == 0) {
+        zone.addRecord(new NSRecord(name("l" + i / 50 + ".example."), DClass.IN, 3600, ORIGIN));
+      }
+    }
+
+    List<Record> incremental = chain(type);
+    assertThat(incremental).hasSizeGreaterThan(5);
+    assertConsistent(type);
+  }
+}
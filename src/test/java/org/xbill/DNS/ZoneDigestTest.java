@@ -0,0 +1,117 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.utils.base16;
+
+class ZoneDigestTest {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+
+  /** The simple example zone from RFC 8976, Appendix A.1. */
+  private static final String SIMPLE_ZONE =
+      "example.      86400  IN  SOA     ns1 admin 2018031900 1800 900 604800 86400\n"
+          + "              86400  IN  NS      ns1\n"
+          + "              86400  IN  NS      ns2\n"
+          + "              86400  IN  ZONEMD  2018031900 1 1 (\n"
+          + "                                 c68090d90a7aed716bc459f9340e3d7c\n"
+          + "                                 1370d4d24b7e2fc3a1ddc0b9a87153b9\n"
+          + "                                 a9713b3c9ae5cc27777f98b8e730044c )\n"
+          + "ns1           3600   IN  A       203.0.113.63\n"
+          + "ns2           3600   IN  AAAA    2001:db8::63\n";
+
+  private Zone zone;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    zone =
+        new Zone(ORIGIN, new ByteArrayInputStream(SIMPLE_ZONE.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  @Test
+  void simpleExampleZone() throws NoSuchAlgorithmException {
+    assertThat(base16.toString(ZoneDigest.digest(zone, ZoneMDRecord.Hash.SHA384)))
+        .isEqualToIgnoringCase(
+            "c68090d90a7aed716bc459f9340e3d7c1370d4d24b7e2fc3a1ddc0b9a87153b9"
+                + "a9713b3c9ae5cc27777f98b8e730044c");
+    assertThat(ZoneDigest.verify(zone)).isTrue();
+  }
+
+  @Test
+  void verifyFailsAfterChange() throws IOException {
+    zone.addRecord(
+        new ARecord(
+            new Name("ns3", ORIGIN), DClass.IN, 3600, InetAddress.getByName("203.0.113.64")));
+    assertThat(ZoneDigest.verify(zone)).isFalse();
+  }
+
+  @Test
+  void verifyIgnoresOtherSerial() throws NoSuchAlgorithmException {
+    ZoneMDRecord valid = ZoneDigest.create(zone, ZoneMDRecord.Hash.SHA384);
+    zone.removeRecord(zone.findExactMatch(ORIGIN, Type.ZONEMD).first());
+    zone.addRecord(
+        new ZoneMDRecord(
+            ORIGIN,
+            DClass.IN,
+            86400,
+            valid.getSerial() + 1,
+            ZoneMDRecord.Scheme.SIMPLE,
+            ZoneMDRecord.Hash.SHA384,
+            valid.getDigest()));
+    assertThat(ZoneDigest.verify(zone)).isFalse();
+  }
+
+  @Test
+  void verifyWithoutZoneMd() {
+    zone.removeRecord(zone.findExactMatch(ORIGIN, Type.ZONEMD).first());
+    assertThat(ZoneDigest.verify(zone)).isFalse();
+  }
+
+  @Test
+  void createAndVerifySha512() throws NoSuchAlgorithmException {
+    ZoneMDRecord zonemd = ZoneDigest.create(zone, ZoneMDRecord.Hash.SHA512);
+    assertThat(zonemd.getName()).isEqualTo(ORIGIN);
+    assertThat(zonemd.getSerial()).isEqualTo(2018031900);
+    assertThat(zonemd.getTTL()).isEqualTo(86400);
+    assertThat(zonemd.getDigest()).hasSize(64);
+
+    zone.removeRecord(zone.findExactMatch(ORIGIN, Type.ZONEMD).first());
+    zone.addRecord(zonemd);
+    assertThat(ZoneDigest.verify(zone)).isTrue();
+  }
+
+  @Test
+  void unknownHashAlgorithm() {
+    assertThatThrownBy(() -> ZoneDigest.digest(zone, 240))
+        .isInstanceOf(NoSuchAlgorithmException.class);
+  }
+
+  @Test
+  void parallelDigestEqualsSequential() throws IOException, NoSuchAlgorithmException {
+    for (int i = 0; i < 5000; i++) {
+      Name name = new Name("host" + i + ".sub" + i % 7, ORIGIN);
+      zone.addRecord(
+          new ARecord(name, DClass.IN, 3600, new byte[] {10, 0, (byte) (i >>> 8), (byte) i}));
+      zone.addRecord(new TXTRecord(name, DClass.IN, 3600, "b" + i));
+      zone.addRecord(new TXTRecord(name, DClass.IN, 3600, "a" + i));
+    }
+
+    byte[] sequential = ZoneDigest.digest(zone, ZoneMDRecord.Hash.SHA384);
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      assertThat(ZoneDigest.digest(zone, ZoneMDRecord.Hash.SHA384, pool)).isEqualTo(sequential);
+      assertThat(ZoneDigest.verify(zone, pool)).isFalse();
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,332 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZoneJournalTest {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+
+  private static final String ZONE =
+      "$ORIGIN example.\n"
+          + "$TTL 3600\n"
+          + "@ SOA ns hostmaster 1 3600 600 86400 300\n"
+          + "@ NS ns\n"
+          + "ns A 192.0.2.1\n"
+          + "www A 192.0.2.2\n"
+          + "www A 192.0.2.3\n"
+          + "mail MX 10 www\n";
+
+  private Zone zone;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    zone = load();
+  }
+
+  private static Zone load() throws IOException {
+    return new Zone(ORIGIN, new ByteArrayInputStream(ZONE.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  private static Record record(String line) throws IOException {
+    try (Master master =
+        new Master(
+            new ByteArrayInputStream(line.getBytes(StandardCharsets.US_ASCII)), ORIGIN, 3600)) {
+      return master.nextRecord();
+    }
+  }
+
+  private void setSerial(Zone zone, long serial) {
+    SOARecord soa = zone.getSOA();
+    zone.addRecord(
+        new SOARecord(
+            ORIGIN,
+            DClass.IN,
+            soa.getTTL(),
+            soa.getHost(),
+            soa.getAdmin(),
+            serial,
+            soa.getRefresh(),
+            soa.getRetry(),
+            soa.getExpire(),
+            soa.getMinimum()));
+  }
+
+  private static List<String> contents(Zone zone) {
+    List<String> records = new ArrayList<>();
+    for (RRset rrset : zone) {
+      rrset.rrs(false).forEach(r -> records.add(r.toString()));
+    }
+
+    records.sort(null);
+    return records;
+  }
+
+  /** Runs a zone transfer from the journal with {@link ZoneTransferIn}. */
+  private static ZoneTransferIn transfer(ZoneJournal journal, long serial)
+      throws IOException, ZoneTransferException {
+    ZoneTransferIn xfrin =
+        new ZoneTransferIn(
+            ORIGIN,
+            Type.IXFR,
+            serial,
+            true,
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 53),
+            null) {
+          @Override
+          TCPClient createTcpClient(Duration timeout) throws IOException {
+            return new TCPClient(timeout) {
+              private byte[] response;
+
+              @Override
+              void bind(SocketAddress addr) {
+                // do nothing
+              }
+
+              @Override
+              void connect(SocketAddress addr) {
+                // do nothing
+              }
+
+              @Override
+              void send(byte[] data) throws IOException {
+                Message query = new Message(data);
+                Message message = new Message(query.getHeader().getID());
+                message.getHeader().setFlag(Flags.QR);
+                message.addRecord(query.getQuestion(), Section.QUESTION);
+                journal.IXFR(serial).forEachRemaining(r -> message.addRecord(r, Section.ANSWER));
+                response = message.toWire();
+              }
+
+              @Override
+              byte[] recv() {
+                return response;
+              }
+
+              @Override
+              public void close() {
+                // do nothing
+              }
+            };
+          }
+        };
+    xfrin.run();
+    return xfrin;
+  }
+
+  /** Applies the deltas of an IXFR like a secondary would. */
+  private static void apply(Zone zone, List<ZoneTransferIn.Delta> deltas) {
+    for (ZoneTransferIn.Delta delta : deltas) {
+      zone.update(
+          z -> {
+            delta.deletes.stream().filter(r -> r.getType() != Type.SOA).forEach(z::removeRecord);
+            delta.adds.forEach(z::addRecord);
+          });
+    }
+  }
+
+  @Test
+  void ixfrFromEachJournaledSerial() throws Exception {
+    ZoneJournal journal = new ZoneJournal(zone, 1000);
+    zone.addRecord(record("new 3600 A 192.0.2.9"));
+    setSerial(zone, 2);
+    zone.removeRecord(record("www 3600 A 192.0.2.2"));
+    zone.addRecord(record("www 60 A 192.0.2.3"));
+    setSerial(zone, 3);
+
+    for (long serial = 1; serial <= 2; serial++) {
+      Zone secondary = load();
+      if (serial == 2) {
+        apply(secondary, transfer(journal, 1).getIXFR().subList(0, 1));
+      }
+
+      ZoneTransferIn xfrin = transfer(journal, serial);
+      assertThat(xfrin.isIXFR()).isTrue();
+      assertThat(xfrin.getIXFR()).hasSize(3 - (int) serial);
+      apply(secondary, xfrin.getIXFR());
+      assertThat(secondary.getSOA().getSerial()).isEqualTo(3);
+      assertThat(contents(secondary)).isEqualTo(contents(zone));
+    }
+  }
+
+  @Test
+  void deltaContainsChanges() throws Exception {
+    ZoneJournal journal = new ZoneJournal(zone, 1000);
+    zone.removeRecord(record("www 3600 A 192.0.2.2"));
+    zone.addRecord(record("www 60 A 192.0.2.3"));
+    setSerial(zone, 2);
+
+    ZoneTransferIn.Delta delta = transfer(journal, 1).getIXFR().get(0);
+    assertThat(delta.start).isEqualTo(1);
+    assertThat(delta.end).isEqualTo(2);
+    assertThat(delta.deletes)
+        .containsExactlyInAnyOrder(
+            record("@ SOA ns hostmaster 1 3600 600 86400 300"),
+            record("www A 192.0.2.2"),
+            record("www A 192.0.2.3"));
+    assertThat(delta.adds)
+        .containsExactly(zone.getSOA(), record("www 60 A 192.0.2.3"))
+        .last()
+        .extracting(Record::getTTL)
+        .isEqualTo(60L);
+  }
+
+  @Test
+  void updateIsOneDelta() throws Exception {
+    ZoneJournal journal = new ZoneJournal(zone, 1000);
+    Record added = record("a 3600 A 192.0.2.10");
+    zone.update(
+        z -> {
+          setSerial(z, 2);
+          z.addRecord(added);
+          setSerial(z, 3);
+        });
+
+    List<ZoneTransferIn.Delta> deltas = transfer(journal, 1).getIXFR();
+    assertThat(deltas).hasSize(1);
+    assertThat(deltas.get(0).end).isEqualTo(3);
+    assertThat(deltas.get(0).adds).contains(added);
+  }
+
+  @Test
+  void failedUpdateIsNotJournaled() throws Exception {
+    ZoneJournal journal = new ZoneJournal(zone, 1000);
+    assertThatThrownBy(
+            () ->
+                zone.update(
+                    z -> {
+                      setSerial(z, 2);
+                      z.removeRRset(ORIGIN, Type.NS);
+                    }))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    assertThat(transfer(journal, 1).isCurrent()).isTrue();
+  }
+
+  @Test
+  void currentSerialIsUpToDate() throws Exception {
+    ZoneJournal journal = new ZoneJournal(zone, 1000);
+    setSerial(zone, 2);
+    assertThat(journal.IXFR(2)).toIterable().containsExactly(zone.getSOA());
+    assertThat(transfer(journal, 2).isCurrent()).isTrue();
+    assertThat(transfer(journal, 5).isCurrent()).isTrue();
+  }
+
+  @Test
+  void unknownSerialFallsBackToAxfr() throws Exception {
+    ZoneJournal journal = new ZoneJournal(zone, 1000);
+    setSerial(zone, 2);
+
+    ZoneTransferIn xfrin = transfer(journal, 0);
+    assertThat(xfrin.isAXFR()).isTrue();
+    assertThat(new Zone(ORIGIN, xfrin.getAXFR().toArray(new Record[0])).toMasterFile())
+        .isEqualTo(zone.toMasterFile());
+  }
+
+  @Test
+  void oldestDeltasAreDropped() throws Exception {
+    ZoneJournal journal = new ZoneJournal(zone, 10);
+    for (int i = 2; i <= 6; i++) {
+      zone.addRecord(record("n" + i + " 3600 A 192.0.2." + i));
+      setSerial(zone, i);
+    }
+
+    // each delta has 3 records, the last 3 deltas are kept
+    assertThat(transfer(journal, 2).isAXFR()).isTrue();
+    assertThat(transfer(journal, 3).getIXFR()).hasSize(3);
+  }
+
+  @Test
+  void fileIsReopened(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("example.jnl");
+    ZoneJournal journal = new ZoneJournal(zone, 1000, file);
+    for (int i = 2; i <= 4; i++) {
+      zone.addRecord(record("n" + i + " 3600 A 192.0.2." + i));
+      setSerial(zone, i);
+    }
+
+    List<ZoneTransferIn.Delta> expected = transfer(journal, 1).getIXFR();
+    journal.close();
+
+    ZoneJournal reopened = new ZoneJournal(zone, 1000, file);
+    List<ZoneTransferIn.Delta> actual = transfer(reopened, 1).getIXFR();
+    assertThat(actual).hasSize(3);
+    for (int i = 0; i < actual.size(); i++) {
+      assertThat(actual.get(i).deletes).isEqualTo(expected.get(i).deletes);
+      assertThat(actual.get(i).adds).isEqualTo(expected.get(i).adds);
+    }
+
+    // changes without a new serial are sent with the next delta
+    zone.addRecord(record("n5 3600 A 192.0.2.5"));
+    setSerial(zone, 5);
+    assertThat(transfer(reopened, 4).getIXFR().get(0).adds).contains(record("n5 3600 A 192.0.2.5"));
+    reopened.close();
+
+    // the journal of an older serial is discarded
+    Zone other = load();
+    new ZoneJournal(other, 1000, file).close();
+    assertThat(Files.size(file)).isZero();
+  }
+
+  @Test
+  void writeErrorFallsBackToAxfr() throws Exception {
+    // writes to /dev/full fail with ENOSPC
+    Path full = Paths.get("/dev/full");
+    assumeTrue(Files.isWritable(full));
+    try (ZoneJournal journal = new ZoneJournal(zone, 1000, full)) {
+      zone.addRecord(record("n2 3600 A 192.0.2.2"));
+      setSerial(zone, 2);
+      setSerial(zone, 3);
+
+      assertThat(zone.getSOA().getSerial()).isEqualTo(3);
+      assertThat(zone.findExactMatch(Name.fromConstantString("n2.example."), Type.A)).isNotNull();
+      ZoneTransferIn xfrin = transfer(journal, 2);
+      assertThat(xfrin.isAXFR()).isTrue();
+      assertThat(new Zone(ORIGIN, xfrin.getAXFR().toArray(new Record[0])).toMasterFile())
+          .isEqualTo(zone.toMasterFile());
+    }
+  }
+
+  @Test
+  void fileIsCompacted(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("example.jnl");
+    try (ZoneJournal journal = new ZoneJournal(zone, 30, file)) {
+      long max = 0;
+      for (int i = 2; i <= 100; i++) {
+        zone.addRecord(record("n" + i + " 3600 A 192.0.2." + i));
+        setSerial(zone, i);
+        max = Math.max(max, Files.size(file));
+      }
+
+      // 10 deltas of less than 200 bytes each are kept, the file is compacted at twice that size
+      assertThat(max).isLessThan(4000);
+      Zone secondary = load();
+      for (int i = 2; i <= 90; i++) {
+        secondary.addRecord(record("n" + i + " 3600 A 192.0.2." + i));
+      }
+
+      setSerial(secondary, 90);
+      ZoneTransferIn xfrin = transfer(journal, 90);
+      assertThat(xfrin.getIXFR()).hasSize(10);
+      apply(secondary, xfrin.getIXFR());
+      assertThat(contents(secondary)).isEqualTo(contents(zone));
+    }
+  }
+}
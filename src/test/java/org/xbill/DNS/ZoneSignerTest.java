@@ -0,0 +1,205 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ZoneSignerTest {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+  private static final Instant INCEPTION = Instant.parse("2024-01-01T00:00:00Z");
+  private static final Instant EXPIRATION = INCEPTION.plusSeconds(86400 * 14);
+  private static final Instant NOW = INCEPTION.plusSeconds(3600);
+
+  private KeyPair kskPair;
+  private KeyPair zskPair;
+  private DNSKEYRecord ksk;
+  private DNSKEYRecord zsk;
+  private Zone zone;
+
+  @BeforeEach
+  void beforeEach() throws IOException, GeneralSecurityException, DNSSEC.DNSSECException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    kskPair = generator.generateKeyPair();
+    zskPair = generator.generateKeyPair();
+    ksk = dnskey(DNSKEYRecord.Flags.ZONE_KEY | DNSKEYRecord.Flags.SEP_KEY, kskPair);
+    zsk = dnskey(DNSKEYRecord.Flags.ZONE_KEY, zskPair);
+
+    List<Record> records = new ArrayList<>();
+    records.add(
+        new SOARecord(
+            ORIGIN,
+            DClass.IN,
+            3600,
+            new Name("ns", ORIGIN),
+            new Name("hostmaster", ORIGIN),
+            1,
+            3600,
+            600,
+            86400,
+            300));
+    records.add(new NSRecord(ORIGIN, DClass.IN, 3600, new Name("ns", ORIGIN)));
+    records.add(ksk);
+    records.add(zsk);
+    records.add(a("ns.example.", "192.0.2.1"));
+    for (int i = 0; i < 100; i++) {
+      records.add(a("host" + i + ".example.", "192.0.2." + (i + 2)));
+    }
+
+    // a delegation with glue, a DS and something below the cut
+    Name sub = new Name("sub", ORIGIN);
+    records.add(new NSRecord(sub, DClass.IN, 3600, new Name("ns.sub", ORIGIN)));
+    records.add(new DSRecord(sub, DClass.IN, 3600, DNSSEC.Digest.SHA256, zsk));
+    records.add(a("ns.sub.example.", "192.0.2.200"));
+    records.add(a("deep.below.sub.example.", "192.0.2.201"));
+
+    // names below a DNAME are occluded
+    Name alias = new Name("alias", ORIGIN);
+    records.add(new DNAMERecord(alias, DClass.IN, 3600, Name.fromConstantString("example.net.")));
+    records.add(a("www.alias.example.", "192.0.2.202"));
+    zone = new Zone(ORIGIN, records.toArray(new Record[0]));
+  }
+
+  private static DNSKEYRecord dnskey(int flags, KeyPair pair) throws DNSSEC.DNSSECException {
+    return new DNSKEYRecord(
+        ORIGIN,
+        DClass.IN,
+        3600,
+        flags,
+        DNSKEYRecord.Protocol.DNSSEC,
+        DNSSEC.Algorithm.ECDSAP256SHA256,
+        pair.getPublic());
+  }
+
+  private static ARecord a(String name, String address) throws IOException {
+    return new ARecord(Name.fromString(name), DClass.IN, 3600, InetAddress.getByName(address));
+  }
+
+  private RRset rrset(String name, int type) throws TextParseException {
+    return zone.findExactMatch(Name.fromString(name), type);
+  }
+
+  private void assertSignedBy(RRset rrset, DNSKEYRecord key) throws DNSSEC.DNSSECException {
+    assertThat(rrset.sigs()).hasSize(1);
+    DNSSEC.verify(rrset, rrset.sigs().get(0), key, NOW);
+  }
+
+  @Test
+  void signWithSplitKeys() throws Exception {
+    int count =
+        new ZoneSigner(INCEPTION, EXPIRATION)
+            .addKey(ksk, kskPair.getPrivate())
+            .addKey(zsk, zskPair.getPrivate())
+            .sign(zone);
+
+    // SOA, NS, DNSKEY, ns, 100 hosts, DS, DNAME
+    assertThat(count).isEqualTo(106);
+    assertSignedBy(rrset("example.", Type.DNSKEY), ksk);
+    assertSignedBy(rrset("example.", Type.SOA), zsk);
+    assertSignedBy(rrset("example.", Type.NS), zsk);
+    assertSignedBy(zone.getNS(), zsk);
+    assertSignedBy(rrset("host42.example.", Type.A), zsk);
+    assertSignedBy(rrset("sub.example.", Type.DS), zsk);
+    assertSignedBy(rrset("alias.example.", Type.DNAME), zsk);
+
+    assertThat(rrset("sub.example.", Type.NS).sigs()).isEmpty();
+    assertThat(rrset("ns.sub.example.", Type.A).sigs()).isEmpty();
+    assertThat(rrset("deep.below.sub.example.", Type.A).sigs()).isEmpty();
+    assertThat(rrset("www.alias.example.", Type.A).sigs()).isEmpty();
+  }
+
+  @Test
+  void signWithSingleKey() throws Exception {
+    int count =
+        new ZoneSigner(INCEPTION, EXPIRATION, new ForkJoinPool(4))
+            .addKey(ksk, kskPair.getPrivate())
+            .sign(zone);
+
+    assertThat(count).isEqualTo(106);
+    assertSignedBy(rrset("example.", Type.DNSKEY), ksk);
+    assertSignedBy(rrset("host0.example.", Type.A), ksk);
+    assertSignedBy(rrset("host99.example.", Type.A), ksk);
+  }
+
+  @Test
+  void signAgainReplacesSignatures() throws Exception {
+    RRSIGRecord foreign =
+        new RRSIGRecord(
+            ORIGIN,
+            DClass.IN,
+            3600,
+            Type.SOA,
+            DNSSEC.Algorithm.ECDSAP256SHA256,
+            3600,
+            EXPIRATION,
+            INCEPTION,
+            12345,
+            ORIGIN,
+            new byte[64]);
+    zone.addRecord(foreign);
+
+    ZoneSigner signer = new ZoneSigner(INCEPTION, EXPIRATION).addKey(zsk, zskPair.getPrivate());
+    signer.sign(zone);
+    signer.setInception(INCEPTION.plusSeconds(60));
+    signer.sign(zone);
+
+    RRset host = rrset("host1.example.", Type.A);
+    assertSignedBy(host, zsk);
+    assertThat(host.sigs().get(0).getTimeSigned()).isEqualTo(INCEPTION.plusSeconds(60));
+
+    // signatures of other keys are kept
+    assertThat(rrset("example.", Type.SOA).sigs()).hasSize(2).contains(foreign);
+  }
+
+  @Test
+  void signWithoutKeys() {
+    ZoneSigner signer = new ZoneSigner(INCEPTION, EXPIRATION);
+    assertThatThrownBy(() -> signer.sign(zone)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void signWithKeyOfOtherZone() throws Exception {
+    DNSKEYRecord other =
+        new DNSKEYRecord(
+            Name.fromConstantString("example.net."),
+            DClass.IN,
+            3600,
+            DNSKEYRecord.Flags.ZONE_KEY,
+            DNSKEYRecord.Protocol.DNSSEC,
+            DNSSEC.Algorithm.ECDSAP256SHA256,
+            zskPair.getPublic());
+    ZoneSigner signer = new ZoneSigner(INCEPTION, EXPIRATION).addKey(other, zskPair.getPrivate());
+    assertThatThrownBy(() -> signer.sign(zone)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void signingErrorsAreThrown() throws TextParseException {
+    DNSKEYRecord unsupported =
+        new DNSKEYRecord(
+            ORIGIN,
+            DClass.IN,
+            3600,
+            DNSKEYRecord.Flags.ZONE_KEY,
+            DNSKEYRecord.Protocol.DNSSEC,
+            200,
+            new byte[32]);
+    ZoneSigner signer =
+        new ZoneSigner(INCEPTION, EXPIRATION).addKey(unsupported, zskPair.getPrivate());
+    assertThatThrownBy(() -> signer.sign(zone))
+        .isInstanceOf(DNSSEC.UnsupportedAlgorithmException.class);
+    assertThat(rrset("host1.example.", Type.A).sigs()).isEmpty();
+  }
+}
@@ -16,10 +16,12 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
@@ -688,6 +690,164 @@ class ZoneTest {
         .hasMessageContaining("No more elements");
   }
 
+  @Test
+  void updateAppliesAllChanges() throws TextParseException {
+    Name other = new Name("other", ZONE_NAME);
+    ZONE.update(
+        z -> {
+          z.removeRecord(A_TEST);
+          z.addRecord(A_TEST.withName(other));
+          assertThat(z.findExactMatch(A_TEST.getName(), Type.A)).isNull();
+        });
+    assertThat(ZONE.findExactMatch(A_TEST.getName(), Type.A)).isNull();
+    assertThat(ZONE.findExactMatch(other, Type.A)).isNotNull();
+  }
+
+  @Test
+  void updateIsInvisibleUntilDone() throws TextParseException {
+    Name other = new Name("other", ZONE_NAME);
+    RRset[] seen = new RRset[1];
+    ZONE.update(
+        z -> {
+          z.addRecord(A_TEST.withName(other));
+          Thread reader = new Thread(() -> seen[0] = ZONE.findExactMatch(other, Type.A));
+          reader.start();
+          try {
+            reader.join();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    assertThat(seen[0]).isNull();
+    assertThat(ZONE.findExactMatch(other, Type.A)).isNotNull();
+  }
+
+  @Test
+  void updateRollsBackOnException() {
+    assertThatThrownBy(
+            () ->
+                ZONE.update(
+                    z -> {
+                      z.removeRecord(A_TEST);
+                      z.removeRRset(ZONE_NAME, Type.NS);
+                    }))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(ZONE.findExactMatch(A_TEST.getName(), Type.A)).first().isEqualTo(A_TEST);
+    assertThat(ZONE.getNS().size()).isEqualTo(2);
+  }
+
+  @Test
+  void updateKeepsDataReturnedDuringTheUpdate() throws IOException {
+    Name other = new Name("other", ZONE_NAME);
+    ARecord a1 = new ARecord(other, DClass.IN, 3600, InetAddress.getByName("127.0.0.9"));
+    ARecord a2 = new ARecord(other, DClass.IN, 3600, A_TEST.getAddress());
+    ARecord a3 = new ARecord(other, DClass.IN, 3600, A_UNIQUE.getAddress());
+    ZONE.update(
+        z -> {
+          z.addRecord(a1);
+          z.addRecord(a2);
+          SetResponse sr = z.findRecords(other, Type.A);
+          Iterator<RRset> it = z.iterator();
+          z.addRecord(a3);
+          z.removeRecord(A_UNIQUE);
+
+          assertThat(sr.answers().get(0).rrs()).containsExactlyInAnyOrder(a1, a2);
+          List<Name> names = new ArrayList<>();
+          it.forEachRemaining(rrset -> names.add(rrset.getName()));
+          assertThat(names).contains(A_UNIQUE.getName(), other);
+        });
+    assertThat(ZONE.findExactMatch(other, Type.A).rrs()).containsExactlyInAnyOrder(a1, a2, a3);
+    assertThat(ZONE.findExactMatch(A_UNIQUE.getName(), Type.A)).isNull();
+  }
+
+  @Test
+  void updateRollsBackChangesMadeInPlace() throws TextParseException {
+    Name other = new Name("other", ZONE_NAME);
+    assertThatThrownBy(
+            () ->
+                ZONE.update(
+                    z -> {
+                      z.addRecord(A_TEST.withName(other));
+                      z.addRecord(A_UNIQUE.withName(other));
+                      z.removeRecord(AAAA_1_TEST);
+                      z.removeRecord(AAAA_2_TEST);
+                      z.removeRRset(ZONE_NAME, Type.NS);
+                    }))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(ZONE.findExactMatch(other, Type.A)).isNull();
+    assertThat(ZONE.findExactMatch(AAAA_1_TEST.getName(), Type.AAAA).size()).isEqualTo(2);
+  }
+
+  @Test
+  void constructorAddsAllRecordsOfLargeRRset() throws IOException {
+    List<Record> records = new ArrayList<>();
+    records.add(SOA1);
+    records.add(NS1);
+    Name large = new Name("large", ZONE_NAME);
+    for (int i = 0; i < 20000; i++) {
+      records.add(
+          new ARecord(
+              large,
+              DClass.IN,
+              3600,
+              InetAddress.getByAddress(new byte[] {10, 0, (byte) (i >> 8), (byte) i})));
+    }
+
+    Zone zone = new Zone(ZONE_NAME, records.toArray(new Record[0]));
+    assertThat(zone.findExactMatch(large, Type.A).size()).isEqualTo(20000);
+    zone.removeRecord(records.get(2));
+    assertThat(zone.findExactMatch(large, Type.A).size()).isEqualTo(19999);
+  }
+
+  @Test
+  void changeListenerIsCalledOncePerChange() throws TextParseException {
+    AtomicInteger calls = new AtomicInteger();
+    Runnable listener = calls::incrementAndGet;
+    ZONE.addChangeListener(listener);
+    Name zzz = new Name("zzz", ZONE_NAME);
+    ZONE.update(
+        z -> {
+          z.addRecord(A_TEST.withName(zzz));
+          z.removeRecord(A_UNIQUE);
+        });
+    assertThat(calls).hasValue(1);
+
+    ZONE.update(z -> {});
+    assertThatThrownBy(() -> ZONE.update(z -> z.removeRRset(ZONE_NAME, Type.NS)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(calls).hasValue(1);
+
+    ZONE.removeChangeListener(listener);
+    ZONE.removeRecord(A_TEST);
+    assertThat(calls).hasValue(1);
+  }
+
+  @Test
+  void iteratorIsSnapshot() throws TextParseException {
+    Name zzz = new Name("zzz", ZONE_NAME);
+    Iterator<RRset> it = ZONE.iterator();
+    ZONE.addRecord(A_TEST.withName(zzz));
+    ZONE.removeRecord(A_UNIQUE);
+    List<Name> names = new ArrayList<>();
+    it.forEachRemaining(rrset -> names.add(rrset.getName()));
+    assertThat(names).contains(A_UNIQUE.getName()).doesNotContain(zzz);
+  }
+
+  @Test
+  void returnedRRsetsAreNotChanged() {
+    RRset before = ZONE.findExactMatch(A_TEST.getName(), Type.AAAA);
+    ZONE.removeRecord(AAAA_1_TEST);
+    assertThat(before.size()).isEqualTo(2);
+    assertThat(ZONE.findExactMatch(A_TEST.getName(), Type.AAAA).size()).isEqualTo(1);
+  }
+
+  @Test
+  void addSoaReplacesExisting() {
+    ZONE.addRecord(SOA2);
+    assertThat(ZONE.getSOA()).isEqualTo(SOA2);
+    assertThat(ZONE.findExactMatch(ZONE_NAME, Type.SOA).size()).isEqualTo(1);
+  }
+
   @Test
   void isSerializable() throws IOException, ClassNotFoundException {
     ByteArrayOutputStream oms = new ByteArrayOutputStream();
@@ -8,8 +8,10 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Properties;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.xbill.DNS.ARecord;
@@ -18,6 +20,7 @@ import org.xbill.DNS.DNSKEYRecord;
 import org.xbill.DNS.DNSSEC;
 import org.xbill.DNS.ExtendedErrorCodeOption;
 import org.xbill.DNS.Name;
+import org.xbill.DNS.RRSIGRecord;
 import org.xbill.DNS.RRset;
 
 public class DnsSecVerifierTests {
@@ -144,4 +147,106 @@ public class DnsSecVerifierTests {
     assertEquals(ExtendedErrorCodeOption.DNSSEC_BOGUS, status.edeReason);
     assertEquals("validate.bogus.rrsigtoomany:.:A", status.reason);
   }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void validateCached(boolean asSet) {
+    for (int i = 0; i < 2; i++) {
+      JustifiedSecStatus status;
+      if (asSet) {
+        status = verifier.verify(new SRRset(signed), keyEntry, Instant.ofEpochSecond(5400));
+      } else {
+        status = verifier.verify(signed, key, Instant.ofEpochSecond(5400));
+      }
+
+      assertEquals(SecurityStatus.SECURE, status.status);
+    }
+
+    assertEquals(1, verifier.getSignatureCache().getMisses());
+    assertEquals(1, verifier.getSignatureCache().getHits());
+    assertEquals(1, verifier.getSignatureCache().size());
+  }
+
+  @Test
+  void validateCachedOutsideValidity() {
+    assertEquals(
+        SecurityStatus.SECURE,
+        verifier.verify(new SRRset(signed), keyEntry, Instant.ofEpochSecond(5400)).status);
+
+    JustifiedSecStatus status =
+        verifier.verify(new SRRset(signed), keyEntry, Instant.ofEpochSecond(8000));
+    assertEquals(SecurityStatus.BOGUS, status.status);
+    assertEquals(ExtendedErrorCodeOption.SIGNATURE_EXPIRED, status.edeReason);
+
+    status = verifier.verify(new SRRset(signed), keyEntry, Instant.ofEpochSecond(1800));
+    assertEquals(SecurityStatus.BOGUS, status.status);
+    assertEquals(ExtendedErrorCodeOption.SIGNATURE_NOT_YET_VALID, status.edeReason);
+    assertEquals(0, verifier.getSignatureCache().getHits());
+  }
+
+  @Test
+  void validateCachedWithDifferentData() {
+    assertEquals(
+        SecurityStatus.SECURE,
+        verifier.verify(new SRRset(signed), keyEntry, Instant.ofEpochSecond(5400)).status);
+
+    RRset modified = new RRset(new ARecord(Name.root, DClass.IN, 3600, new byte[] {1, 2, 3, 4}));
+    modified.addRR(signed.sigs().get(0));
+    JustifiedSecStatus status =
+        verifier.verify(new SRRset(modified), keyEntry, Instant.ofEpochSecond(5400));
+    assertEquals(SecurityStatus.BOGUS, status.status);
+    assertEquals(0, verifier.getSignatureCache().getHits());
+    assertEquals(2, verifier.getSignatureCache().getMisses());
+  }
+
+  @Test
+  void validateCacheDisabled() {
+    Properties config = new Properties();
+    config.put(SignatureCache.MAX_CACHE_SIZE_CONFIG, "0");
+    verifier.init(config);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(
+          SecurityStatus.SECURE,
+          verifier.verify(new SRRset(signed), keyEntry, Instant.ofEpochSecond(5400)).status);
+    }
+
+    assertEquals(0, verifier.getSignatureCache().getHits());
+    assertEquals(0, verifier.getSignatureCache().size());
+  }
+
+  @Test
+  void validateCacheIsBounded() {
+    Properties config = new Properties();
+    config.put(SignatureCache.MAX_CACHE_SIZE_CONFIG, "2");
+    verifier.init(config);
+    for (RRSIGRecord sig : multiSigned.sigs()) {
+      RRset rrset = new RRset(multiSigned.first());
+      rrset.addRR(sig);
+      assertEquals(
+          SecurityStatus.SECURE,
+          verifier.verify(new SRRset(rrset), keyEntry, Instant.ofEpochSecond(7200)).status);
+    }
+
+    assertEquals(NUM_RRSIGS, verifier.getSignatureCache().getMisses());
+    assertEquals(2, verifier.getSignatureCache().size());
+  }
+
+  @Test
+  void validateCacheEvictsLeastRecentlyUsed() {
+    Properties config = new Properties();
+    config.put(SignatureCache.MAX_CACHE_SIZE_CONFIG, "2");
+    verifier.init(config);
+    List<RRSIGRecord> sigs = multiSigned.sigs();
+    for (int i : new int[] {0, 1, 0, 2, 0, 1}) {
+      RRset rrset = new RRset(multiSigned.first());
+      rrset.addRR(sigs.get(i));
+      assertEquals(
+          SecurityStatus.SECURE,
+          verifier.verify(new SRRset(rrset), keyEntry, Instant.ofEpochSecond(7200)).status);
+    }
+
+    // the second signature was evicted when the third was stored, the first was used before
+    assertEquals(2, verifier.getSignatureCache().getHits());
+    assertEquals(4, verifier.getSignatureCache().getMisses());
+  }
 }
@@ -0,0 +1,127 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Properties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+class TestAggressiveNsec extends TestBase {
+  @BeforeEach
+  void enableAggressiveNsec() throws IOException {
+    Properties config = new Properties();
+    config.setProperty(AggressiveNsecCache.ENABLED_CONFIG, "true");
+    resolver.init(config);
+  }
+
+  private void assertSecureNegative(int rcode, Message response) {
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertRCode(rcode, response.getRcode());
+    assertTrue(response.getSectionRRsets(Section.ANSWER).isEmpty());
+    assertEquals(Type.SOA, response.getSectionRRsets(Section.AUTHORITY).get(0).getType());
+  }
+
+  @Test
+  void testNsecNameError() throws IOException {
+    assertSecureNegative(
+        Rcode.NXDOMAIN, resolver.send(createMessage("gibtsnicht.ingotronic.ch./A")));
+    assertEquals(0, resolver.getAggressiveNsecHits());
+
+    // the recording only contains the first query, these must not be sent
+    Message response = resolver.send(createMessage("gibtsnichtmehr.ingotronic.ch./A"));
+    assertSecureNegative(Rcode.NXDOMAIN, response);
+    assertEquals("gibtsnichtmehr.ingotronic.ch.", response.getQuestion().getName().toString());
+    assertSecureNegative(
+        Rcode.NXDOMAIN, resolver.send(createMessage("www.gibtsnicht.ingotronic.ch./MX")));
+    assertEquals(2, resolver.getAggressiveNsecHits());
+  }
+
+  @Test
+  void testNsecNodata() throws IOException {
+    resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+
+    assertSecureNegative(Rcode.NOERROR, resolver.send(createMessage("ingotronic.ch./MX")));
+    assertEquals(1, resolver.getAggressiveNsecHits());
+  }
+
+  @Test
+  void testNsec3NameError() throws IOException {
+    assertSecureNegative(
+        Rcode.NXDOMAIN, resolver.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./A")));
+    assertEquals(0, resolver.getAggressiveNsecHits());
+
+    assertSecureNegative(
+        Rcode.NXDOMAIN, resolver.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./TXT")));
+    assertSecureNegative(
+        Rcode.NXDOMAIN, resolver.send(createMessage("www.gibtsnicht.nsec3.ingotronic.ch./A")));
+    assertEquals(2, resolver.getAggressiveNsecHits());
+  }
+
+  @Test
+  void testNsec3Nodata() throws IOException {
+    resolver.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./A"));
+
+    assertSecureNegative(Rcode.NOERROR, resolver.send(createMessage("nsec3.ingotronic.ch./MX")));
+    assertEquals(1, resolver.getAggressiveNsecHits());
+  }
+
+  @Test
+  void testDisabledByDefault() throws IOException {
+    Properties config = new Properties();
+    config.setProperty(AggressiveNsecCache.ENABLED_CONFIG, "false");
+    resolver.init(config);
+
+    resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+    assertSecureNegative(
+        Rcode.NXDOMAIN, resolver.send(createMessage("gibtsnicht.ingotronic.ch./A")));
+    assertEquals(0, resolver.getAggressiveNsecHits());
+  }
+
+  @Test
+  void testExpiredRecordsAreNotUsed() throws IOException {
+    resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+
+    // the SOA and the NSECs have a TTL of 300s
+    Instant later = resolverClock.instant().plusSeconds(301);
+    when(resolverClock.instant()).thenReturn(later);
+    assertSecureNegative(
+        Rcode.NXDOMAIN, resolver.send(createMessage("gibtsnicht.ingotronic.ch./A")));
+    assertEquals(0, resolver.getAggressiveNsecHits());
+  }
+
+  @Test
+  void testRecordsHaveRemainingTtl() throws IOException {
+    resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+
+    // the SOA and the NSECs have a TTL of 300s
+    Instant later = resolverClock.instant().plusSeconds(100);
+    when(resolverClock.instant()).thenReturn(later);
+    Message response = resolver.send(createMessage("gibtsnichtmehr.ingotronic.ch./A"));
+    assertSecureNegative(Rcode.NXDOMAIN, response);
+    assertEquals(1, resolver.getAggressiveNsecHits());
+    for (Record r : response.getSection(Section.AUTHORITY)) {
+      assertEquals(200, r.getTTL(), r.toString());
+    }
+  }
+
+  @Test
+  void testCheckingDisabledIsSent() throws IOException {
+    resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+
+    Message query = createMessage("gibtsnicht.ingotronic.ch./A");
+    query.getHeader().setFlag(Flags.CD);
+    resolver.send(query);
+    assertEquals(0, resolver.getAggressiveNsecHits());
+  }
+}
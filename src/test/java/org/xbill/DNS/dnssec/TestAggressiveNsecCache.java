@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.DNSSEC;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.NSECRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+class TestAggressiveNsecCache {
+  private static final Name ZONE = Name.fromConstantString("example.com.");
+  private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+  private AggressiveNsecCache cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = new AggressiveNsecCache(Clock.fixed(NOW, ZoneOffset.UTC), new NSEC3ValUtils());
+    Properties config = new Properties();
+    config.setProperty(AggressiveNsecCache.ENABLED_CONFIG, "true");
+    config.setProperty(AggressiveNsecCache.MAX_CACHE_SIZE_CONFIG, "2");
+    cache.init(config);
+  }
+
+  private static Name name(String s) {
+    return Name.fromConstantString(s + ".example.com.");
+  }
+
+  private static RRSIGRecord sig(Record r, Instant expire) {
+    return new RRSIGRecord(
+        r.getName(),
+        DClass.IN,
+        r.getTTL(),
+        r.getType(),
+        DNSSEC.Algorithm.RSASHA256,
+        r.getTTL(),
+        expire,
+        NOW.minusSeconds(3600),
+        1,
+        ZONE,
+        new byte[] {1});
+  }
+
+  private static Message query(Name qname) {
+    return Message.newQuery(Record.newRecord(qname, Type.A, DClass.IN));
+  }
+
+  private void store(Name qname, Record... nsecsAndSigs) {
+    Message m = query(qname);
+    m.getHeader().setRcode(Rcode.NXDOMAIN);
+    SOARecord soa = new SOARecord(ZONE, DClass.IN, 3600, ZONE, ZONE, 1, 3600, 600, 86400, 3600);
+    m.addRecord(soa, Section.AUTHORITY);
+    m.addRecord(sig(soa, NOW.plusSeconds(86400)), Section.AUTHORITY);
+    for (Record r : nsecsAndSigs) {
+      m.addRecord(r, Section.AUTHORITY);
+    }
+
+    SMessage response = new SMessage(m);
+    response.setStatus(SecurityStatus.SECURE, -1);
+    cache.store(query(qname), response);
+  }
+
+  @Test
+  void testEarliestExpiringEntryIsEvicted() {
+    NSECRecord apex = new NSECRecord(ZONE, DClass.IN, 3600, name("a"), new int[] {Type.SOA});
+    NSECRecord b = new NSECRecord(name("b"), DClass.IN, 3600, name("d"), new int[] {Type.A});
+    NSECRecord m = new NSECRecord(name("m"), DClass.IN, 3600, name("n"), new int[] {Type.A});
+    Instant later = NOW.plusSeconds(86400);
+    store(name("c"), apex, sig(apex, later), b, sig(b, NOW.plusSeconds(100)));
+    assertNotNull(cache.lookup(query(name("c"))));
+
+    // three NSECs for two slots, the one with the earliest signature expiration has to go
+    store(name("mm"), apex, sig(apex, later), m, sig(m, later));
+    assertEquals(2, cache.size());
+    assertNull(cache.lookup(query(name("c"))));
+    Message response = cache.lookup(query(name("mm")));
+    assertNotNull(response);
+    assertEquals(Rcode.NXDOMAIN, response.getRcode());
+  }
+}
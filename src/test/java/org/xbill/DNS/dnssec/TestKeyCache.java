@@ -3,12 +3,19 @@ package org.xbill.DNS.dnssec;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 import org.xbill.DNS.DClass;
 import org.xbill.DNS.DNSKEYRecord;
@@ -38,6 +45,16 @@ class TestKeyCache {
     assertNull(fromCache);
   }
 
+  @Test
+  void testNegativeMaxCacheSizeCachesNothing() throws TextParseException {
+    Properties p = new Properties();
+    p.put(KeyCache.MAX_CACHE_SIZE_CONFIG, "-1");
+    KeyCache kc = new KeyCache();
+    kc.init(p);
+    kc.store(KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60));
+    assertNull(kc.find(Name.fromString("a."), DClass.IN));
+  }
+
   @Test
   void testTtlExpiration() throws TextParseException {
     Clock clock = mock(Clock.class);
@@ -120,4 +137,108 @@ class TestKeyCache {
     KeyEntry fromCacheC = kc.find(Name.fromString("c."), DClass.IN);
     assertNull(fromCacheC);
   }
+
+  @Test
+  void testClosestEncloserAmongSiblings() throws TextParseException {
+    KeyCache kc = new KeyCache();
+    KeyEntry root = KeyEntry.newNullKeyEntry(Name.root, DClass.IN, 60);
+    KeyEntry b = KeyEntry.newNullKeyEntry(Name.fromString("b."), DClass.IN, 60);
+    KeyEntry ab = KeyEntry.newNullKeyEntry(Name.fromString("a.b."), DClass.IN, 60);
+    KeyEntry cab = KeyEntry.newNullKeyEntry(Name.fromString("c.a.b."), DClass.IN, 60);
+    KeyEntry xb = KeyEntry.newNullKeyEntry(Name.fromString("x.b."), DClass.IN, 60);
+    kc.store(xb);
+    kc.store(cab);
+    kc.store(root);
+    kc.store(ab);
+    kc.store(b);
+
+    assertEquals(cab, kc.find(Name.fromString("z.y.C.A.B."), DClass.IN));
+    assertEquals(ab, kc.find(Name.fromString("d.a.b."), DClass.IN));
+    assertEquals(xb, kc.find(Name.fromString("q.x.b."), DClass.IN));
+    assertEquals(b, kc.find(Name.fromString("w.b."), DClass.IN));
+    assertEquals(b, kc.find(Name.fromString("aa.b."), DClass.IN));
+    assertEquals(root, kc.find(Name.fromString("a."), DClass.IN));
+    assertNull(kc.find(Name.fromString("a."), DClass.CH));
+  }
+
+  @Test
+  void testReplaceEntry() throws TextParseException {
+    KeyCache kc = new KeyCache();
+    KeyEntry first = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60);
+    KeyEntry second = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60);
+    kc.store(first);
+    kc.store(second);
+    assertSame(second, kc.find(Name.fromString("a."), DClass.IN));
+    assertEquals(1, kc.size());
+  }
+
+  @Test
+  void testExpiredEntriesAreRemoved() throws TextParseException {
+    Clock clock = mock(Clock.class);
+    Instant now = Clock.systemUTC().instant();
+    when(clock.instant()).thenReturn(now);
+    KeyCache kc = new KeyCache(clock);
+    KeyEntry a = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60);
+    KeyEntry ba = KeyEntry.newNullKeyEntry(Name.fromString("c.b.a."), DClass.IN, 1);
+    kc.store(a);
+    kc.store(ba);
+    assertEquals(2, kc.size());
+
+    when(clock.instant()).thenReturn(now.plusSeconds(5));
+    assertEquals(a, kc.find(Name.fromString("d.c.b.a."), DClass.IN));
+    assertEquals(1, kc.size());
+  }
+
+  @Test
+  void testFrequentlyUsedEntriesSurviveEviction() throws TextParseException {
+    Properties p = new Properties();
+    p.put(KeyCache.MAX_CACHE_SIZE_CONFIG, "10");
+    KeyCache kc = new KeyCache();
+    kc.init(p);
+    KeyEntry root = KeyEntry.newNullKeyEntry(Name.root, DClass.IN, 60);
+    kc.store(root);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(root, kc.find(Name.fromString("x" + i + "."), DClass.IN));
+      kc.store(KeyEntry.newNullKeyEntry(Name.fromString("x" + i + "."), DClass.IN, 60));
+      assertTrue(kc.size() <= 10);
+    }
+
+    assertEquals(root, kc.find(Name.fromString("a."), DClass.IN));
+    assertEquals(root, kc.find(Name.fromString("x0."), DClass.IN));
+    assertEquals(10, kc.size());
+  }
+
+  @Test
+  void testConcurrentFindAndStore() throws Exception {
+    Properties p = new Properties();
+    p.put(KeyCache.MAX_CACHE_SIZE_CONFIG, "50");
+    KeyCache kc = new KeyCache();
+    kc.init(p);
+    KeyEntry root = KeyEntry.newNullKeyEntry(Name.root, DClass.IN, 60);
+    kc.store(root);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 2000; i++) {
+                    Name name = Name.fromConstantString("n" + (i % 200) + ".t" + thread + ".");
+                    KeyEntry found = kc.find(name, DClass.IN);
+                    assertTrue(found == null || name.subdomain(found.getName()));
+                    kc.store(KeyEntry.newNullKeyEntry(name, DClass.IN, 60));
+                  }
+                }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertTrue(kc.size() <= 50);
+  }
 }
@@ -0,0 +1,60 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Type;
+
+class TestNsec3HashCache {
+  private static final NSEC3Record NSEC3 =
+      new NSEC3Record(
+          Name.fromConstantString("example."),
+          DClass.IN,
+          300,
+          NSEC3Record.SHA1_DIGEST_ID,
+          0,
+          1,
+          null,
+          new byte[20],
+          new int[] {Type.A});
+
+  @Test
+  void testLeastRecentlyUsedIsEvicted() throws NoSuchAlgorithmException {
+    Nsec3HashCache cache = new Nsec3HashCache();
+    Properties config = new Properties();
+    config.setProperty(Nsec3HashCache.MAX_CACHE_SIZE_CONFIG, "2");
+    cache.init(config);
+    Name[] names = {
+      Name.fromConstantString("a.example."),
+      Name.fromConstantString("b.example."),
+      Name.fromConstantString("c.example.")
+    };
+    for (int i : new int[] {0, 1, 0, 2, 0, 1}) {
+      cache.hash(Nsec3HashCache.key(NSEC3, names[i]), NSEC3, names[i]);
+    }
+
+    // b was evicted when c was stored, a was used before
+    assertEquals(2, cache.getHits());
+    assertEquals(4, cache.getMisses());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void testCachedHashIsComputedHash() throws NoSuchAlgorithmException {
+    Nsec3HashCache cache = new Nsec3HashCache();
+    Name name = Name.fromConstantString("a.example.");
+    for (int i = 0; i < 2; i++) {
+      assertArrayEquals(
+          NSEC3.hashName(name), cache.hash(Nsec3HashCache.key(NSEC3, name), NSEC3, name));
+    }
+
+    assertEquals(1, cache.getHits());
+  }
+}
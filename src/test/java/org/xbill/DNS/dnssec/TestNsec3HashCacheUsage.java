@@ -0,0 +1,47 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+
+class TestNsec3HashCacheUsage extends TestBase {
+  @Test
+  void testRepeatedQuery() throws IOException {
+    Message response = resolver.send(createMessage("alias.1gibtsnicht.nsec3.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertRCode(Rcode.NXDOMAIN, response.getRcode());
+    assertEquals(0, resolver.getNsec3HashCacheHits());
+    long misses = resolver.getNsec3HashCacheMisses();
+    assertTrue(misses > 0, "hashes must have been computed");
+
+    // the closest encloser proof must be validated with the hashes of the first query
+    response = resolver.send(createMessage("alias.1gibtsnicht.nsec3.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertRCode(Rcode.NXDOMAIN, response.getRcode());
+    assertEquals(misses, resolver.getNsec3HashCacheHits());
+    assertEquals(misses, resolver.getNsec3HashCacheMisses());
+  }
+
+  @Test
+  void testDisabledCache() throws IOException {
+    Properties config = new Properties();
+    config.setProperty(Nsec3HashCache.MAX_CACHE_SIZE_CONFIG, "0");
+    resolver.init(config);
+
+    for (int i = 0; i < 2; i++) {
+      Message response = resolver.send(createMessage("alias.1gibtsnicht.nsec3.ingotronic.ch./A"));
+      assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+      assertRCode(Rcode.NXDOMAIN, response.getRcode());
+    }
+
+    assertEquals(0, resolver.getNsec3HashCacheHits());
+    assertEquals(0, resolver.getNsec3HashCacheMisses());
+  }
+}
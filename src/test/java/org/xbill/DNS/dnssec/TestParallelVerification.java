@@ -0,0 +1,114 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.ExtendedErrorCodeOption;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Section;
+
+class TestParallelVerification extends TestBase {
+  private final AtomicInteger executions = new AtomicInteger();
+  private final Executor executor =
+      r -> {
+        executions.incrementAndGet();
+        ForkJoinPool.commonPool().execute(r);
+      };
+
+  @BeforeEach
+  void enableParallelVerification() throws IOException {
+    Properties config = new Properties();
+    config.setProperty(ValidatingResolver.PARALLEL_VERIFICATION_PROPERTY, "true");
+    resolver.init(config);
+  }
+
+  private Message send(String query) throws IOException {
+    try {
+      return resolver.sendAsync(createMessage(query), executor).toCompletableFuture().get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Test
+  void testPositive() throws IOException {
+    Message response = send("www.ingotronic.ch./A");
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(0, executions.get(), "keys were not known for the first query");
+
+    response = send("www.ingotronic.ch./A");
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertRCode(Rcode.NOERROR, response.getRcode());
+    assertEquals(localhost, firstA(response));
+    assertNull(getReason(response));
+    assertTrue(executions.get() > 0, "RRsets must be verified on the executor");
+  }
+
+  @Test
+  void testNxDomain() throws IOException {
+    send("gibtsnicht.ingotronic.ch./A");
+    Message response = send("gibtsnicht.ingotronic.ch./A");
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertRCode(Rcode.NXDOMAIN, response.getRcode());
+    assertNull(getReason(response));
+    assertEde(-1, response);
+    assertTrue(executions.get() > 0, "RRsets must be verified on the executor");
+  }
+
+  @Test
+  void testNodata() throws IOException {
+    send("www.ingotronic.ch./MX");
+    Message response = send("www.ingotronic.ch./MX");
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertTrue(response.getSectionRRsets(Section.ANSWER).isEmpty());
+    assertRCode(Rcode.NOERROR, response.getRcode());
+    assertNull(getReason(response));
+    assertTrue(executions.get() > 0, "RRsets must be verified on the executor");
+  }
+
+  @Test
+  void testNxDomainWithInvalidNsecSignature() throws IOException {
+    Message m = send("x.ingotronic.ch./A");
+    Message message =
+        messageFromString(
+            m.toString().replaceAll("(.*\\sRRSIG\\sNSEC\\s(\\d+\\s+){6}.*\\.)(.*)", "$1 YXNkZg=="));
+    // keep the resolver and its key cache to verify in parallel
+    add("x.ingotronic.ch./A", message, false);
+
+    Message response = send("x.ingotronic.ch./A");
+    assertFalse(response.getHeader().getFlag(Flags.AD), "AD flag must not be set");
+    assertRCode(Rcode.SERVFAIL, response.getRcode());
+    assertTrue(getReason(response).startsWith("failed.nxdomain.authority"));
+    assertEde(ExtendedErrorCodeOption.DNSSEC_BOGUS, response);
+    assertTrue(executions.get() > 0, "RRsets must be verified on the executor");
+  }
+
+  @Test
+  void testNoDataWithInvalidNsecSignature() throws IOException {
+    Message m = send("www.ingotronic.ch./MX");
+    Message message =
+        messageFromString(
+            m.toString().replaceAll("(.*\\sRRSIG\\sNSEC\\s(\\d+\\s+){6}.*\\.)(.*)", "$1 YXNkZg=="));
+    add("www.ingotronic.ch./MX", message, false);
+
+    Message response = send("www.ingotronic.ch./MX");
+    assertFalse(response.getHeader().getFlag(Flags.AD), "AD flag must not be set");
+    assertRCode(Rcode.SERVFAIL, response.getRcode());
+    assertTrue(getReason(response).startsWith("failed.authority.nodata"));
+    assertEde(ExtendedErrorCodeOption.DNSSEC_BOGUS, response);
+    assertTrue(executions.get() > 0, "RRsets must be verified on the executor");
+  }
+}
@@ -0,0 +1,30 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+
+class TestSignatureCacheUsage extends TestBase {
+  @Test
+  void testRepeatedQuery() throws IOException {
+    Message response = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(0, resolver.getSignatureCacheHits());
+    long misses = resolver.getSignatureCacheMisses();
+    assertTrue(misses > 0, "signatures must have been verified");
+
+    // the DNSKEYs come from the key cache, the RRsets must be verified from the signature cache
+    response = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertRCode(Rcode.NOERROR, response.getRcode());
+    assertEquals(localhost, firstA(response));
+    assertTrue(resolver.getSignatureCacheHits() > 0, "signatures must come from the cache");
+    assertEquals(misses, resolver.getSignatureCacheMisses());
+  }
+}
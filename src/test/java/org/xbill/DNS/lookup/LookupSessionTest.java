@@ -34,6 +34,7 @@ import static org.xbill.DNS.Type.MX;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.SocketTimeoutException;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.nio.file.Path;
@@ -393,6 +394,160 @@ class LookupSessionTest {
     verifyNoMoreInteractions(mockCache);
   }
 
+  @Test
+  void lookupAsync_cacheHitNearExpiryPrefetches() throws InterruptedException, ExecutionException {
+    wireUpMockResolver(mockResolver, query -> answer(query, name -> LOOPBACK_A));
+    Name aName = name("a.b.");
+
+    Cache mockCache = mock(Cache.class);
+    SetResponse response = mock(SetResponse.class);
+    when(response.isSuccessful()).thenReturn(true);
+    when(response.getRemainingTtlPercent()).thenReturn(5);
+    when(response.answers()).thenReturn(singletonList(new RRset(LOOPBACK_A.withName(aName))));
+    when(mockCache.getDClass()).thenReturn(IN);
+    when(mockCache.lookupRecords(aName, A, Credibility.NORMAL)).thenReturn(response);
+
+    LookupSession lookupSession =
+        LookupSession.builder()
+            .resolver(mockResolver)
+            .cache(mockCache)
+            .prefetchThreshold(10)
+            .build();
+    LookupResult result = lookupSession.lookupAsync(aName, A, IN).toCompletableFuture().get();
+    assertEquals(singletonList(LOOPBACK_A.withName(aName)), result.getRecords());
+
+    verify(mockResolver).sendAsync(any(), any(Executor.class));
+    verify(mockCache).addMessage(any(Message.class));
+  }
+
+  @Test
+  void lookupAsync_cacheHitNotNearExpiryDoesNotPrefetch()
+      throws InterruptedException, ExecutionException {
+    Name aName = name("a.b.");
+    Cache cache = new Cache();
+    cache.addRecord(LOOPBACK_A.withName(aName), Credibility.AUTH_ANSWER);
+
+    LookupSession lookupSession =
+        LookupSession.builder().resolver(mockResolver).cache(cache).prefetchThreshold(10).build();
+    LookupResult result = lookupSession.lookupAsync(aName, A, IN).toCompletableFuture().get();
+    assertEquals(singletonList(LOOPBACK_A.withName(aName)), result.getRecords());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void lookupAsync_serveStaleOnTimeout(boolean serveStale) {
+    Name aName = name("a.b.");
+    Cache cache = new Cache();
+    cache.setMaxStale(3600);
+    cache.setMaxCache(0);
+    cache.addRecord(LOOPBACK_A.withName(aName), Credibility.AUTH_ANSWER);
+    cache.setMaxCache(-1);
+
+    CompletableFuture<Message> timeout = new CompletableFuture<>();
+    timeout.completeExceptionally(new SocketTimeoutException("Query timed out"));
+    when(mockResolver.sendAsync(any(Message.class), any(Executor.class))).thenReturn(timeout);
+
+    LookupSession lookupSession =
+        LookupSession.builder().resolver(mockResolver).cache(cache).serveStale(serveStale).build();
+    CompletableFuture<LookupResult> f =
+        lookupSession.lookupAsync(aName, A, IN).toCompletableFuture();
+    if (serveStale) {
+      List<Record> records = f.join().getRecords();
+      assertThat(records).containsExactly(LOOPBACK_A.withName(aName));
+      assertEquals(30, records.get(0).getTTL());
+    } else {
+      assertThatThrownBy(f::get).hasCauseInstanceOf(SocketTimeoutException.class);
+    }
+
+    verify(mockResolver).sendAsync(any(), any(Executor.class));
+  }
+
+  @Test
+  void lookupAsync_serveStaleWithoutStaleData() {
+    CompletableFuture<Message> timeout = new CompletableFuture<>();
+    timeout.completeExceptionally(new SocketTimeoutException("Query timed out"));
+    when(mockResolver.sendAsync(any(Message.class), any(Executor.class))).thenReturn(timeout);
+
+    LookupSession lookupSession =
+        LookupSession.builder().resolver(mockResolver).cache(new Cache()).serveStale(true).build();
+    CompletableFuture<LookupResult> f =
+        lookupSession.lookupAsync(name("a.b."), A, IN).toCompletableFuture();
+    assertThatThrownBy(f::get).hasCauseInstanceOf(SocketTimeoutException.class);
+
+    verify(mockResolver).sendAsync(any(), any(Executor.class));
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void lookupAsync_coalescesIdenticalQueries(boolean useCache) throws Exception {
+    CompletableFuture<Message> response = new CompletableFuture<>();
+    ArgumentCaptor<Message> queryCaptor = ArgumentCaptor.forClass(Message.class);
+    when(mockResolver.sendAsync(queryCaptor.capture(), any(Executor.class))).thenReturn(response);
+
+    LookupSession lookupSession = lookupSession(useCache).coalesceQueries(10).build();
+    CompletableFuture<LookupResult> first =
+        lookupSession.lookupAsync(name("a.b."), A, IN).toCompletableFuture();
+    CompletableFuture<LookupResult> second =
+        lookupSession.lookupAsync(name("A.b."), A, IN).toCompletableFuture();
+    assertThat(first).isNotDone();
+    assertThat(second).isNotDone();
+
+    response.complete(answer(queryCaptor.getValue(), name -> LOOPBACK_A));
+    assertEquals(singletonList(LOOPBACK_A.withName(name("a.b."))), first.get().getRecords());
+    assertEquals(singletonList(LOOPBACK_A.withName(name("a.b."))), second.get().getRecords());
+
+    verify(mockResolver).sendAsync(any(), any(Executor.class));
+  }
+
+  @Test
+  void lookupAsync_coalescedQueryFailurePropagates() {
+    CompletableFuture<Message> response = new CompletableFuture<>();
+    when(mockResolver.sendAsync(any(Message.class), any(Executor.class))).thenReturn(response);
+
+    LookupSession lookupSession = lookupSession(true).coalesceQueries(10).build();
+    CompletableFuture<LookupResult> first =
+        lookupSession.lookupAsync(name("a.b."), A, IN).toCompletableFuture();
+    CompletableFuture<LookupResult> second =
+        lookupSession.lookupAsync(name("a.b."), A, IN).toCompletableFuture();
+
+    response.completeExceptionally(new SocketTimeoutException("Query timed out"));
+    assertThatThrownBy(first::get).hasCauseInstanceOf(SocketTimeoutException.class);
+    assertThatThrownBy(second::get).hasCauseInstanceOf(SocketTimeoutException.class);
+
+    verify(mockResolver).sendAsync(any(), any(Executor.class));
+  }
+
+  @Test
+  void lookupAsync_coalescingIsBounded() throws Exception {
+    List<CompletableFuture<Message>> responses = new ArrayList<>();
+    List<Message> queries = new ArrayList<>();
+    when(mockResolver.sendAsync(any(Message.class), any(Executor.class)))
+        .thenAnswer(
+            invocation -> {
+              queries.add(invocation.getArgument(0));
+              CompletableFuture<Message> f = new CompletableFuture<>();
+              responses.add(f);
+              return f;
+            });
+
+    LookupSession lookupSession = lookupSession(false).coalesceQueries(1).build();
+    CompletableFuture<LookupResult> first =
+        lookupSession.lookupAsync(name("a.b."), A, IN).toCompletableFuture();
+    CompletableFuture<LookupResult> second =
+        lookupSession.lookupAsync(name("c.d."), A, IN).toCompletableFuture();
+    CompletableFuture<LookupResult> third =
+        lookupSession.lookupAsync(name("c.d."), A, IN).toCompletableFuture();
+
+    for (int i = 0; i < responses.size(); i++) {
+      responses.get(i).complete(answer(queries.get(i), name -> LOOPBACK_A));
+    }
+    first.get();
+    second.get();
+    third.get();
+
+    verify(mockResolver, times(3)).sendAsync(any(), any(Executor.class));
+  }
+
   @Test
   void lookupAsync_searchPathWithCacheMissAndHit() throws InterruptedException, ExecutionException {
 
@@ -0,0 +1,238 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Iterator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+class NioServerTest {
+  private static final InetAddress LOCALHOST = InetAddress.getLoopbackAddress();
+  private static final Record QUESTION =
+      Record.newRecord(Name.fromConstantString("example."), Type.A, DClass.IN);
+
+  private NioServer server;
+
+  @AfterEach
+  void afterEach() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  /** Answers each query with an empty response with the same ID. */
+  private static byte[] answer(byte[] in) {
+    try {
+      Message query = new Message(in);
+      Message response = new Message(query.getHeader().getID());
+      response.getHeader().setFlag(Flags.QR);
+      return response.toWire();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static byte[] query(int id) {
+    Message query = Message.newQuery(QUESTION);
+    query.getHeader().setID(id);
+    return query.toWire();
+  }
+
+  private static void write(DataOutputStream out, byte[] message) throws IOException {
+    out.writeShort(message.length);
+    out.write(message);
+  }
+
+  private static Message read(DataInputStream in) throws IOException {
+    byte[] message = new byte[in.readUnsignedShort()];
+    in.readFully(message);
+    return new Message(message);
+  }
+
+  private static Socket connect(InetSocketAddress address) throws IOException {
+    Socket socket = new Socket(address.getAddress(), address.getPort());
+    socket.setSoTimeout(5000);
+    return socket;
+  }
+
+  @Test
+  void udpQueryIsAnswered() throws IOException {
+    server = new NioServer((in, tcp) -> answer(in), 2, Duration.ofSeconds(10));
+    InetSocketAddress address = server.addUDP(LOCALHOST, 0);
+    try (DatagramSocket socket = new DatagramSocket()) {
+      socket.setSoTimeout(5000);
+      byte[] query = query(4711);
+      socket.send(new DatagramPacket(query, query.length, address));
+      DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+      socket.receive(packet);
+
+      Message response = new Message(packet.getData());
+      assertThat(response.getHeader().getID()).isEqualTo(4711);
+      assertThat(response.getHeader().getFlag(Flags.QR)).isTrue();
+    }
+  }
+
+  @Test
+  void pipelinedTcpQueriesAreAnsweredInOrder() throws IOException {
+    server = new NioServer((in, tcp) -> answer(in), 2, Duration.ofSeconds(10));
+    try (Socket socket = connect(server.addTCP(LOCALHOST, 0))) {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      for (int i = 1; i <= 10; i++) {
+        write(out, query(i));
+      }
+
+      for (int i = 1; i <= 10; i++) {
+        assertThat(read(in).getHeader().getID()).isEqualTo(i);
+      }
+
+      // the connection stays open for further queries
+      write(out, query(11));
+      assertThat(read(in).getHeader().getID()).isEqualTo(11);
+    }
+  }
+
+  @Test
+  void idleConnectionIsClosed() throws IOException {
+    server = new NioServer((in, tcp) -> answer(in), 1, Duration.ofMillis(200));
+    try (Socket socket = connect(server.addTCP(LOCALHOST, 0))) {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      write(out, query(1));
+      assertThat(read(in).getHeader().getID()).isEqualTo(1);
+
+      long start = System.nanoTime();
+      assertThat(in.read()).isEqualTo(-1);
+      assertThat(System.nanoTime() - start).isGreaterThan(Duration.ofMillis(100).toNanos());
+    }
+  }
+
+  @Test
+  void streamIsSentBeforeFurtherQueries() throws IOException {
+    int count = 200;
+    server =
+        new NioServer(
+            (in, tcp) -> {
+              byte[] response = answer(in);
+              if (tcp == null || response[1] != 1) {
+                return response;
+              }
+
+              // query 1 starts a stream of 200 responses with IDs 1000 to 1199
+              tcp.stream(
+                  new Iterator<byte[]>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                      return next < count;
+                    }
+
+                    @Override
+                    public byte[] next() {
+                      Message m = new Message(1000 + next++);
+                      m.addRecord(QUESTION, Section.QUESTION);
+                      return m.toWire();
+                    }
+                  });
+              return null;
+            },
+            1,
+            Duration.ofSeconds(10));
+    try (Socket socket = connect(server.addTCP(LOCALHOST, 0))) {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      write(out, query(1));
+      write(out, query(2));
+      for (int i = 0; i < count; i++) {
+        assertThat(read(in).getHeader().getID()).isEqualTo(1000 + i);
+      }
+
+      assertThat(read(in).getHeader().getID()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void stalledStreamIsClosed() throws Exception {
+    byte[] large = new byte[60000];
+    server =
+        new NioServer(
+            (in, tcp) -> {
+              // an endless stream that is only stopped by closing the connection
+              tcp.stream(
+                  new Iterator<byte[]>() {
+                    @Override
+                    public boolean hasNext() {
+                      return true;
+                    }
+
+                    @Override
+                    public byte[] next() {
+                      return large;
+                    }
+                  });
+              return null;
+            },
+            1,
+            Duration.ofMillis(200));
+    try (Socket socket = connect(server.addTCP(LOCALHOST, 0))) {
+      write(new DataOutputStream(socket.getOutputStream()), query(1));
+
+      // stop reading until the buffers are full and the connection is idle
+      Thread.sleep(1000);
+      byte[] buffer = new byte[65536];
+      long drained = 0;
+      try {
+        int n;
+        while ((n = socket.getInputStream().read(buffer)) >= 0) {
+          // drain what was written before the connection was closed
+          drained += n;
+          assertThat(drained).as("the stalled connection was not closed").isLessThan(64 << 20);
+        }
+      } catch (SocketTimeoutException e) {
+        throw new AssertionError("the stalled connection was not closed", e);
+      } catch (SocketException e) {
+        // reset
+      }
+    }
+  }
+
+  @Test
+  void closeStopsAllThreads() throws IOException {
+    server = new NioServer((in, tcp) -> answer(in), 3, Duration.ofSeconds(10));
+    server.addUDP(LOCALHOST, 0);
+    try (Socket socket = connect(server.addTCP(LOCALHOST, 0))) {
+      assertThat(serverThreads()).isGreaterThanOrEqualTo(4);
+
+      server.close();
+      assertThat(serverThreads()).isZero();
+      assertThat(socket.getInputStream().read()).isEqualTo(-1);
+    }
+  }
+
+  private static long serverThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(t -> t.isAlive() && t.getName().startsWith("jnamed "))
+        .count();
+  }
+}
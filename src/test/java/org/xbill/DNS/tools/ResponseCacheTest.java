@@ -0,0 +1,183 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.ExtendedFlags;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.OPTRecord;
+import org.xbill.DNS.Opcode;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TSIG;
+import org.xbill.DNS.Type;
+
+class ResponseCacheTest {
+  private static final Name NAME = Name.fromConstantString("www.example.");
+
+  private final ResponseCache cache = new ResponseCache(100);
+
+  private static Message query(String name) {
+    return Message.newQuery(Record.newRecord(Name.fromConstantString(name), Type.A, DClass.IN));
+  }
+
+  private static Message query() {
+    return query(NAME.toString());
+  }
+
+  private static Message edns(Message query, int payloadSize, int flags) {
+    query.addRecord(new OPTRecord(payloadSize, 0, 0, flags), Section.ADDITIONAL);
+    return query;
+  }
+
+  private static ResponseCache.Key key(Message query) {
+    return ResponseCache.key(query.toWire(), false);
+  }
+
+  private static byte[] response(Message query, int rcode, boolean authoritative) {
+    Message response = new Message(query.getHeader().getID());
+    response.getHeader().setFlag(Flags.QR);
+    if (authoritative) {
+      response.getHeader().setFlag(Flags.AA);
+    }
+
+    response.getHeader().setRcode(rcode);
+    response.addRecord(query.getQuestion(), Section.QUESTION);
+    return response.toWire();
+  }
+
+  @Test
+  void simpleQueryHasKey() {
+    assertThat(key(query())).isNotNull();
+    assertThat(key(edns(query(), 1232, ExtendedFlags.DO))).isNotNull();
+  }
+
+  @Test
+  void queryWithTsigHasNoKey() throws IOException {
+    Message query = query();
+    query.setTSIG(new TSIG(TSIG.HMAC_SHA256, "key.", "c2VjcmV0c2VjcmV0c2VjcmV0"));
+    // the TSIG is only added with a maximum length
+    byte[] in = query.toWire(Message.MAXLENGTH);
+    assertThat(new Message(in).getTSIG()).isNotNull();
+    assertThat(ResponseCache.key(in, false)).isNull();
+  }
+
+  @Test
+  void queryWithCompressedNameHasNoKey() {
+    byte[] in = query().toWire();
+    // replace the name with a pointer to the header
+    byte[] compressed = new byte[12 + 2 + 4];
+    System.arraycopy(in, 0, compressed, 0, 12);
+    compressed[12] = (byte) 0xC0;
+    compressed[13] = 0;
+    System.arraycopy(in, in.length - 4, compressed, 14, 4);
+    assertThat(ResponseCache.key(compressed, false)).isNull();
+  }
+
+  @Test
+  void queryWithExtraRecordsHasNoKey() {
+    Record a = Record.newRecord(NAME, Type.A, DClass.IN, 0, new byte[] {1, 2, 3, 4});
+    Message answer = query();
+    answer.addRecord(a, Section.ANSWER);
+    Message authority = query();
+    authority.addRecord(a, Section.AUTHORITY);
+    Message additional = query();
+    additional.addRecord(a, Section.ADDITIONAL);
+
+    assertThat(key(answer)).isNull();
+    assertThat(key(authority)).isNull();
+    assertThat(key(additional)).isNull();
+  }
+
+  @Test
+  void responseOrOtherOpcodeHasNoKey() {
+    Message response = query();
+    response.getHeader().setFlag(Flags.QR);
+    Message notify = query();
+    notify.getHeader().setOpcode(Opcode.NOTIFY);
+
+    assertThat(key(response)).isNull();
+    assertThat(key(notify)).isNull();
+  }
+
+  @Test
+  void keysDifferByEdnsAndTransport() {
+    ResponseCache.Key plain = key(query());
+    ResponseCache.Key edns512 = key(edns(query(), 512, 0));
+    ResponseCache.Key edns1232 = key(edns(query(), 1232, 0));
+    ResponseCache.Key dnssecOk = key(edns(query(), 1232, ExtendedFlags.DO));
+    ResponseCache.Key tcp = ResponseCache.key(query().toWire(), true);
+
+    assertThat(plain).isEqualTo(key(query()));
+    assertThat(plain).isNotEqualTo(edns512).isNotEqualTo(tcp);
+    assertThat(edns512).isNotEqualTo(edns1232);
+    assertThat(edns1232).isNotEqualTo(dnssecOk);
+  }
+
+  @Test
+  void keyIgnoresCaseOfName() {
+    ResponseCache.Key lower = key(query("www.example."));
+    ResponseCache.Key mixed = key(query("WwW.ExAmPlE."));
+    assertThat(lower).isEqualTo(mixed).hasSameHashCodeAs(mixed);
+    assertThat(lower).isNotEqualTo(key(query("www.example.com.")));
+  }
+
+  @Test
+  void hitIsPatchedForQuery() throws IOException {
+    Message first = query("www.example.");
+    first.getHeader().setID(1);
+    first.getHeader().unsetFlag(Flags.RD);
+    ResponseCache.Key key = key(first);
+    cache.put(key, cache.generation(), response(first, Rcode.NOERROR, true));
+
+    Message second = query("WWW.Example.");
+    second.getHeader().setID(2);
+    second.getHeader().setFlag(Flags.RD);
+    byte[] cached = cache.get(key(second), second.toWire());
+
+    assertThat(cached).isNotNull();
+    Message response = new Message(cached);
+    assertThat(response.getHeader().getID()).isEqualTo(2);
+    assertThat(response.getHeader().getFlag(Flags.RD)).isTrue();
+    assertThat(response.getHeader().getFlag(Flags.AA)).isTrue();
+    assertThat(response.getQuestion().getName().toString()).isEqualTo("WWW.Example.");
+  }
+
+  @Test
+  void onlyAuthoritativeAnswersAreCached() {
+    Message query = query();
+    ResponseCache.Key key = key(query);
+    cache.put(key, cache.generation(), response(query, Rcode.NOERROR, false));
+    assertThat(cache.get(key, query.toWire())).isNull();
+
+    cache.put(key, cache.generation(), response(query, Rcode.SERVFAIL, true));
+    assertThat(cache.get(key, query.toWire())).isNull();
+
+    cache.put(key, cache.generation(), response(query, Rcode.NXDOMAIN, true));
+    assertThat(cache.get(key, query.toWire())).isNotNull();
+  }
+
+  @Test
+  void staleGenerationIsNeitherServedNorStored() {
+    Message query = query();
+    ResponseCache.Key key = key(query);
+    cache.put(key, cache.generation(), response(query, Rcode.NOERROR, true));
+    cache.clear();
+    assertThat(cache.get(key, query.toWire())).isNull();
+
+    // computed before the zone changed, stored afterwards
+    long generation = cache.generation();
+    cache.clear();
+    cache.put(key, generation, response(query, Rcode.NOERROR, true));
+    assertThat(cache.get(key, query.toWire())).isNull();
+
+    cache.put(key, cache.generation(), response(query, Rcode.NOERROR, true));
+    assertThat(cache.get(key, query.toWire())).isNotNull();
+  }
+}
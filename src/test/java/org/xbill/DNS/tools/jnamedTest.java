@@ -0,0 +1,204 @@
+// SPDX-License-Identifier: BSD-3-Clause
+package org.xbill.DNS.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.OPTRecord;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+import org.xbill.DNS.Zone;
+import org.xbill.DNS.ZoneTransferIn;
+
+class jnamedTest {
+  private static final Name ORIGIN = Name.fromConstantString("example.");
+
+  private static final String ZONE =
+      "$ORIGIN example.\n"
+          + "$TTL 3600\n"
+          + "@ SOA ns hostmaster 1 3600 600 86400 300\n"
+          + "@ NS ns\n"
+          + "ns A 192.0.2.1\n"
+          + "www A 192.0.2.2\n"
+          + bigRRset();
+
+  /** 12 TXT records of about 70 bytes each, about 900 bytes in a response. */
+  private static String bigRRset() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 12; i++) {
+      sb.append("big TXT \"record ")
+          .append(i)
+          .append(" of a response that is larger than 512 bytes\"\n");
+    }
+
+    return sb.toString();
+  }
+
+  private jnamed server;
+  private Zone zone;
+  private InetSocketAddress address;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    zone = new Zone(ORIGIN, new ByteArrayInputStream(ZONE.getBytes(StandardCharsets.US_ASCII)));
+    server = new jnamed();
+    server.setThreads(1);
+    server.addZone(zone);
+    InetAddress localhost = InetAddress.getLoopbackAddress();
+    address = server.listenTCP(localhost, 0);
+    server.listenUDP(localhost, address.getPort());
+  }
+
+  @AfterEach
+  void afterEach() {
+    server.close();
+  }
+
+  private void setSerial(long serial) {
+    SOARecord soa = zone.getSOA();
+    zone.addRecord(
+        new SOARecord(
+            ORIGIN,
+            DClass.IN,
+            soa.getTTL(),
+            soa.getHost(),
+            soa.getAdmin(),
+            serial,
+            soa.getRefresh(),
+            soa.getRetry(),
+            soa.getExpire(),
+            soa.getMinimum()));
+  }
+
+  private ZoneTransferIn ixfr(long serial) throws Exception {
+    ZoneTransferIn xfrin = ZoneTransferIn.newIXFR(ORIGIN, serial, false, address, null);
+    xfrin.setTimeout(Duration.ofSeconds(5));
+    xfrin.run();
+    return xfrin;
+  }
+
+  private Message udpQuery(Message query) throws IOException {
+    byte[] wire = query.toWire();
+    try (DatagramSocket socket = new DatagramSocket()) {
+      socket.setSoTimeout(5000);
+      socket.send(new DatagramPacket(wire, wire.length, address));
+      DatagramPacket packet = new DatagramPacket(new byte[65535], 65535);
+      socket.receive(packet);
+      Message response = new Message(Arrays.copyOf(packet.getData(), packet.getLength()));
+      assertThat(response.getHeader().getID()).isEqualTo(query.getHeader().getID());
+      assertThat(packet.getLength()).isEqualTo(response.numBytes());
+      return response;
+    }
+  }
+
+  private static Message bigQuery(int payloadSize) {
+    Message query =
+        Message.newQuery(
+            Record.newRecord(Name.fromConstantString("big.example."), Type.TXT, DClass.IN));
+    if (payloadSize > 0) {
+      query.addRecord(new OPTRecord(payloadSize, 0, 0), Section.ADDITIONAL);
+    }
+
+    return query;
+  }
+
+  @Test
+  void udpQueryIsAnswered() throws IOException {
+    Message response =
+        udpQuery(
+            Message.newQuery(
+                Record.newRecord(Name.fromConstantString("www.example."), Type.A, DClass.IN)));
+    assertThat(response.getHeader().getFlag(Flags.AA)).isTrue();
+    assertThat(response.getSection(Section.ANSWER))
+        .containsExactly(
+            zone.findExactMatch(Name.fromConstantString("www.example."), Type.A).first());
+  }
+
+  @Test
+  void udpResponseIsTruncatedTo512Bytes() throws IOException {
+    Message response = udpQuery(bigQuery(0));
+    assertThat(response.getHeader().getFlag(Flags.TC)).isTrue();
+    assertThat(response.numBytes()).isLessThanOrEqualTo(512);
+  }
+
+  @Test
+  void udpResponseIsTruncatedToPayloadSize() throws IOException {
+    Message response = udpQuery(bigQuery(1232));
+    assertThat(response.getHeader().getFlag(Flags.TC)).isFalse();
+    assertThat(response.getSection(Section.ANSWER)).hasSize(12);
+    assertThat(response.numBytes()).isGreaterThan(512);
+
+    response = udpQuery(bigQuery(600));
+    assertThat(response.getHeader().getFlag(Flags.TC)).isTrue();
+    assertThat(response.numBytes()).isLessThanOrEqualTo(600);
+  }
+
+  @Test
+  void axfrIsStreamed() throws Exception {
+    ZoneTransferIn xfrin = ZoneTransferIn.newAXFR(ORIGIN, address, null);
+    xfrin.setTimeout(Duration.ofSeconds(5));
+    xfrin.run();
+    assertThat(new Zone(ORIGIN, xfrin.getAXFR().toArray(new Record[0])).toMasterFile())
+        .isEqualTo(zone.toMasterFile());
+  }
+
+  @Test
+  void ixfrFromJournal() throws Exception {
+    Record added =
+        new ARecord(
+            Name.fromConstantString("new.example."),
+            DClass.IN,
+            3600,
+            InetAddress.getByName("192.0.2.3"));
+    zone.addRecord(added);
+    setSerial(2);
+
+    ZoneTransferIn xfrin = ixfr(1);
+    assertThat(xfrin.isIXFR()).isTrue();
+    List<ZoneTransferIn.Delta> deltas = xfrin.getIXFR();
+    assertThat(deltas).hasSize(1);
+    assertThat(deltas.get(0).adds).contains(added);
+    assertThat(ixfr(2).isCurrent()).isTrue();
+  }
+
+  @Test
+  void ixfrOfUnknownSerialIsAxfr() throws Exception {
+    setSerial(2);
+
+    ZoneTransferIn xfrin = ixfr(0);
+    assertThat(xfrin.isAXFR()).isTrue();
+    assertThat(new Zone(ORIGIN, xfrin.getAXFR().toArray(new Record[0])).toMasterFile())
+        .isEqualTo(zone.toMasterFile());
+  }
+
+  @Test
+  void ixfrOverUdpIsCurrentSoa() throws Exception {
+    setSerial(2);
+
+    Message query = Message.newQuery(Record.newRecord(ORIGIN, Type.IXFR, DClass.IN));
+    query.addRecord(
+        new SOARecord(ORIGIN, DClass.IN, 0, Name.root, Name.root, 1, 0, 0, 0, 0),
+        Section.AUTHORITY);
+    Message response = udpQuery(query);
+    assertThat(response.getSection(Section.ANSWER)).containsExactly(zone.getSOA());
+  }
+}